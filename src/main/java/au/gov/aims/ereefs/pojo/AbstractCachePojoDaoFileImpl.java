@@ -1,68 +1,410 @@
 package au.gov.aims.ereefs.pojo;
 
+import au.gov.aims.ereefs.pojo.utils.DirectorySnapshot;
 import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
-import org.json.JSONObject;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Abstract specialisation of the {@link AbstractPojoDaoFileImpl} to add generic caching
  * functionality.
+ * <p>
+ * The cache is populated in full on first use, and is then maintained incrementally: records
+ * persisted through the DAO update only their own entry, and changes made by other processes are
+ * detected by comparing {@link DirectorySnapshot}s of the directory (at most once per
+ * {@link #setRefreshInterval(long) refresh interval}), so only the files that have been added or
+ * changed are reparsed, and the records of deleted files are removed.
+ * </p>
+ * <p>
+ * Specialisations can declare secondary indexes over the cache with
+ * {@link #addIndex(String, Function)}, which are maintained alongside it.
+ * </p>
+ * <p>
+ * A single instance may be shared between threads. Reads never block once the cache has been
+ * populated: the cache and indexes are concurrent maps, and all changes to them are made by a
+ * single writer at a time while holding the {@link #writeLock}. A read that is due to refresh the
+ * cache only does so if no other thread is already writing. Persisting a record writes the file
+ * outside the {@link #writeLock}, holding a lock striped by id so that concurrent persists of the
+ * same record reach the file and the cache in the same order.
+ * </p>
  *
  * @author Aaron Smith
  */
 public abstract class AbstractCachePojoDaoFileImpl<T> extends AbstractPojoDaoFileImpl<T> {
 
     /**
-     * Internal cache of records populated on the first invocation of {@link #getInternalCache()}.
+     * The default value of {@link #refreshIntervalMillis}.
      */
-    protected Map<String, T> internalCache = new TreeMap<>();
+    final static public long DEFAULT_REFRESH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The number of locks in {@link #persistLocks}.
+     */
+    final static protected int PERSIST_LOCK_STRIPES = 32;
+
+    /**
+     * Internal cache of records populated on the first invocation of {@link #getInternalCache()},
+     * keyed by id.
+     */
+    protected Map<String, T> internalCache = new ConcurrentSkipListMap<>();
+
+    /**
+     * The secondary indexes declared with {@link #addIndex(String, Function)}.
+     */
+    final protected List<CacheIndex<T>> indexes = new CopyOnWriteArrayList<>();
 
     /**
      * Internal flag to determine if the {@link #internalCache internal cache} has been populated.
      */
-    protected boolean isCached = false;
+    protected volatile boolean isCached = false;
+
+    /**
+     * Lock held by the single thread populating, refreshing or otherwise changing the
+     * {@link #internalCache internal cache}, the indexes and the file tracking state.
+     */
+    final protected ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Locks striped by id, held while a record is written to its file and then to the cache.
+     */
+    final protected Object[] persistLocks = new Object[PERSIST_LOCK_STRIPES];
+
+    /**
+     * The state of the files the {@link #internalCache internal cache} was populated from.
+     */
+    protected DirectorySnapshot snapshot = new DirectorySnapshot();
+
+    /**
+     * The id of the record loaded from each file, for removing the record when the file is
+     * deleted.
+     */
+    protected Map<File, String> fileIds = new HashMap<>();
+
+    /**
+     * The file each cached record was loaded from (or persisted to), keyed by id.
+     */
+    protected Map<String, File> idFiles = new HashMap<>();
+
+    /**
+     * Minimum time between checks of the directory for changes made by other processes. A value
+     * of {@code 0} checks on every access, and a negative value never checks.
+     */
+    protected long refreshIntervalMillis = DEFAULT_REFRESH_INTERVAL_MILLIS;
+
+    /**
+     * The time the directory was last checked for changes.
+     */
+    protected volatile long lastRefreshMillis;
 
     /**
      * Constructor.
      */
     public AbstractCachePojoDaoFileImpl(String path) {
         super(path);
+        for (int index = 0; index < PERSIST_LOCK_STRIPES; index++) {
+            this.persistLocks[index] = new Object();
+        }
+    }
+
+    /**
+     * Declare a secondary index over the {@link #internalCache internal cache}, which is
+     * maintained as records are added, replaced and removed. This is typically invoked from the
+     * constructor of the specialisation, and the index is queried with
+     * {@link #getByIndex(CacheIndex, String)}.
+     *
+     * @param name the name of the index.
+     * @param keyExtractor returns the key of the index for a record, or {@code null} if the
+     *                     record should not be indexed.
+     * @return the index.
+     */
+    protected CacheIndex<T> addIndex(String name, Function<T, String> keyExtractor) {
+        final CacheIndex<T> index = new CacheIndex<>(name, keyExtractor, this::getPojoId);
+        for (T pojo : this.internalCache.values()) {
+            index.add(pojo);
+        }
+        this.indexes.add(index);
+        return index;
+    }
+
+    /**
+     * Returns the cached records with the specified key in the specified index, or an empty list
+     * if there are none.
+     */
+    protected List<T> getByIndex(CacheIndex<T> index, String key) {
+        this.getInternalCache();
+        return index.get(key);
+    }
+
+    /**
+     * Set the minimum time between checks of the directory for changes made by other processes.
+     * A value of {@code 0} checks on every access, and a negative value never checks.
+     */
+    public void setRefreshInterval(long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
     }
 
     /**
      * Provides access to the {@link #internalCache internal cache}. The internal cache is
-     * automatically populated if not already (see {@link #isCached}).
+     * automatically populated if not already (see {@link #isCached}), and is otherwise refreshed
+     * from the files that have changed since it was populated. The files are parsed in parallel,
+     * and a file which cannot be parsed is logged and skipped.
      */
     protected Map<String, T> getInternalCache() {
         if (!this.isCached) {
-            this.internalCache.clear();
+
+            // Populate the cache, unless another thread did while this thread was waiting.
+            this.writeLock.lock();
             try {
-                for (JSONObject json : JSONFileReader.loadList(this.path)) {
-                    T pojo = this.convertToPojo(json.toString());
-                    if (pojo != null) {
-                        this.internalCache.put(this.getPojoId(pojo), pojo);
+                if (!this.isCached) {
+                    this.internalCache.clear();
+                    for (CacheIndex<T> index : this.indexes) {
+                        index.clear();
                     }
+                    this.fileIds.clear();
+                    this.idFiles.clear();
+                    this.snapshot = new DirectorySnapshot();
+                    this.refresh();
+                    this.isCached = true;
                 }
-            } catch (IOException ignore) {
-                System.err.println("Failed to load records at \"" + this.path + "\".");
-                ignore.printStackTrace(System.err);
+            } finally {
+                this.writeLock.unlock();
             }
-            this.isCached = true;
+
+        } else if (this.refreshIntervalMillis >= 0 &&
+            System.currentTimeMillis() - this.lastRefreshMillis >= this.refreshIntervalMillis) {
+
+            // Refresh the cache, unless another thread is already writing to it.
+            if (this.writeLock.tryLock()) {
+                try {
+                    this.refresh();
+                } finally {
+                    this.writeLock.unlock();
+                }
+            }
+
         }
         return this.internalCache;
     }
 
+    /**
+     * Compare the directory with the {@link #snapshot} from the previous refresh, reparsing the
+     * files that have been added or changed, and removing the records of the files that have been
+     * deleted. Must be invoked while holding the {@link #writeLock}.
+     */
+    protected void refresh() {
+        this.lastRefreshMillis = System.currentTimeMillis();
+        final Consumer<JSONFileReader.LoadFailure> failureHandler = failure ->
+            this.logger.warn("Failed to load record at \"" + failure.getFile() + "\".", failure.getException());
+        final DirectorySnapshot current;
+        try {
+            current = DirectorySnapshot.take(this.path, failureHandler);
+        } catch (IOException e) {
+            this.logger.warn("Failed to load records at \"" + this.path + "\".", e);
+            return;
+        }
+
+        for (File file : current.getRemovedSince(this.snapshot)) {
+            this.removeCachedFile(file);
+        }
+        final List<File> changed = current.getChangedSince(this.snapshot);
+        this.snapshot = current;
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        // Replace the records of the changed files in place, so readers never observe a gap, then
+        // remove the records of the changed files which no longer parse.
+        final Set<File> parsed = new HashSet<>();
+        try (final Stream<Map.Entry<File, T>> entries = JSONFileReader.stream(
+            changed,
+            file -> {
+                final T pojo = this.convertToPojo(file);
+                return (pojo != null) ? new AbstractMap.SimpleImmutableEntry<>(file, pojo) : null;
+            },
+            failureHandler
+        )) {
+            entries.forEachOrdered(entry -> {
+                this.putCachedFile(entry.getKey(), entry.getValue());
+                parsed.add(entry.getKey());
+            });
+        }
+        for (File file : changed) {
+            if (!parsed.contains(file)) {
+                this.removeCachedFile(file);
+            }
+        }
+    }
+
+    /**
+     * Add the record loaded from (or persisted to) the specified file to the
+     * {@link #internalCache internal cache}, replacing any previous record with the same id.
+     * Must be invoked while holding the {@link #writeLock}.
+     */
+    protected void putCachedFile(File file, T pojo) {
+        final String id = this.getPojoId(pojo);
+        if (id == null) {
+            this.logger.warn("Ignoring record without an id at \"" + file + "\".");
+            return;
+        }
+        final String previousId = this.fileIds.put(file, id);
+        if (previousId != null && !previousId.equals(id) && file.equals(this.idFiles.get(previousId))) {
+            this.idFiles.remove(previousId);
+            this.removed(this.internalCache.remove(previousId));
+        }
+        this.idFiles.put(id, file);
+
+        // Index the new record before removing the previous one, so readers never observe a gap.
+        final T previous = this.internalCache.put(id, pojo);
+        this.added(pojo);
+        if (previous != pojo) {
+            this.removed(previous);
+        }
+    }
+
+    /**
+     * Remove the record loaded from the specified file from the
+     * {@link #internalCache internal cache}, unless the record has since been replaced from
+     * another file. Must be invoked while holding the {@link #writeLock}.
+     */
+    protected void removeCachedFile(File file) {
+        final String id = this.fileIds.remove(file);
+        if (id != null && file.equals(this.idFiles.get(id))) {
+            this.idFiles.remove(id);
+            this.removed(this.internalCache.remove(id));
+        }
+    }
+
+    /**
+     * Invoked when a record is added to the {@link #internalCache internal cache}, to add it to
+     * the secondary indexes.
+     */
+    protected void added(T pojo) {
+        for (CacheIndex<T> index : this.indexes) {
+            index.add(pojo);
+        }
+    }
+
+    /**
+     * Invoked when a record is removed from (or replaced in) the
+     * {@link #internalCache internal cache}, to remove it from the secondary indexes. The
+     * {@code pojo} may be {@code null}.
+     */
+    protected void removed(T pojo) {
+        for (CacheIndex<T> index : this.indexes) {
+            index.remove(pojo);
+        }
+    }
+
+    /**
+     * Persist the JSON representation of a record to the file named by its id, then update only
+     * that entry of the {@link #internalCache internal cache}. If the {@code pojo} is
+     * {@code null}, it is parsed from the file when the cache needs it.
+     *
+     * @return the file written.
+     */
+    protected File persist(String id, String json, T pojo) {
+        synchronized (this.persistLocks[Math.floorMod(id.hashCode(), PERSIST_LOCK_STRIPES)]) {
+            final File file = this.write(id, json);
+            this.cachePersisted(file, pojo);
+            return file;
+        }
+    }
+
+    /**
+     * Helper method to persist the JSON representation of a record to the file named by its id,
+     * where the {@link #fileLayout} places it, returning the file. The file is written atomically
+     * by the {@link #fileWriter}, so concurrent readers and refreshes never observe a partially
+     * written file. A copy of the record in the other layout is then
+     * removed, so the record is moved to the current layout.
+     */
+    protected File write(String id, String json) {
+        final File file = this.fileLayout.getFile(this.path, id, ".json");
+        try {
+            this.fileWriter.write(file, json);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + this.getPojoClass().getSimpleName() +
+                " object.", e);
+        }
+        final File misplaced = this.fileLayout.findMisplaced(this.path, id, ".json");
+        if (misplaced != null) {
+            misplaced.delete();
+        }
+        return file;
+    }
+
+    /**
+     * Update the {@link #internalCache internal cache} with a record that has just been persisted
+     * to the specified file, without reparsing any other file. If the cache has not been populated
+     * yet, the record will be loaded when it is. If the {@code pojo} is {@code null}, it is parsed
+     * from the file.
+     */
+    protected void cachePersisted(File file, T pojo) {
+        if (pojo == null && !this.isCached) {
+            return;
+        }
+        final T cachedPojo = (pojo != null) ? pojo : this.convertToPojo(file);
+
+        // Wait for any population of the cache in progress, which may not include the file.
+        this.writeLock.lock();
+        try {
+            if (this.isCached) {
+                this.snapshot.update(file);
+                this.putCachedFile(file, cachedPojo);
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
     @Override
     public T getById(String id) {
         return this.getInternalCache().get(id);
     }
 
+    /**
+     * Retrieve the records from the {@link #internalCache internal cache}, refreshing it at most
+     * once. The cache is not locked while the records are read, so a record persisted concurrently
+     * may be returned in its new state while the others are in their old state.
+     */
+    @Override
+    public Map<String, T> getByIds(Collection<String> ids) {
+        final Map<String, T> cache = this.getInternalCache();
+        final Map<String, T> pojos = new LinkedHashMap<>();
+        for (String id : ids) {
+            final T pojo = (id == null) ? null : cache.get(id);
+            if (pojo != null) {
+                pojos.put(id, pojo);
+            }
+        }
+        return pojos;
+    }
+
     @Override
     public T persist(T pojo) {
         throw new RuntimeException("Not implemented.");
     }
 
+    /**
+     * Persist the records in parallel, as {@link #persist(Object)} may be invoked concurrently.
+     */
+    @Override
+    public PersistResult<T> persistAll(Collection<T> pojos) {
+        return PersistResult.persistEach(pojos, this::persist, true);
+    }
+
 }
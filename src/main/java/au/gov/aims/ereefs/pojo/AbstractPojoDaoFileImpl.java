@@ -1,6 +1,11 @@
 package au.gov.aims.ereefs.pojo;
 
+import au.gov.aims.ereefs.pojo.utils.AtomicFileWriter;
+import au.gov.aims.ereefs.pojo.utils.FileLayout;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Extends {@link AbstractPojoDaoImpl} to support a {@code file-based} {@link PojoDao} repository.
@@ -15,6 +20,16 @@ abstract public class AbstractPojoDaoFileImpl<T> extends AbstractPojoDaoImpl<T>
      */
     protected File path;
 
+    /**
+     * How the files are arranged beneath the {@link #path}. Files are read from either layout.
+     */
+    protected FileLayout fileLayout = FileLayout.FLAT;
+
+    /**
+     * Writes the files of the records, forcing them to disk as its durability requires.
+     */
+    protected AtomicFileWriter fileWriter = AtomicFileWriter.NON_DURABLE;
+
     /**
      * Constructor to capture references to the parent directory containing the metadata.
      *
@@ -31,4 +46,35 @@ abstract public class AbstractPojoDaoFileImpl<T> extends AbstractPojoDaoImpl<T>
         }
     }
 
+    /**
+     * Set how the files are written beneath the {@link #path}. Files written in the other layout
+     * are still read, and are moved when they are next written.
+     */
+    public void setFileLayout(FileLayout fileLayout) {
+        this.fileLayout = fileLayout;
+    }
+
+    /**
+     * Set how the files of the records are written, such as to force them to disk. A single
+     * {@link AtomicFileWriter} may be shared by the DAOs of a process, so their concurrent writes
+     * share the {@code fsync}s of a group commit.
+     */
+    public void setFileWriter(AtomicFileWriter fileWriter) {
+        this.fileWriter = fileWriter;
+    }
+
+    /**
+     * Factory method to convert the {@code JSON} file to a POJO using the {@link #jsonMapper},
+     * without creating a {@code String} copy of the file (see
+     * {@link JSONFileReader#loadFile(File, com.fasterxml.jackson.databind.ObjectMapper, Class)}).
+     */
+    protected T convertToPojo(final File file) {
+        try {
+            return JSONFileReader.loadFile(file, this.jsonMapper, this.getPojoClass());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to instantiate \"" + this.getPojoClass() + "\" from \"" +
+                file + "\".", e);
+        }
+    }
+
 }
@@ -0,0 +1,189 @@
+package au.gov.aims.ereefs.pojo;
+
+import au.gov.aims.ereefs.pojo.logstore.LogStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Extends {@link AbstractPojoDaoImpl} to support a {@link PojoDao} repository held in a
+ * {@link LogStore}, as an alternative to the one file per record of the {@code file-based}
+ * implementations. Each {@code persist} appends the JSON of the record to a segment file, so
+ * frequent small updates (eg: the status of a {@code Task}) are sequential writes, rather than a
+ * new file each.
+ * <p>
+ * Specialisations declare the attributes of each record (see {@link #getAttributes(Object)}),
+ * which are held in memory by the {@link LogStore}, so records are found by those attributes (see
+ * {@link #find(Predicate)}) without reading the other records.
+ * </p>
+ * <p>
+ * The {@link LogStore} is held by a single process. A single instance may be shared between
+ * threads, and should be {@link #close() closed} when it is no longer required.
+ * </p>
+ */
+abstract public class AbstractPojoDaoLogStoreImpl<T> extends AbstractPojoDaoImpl<T> {
+
+    /**
+     * The number of locks in {@link #updateLocks}.
+     */
+    final static protected int UPDATE_LOCK_STRIPES = 64;
+
+    final protected LogStore store;
+
+    /**
+     * Locks striped by id, held while a record is read, modified and written (see
+     * {@link #update(String, Predicate)}).
+     */
+    final protected Object[] updateLocks = new Object[UPDATE_LOCK_STRIPES];
+
+    /**
+     * Constructor to open the {@link LogStore} in the specified directory.
+     *
+     * @param path the path to the directory of the store.
+     */
+    public AbstractPojoDaoLogStoreImpl(String path) {
+        this(new LogStore(new File(path)));
+    }
+
+    /**
+     * Constructor to capture a reference to an open {@link LogStore}.
+     */
+    public AbstractPojoDaoLogStoreImpl(LogStore store) {
+        super();
+        this.store = store;
+        for (int index = 0; index < UPDATE_LOCK_STRIPES; index++) {
+            this.updateLocks[index] = new Object();
+        }
+    }
+
+    /**
+     * Returns the {@link LogStore}, such as to configure it.
+     */
+    public LogStore getStore() {
+        return this.store;
+    }
+
+    /**
+     * Close the {@link LogStore}.
+     */
+    public void close() {
+        this.store.close();
+    }
+
+    /**
+     * Returns the attributes of the record to hold in memory. The default implementation returns
+     * none.
+     */
+    protected Map<String, String> getAttributes(T pojo) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Factory method to convert the {@code JSON} bytes of a record to a POJO using the
+     * {@link #jsonMapper}.
+     */
+    protected T convertToPojo(byte[] json) {
+        try {
+            return this.jsonMapper.readValue(json, this.getPojoClass());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to instantiate \"" + this.getPojoClass() + "\".", e);
+        }
+    }
+
+    @Override
+    public T getById(String id) {
+        final byte[] json = this.store.get(id);
+        return (json == null) ? null : this.convertToPojo(json);
+    }
+
+    /**
+     * Retrieve the records in parallel, as each is read and parsed independently.
+     */
+    @Override
+    public Map<String, T> getByIds(Collection<String> ids) {
+        final Set<String> idSet = new LinkedHashSet<>(ids);
+        idSet.remove(null);
+        final Map<String, T> loaded = new ConcurrentHashMap<>();
+        idSet.parallelStream().forEach(id -> {
+            final T pojo = this.getById(id);
+            if (pojo != null) {
+                loaded.put(id, pojo);
+            }
+        });
+
+        // Order the result by the requested ids.
+        final Map<String, T> pojos = new LinkedHashMap<>();
+        for (String id : idSet) {
+            final T pojo = loaded.get(id);
+            if (pojo != null) {
+                pojos.put(id, pojo);
+            }
+        }
+        return pojos;
+    }
+
+    /**
+     * Returns the records whose attributes match the {@code filter}, in {@code id} order.
+     */
+    protected List<T> find(Predicate<Map<String, String>> filter) {
+        return new ArrayList<>(this.getByIds(this.store.find(filter)).values());
+    }
+
+    @Override
+    public T persist(T pojo) {
+        this.write(pojo);
+        return pojo;
+    }
+
+    /**
+     * Append the JSON of the record, with its attributes, to the {@link #store}. Invoked by
+     * {@link #persist(Object)} and {@link #update(String, Predicate)}.
+     */
+    protected void write(T pojo) {
+        final String id = this.getPojoId(pojo);
+        try {
+            this.store.put(id, this.jsonMapper.writeValueAsBytes(pojo), this.getAttributes(pojo));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + this.getPojoClass().getSimpleName() +
+                " object (\"" + id + "\").", e);
+        }
+    }
+
+    /**
+     * Persist the records in parallel. The records are encoded in parallel, and appended in turn.
+     */
+    @Override
+    public PersistResult<T> persistAll(Collection<T> pojos) {
+        return PersistResult.persistEach(pojos, this::persist, true);
+    }
+
+    /**
+     * Apply the {@code update} to the record while holding the lock of its id, writing the record
+     * if the {@code update} returns {@code true}, so concurrent updates of the record are
+     * serialised.
+     *
+     * @return the updated record, or {@code null} if the record does not exist or was not
+     * updated.
+     */
+    protected T update(String id, Predicate<T> update) {
+        synchronized (this.updateLocks[Math.floorMod(id.hashCode(), UPDATE_LOCK_STRIPES)]) {
+            final T pojo = this.getById(id);
+            if (pojo == null || !update.test(pojo)) {
+                return null;
+            }
+            this.write(pojo);
+            return pojo;
+        }
+    }
+
+}
@@ -1,15 +1,48 @@
 package au.gov.aims.ereefs.pojo;
 
+import au.gov.aims.ereefs.pojo.shared.HistoryArchive;
+import au.gov.aims.ereefs.pojo.shared.HistoryPolicy;
+import au.gov.aims.ereefs.pojo.shared.StatusEvent;
+import au.gov.aims.ereefs.pojo.utils.JacksonCodec;
+import au.gov.aims.ereefs.pojo.utils.JacksonCodecProvider;
+import au.gov.aims.ereefs.pojo.utils.JacksonProjection;
+import au.gov.aims.ereefs.pojo.utils.StatusEventSerializer;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.ChangeStreamIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.PushOptions;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocumentReader;
 import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.conversions.Bson;
 import org.bson.json.JsonMode;
 import org.bson.json.JsonWriterSettings;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Extends {@link AbstractPojoDaoImpl} to support a MongoDB-based repository.
@@ -18,6 +51,11 @@ import java.io.IOException;
  */
 abstract public class AbstractPojoDaoMongoDbImpl<T> extends AbstractPojoDaoImpl<T> {
 
+    /**
+     * The default value of {@link #inChunkSize}.
+     */
+    final static public int DEFAULT_IN_CHUNK_SIZE = 1000;
+
     /**
      * Cached reference to the connection to {@code MongoDB}.
      */
@@ -28,6 +66,35 @@ abstract public class AbstractPojoDaoMongoDbImpl<T> extends AbstractPojoDaoImpl<
      */
     protected MongoCollection<Document> collection;
 
+    /**
+     * View of the {@link #collection} which reads and writes POJOs directly, using a
+     * {@link JacksonCodec}. See {@link #getPojoCollection()}.
+     */
+    protected volatile MongoCollection<T> pojoCollection;
+
+    /**
+     * Projection of the fields bound to the POJO, derived from the {@link #jsonMapper}. See
+     * {@link #getProjection()}.
+     */
+    protected volatile JacksonProjection projection;
+
+    /**
+     * The maximum number of ids in each {@code $in} query issued by {@link #getByIds(Collection)}.
+     */
+    protected int inChunkSize = DEFAULT_IN_CHUNK_SIZE;
+
+    /**
+     * How the {@code history} of the POJOs is stored. See
+     * {@link #setHistoryPolicy(HistoryPolicy, HistoryArchive)}.
+     */
+    protected HistoryPolicy historyPolicy = HistoryPolicy.UNBOUNDED;
+
+    /**
+     * The archive of the events moved out of the {@code history} of the POJOs, or {@code null}
+     * to discard them.
+     */
+    protected HistoryArchive historyArchive;
+
     /**
      * Settings to use for MongoDB API when converting a Document to {@code String}.
      */
@@ -42,6 +109,195 @@ abstract public class AbstractPojoDaoMongoDbImpl<T> extends AbstractPojoDaoImpl<
         this.collection = this.mongoDatabase.getCollection(collectionName, Document.class);
     }
 
+    /**
+     * Set the maximum number of ids in each {@code $in} query issued by
+     * {@link #getByIds(Collection)}, which bounds the size of each query document.
+     */
+    public void setInChunkSize(int inChunkSize) {
+        if (inChunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive (" + inChunkSize + ").");
+        }
+        this.inChunkSize = inChunkSize;
+    }
+
+    /**
+     * Set how the {@code history} of the POJOs is stored (for POJOs which have one, see
+     * {@link #getHistory(Object)}). This should be set before the repository is used.
+     *
+     * @param historyPolicy the policy.
+     * @param historyArchive the archive of the events moved out of the documents, or {@code null}
+     *                       to discard them.
+     */
+    public void setHistoryPolicy(HistoryPolicy historyPolicy,
+                                 HistoryArchive historyArchive) {
+        this.historyPolicy = historyPolicy;
+        this.historyArchive = historyArchive;
+        this.jsonMapper = historyPolicy.configure(this.jsonMapper);
+        this.pojoCollection = null;
+        this.projection = null;
+    }
+
+    /**
+     * Returns the (modifiable) {@code history} of the POJO, or {@code null} if it has none. The
+     * default implementation returns {@code null}.
+     */
+    protected List<StatusEvent> getHistory(T pojo) {
+        return null;
+    }
+
+    /**
+     * Returns the {@code enum} of the statuses in the {@code history} of the POJO, used when
+     * writing an event in the compact form, or {@code null} to record the status by name. The
+     * default implementation returns {@code null}.
+     */
+    protected Class<? extends Enum<?>> getStatusEnum() {
+        return null;
+    }
+
+    /**
+     * Move the oldest events of the {@code history} of the POJO to the {@link #historyArchive},
+     * as the {@link #historyPolicy} specifies.
+     */
+    protected void applyHistoryPolicy(T pojo) {
+        this.historyPolicy.apply(this.getPojoId(pojo), this.getHistory(pojo), this.historyArchive);
+    }
+
+    /**
+     * Returns a view of the underlying {@code Collection} which decodes query results directly
+     * into POJOs, and encodes POJOs directly to BSON, using a {@link JacksonCodec} built from the
+     * {@link #jsonMapper}. This avoids converting each {@code Document} to and from a JSON
+     * {@code String}.
+     */
+    protected MongoCollection<T> getPojoCollection() {
+        if (this.pojoCollection == null) {
+            this.pojoCollection = this.collection
+                .withCodecRegistry(CodecRegistries.fromRegistries(
+                    CodecRegistries.fromProviders(new JacksonCodecProvider(this.jsonMapper, this.getPojoClass())),
+                    this.collection.getCodecRegistry()
+                ))
+                .withDocumentClass(this.getPojoClass());
+        }
+        return this.pojoCollection;
+    }
+
+    /**
+     * Returns the projection of the fields bound to the POJO by the {@link #jsonMapper}, so that
+     * queries do not return fields which would be discarded when converting to the POJO.
+     */
+    protected JacksonProjection getProjection() {
+        if (this.projection == null) {
+            this.projection = JacksonProjection.of(this.jsonMapper, this.getPojoClass());
+        }
+        return this.projection;
+    }
+
+    /**
+     * Query the underlying {@code Collection} for the POJOs matching the {@code filter}, returning
+     * only the fields bound to the POJO.
+     */
+    protected MongoIterable<T> find(Bson filter) {
+        return this.find(filter, this.getProjection());
+    }
+
+    /**
+     * Query the underlying {@code Collection} for the POJOs matching the {@code filter}, returning
+     * only the fields included by the {@code projection}. A projection which includes a map of
+     * beans is applied with an aggregation {@code $project} stage, as it cannot be expressed as a
+     * {@code find()} projection.
+     */
+    protected MongoIterable<T> find(Bson filter, JacksonProjection projection) {
+        if (projection == null || projection.isEmpty()) {
+            return this.getPojoCollection().find(filter);
+        }
+        if (projection.requiresAggregation()) {
+            return this.getPojoCollection().aggregate(Arrays.asList(
+                Aggregates.match(filter),
+                projection.toProjectStage()
+            ));
+        }
+        return this.getPojoCollection().find(filter).projection(projection.toProjection());
+    }
+
+    /**
+     * Atomically set the {@code status} of the record, and append the {@code statusEvent} to its
+     * {@code history}, with a single {@code findOneAndUpdate}. The rest of the record is neither
+     * read nor rewritten, so concurrent transitions cannot overwrite each other.
+     *
+     * @param id the unique {@code id} of the record.
+     * @param expectedStatus the required current status, or {@code null} for any status.
+     * @param statusEvent the event recording the new status.
+     * @param updates any additional updates to apply with the transition.
+     * @return the updated POJO, or {@code null} if no record matched.
+     */
+    protected T transitionStatus(String id,
+                                 String expectedStatus,
+                                 StatusEvent statusEvent,
+                                 Bson... updates) {
+        final Bson filter = (expectedStatus == null) ?
+            Filters.eq("_id", id) :
+            Filters.and(Filters.eq("_id", id), Filters.eq("status", expectedStatus));
+        return this.transitionStatus(filter, statusEvent, updates);
+    }
+
+    /**
+     * Atomically set the {@code status} of the first record matching the {@code filter}, and
+     * append the {@code statusEvent} to its {@code history}, as
+     * {@link #transitionStatus(String, String, StatusEvent, Bson...)} does. If the
+     * {@code history} then exceeds the {@link #historyPolicy}, the oldest events are archived,
+     * then removed with a second update, which only applies if the {@code history} still has the
+     * length it had when the events were archived. A concurrent transition which appended an event
+     * meanwhile archives and removes the oldest events itself. The {@link #historyArchive} stores
+     * each event once (see {@link HistoryArchive}), so an event archived by concurrent transitions,
+     * or archived again after a failure before it was removed, is not duplicated.
+     *
+     * @return the updated POJO, or {@code null} if no record matched.
+     */
+    protected T transitionStatus(Bson filter,
+                                 StatusEvent statusEvent,
+                                 Bson... updates) {
+        final List<Bson> allUpdates = new ArrayList<>(Arrays.asList(updates));
+        allUpdates.add(Updates.set("status", statusEvent.getStatus()));
+        final List<Object> compact = this.historyPolicy.isCompact() ?
+            StatusEventSerializer.toCompact(statusEvent, this.getStatusEnum()) :
+            null;
+        allUpdates.add(Updates.push("history", (compact != null) ? compact : new Document()
+            .append("timestamp", statusEvent.getTimestamp())
+            .append("status", statusEvent.getStatus())
+            .append("description", statusEvent.getDescription())
+        ));
+
+        // A projection which requires aggregation cannot be applied to findOneAndUpdate.
+        final FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+            .returnDocument(ReturnDocument.AFTER);
+        final JacksonProjection projection = this.getProjection();
+        if (!projection.isEmpty() && !projection.requiresAggregation()) {
+            options.projection(projection.toProjection());
+        }
+        final T pojo = this.getPojoCollection().findOneAndUpdate(filter, Updates.combine(allUpdates), options);
+        if (pojo != null && this.historyPolicy.isOverflowing(this.getHistory(pojo))) {
+            final int historySize = this.getHistory(pojo).size();
+            this.applyHistoryPolicy(pojo);
+            this.collection.updateOne(
+                Filters.and(Filters.eq("_id", this.getPojoId(pojo)), Filters.size("history", historySize)),
+                Updates.pushEach(
+                    "history",
+                    Collections.emptyList(),
+                    new PushOptions().slice(-this.historyPolicy.getMaxEvents())
+                )
+            );
+        }
+        return pojo;
+    }
+
+    /**
+     * Open a change stream on the underlying {@code Collection}, with the current version of the
+     * POJO looked up for each insert, replace and update. Change streams require {@code MongoDB}
+     * to be deployed as a replica set or sharded cluster.
+     */
+    public ChangeStreamIterable<T> watch() {
+        return this.getPojoCollection().watch().fullDocument(FullDocument.UPDATE_LOOKUP);
+    }
+
     // ---------------------------------------------------------------------------------------------
 
     /**
@@ -56,19 +312,49 @@ abstract public class AbstractPojoDaoMongoDbImpl<T> extends AbstractPojoDaoImpl<
 
     @Override
     public T getById(String id) {
-        final Document document = this.getDocumentById(id);
-        if (document != null) {
-            return this.convertToPojo(document);
+        return this.find(Filters.eq("_id", id)).first();
+    }
+
+    /**
+     * Retrieve the POJOs with a single {@code $in} query per chunk of {@link #inChunkSize} ids.
+     */
+    @Override
+    public Map<String, T> getByIds(Collection<String> ids) {
+        final List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.remove(null);
+        final Map<String, T> found = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += this.inChunkSize) {
+            final List<String> chunk = distinctIds.subList(from, Math.min(from + this.inChunkSize, distinctIds.size()));
+            final MongoCursor<T> iterator = this.find(Filters.in("_id", chunk)).iterator();
+            while (iterator.hasNext()) {
+                final T pojo = iterator.next();
+                if (pojo != null) {
+                    found.put(this.getPojoId(pojo), pojo);
+                }
+            }
         }
-        return null;
+
+        // Order the result by the requested ids.
+        final Map<String, T> pojos = new LinkedHashMap<>();
+        for (String id : distinctIds) {
+            final T pojo = found.get(id);
+            if (pojo != null) {
+                pojos.put(id, pojo);
+            }
+        }
+        return pojos;
     }
 
     /**
-     * Overload the {@link #convertToPojo(String)} method to standardise converting a Document from
-     * {@code MongoDB} to a {@code String} representation of JSON.
+     * Overload the {@link #convertToPojo(String)} method to convert a {@code Document} from
+     * {@code MongoDB} to a POJO, using a {@link JacksonCodec} rather than a {@code String}
+     * representation of JSON.
      */
     protected T convertToPojo(final Document document) {
-        return this.convertToPojo(document.toJson(this.writerSettings));
+        return new JacksonCodec<>(this.jsonMapper, this.getPojoClass()).decode(
+            new BsonDocumentReader(document.toBsonDocument(Document.class, this.collection.getCodecRegistry())),
+            DecoderContext.builder().build()
+        );
     }
 
     // ---------------------------------------------------------------------------------------------
@@ -81,22 +367,79 @@ abstract public class AbstractPojoDaoMongoDbImpl<T> extends AbstractPojoDaoImpl<
     @Override
     public T persist(T pojo) {
 
+        this.applyHistoryPolicy(pojo);
         try {
-            this.collection.replaceOne(
+            this.getPojoCollection().replaceOne(
                 Filters.eq("_id", this.getPojoId(pojo)),
-                Document.parse(this.jsonMapper.writeValueAsString(pojo)),
+                pojo,
                 new ReplaceOptions().upsert(true)
             );
-        } catch (IOException e) {
+        } catch (RuntimeException e) {
             throw new RuntimeException(
                 "Failed to persist " + this.getPojoClass().getSimpleName() + " (" +
-                    this.getPojoId(pojo) + ")."
+                    this.getPojoId(pojo) + ").",
+                e
             );
         }
         return pojo;
 
     }
 
+    /**
+     * Persist the {@code POJO}s to the database with a single unordered {@code bulkWrite} of
+     * upserts, so the server continues past, and reports, the POJOs which fail.
+     */
+    @Override
+    public PersistResult<T> persistAll(Collection<T> pojos) {
+        final List<T> list = new ArrayList<>(pojos);
+        final Exception[] exceptions = new Exception[list.size()];
+        if (list.isEmpty()) {
+            return PersistResult.of(list, exceptions);
+        }
+
+        // Archive the overflowing histories first. If that fails, none are written.
+        try {
+            for (T pojo : list) {
+                this.applyHistoryPolicy(pojo);
+            }
+        } catch (RuntimeException e) {
+            Arrays.fill(exceptions, e);
+            return PersistResult.of(list, exceptions);
+        }
+
+        final List<WriteModel<T>> requests = new ArrayList<>(list.size());
+        for (T pojo : list) {
+            requests.add(new ReplaceOneModel<>(
+                Filters.eq("_id", this.getPojoId(pojo)),
+                pojo,
+                new ReplaceOptions().upsert(true)
+            ));
+        }
+        try {
+            this.getPojoCollection().bulkWrite(requests, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                exceptions[error.getIndex()] = new RuntimeException(
+                    "Failed to persist " + this.getPojoClass().getSimpleName() + " (" +
+                        this.getPojoId(list.get(error.getIndex())) + "): " + error.getMessage()
+                );
+            }
+
+            // The remaining writes were applied, but without the requested write concern.
+            if (e.getWriteConcernError() != null) {
+                for (int index = 0; index < exceptions.length; index++) {
+                    if (exceptions[index] == null) {
+                        exceptions[index] = e;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // The batch could not be sent (eg: a POJO could not be encoded), so none were written.
+            Arrays.fill(exceptions, e);
+        }
+        return PersistResult.of(list, exceptions);
+    }
+
     /**
      * Persist the {@code JsonNode} to the database.
      *
@@ -0,0 +1,114 @@
+package au.gov.aims.ereefs.pojo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Secondary index over the records held in the cache of an {@link AbstractCachePojoDaoFileImpl},
+ * declared by the DAO with {@link AbstractCachePojoDaoFileImpl#addIndex(String, Function)} and
+ * maintained alongside the cache as records are added, replaced and removed.
+ * <p>
+ * Each record is indexed under the key returned by the {@code keyExtractor}. Records for which
+ * the {@code keyExtractor} returns {@code null} are not indexed. Several records may share a key,
+ * in which case they are returned in order of their unique id. The index is safe for concurrent
+ * reads.
+ * </p>
+ */
+public class CacheIndex<T> {
+
+    /**
+     * The name of the index, for diagnostics.
+     */
+    final protected String name;
+
+    /**
+     * Returns the key of the index for a record.
+     */
+    final protected Function<T, String> keyExtractor;
+
+    /**
+     * Returns the unique id of a record.
+     */
+    final protected Function<T, String> idExtractor;
+
+    /**
+     * The indexed records, keyed by index key then by unique id.
+     */
+    final protected ConcurrentMap<String, ConcurrentSkipListMap<String, T>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the index.
+     * @param keyExtractor returns the key of the index for a record.
+     * @param idExtractor returns the unique id of a record.
+     */
+    public CacheIndex(String name,
+                      Function<T, String> keyExtractor,
+                      Function<T, String> idExtractor) {
+        super();
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.idExtractor = idExtractor;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the records with the specified key, or an empty list if there are none.
+     */
+    public List<T> get(String key) {
+        final Map<String, T> records = (key != null) ? this.entries.get(key) : null;
+        return (records != null) ? new ArrayList<>(records.values()) : new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of distinct keys in the index.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Add the record to the index.
+     */
+    protected void add(T pojo) {
+        final String key = this.keyExtractor.apply(pojo);
+        if (key != null) {
+            this.entries
+                .computeIfAbsent(key, k -> new ConcurrentSkipListMap<>())
+                .put(this.idExtractor.apply(pojo), pojo);
+        }
+    }
+
+    /**
+     * Remove the record from the index. A {@code null} record is ignored.
+     */
+    protected void remove(T pojo) {
+        if (pojo == null) {
+            return;
+        }
+        final String key = this.keyExtractor.apply(pojo);
+        if (key != null) {
+            this.entries.computeIfPresent(key, (k, records) -> {
+                records.remove(this.idExtractor.apply(pojo), pojo);
+                return records.isEmpty() ? null : records;
+            });
+        }
+    }
+
+    /**
+     * Remove all records from the index.
+     */
+    protected void clear() {
+        this.entries.clear();
+    }
+
+}
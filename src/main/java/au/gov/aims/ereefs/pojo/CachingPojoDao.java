@@ -0,0 +1,473 @@
+package au.gov.aims.ereefs.pojo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through caching decorator for a {@link PojoDao}. Records retrieved with
+ * {@link #getById(String)} are held in a bounded, least-recently-used cache for up to a
+ * time-to-live, so repeated retrievals of the same record avoid the underlying repository (and
+ * the cost of deserialising the record). Records persisted through the decorator invalidate their
+ * cache entry.
+ * <p>
+ * If a refresh-ahead {@code Executor} is specified (see
+ * {@link #setRefreshAhead(Executor, long)}), an entry that is retrieved after the refresh-ahead
+ * time, but before it expires, is returned immediately and reloaded in the background, so
+ * frequently used records do not expire.
+ * </p>
+ * <p>
+ * The cached records are shared between callers, so this decorator is intended for records that
+ * are not modified by the caller, such as {@code ProductDefinition}s and
+ * {@code DownloadDefinition}s. Hit, miss and eviction counters are maintained for monitoring.
+ * This class is thread-safe.
+ * </p>
+ */
+public class CachingPojoDao<T> implements PojoDao<T> {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The decorated {@link PojoDao}.
+     */
+    final protected PojoDao<T> delegate;
+
+    /**
+     * Returns the unique id of a record, for invalidating the cache on {@link #persist(Object)}.
+     */
+    final protected Function<T, String> idExtractor;
+
+    /**
+     * The maximum number of records held in the cache.
+     */
+    final protected int maximumSize;
+
+    /**
+     * The time (in milliseconds) after which a cached record expires.
+     */
+    final protected long timeToLiveMillis;
+
+    /**
+     * The {@code Executor} for reloading records in the background, or {@code null} if
+     * refresh-ahead is disabled.
+     */
+    protected volatile Executor refreshAheadExecutor;
+
+    /**
+     * The age (in milliseconds) after which a retrieved record is reloaded in the background.
+     */
+    protected volatile long refreshAheadMillis;
+
+    /**
+     * The cache, in least-recently-used order. Access is synchronised on the map.
+     */
+    final protected LinkedHashMap<String, Entry<T>> cache;
+
+    /**
+     * The token of the latest load of each id, added (while synchronised on the {@link #cache})
+     * when the load begins, and removed when it completes or the id is invalidated, so that a load
+     * which began before the id was invalidated does not cache a stale record. Invalidating one id
+     * does not affect the loads of the other ids.
+     */
+    final protected Map<String, Object> loadTokens = new HashMap<>();
+
+    /**
+     * Incremented (while synchronised on the {@link #cache}) whenever any record is invalidated,
+     * for results which depend on every record (eg: a list of all of the records).
+     */
+    protected long generation;
+
+    final protected AtomicLong hitCount = new AtomicLong();
+
+    final protected AtomicLong missCount = new AtomicLong();
+
+    final protected AtomicLong evictionCount = new AtomicLong();
+
+    final protected AtomicLong refreshCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the {@link PojoDao} to decorate.
+     * @param idExtractor returns the unique id of a record.
+     * @param maximumSize the maximum number of records to cache.
+     * @param timeToLiveMillis the time (in milliseconds) after which a cached record expires.
+     */
+    public CachingPojoDao(PojoDao<T> delegate,
+                          Function<T, String> idExtractor,
+                          int maximumSize,
+                          long timeToLiveMillis) {
+        super();
+        this.delegate = delegate;
+        this.idExtractor = idExtractor;
+        this.maximumSize = maximumSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.cache = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                if (this.size() > CachingPojoDao.this.maximumSize) {
+                    CachingPojoDao.this.evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Enable refresh-ahead: a record retrieved when it is older than {@code refreshAheadMillis}
+     * (but has not expired) is reloaded in the background using the {@code executor}. Specify a
+     * {@code null} {@code executor} to disable refresh-ahead.
+     */
+    public void setRefreshAhead(Executor executor, long refreshAheadMillis) {
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.refreshAheadExecutor = executor;
+    }
+
+    @Override
+    public T getById(String id) {
+        final long now = System.currentTimeMillis();
+        Object token = null;
+        T cached = null;
+        boolean isRefreshDue = false;
+        synchronized (this.cache) {
+            final Entry<T> entry = this.cache.get(id);
+            if (entry != null && now - entry.loadedMillis < this.timeToLiveMillis) {
+                this.hitCount.incrementAndGet();
+                cached = entry.pojo;
+                if (this.refreshAheadExecutor != null && !entry.isRefreshing &&
+                    now - entry.loadedMillis >= this.refreshAheadMillis) {
+                    entry.isRefreshing = true;
+                    isRefreshDue = true;
+                }
+            } else {
+                if (entry != null) {
+                    this.cache.remove(id);
+                    this.evictionCount.incrementAndGet();
+                }
+                this.missCount.incrementAndGet();
+                token = this.beginLoad(id);
+            }
+        }
+
+        // Return the cached record, reloading it in the background if due.
+        if (cached != null) {
+            if (isRefreshDue) {
+                this.refreshAhead(id);
+            }
+            return cached;
+        }
+
+        // Load the record outside the lock, so other records remain available.
+        try {
+            final T pojo = this.delegate.getById(id);
+            if (pojo != null) {
+                this.put(id, pojo, now, token);
+            }
+            return pojo;
+        } finally {
+            this.endLoad(id, token);
+        }
+    }
+
+    /**
+     * Retrieve the records from the cache, loading the missing (or expired) records with a single
+     * invocation of the decorated {@link PojoDao#getByIds(Collection)}.
+     */
+    @Override
+    public Map<String, T> getByIds(Collection<String> ids) {
+        final Map<String, T> pojos = new LinkedHashMap<>();
+        final List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            if (id != null && !pojos.containsKey(id)) {
+                // Reserve the position of the record in the result.
+                pojos.put(id, null);
+            }
+        }
+
+        final long now = System.currentTimeMillis();
+        final Map<String, Object> tokens = new HashMap<>();
+        final List<String> refreshIds = new ArrayList<>();
+        synchronized (this.cache) {
+            for (Map.Entry<String, T> result : pojos.entrySet()) {
+                final String id = result.getKey();
+                final Entry<T> entry = this.cache.get(id);
+                if (entry != null && now - entry.loadedMillis < this.timeToLiveMillis) {
+                    this.hitCount.incrementAndGet();
+                    result.setValue(entry.pojo);
+                    if (this.refreshAheadExecutor != null && !entry.isRefreshing &&
+                        now - entry.loadedMillis >= this.refreshAheadMillis) {
+                        entry.isRefreshing = true;
+                        refreshIds.add(id);
+                    }
+                } else {
+                    if (entry != null) {
+                        this.cache.remove(id);
+                        this.evictionCount.incrementAndGet();
+                    }
+                    this.missCount.incrementAndGet();
+                    missingIds.add(id);
+                    tokens.put(id, this.beginLoad(id));
+                }
+            }
+        }
+        for (String id : refreshIds) {
+            this.refreshAhead(id);
+        }
+
+        // Load the missing records outside the lock, so other records remain available.
+        if (!missingIds.isEmpty()) {
+            try {
+                final Map<String, T> loaded = this.delegate.getByIds(missingIds);
+                for (Map.Entry<String, T> entry : loaded.entrySet()) {
+                    final Object token = tokens.get(entry.getKey());
+                    if (entry.getValue() != null && token != null) {
+                        this.put(entry.getKey(), entry.getValue(), now, token);
+                        pojos.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            } finally {
+                for (Map.Entry<String, Object> token : tokens.entrySet()) {
+                    this.endLoad(token.getKey(), token.getValue());
+                }
+            }
+        }
+        pojos.values().removeIf(Objects::isNull);
+        return pojos;
+    }
+
+    /**
+     * Reload the record in the background using the {@link #refreshAheadExecutor}.
+     */
+    protected void refreshAhead(String id) {
+        final Executor executor = this.refreshAheadExecutor;
+        if (executor == null) {
+            this.clearRefreshing(id);
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                final long now = System.currentTimeMillis();
+                final Object token;
+                synchronized (this.cache) {
+                    token = this.beginLoad(id);
+                }
+                try {
+                    final T pojo = this.delegate.getById(id);
+                    this.refreshCount.incrementAndGet();
+                    if (pojo == null) {
+                        this.invalidate(id);
+                    } else if (!this.put(id, pojo, now, token)) {
+
+                        // Superseded by another load of the record.
+                        this.clearRefreshing(id);
+                    }
+                } catch (RuntimeException e) {
+                    this.logger.warn("Failed to refresh \"" + id + "\".", e);
+                    this.clearRefreshing(id);
+                } finally {
+                    this.endLoad(id, token);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.clearRefreshing(id);
+        }
+    }
+
+    /**
+     * Allow the record to be refreshed again after a failed refresh.
+     */
+    protected void clearRefreshing(String id) {
+        synchronized (this.cache) {
+            final Entry<T> entry = this.cache.get(id);
+            if (entry != null) {
+                entry.isRefreshing = false;
+            }
+        }
+    }
+
+    /**
+     * Begin a load of the record, returning the token to pass to
+     * {@link #put(String, Object, long, Object)} and {@link #endLoad(String, Object)}. Must be
+     * invoked while synchronised on the {@link #cache}.
+     */
+    protected Object beginLoad(String id) {
+        final Object token = new Object();
+        this.loadTokens.put(id, token);
+        return token;
+    }
+
+    /**
+     * End the load of the record, whether or not it was cached.
+     */
+    protected void endLoad(String id, Object token) {
+        synchronized (this.cache) {
+            this.loadTokens.remove(id, token);
+        }
+    }
+
+    /**
+     * Add a record to the cache, recording the time it was loaded. The record is discarded if
+     * the record has been invalidated, or loaded again, since the load began (its {@code token}
+     * is no longer current), as it may be stale.
+     *
+     * @return {@code true} if the record was cached.
+     */
+    protected boolean put(String id, T pojo, long loadedMillis, Object token) {
+        synchronized (this.cache) {
+            if (!this.loadTokens.remove(id, token)) {
+                return false;
+            }
+            this.cache.put(id, new Entry<>(pojo, loadedMillis));
+            return true;
+        }
+    }
+
+    /**
+     * Add a record loaded with a result which depends on every record (see {@link #generation}),
+     * superseding any load of the record in progress. Must be invoked while synchronised on the
+     * {@link #cache}, having checked that no record was invalidated since the load began.
+     */
+    protected void seed(String id, T pojo, long loadedMillis) {
+        this.loadTokens.remove(id);
+        this.cache.put(id, new Entry<>(pojo, loadedMillis));
+    }
+
+    /**
+     * Persist the record using the decorated {@link PojoDao}, then invalidate its cache entry.
+     */
+    @Override
+    public T persist(T pojo) {
+        try {
+            return this.delegate.persist(pojo);
+        } finally {
+            if (pojo != null) {
+                this.invalidate(this.idExtractor.apply(pojo));
+            }
+        }
+    }
+
+    /**
+     * Persist the records using the decorated {@link PojoDao}, then invalidate their cache
+     * entries.
+     */
+    @Override
+    public PersistResult<T> persistAll(Collection<T> pojos) {
+        try {
+            return this.delegate.persistAll(pojos);
+        } finally {
+            for (T pojo : pojos) {
+                if (pojo != null) {
+                    this.invalidate(this.idExtractor.apply(pojo));
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the record with the specified id from the cache.
+     */
+    public void invalidate(String id) {
+        synchronized (this.cache) {
+            this.cache.remove(id);
+            this.loadTokens.remove(id);
+            this.generation++;
+        }
+    }
+
+    /**
+     * Remove all records from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (this.cache) {
+            this.cache.clear();
+            this.loadTokens.clear();
+            this.generation++;
+        }
+    }
+
+    /**
+     * Remove the expired records from the cache, counting them as evictions.
+     */
+    public void cleanUp() {
+        final long now = System.currentTimeMillis();
+        synchronized (this.cache) {
+            final Iterator<Entry<T>> iterator = this.cache.values().iterator();
+            while (iterator.hasNext()) {
+                if (now - iterator.next().loadedMillis >= this.timeToLiveMillis) {
+                    iterator.remove();
+                    this.evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records currently in the cache.
+     */
+    public int size() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * Returns the number of retrievals satisfied by the cache.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Returns the number of retrievals that were passed to the decorated {@link PojoDao}.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Returns the number of records removed from the cache because it was full or the record
+     * expired.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.get();
+    }
+
+    /**
+     * Returns the number of records reloaded in the background by refresh-ahead.
+     */
+    public long getRefreshCount() {
+        return this.refreshCount.get();
+    }
+
+    /**
+     * A cached record and the time it was loaded.
+     */
+    static protected class Entry<T> {
+
+        final protected T pojo;
+
+        final protected long loadedMillis;
+
+        protected boolean isRefreshing;
+
+        protected Entry(T pojo, long loadedMillis) {
+            this.pojo = pojo;
+            this.loadedMillis = loadedMillis;
+        }
+
+    }
+
+}
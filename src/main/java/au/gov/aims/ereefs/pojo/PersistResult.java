@@ -0,0 +1,158 @@
+package au.gov.aims.ereefs.pojo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * The result of {@link PojoDao#persistAll(Collection)}, identifying the POJOs which were persisted
+ * and, for each POJO which was not, the reason why.
+ */
+public class PersistResult<T> {
+
+    /**
+     * The POJOs which were persisted, in the order they were specified.
+     */
+    final protected List<T> persisted;
+
+    /**
+     * The POJOs which were not persisted, in the order they were specified, with the reason why.
+     */
+    final protected List<Failure<T>> failures;
+
+    /**
+     * Constructor to capture references and initialise the object.
+     *
+     * @param persisted the POJOs which were persisted.
+     * @param failures the POJOs which were not persisted, and the reason why.
+     */
+    public PersistResult(List<T> persisted, List<Failure<T>> failures) {
+        super();
+        this.persisted = Collections.unmodifiableList(persisted);
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Persist each of the {@code pojos} with the {@code persister}, optionally in parallel,
+     * recording a {@link Failure} for each which throws a {@code RuntimeException} rather than
+     * stopping.
+     */
+    static public <T> PersistResult<T> persistEach(Collection<T> pojos,
+                                                   Consumer<T> persister,
+                                                   boolean parallel) {
+        final List<T> list = new ArrayList<>(pojos);
+        final RuntimeException[] exceptions = new RuntimeException[list.size()];
+        final IntStream indexes = IntStream.range(0, list.size());
+        (parallel ? indexes.parallel() : indexes).forEach(index -> {
+            try {
+                persister.accept(list.get(index));
+            } catch (RuntimeException e) {
+                exceptions[index] = e;
+            }
+        });
+        return PersistResult.of(list, exceptions);
+    }
+
+    /**
+     * Returns the result for the {@code pojos}, where a non-{@code null} element of
+     * {@code exceptions} identifies the POJO at the same index as having failed.
+     */
+    static public <T> PersistResult<T> of(List<T> pojos, Exception[] exceptions) {
+        final List<T> persisted = new ArrayList<>();
+        final List<Failure<T>> failures = new ArrayList<>();
+        for (int index = 0; index < pojos.size(); index++) {
+            if (exceptions[index] == null) {
+                persisted.add(pojos.get(index));
+            } else {
+                failures.add(new Failure<>(pojos.get(index), exceptions[index]));
+            }
+        }
+        return new PersistResult<>(persisted, failures);
+    }
+
+    /**
+     * Returns the POJOs which were persisted, in the order they were specified.
+     */
+    public List<T> getPersisted() {
+        return this.persisted;
+    }
+
+    /**
+     * Returns the POJOs which were not persisted, in the order they were specified.
+     */
+    public List<Failure<T>> getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * Returns {@code true} if every POJO was persisted.
+     */
+    public boolean isSuccessful() {
+        return this.failures.isEmpty();
+    }
+
+    /**
+     * Returns an exception describing the failures, caused by the first failure, with the
+     * remaining failures suppressed, or {@code null} if every POJO was persisted.
+     */
+    public RuntimeException toException(String message) {
+        if (this.failures.isEmpty()) {
+            return null;
+        }
+        final RuntimeException exception = new RuntimeException(
+            message + " (" + this.failures.size() + " failed).",
+            this.failures.get(0).getException()
+        );
+        for (Failure<T> failure : this.failures.subList(1, this.failures.size())) {
+            exception.addSuppressed(failure.getException());
+        }
+        return exception;
+    }
+
+    /**
+     * A POJO which was not persisted, and the reason why.
+     */
+    static public class Failure<T> {
+
+        /**
+         * The POJO which was not persisted.
+         */
+        final protected T pojo;
+
+        /**
+         * The reason the POJO was not persisted.
+         */
+        final protected Exception exception;
+
+        /**
+         * Constructor to capture references and initialise the object.
+         *
+         * @param pojo the POJO which was not persisted.
+         * @param exception the reason the POJO was not persisted.
+         */
+        public Failure(T pojo, Exception exception) {
+            super();
+            this.pojo = pojo;
+            this.exception = exception;
+        }
+
+        /**
+         * Returns the POJO which was not persisted.
+         */
+        public T getPojo() {
+            return this.pojo;
+        }
+
+        /**
+         * Returns the reason the POJO was not persisted.
+         */
+        public Exception getException() {
+            return this.exception;
+        }
+
+    }
+
+}
@@ -1,5 +1,9 @@
 package au.gov.aims.ereefs.pojo;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Interface for reading/writing {@Link Pojo}s to a database.
  *
@@ -12,9 +16,39 @@ public interface PojoDao<T> {
      */
     public T getById(String id);
 
+    /**
+     * Retrieve the {@link Pojo}s with the specified ids from the repository, keyed by id in the
+     * order the ids were specified. Ids which are not found are omitted from the result. The
+     * default implementation invokes {@link #getById(String)} for each id in turn, while
+     * implementations should batch the lookups where the repository allows.
+     */
+    default public Map<String, T> getByIds(Collection<String> ids) {
+        final Map<String, T> pojos = new LinkedHashMap<>();
+        for (String id : ids) {
+            if (!pojos.containsKey(id)) {
+                final T pojo = this.getById(id);
+                if (pojo != null) {
+                    pojos.put(id, pojo);
+                }
+            }
+        }
+        return pojos;
+    }
+
     /**
      * Persist the {@code POJO} to the repository.
      */
     public T persist(T pojo);
 
+    /**
+     * Persist each of the {@code POJO}s to the repository, continuing past any that fail. The
+     * default implementation invokes {@link #persist(Object)} for each in turn, while
+     * implementations should batch the writes where the repository allows.
+     *
+     * @return the POJOs which were persisted, and those which were not.
+     */
+    default public PersistResult<T> persistAll(Collection<T> pojos) {
+        return PersistResult.persistEach(pojos, this::persist, false);
+    }
+
 }
@@ -4,7 +4,6 @@ import au.gov.aims.ereefs.pojo.AbstractPojoDaoMongoDbImpl;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
-import org.bson.Document;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,10 +32,10 @@ abstract public class AbstractDefinitionDaoMongoDbImpl<T> extends AbstractPojoDa
         final List<T> list = new ArrayList<>();
 
         // Filter the collection.
-        final MongoCursor<Document> iterator =
-            this.collection.find(Filters.eq("enabled", true)).iterator();
+        final MongoCursor<T> iterator =
+            this.find(Filters.eq("enabled", true)).iterator();
         while (iterator.hasNext()) {
-            T pojo = this.convertToPojo(iterator.next());
+            T pojo = iterator.next();
             if (pojo != null) {
                 list.add(pojo);
             }
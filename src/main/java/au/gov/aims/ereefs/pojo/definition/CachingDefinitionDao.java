@@ -0,0 +1,93 @@
+package au.gov.aims.ereefs.pojo.definition;
+
+import au.gov.aims.ereefs.pojo.CachingPojoDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Specialisation of the {@link CachingPojoDao} for a {@link DefinitionDao}, which also caches the
+ * result of {@link #findAllEnabled()} for the time-to-live. The cached list is invalidated along
+ * with any record persisted through this decorator, and each record in it is also cached for
+ * retrieval by {@link #getById(String)}.
+ */
+public class CachingDefinitionDao<T> extends CachingPojoDao<T> implements DefinitionDao<T> {
+
+    /**
+     * The decorated {@link DefinitionDao}.
+     */
+    final protected DefinitionDao<T> definitionDelegate;
+
+    /**
+     * The cached result of {@link #findAllEnabled()}, or {@code null} if not cached. Access is
+     * synchronised on the {@link #cache}.
+     */
+    protected List<T> enabled;
+
+    /**
+     * The time the {@link #enabled} list was loaded.
+     */
+    protected long enabledLoadedMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the {@link DefinitionDao} to decorate.
+     * @param idExtractor returns the unique id of a record.
+     * @param maximumSize the maximum number of records to cache.
+     * @param timeToLiveMillis the time (in milliseconds) after which a cached record expires.
+     */
+    public CachingDefinitionDao(DefinitionDao<T> delegate,
+                                Function<T, String> idExtractor,
+                                int maximumSize,
+                                long timeToLiveMillis) {
+        super(delegate, idExtractor, maximumSize, timeToLiveMillis);
+        this.definitionDelegate = delegate;
+    }
+
+    @Override
+    public List<T> findAllEnabled() {
+        final long now = System.currentTimeMillis();
+        final long generation;
+        synchronized (this.cache) {
+            if (this.enabled != null && now - this.enabledLoadedMillis < this.timeToLiveMillis) {
+                this.hitCount.incrementAndGet();
+                return new ArrayList<>(this.enabled);
+            }
+            this.missCount.incrementAndGet();
+            generation = this.generation;
+        }
+
+        // Load the records outside the lock, then cache the list and each record, unless any
+        // record was invalidated during the load, as the list depends on every record.
+        final List<T> list = this.definitionDelegate.findAllEnabled();
+        synchronized (this.cache) {
+            if (generation == this.generation) {
+                this.enabled = new ArrayList<>(list);
+                this.enabledLoadedMillis = now;
+                for (T pojo : list) {
+                    this.seed(this.idExtractor.apply(pojo), pojo, now);
+                }
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void invalidate(String id) {
+        synchronized (this.cache) {
+            super.invalidate(id);
+            this.enabled = null;
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (this.cache) {
+            super.invalidateAll();
+            this.enabled = null;
+        }
+    }
+
+}
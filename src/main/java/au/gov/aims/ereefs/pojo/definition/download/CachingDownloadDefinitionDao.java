@@ -0,0 +1,28 @@
+package au.gov.aims.ereefs.pojo.definition.download;
+
+import au.gov.aims.ereefs.pojo.Pojo;
+import au.gov.aims.ereefs.pojo.definition.CachingDefinitionDao;
+
+/**
+ * Read-through caching decorator for a {@link DownloadDefinitionDao}, such as the
+ * {@link DownloadDefinitionDaoMongoDbImpl}. As this class implements {@link DownloadDefinitionDao},
+ * it can be substituted for the decorated DAO without changing callers. See
+ * {@link CachingDefinitionDao}.
+ */
+public class CachingDownloadDefinitionDao extends CachingDefinitionDao<DownloadDefinition>
+    implements DownloadDefinitionDao {
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the {@link DownloadDefinitionDao} to decorate.
+     * @param maximumSize the maximum number of records to cache.
+     * @param timeToLiveMillis the time (in milliseconds) after which a cached record expires.
+     */
+    public CachingDownloadDefinitionDao(DownloadDefinitionDao delegate,
+                                       int maximumSize,
+                                       long timeToLiveMillis) {
+        super(delegate, Pojo::getId, maximumSize, timeToLiveMillis);
+    }
+
+}
@@ -0,0 +1,28 @@
+package au.gov.aims.ereefs.pojo.definition.product;
+
+import au.gov.aims.ereefs.pojo.Pojo;
+import au.gov.aims.ereefs.pojo.definition.CachingDefinitionDao;
+
+/**
+ * Read-through caching decorator for a {@link ProductDefinitionDao}, such as the
+ * {@link ProductDefinitionDaoMongoDbImpl}. As this class implements {@link ProductDefinitionDao},
+ * it can be substituted for the decorated DAO without changing callers. See
+ * {@link CachingDefinitionDao}.
+ */
+public class CachingProductDefinitionDao extends CachingDefinitionDao<ProductDefinition>
+    implements ProductDefinitionDao {
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the {@link ProductDefinitionDao} to decorate.
+     * @param maximumSize the maximum number of records to cache.
+     * @param timeToLiveMillis the time (in milliseconds) after which a cached record expires.
+     */
+    public CachingProductDefinitionDao(ProductDefinitionDao delegate,
+                                       int maximumSize,
+                                       long timeToLiveMillis) {
+        super(delegate, Pojo::getId, maximumSize, timeToLiveMillis);
+    }
+
+}
@@ -0,0 +1,56 @@
+package au.gov.aims.ereefs.pojo.extractionrequest;
+
+import au.gov.aims.ereefs.pojo.AbstractPojoDaoLogStoreImpl;
+import au.gov.aims.ereefs.pojo.logstore.LogStore;
+
+/**
+ * Concrete implementation of the {@link ExtractionRequestDao} interface for a repository held in
+ * a {@link LogStore}.
+ */
+public class ExtractionRequestDaoLogStoreImpl extends AbstractPojoDaoLogStoreImpl<ExtractionRequest>
+    implements ExtractionRequestDao {
+
+    /**
+     * Constructor to open the {@link LogStore} in the specified directory.
+     */
+    public ExtractionRequestDaoLogStoreImpl(String path) {
+        super(path);
+    }
+
+    /**
+     * Constructor to capture a reference to an open {@link LogStore}.
+     */
+    public ExtractionRequestDaoLogStoreImpl(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    public ExtractionRequest persist(ExtractionRequest extractionRequest) {
+
+        // Force update of updatedAt property.
+        extractionRequest.markAsUpdated();
+
+        return super.persist(extractionRequest);
+    }
+
+    @Override
+    public void setJobId(String id, String jobId) {
+        throw new RuntimeException("Not implemented.");
+    }
+
+    @Override
+    public String getJobId(String id) {
+        throw new RuntimeException("Not implemented.");
+    }
+
+    @Override
+    protected Class<ExtractionRequest> getPojoClass() {
+        return ExtractionRequest.class;
+    }
+
+    @Override
+    protected String getPojoId(ExtractionRequest pojo) {
+        return pojo.getId();
+    }
+
+}
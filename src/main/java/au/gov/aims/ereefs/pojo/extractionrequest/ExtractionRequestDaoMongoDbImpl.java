@@ -1,12 +1,14 @@
 package au.gov.aims.ereefs.pojo.extractionrequest;
 
 import au.gov.aims.ereefs.pojo.AbstractPojoDaoMongoDbImpl;
+import au.gov.aims.ereefs.pojo.PersistResult;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.mongodb.client.MongoDatabase;
 import org.bson.Document;
 
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * Specialisation of {@link AbstractPojoDaoMongoDbImpl} class to support {@link ExtractionRequest
@@ -99,4 +101,21 @@ public class ExtractionRequestDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<
 
     }
 
+    /**
+     * Extends the {@code persistAll()} to force each {@link ExtractionRequest} to register that an
+     * update has occurred.
+     */
+    @Override
+    public PersistResult<ExtractionRequest> persistAll(Collection<ExtractionRequest> extractionRequests) {
+
+        // Force update of updatedAt property.
+        for (ExtractionRequest extractionRequest : extractionRequests) {
+            extractionRequest.markAsUpdated();
+        }
+
+        // Persist the objects.
+        return super.persistAll(extractionRequests);
+
+    }
+
 }
@@ -1,8 +1,10 @@
 package au.gov.aims.ereefs.pojo.job;
 
 import au.gov.aims.ereefs.pojo.Pojo;
+import au.gov.aims.ereefs.pojo.shared.StatusEnum;
 import au.gov.aims.ereefs.pojo.shared.StatusEvent;
 import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskStatus;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -10,7 +12,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -40,17 +44,7 @@ public class Job extends Pojo {
                           String optionalDetails) {
         this.status = status;
         this.createdBy = actor;
-        String message = "Status changed to " + status.name() + " by " + actor;
-        if (optionalDetails != null && optionalDetails.length() > 0) {
-            message += ". " + optionalDetails;
-        }
-        this.history.add(
-            new StatusEvent(
-                dateTimeFormatter.format(ZonedDateTime.now()),
-                status.name(),
-                message
-            )
-        );
+        this.history.add(StatusEvent.make(status.name(), actor, optionalDetails));
     }
 
     /**
@@ -78,11 +72,50 @@ public class Job extends Pojo {
      * The list of {@link Task}s that define the individual pieces of work to be performed for this
      * {@code Job}. This is marked as {@code JsonIgnore} so {@code Jackson} does not attempt to
      * use this field when de/serialising a {@link Job}. This is for convenience access only, and
-     * is populated manually by the {@link au.gov.aims.ereefs.pojo.task.TaskDao} implementation.
+     * is populated manually by the {@link au.gov.aims.ereefs.pojo.task.TaskDao} implementation,
+     * or on first access by the {@link #taskLoader}.
      */
     @JsonIgnore
     private List<Task> tasks = new ArrayList<>();
 
+    /**
+     * Loads the {@link #tasks} on first access, or {@code null} if they are loaded (or the
+     * {@code Job} was not retrieved from a {@link JobDao}).
+     */
+    @JsonIgnore
+    private JobTaskLoader taskLoader;
+
+    /**
+     * Defer loading the {@link Task}s of this {@code Job} until they are first accessed. Any
+     * {@link Task}s added before then follow the loaded {@link Task}s.
+     */
+    @JsonIgnore
+    public void setTaskLoader(JobTaskLoader taskLoader) {
+        this.taskLoader = taskLoader;
+    }
+
+    /**
+     * Returns {@code true} if the {@link Task}s of this {@code Job} are in memory, ie: they do not
+     * need to be loaded from the {@link au.gov.aims.ereefs.pojo.task.TaskDao}.
+     */
+    @JsonIgnore
+    public boolean isTasksLoaded() {
+        return this.taskLoader == null;
+    }
+
+    /**
+     * Load the {@link #tasks} using the {@link #taskLoader}, if any.
+     */
+    protected void loadTasks() {
+        final JobTaskLoader loader = this.taskLoader;
+        if (loader != null) {
+            final List<Task> loadedTasks = loader.load(this.getId());
+            loadedTasks.addAll(this.tasks);
+            this.tasks = loadedTasks;
+            this.taskLoader = null;
+        }
+    }
+
     public void addTask(Task task) {
         this.tasks.add(task);
     }
@@ -91,7 +124,40 @@ public class Job extends Pojo {
         this.tasks.addAll(tasks);
     }
 
+    /**
+     * Returns the {@link Task}s of this {@code Job}, loading them on first access.
+     */
     public List<Task> getTasks() {
+        this.loadTasks();
+        return new ArrayList<>(this.tasks);
+    }
+
+    /**
+     * Returns the {@link Task}s of this {@code Job} with one of the specified statuses. If the
+     * {@link Task}s have not been loaded, only the matching {@link Task}s are retrieved, and the
+     * {@link Task}s remain unloaded.
+     */
+    public List<Task> getTasksByStatus(Collection<TaskStatus> statuses) {
+        final List<Task> matchingTasks = new ArrayList<>();
+        final JobTaskLoader loader = this.taskLoader;
+        if (loader != null) {
+            matchingTasks.addAll(loader.load(this.getId(), statuses));
+        }
+        for (Task task : this.tasks) {
+            if (statuses.contains(task.getStatus())) {
+                matchingTasks.add(task);
+            }
+        }
+        return matchingTasks;
+    }
+
+    /**
+     * Returns the {@link Task}s of this {@code Job} which are in memory, without loading them.
+     * This is the list a {@link JobDao} persists, as {@link Task}s which have not been loaded
+     * cannot have been modified.
+     */
+    @JsonIgnore
+    public List<Task> getLoadedTasks() {
         return new ArrayList<>(this.tasks);
     }
 
@@ -99,6 +165,7 @@ public class Job extends Pojo {
      * The list of {@link StatusEvent} objects that track {@link #status} changes to the {@link Job}.
      */
     @JsonProperty
+    @StatusEnum(JobStatus.class)
     protected List<StatusEvent> history = new ArrayList<>();
 
     public List<StatusEvent> getHistory() {
@@ -128,7 +195,7 @@ public class Job extends Pojo {
         job.setHistory(new ArrayList<StatusEvent>() {{
                            add(
                                new StatusEvent(
-                                   dateTimeFormatter.format(ZonedDateTime.now()),
+                                   dateTimeFormatter.format(ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS)),
                                    JobStatus.CREATED.name(),
                                    "Job created by " + createdBy
                                )
@@ -0,0 +1,62 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.task.Task;
+
+/**
+ * A source of notifications of changes to the {@link Job}s and {@link Task}s in a repository,
+ * feeding a {@link LiveJobView}. Implementations exist for each type of repository:
+ * {@link JobChangeSourceMongoDbImpl} (change streams), {@link JobChangeSourceFileImpl} (polling
+ * the last modified times of the files) and {@link JobChangeSourceLocalImpl} (changes published
+ * in-process, primarily for testing).
+ */
+public interface JobChangeSource extends AutoCloseable {
+
+    /**
+     * Start delivering changes to the {@code sink}. Every change made after this method returns
+     * is delivered, so the current state of the repository may be loaded once it has returned
+     * without missing changes. Changes may be delivered more than once, and from several threads.
+     *
+     * @throws IllegalStateException thrown if the source has already been started.
+     */
+    void start(Sink sink);
+
+    /**
+     * Stop delivering changes, releasing any resources.
+     */
+    @Override
+    void close();
+
+    /**
+     * Receives the changes from a {@link JobChangeSource}.
+     */
+    interface Sink {
+
+        /**
+         * A {@link Job} has been created or changed.
+         */
+        void jobChanged(Job job);
+
+        /**
+         * A {@link Job} has been deleted.
+         */
+        void jobDeleted(String jobId);
+
+        /**
+         * A {@link Task} has been created or changed.
+         */
+        void taskChanged(Task task);
+
+        /**
+         * A {@link Task} has been deleted.
+         */
+        void taskDeleted(String taskId);
+
+        /**
+         * Changes may have been missed (eg: the connection to the repository was lost), so the
+         * state of the repository should be reloaded.
+         */
+        void resync();
+
+    }
+
+}
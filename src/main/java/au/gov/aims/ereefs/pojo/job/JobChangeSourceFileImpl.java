@@ -0,0 +1,207 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.utils.DirectorySnapshot;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concrete implementation of the {@link JobChangeSource} interface for a file-based repository (see
+ * {@link JobDaoFileImpl} and {@code TaskDaoFileImpl}). The {@link Job} and {@link Task} directories
+ * are polled by a background thread, comparing {@link DirectorySnapshot}s to find the files which
+ * have been written or removed since the previous poll, so only those files are read.
+ */
+public class JobChangeSourceFileImpl implements JobChangeSource {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The default value of {@link #pollIntervalMillis}.
+     */
+    final static public long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The root directory of the {@link Job} files.
+     */
+    final protected File jobDir;
+
+    /**
+     * The root directory of the {@link Task} files.
+     */
+    final protected File taskDir;
+
+    /**
+     * The delay (in milliseconds) between the end of one poll and the start of the next.
+     */
+    final protected long pollIntervalMillis;
+
+    /**
+     * Utility object for populating a POJO from JSON.
+     */
+    protected ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * The state of the directories at the previous poll. Only accessed by the polling thread
+     * after {@link #start(Sink)}.
+     */
+    protected DirectorySnapshot jobSnapshot;
+
+    protected DirectorySnapshot taskSnapshot;
+
+    /**
+     * The polling thread, or {@code null} if not started.
+     */
+    protected ScheduledExecutorService executor;
+
+    /**
+     * Constructor polling every {@link #DEFAULT_POLL_INTERVAL_MILLIS} milliseconds.
+     *
+     * @param jobDaoPath the root directory of the {@link JobDaoFileImpl}.
+     * @param taskDaoPath the root directory of the {@code TaskDaoFileImpl}.
+     */
+    public JobChangeSourceFileImpl(String jobDaoPath,
+                                   String taskDaoPath) {
+        this(jobDaoPath, taskDaoPath, DEFAULT_POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param jobDaoPath the root directory of the {@link JobDaoFileImpl}.
+     * @param taskDaoPath the root directory of the {@code TaskDaoFileImpl}.
+     * @param pollIntervalMillis the delay (in milliseconds) between polls.
+     */
+    public JobChangeSourceFileImpl(String jobDaoPath,
+                                   String taskDaoPath,
+                                   long pollIntervalMillis) {
+        super();
+        this.jobDir = new File(jobDaoPath);
+        this.taskDir = new File(taskDaoPath);
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Take the initial snapshots of the directories, then start polling.
+     */
+    @Override
+    public synchronized void start(Sink sink) {
+        if (this.executor != null) {
+            throw new IllegalStateException("The change source has already been started.");
+        }
+        this.jobSnapshot = this.takeSnapshot(this.jobDir);
+        this.taskSnapshot = this.takeSnapshot(this.taskDir);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "JobChangeSource-" + this.jobDir.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(
+            () -> this.poll(sink),
+            this.pollIntervalMillis,
+            this.pollIntervalMillis,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Deliver the changes since the previous poll to the {@code sink}. A file removed from one
+     * path while a file with the same {@code id} changed at another (eg: a record moved to another
+     * {@code FileLayout}) is a move, so no deletion is delivered for it. Failures are logged rather
+     * than thrown, so polling continues.
+     */
+    protected void poll(Sink sink) {
+        try {
+            final DirectorySnapshot jobs = this.takeSnapshot(this.jobDir);
+            final Set<String> changedJobIds = new HashSet<>();
+            for (File file : jobs.getChangedSince(this.jobSnapshot)) {
+                changedJobIds.add(this.getId(file));
+                final Job job = this.load(file, Job.class);
+                if (job != null) {
+                    sink.jobChanged(job);
+                }
+            }
+            for (File file : jobs.getRemovedSince(this.jobSnapshot)) {
+                final String id = this.getId(file);
+                if (!changedJobIds.contains(id)) {
+                    sink.jobDeleted(id);
+                }
+            }
+            this.jobSnapshot = jobs;
+
+            final DirectorySnapshot tasks = this.takeSnapshot(this.taskDir);
+            final Set<String> changedTaskIds = new HashSet<>();
+            for (File file : tasks.getChangedSince(this.taskSnapshot)) {
+                changedTaskIds.add(this.getId(file));
+                final Task task = this.load(file, Task.class);
+                if (task != null) {
+                    sink.taskChanged(task);
+                }
+            }
+            for (File file : tasks.getRemovedSince(this.taskSnapshot)) {
+                final String id = this.getId(file);
+                if (!changedTaskIds.contains(id)) {
+                    sink.taskDeleted(id);
+                }
+            }
+            this.taskSnapshot = tasks;
+        } catch (RuntimeException e) {
+            this.logger.error("Failed to poll for changes to the Jobs at \"" + this.jobDir + "\".", e);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the directory, or an empty snapshot if the directory does not exist.
+     */
+    protected DirectorySnapshot takeSnapshot(File directory) {
+        if (!directory.isDirectory()) {
+            return new DirectorySnapshot();
+        }
+        try {
+            return DirectorySnapshot.take(
+                directory,
+                failure -> this.logger.warn("Failed to visit \"" + failure.getFile() + "\".", failure.getException())
+            );
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list the files at \"" + directory + "\".", e);
+        }
+    }
+
+    /**
+     * Load the POJO from the file, returning {@code null} (and logging) if it cannot be loaded,
+     * such as if it was removed since the snapshot was taken.
+     */
+    protected <T> T load(File file, Class<T> pojoClass) {
+        try {
+            return JSONFileReader.loadFile(file, this.jsonMapper, pojoClass);
+        } catch (Exception e) {
+            this.logger.warn("Failed to load \"" + file + "\".", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the {@code id} of the POJO in the file, which is named after it.
+     */
+    protected String getId(File file) {
+        final String name = file.getName();
+        return name.substring(0, name.length() - ".json".length());
+    }
+
+}
@@ -0,0 +1,62 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.task.Task;
+
+/**
+ * Concrete implementation of the {@link JobChangeSource} interface for changes published
+ * in-process, such as by a test after persisting a {@link Job} or {@link Task}. Changes are
+ * delivered synchronously, on the publishing thread, and are discarded until the source has been
+ * started.
+ */
+public class JobChangeSourceLocalImpl implements JobChangeSource {
+
+    /**
+     * The destination of the changes, or {@code null} if not started or closed.
+     */
+    protected volatile Sink sink;
+
+    protected boolean isStarted = false;
+
+    @Override
+    public synchronized void start(Sink sink) {
+        if (this.isStarted) {
+            throw new IllegalStateException("The change source has already been started.");
+        }
+        this.isStarted = true;
+        this.sink = sink;
+    }
+
+    @Override
+    public void close() {
+        this.sink = null;
+    }
+
+    public void publishJob(Job job) {
+        final Sink sink = this.sink;
+        if (sink != null) {
+            sink.jobChanged(job);
+        }
+    }
+
+    public void publishJobDeleted(String jobId) {
+        final Sink sink = this.sink;
+        if (sink != null) {
+            sink.jobDeleted(jobId);
+        }
+    }
+
+    public void publishTask(Task task) {
+        final Sink sink = this.sink;
+        if (sink != null) {
+            sink.taskChanged(task);
+        }
+    }
+
+    public void publishTaskDeleted(String taskId) {
+        final Sink sink = this.sink;
+        if (sink != null) {
+            sink.taskDeleted(taskId);
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.AbstractPojoDaoMongoDbImpl;
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskDaoMongoDbImpl;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Concrete implementation of the {@link JobChangeSource} interface for a {@code MongoDB}-based
+ * repository, using a change stream on each of the {@code job} and {@code task} collections (see
+ * {@link AbstractPojoDaoMongoDbImpl#watch()}). Each change stream is read by its own background
+ * thread. If a change stream fails (eg: the connection is lost) or is invalidated (eg: the
+ * collection is dropped), it is reopened and the {@link Sink} is asked to
+ * {@link Sink#resync() resync}.
+ * <p>
+ * Change streams require {@code MongoDB} to be deployed as a replica set or sharded cluster.
+ * </p>
+ */
+public class JobChangeSourceMongoDbImpl implements JobChangeSource {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The delay (in milliseconds) before reopening a change stream which failed.
+     */
+    final static public long RETRY_DELAY_MILLIS = 1000;
+
+    /**
+     * The maximum time (in milliseconds) the server waits for a change before returning control
+     * to a reading thread, which bounds how long {@link #close()} waits for the threads to stop.
+     */
+    final static public long MAX_AWAIT_MILLIS = 1000;
+
+    final protected JobDaoMongoDbImpl jobDao;
+
+    final protected TaskDaoMongoDbImpl taskDao;
+
+    /**
+     * The threads reading the change streams.
+     */
+    final protected List<Thread> threads = new ArrayList<>();
+
+    protected volatile boolean isClosed = false;
+
+    /**
+     * Constructor.
+     */
+    public JobChangeSourceMongoDbImpl(JobDaoMongoDbImpl jobDao,
+                                      TaskDaoMongoDbImpl taskDao) {
+        super();
+        this.jobDao = jobDao;
+        this.taskDao = taskDao;
+    }
+
+    /**
+     * Open the change streams, then start the threads reading them.
+     */
+    @Override
+    public synchronized void start(Sink sink) {
+        if (!this.threads.isEmpty()) {
+            throw new IllegalStateException("The change source has already been started.");
+        }
+        this.threads.add(this.startReading(
+            JobDaoMongoDbImpl.COLLECTION_NAME, this.jobDao, sink::jobChanged, sink::jobDeleted, sink));
+        this.threads.add(this.startReading(
+            TaskDaoMongoDbImpl.COLLECTION_NAME, this.taskDao, sink::taskChanged, sink::taskDeleted, sink));
+    }
+
+    /**
+     * Stop the threads, waiting up to {@link #MAX_AWAIT_MILLIS} for each to close its change
+     * stream.
+     */
+    @Override
+    public synchronized void close() {
+        this.isClosed = true;
+        for (Thread thread : this.threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : this.threads) {
+            try {
+                thread.join(MAX_AWAIT_MILLIS * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Open a change stream on the collection of the {@code dao}, and start a thread delivering
+     * its changes to the {@code changed} and {@code deleted} handlers.
+     */
+    protected <T> Thread startReading(String collectionName,
+                                      AbstractPojoDaoMongoDbImpl<T> dao,
+                                      Consumer<T> changed,
+                                      Consumer<String> deleted,
+                                      Sink sink) {
+        final MongoChangeStreamCursor<ChangeStreamDocument<T>> initialCursor = this.open(dao);
+        final Thread thread = new Thread(() -> {
+            MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = initialCursor;
+            while (!this.isClosed) {
+                try {
+                    if (cursor == null) {
+                        cursor = this.open(dao);
+                        sink.resync();
+                    }
+                    final ChangeStreamDocument<T> change = cursor.tryNext();
+                    if (change != null && !this.deliver(change, changed, deleted)) {
+                        this.logger.warn("The change stream on \"" + collectionName + "\" was invalidated (" +
+                            change.getOperationType() + ").");
+                        cursor.close();
+                        cursor = null;
+                    }
+                } catch (RuntimeException e) {
+                    if (this.isClosed) {
+                        break;
+                    }
+                    this.logger.error("The change stream on \"" + collectionName + "\" failed.", e);
+                    this.closeQuietly(cursor);
+                    cursor = null;
+                    try {
+                        Thread.sleep(RETRY_DELAY_MILLIS);
+                    } catch (InterruptedException interrupted) {
+                        break;
+                    }
+                }
+            }
+            this.closeQuietly(cursor);
+        }, "JobChangeSource-" + collectionName);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    protected <T> MongoChangeStreamCursor<ChangeStreamDocument<T>> open(AbstractPojoDaoMongoDbImpl<T> dao) {
+        return dao.watch().maxAwaitTime(MAX_AWAIT_MILLIS, TimeUnit.MILLISECONDS).cursor();
+    }
+
+    /**
+     * Deliver the change to the appropriate handler.
+     *
+     * @return {@code false} if the change invalidates the change stream.
+     */
+    protected <T> boolean deliver(ChangeStreamDocument<T> change,
+                                  Consumer<T> changed,
+                                  Consumer<String> deleted) {
+        switch (change.getOperationType()) {
+            case INSERT:
+            case UPDATE:
+            case REPLACE:
+                // The full document is missing if it was deleted before it was looked up, in
+                // which case the deletion follows.
+                if (change.getFullDocument() != null) {
+                    changed.accept(change.getFullDocument());
+                }
+                return true;
+            case DELETE:
+                deleted.accept(change.getDocumentKey().getString("_id").getValue());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    protected void closeQuietly(MongoChangeStreamCursor<?> cursor) {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (RuntimeException e) {
+                this.logger.debug("Failed to close a change stream.", e);
+            }
+        }
+    }
+
+}
@@ -19,4 +19,33 @@ public interface JobDao extends PojoDao<Job> {
      */
     List<Job> findAllActive();
 
+    /**
+     * Atomically change the status of the {@link Job}, recording the change in its history (see
+     * {@link Job#setStatus(JobStatus, String, String)}), without rewriting the rest of the
+     * {@link Job} or its {@code Task}s. The change is only made if the current status is
+     * {@code expectedStatus}, so concurrent components cannot overwrite each other's transitions.
+     * The default reads the {@link Job}, changes its status and persists it, which is not atomic,
+     * so implementations should override it to make the change atomically in the repository.
+     *
+     * @param id the id of the {@link Job}.
+     * @param expectedStatus the required current status, or {@code null} for any status.
+     * @param newStatus the new status.
+     * @param actor the system component/actor changing the status.
+     * @param optionalDetails if specified, appended to the description of the change.
+     * @return the updated {@link Job}, or {@code null} if the {@link Job} does not exist or its
+     * status is not {@code expectedStatus}.
+     */
+    default Job transitionStatus(String id,
+                                 JobStatus expectedStatus,
+                                 JobStatus newStatus,
+                                 String actor,
+                                 String optionalDetails) {
+        final Job job = this.getById(id);
+        if (job == null || (expectedStatus != null && job.getStatus() != expectedStatus)) {
+            return null;
+        }
+        job.setStatus(newStatus, actor, optionalDetails);
+        return this.persist(job);
+    }
+
 }
@@ -1,17 +1,27 @@
 package au.gov.aims.ereefs.pojo.job;
 
+import au.gov.aims.ereefs.pojo.PersistResult;
+import au.gov.aims.ereefs.pojo.shared.HistoryArchive;
+import au.gov.aims.ereefs.pojo.shared.HistoryPolicy;
 import au.gov.aims.ereefs.pojo.task.Task;
 import au.gov.aims.ereefs.pojo.task.TaskDao;
+import au.gov.aims.ereefs.pojo.utils.AtomicFileWriter;
+import au.gov.aims.ereefs.pojo.utils.FileLayout;
 import au.gov.aims.ereefs.pojo.utils.FileUtils;
 import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Concrete implementation of the {@link JobDao} interface for a file-based repository.
@@ -37,6 +47,35 @@ public class JobDaoFileImpl implements JobDao {
      */
     protected ObjectMapper jsonMapper = new ObjectMapper();
 
+    /**
+     * How the {@link Job} files are arranged beneath {@link #jobDaoPath}. Files are read from
+     * either layout.
+     */
+    protected FileLayout fileLayout = FileLayout.FLAT;
+
+    /**
+     * Writes the files of the {@link Job}s, forcing them to disk as its durability requires.
+     */
+    protected AtomicFileWriter fileWriter = AtomicFileWriter.NON_DURABLE;
+
+    /**
+     * Index of the status of each {@link Job}, so {@link #findAllActive()} reads only the files of
+     * the active {@link Job}s.
+     */
+    final protected JobStatusIndex statusIndex;
+
+    /**
+     * How the {@code history} of the {@link Job}s is stored. See
+     * {@link #setHistoryPolicy(HistoryPolicy, HistoryArchive)}.
+     */
+    protected HistoryPolicy historyPolicy = HistoryPolicy.UNBOUNDED;
+
+    /**
+     * The archive of the events moved out of the {@code history} of the {@link Job}s, or
+     * {@code null} to discard them.
+     */
+    protected HistoryArchive historyArchive;
+
     /**
      * Cached reference to the {@link TaskDao} implementation for use when reading/writing the
      * {@link Task}s associated with a {@link Job}.
@@ -58,6 +97,65 @@ public class JobDaoFileImpl implements JobDao {
         final File jobDir = new File(this.jobDaoPath);
         jobDir.mkdirs();
 
+        this.statusIndex = new JobStatusIndex(jobDir);
+
+    }
+
+    /**
+     * Set how the {@link Job} files are written beneath the root directory. Files written in the
+     * other layout are still read, and are moved when they are next persisted.
+     */
+    public void setFileLayout(FileLayout fileLayout) {
+        this.fileLayout = fileLayout;
+    }
+
+    /**
+     * Set how the files of the {@link Job}s are written, such as to force them to disk. A single
+     * {@link AtomicFileWriter} may be shared by the DAOs of a process, so their concurrent writes
+     * share the {@code fsync}s of a group commit.
+     */
+    public void setFileWriter(AtomicFileWriter fileWriter) {
+        this.fileWriter = fileWriter;
+    }
+
+    /**
+     * Returns the existing file of the {@link Job}, in either layout, or the file where the
+     * {@link #fileLayout} places it if there is none.
+     */
+    protected File findFile(String id) {
+        return this.fileLayout.find(new File(this.jobDaoPath), id, ".json");
+    }
+
+    /**
+     * Returns the file where the {@link #fileLayout} places the {@link Job}. Its lock (see
+     * {@link FileUtils#withLock(File, FileUtils.IOSupplier)}) is held to write the {@link Job},
+     * whichever layout its existing file is in, so the writes of the {@link Job} are serialised.
+     */
+    protected File getFile(String id) {
+        return this.fileLayout.getFile(new File(this.jobDaoPath), id, ".json");
+    }
+
+    /**
+     * Rebuild the index of the status of the {@link Job}s (see {@link JobStatusIndex}) from the
+     * {@link Job} files, such as after files have been written by another tool.
+     */
+    public void rebuildStatusIndex() {
+        this.statusIndex.rebuild();
+    }
+
+    /**
+     * Set how the {@code history} of the {@link Job}s is stored. This should be set before the
+     * repository is used.
+     *
+     * @param historyPolicy the policy.
+     * @param historyArchive the archive of the events moved out of the files, or {@code null} to
+     *                       discard them.
+     */
+    public void setHistoryPolicy(HistoryPolicy historyPolicy,
+                                 HistoryArchive historyArchive) {
+        this.historyPolicy = historyPolicy;
+        this.historyArchive = historyArchive;
+        this.jsonMapper = historyPolicy.configure(this.jsonMapper);
     }
 
     @Override
@@ -65,12 +163,15 @@ public class JobDaoFileImpl implements JobDao {
         try {
 
             // Retrieve the Job.
-            final JSONObject jobJson = JSONFileReader.loadFileAsJSONObject(this.jobDaoPath + id + ".json");
-            if (jobJson != null) {
-                final Job job = this.jsonMapper.readValue(jobJson.toString(), Job.class);
+            final Job job = JSONFileReader.loadFile(
+                this.findFile(id),
+                this.jsonMapper,
+                Job.class
+            );
+            if (job != null) {
 
-                // Populate the Task list.
-                job.addTasks(this.taskDao.getByJobId(id));
+                // Load the Task list on first access.
+                job.setTaskLoader(new JobTaskLoader(this.taskDao));
 
                 return job;
             }
@@ -81,55 +182,171 @@ public class JobDaoFileImpl implements JobDao {
         return null;
     }
 
+    /**
+     * Retrieve the {@link Job}s in parallel, as each is read from its own file. Their
+     * {@link Task}s are loaded in a single batch on first access. Ids without a {@link Job} file are omitted, rather than failing as
+     * {@link #getById(String)} does.
+     */
+    @Override
+    public Map<String, Job> getByIds(Collection<String> ids) {
+        final List<String> distinctIds = ids.stream()
+            .filter(Objects::nonNull)
+            .distinct()
+            .filter(id -> this.findFile(id).isFile())
+            .collect(Collectors.toList());
+        final Map<String, Job> loaded = new ConcurrentHashMap<>();
+        distinctIds.parallelStream().forEach(id -> {
+            final Job job = this.getById(id);
+            if (job != null) {
+                loaded.put(id, job);
+            }
+        });
+
+        // Order the result by the requested ids, sharing a single batched Task loader.
+        final Map<String, Job> jobs = new LinkedHashMap<>();
+        for (String id : distinctIds) {
+            final Job job = loaded.get(id);
+            if (job != null) {
+                jobs.put(id, job);
+            }
+        }
+        final JobTaskLoader taskLoader = new JobTaskLoader(this.taskDao, jobs.keySet());
+        for (Job job : jobs.values()) {
+            job.setTaskLoader(taskLoader);
+        }
+        return jobs;
+    }
+
+    /**
+     * Find the active {@link Job}s with the {@link #statusIndex}, then load only their files in
+     * parallel. A {@link Job} whose file is no longer active (or no longer exists) is read again
+     * while holding the lock of its file, so a concurrent write is not overwritten in the index,
+     * then corrected in the index and omitted.
+     */
     @Override
     public List<Job> findAllActive() {
-        final List<Job> activeJobs = new ArrayList<>();
-
-        // Retrieve a list of all Job files.
-        final List<String> filenames = FileUtils.listFiles(this.jobDaoPath, ".json");
-
-        // Load each Job file and determine if it matches the search criteria (ie: is active).
-        for (String filename : filenames) {
-            try {
-                final JSONObject json = JSONFileReader.loadFileAsJSONObject(filename);
-                if (json != null) {
-                    final Job job = this.jsonMapper.readValue(json.toString(), Job.class);
-                    if (JobStatusHelper.ACTIVE_JOB_STATUSES.contains(job.status)) {
-                        activeJobs.add(job);
-
-                        // Populate the Task list.
-                        job.addTasks(this.taskDao.getByJobId(job.getId()));
-                    }
+        final List<String> activeIds = this.statusIndex.findIds(JobStatusHelper.ACTIVE_JOB_STATUSES);
+        final Map<String, Job> loaded = new ConcurrentHashMap<>();
+        activeIds.parallelStream().forEach(id -> {
+            Job job = this.loadFile(id);
+            if (job == null || !JobStatusHelper.ACTIVE_JOB_STATUSES.contains(job.status)) {
+                try {
+                    job = FileUtils.withLock(this.getFile(id), () -> {
+                        final Job lockedJob = this.loadFile(id);
+                        if (lockedJob == null) {
+                            this.statusIndex.forget(id);
+                            return null;
+                        }
+                        if (!JobStatusHelper.ACTIVE_JOB_STATUSES.contains(lockedJob.status)) {
+                            this.statusIndex.record(id, lockedJob.status);
+                            return null;
+                        }
+                        return lockedJob;
+                    });
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to correct the status of the Job (\"" + id + "\").", e);
                 }
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to load/parse JSON for \"" + filename + "\"", e);
             }
+            if (job != null) {
+                loaded.put(id, job);
+            }
+        });
+        final List<Job> activeJobs = activeIds.stream()
+            .map(loaded::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+
+        // Load the Task lists on first access, in a single batch.
+        final JobTaskLoader taskLoader = new JobTaskLoader(
+            this.taskDao,
+            activeJobs.stream().map(Job::getId).collect(Collectors.toList())
+        );
+        for (Job job : activeJobs) {
+            job.setTaskLoader(taskLoader);
         }
 
         return activeJobs;
     }
 
+    /**
+     * Returns the {@link Job} read from its file, in either layout, or {@code null} if there is
+     * none.
+     */
+    protected Job loadFile(String id) {
+        final File file = this.findFile(id);
+        try {
+            return file.isFile() ? JSONFileReader.loadFile(file, this.jsonMapper, Job.class) : null;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load/parse JSON for \"" + file + "\"", e);
+        }
+    }
+
+    /**
+     * Transition the status while holding the lock of the {@link Job} file (see
+     * {@link #getFile(String)}), so concurrent transitions and writes, by this or another process,
+     * are serialised. The {@link Task}s are not rewritten, and are loaded on
+     * first access.
+     */
+    @Override
+    public Job transitionStatus(String id,
+                                JobStatus expectedStatus,
+                                JobStatus newStatus,
+                                String actor,
+                                String optionalDetails) {
+        if (!this.findFile(id).isFile()) {
+            return null;
+        }
+        try {
+            return FileUtils.withLock(this.getFile(id), () -> {
+                final File file = this.findFile(id);
+                if (!file.isFile()) {
+                    return null;
+                }
+                final Job job = JSONFileReader.loadFile(file, this.jsonMapper, Job.class);
+                if (job == null || (expectedStatus != null && job.getStatus() != expectedStatus)) {
+                    return null;
+                }
+                job.setStatus(newStatus, actor, optionalDetails);
+                this.historyPolicy.apply(job.getId(), job.getHistory(), this.historyArchive);
+                this.fileWriter.write(file, this.jsonMapper.writeValueAsString(job));
+                this.statusIndex.record(job.getId(), job.getStatus());
+                job.setTaskLoader(new JobTaskLoader(this.taskDao));
+                return job;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to transition the status of the Job (\"" + id + "\").", e);
+        }
+    }
+
     @Override
     public Job persist(Job job) {
         if (this.logger.isDebugEnabled()) {
             this.logger.debug("persist: " + job.getId());
         }
 
-        // Write the file.
-        try (final BufferedWriter bufferedWriter = new BufferedWriter(
-            new OutputStreamWriter(
-                new FileOutputStream(new File(this.jobDaoPath + job.getId() + ".json"))
-            )
-        )
-        ) {
-            bufferedWriter.write(this.jsonMapper.writeValueAsString(job));
+        // Write the file, then remove any copy in the other layout, and record the status, while
+        // holding the lock of the file so a concurrent transition is not overwritten in the index.
+        this.historyPolicy.apply(job.getId(), job.getHistory(), this.historyArchive);
+        final File jobDir = new File(this.jobDaoPath);
+        final File file = this.getFile(job.getId());
+        try {
+            FileUtils.withLock(file, () -> {
+                this.fileWriter.write(file, this.jsonMapper.writeValueAsString(job));
+                final File misplaced = this.fileLayout.findMisplaced(jobDir, job.getId(), ".json");
+                if (misplaced != null) {
+                    misplaced.delete();
+                }
+                this.statusIndex.record(job.getId(), job.getStatus());
+                return null;
+            });
         } catch(IOException e) {
             throw new RuntimeException("Failed to write Job object.", e);
         }
 
-        // Persist the Tasks.
-        for (Task task : job.getTasks()) {
-            this.taskDao.persist(task);
+        // Persist the Tasks in a single batch. Tasks which have not been loaded are unchanged.
+        final PersistResult<Task> result = this.taskDao.persistAll(job.getLoadedTasks());
+        if (!result.isSuccessful()) {
+            throw result.toException("Failed to persist the Tasks of the Job (\"" + job.getId() + "\")");
         }
 
         return job;
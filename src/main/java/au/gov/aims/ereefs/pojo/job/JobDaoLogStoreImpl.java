@@ -0,0 +1,173 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.AbstractPojoDaoLogStoreImpl;
+import au.gov.aims.ereefs.pojo.PersistResult;
+import au.gov.aims.ereefs.pojo.logstore.LogStore;
+import au.gov.aims.ereefs.pojo.shared.HistoryArchive;
+import au.gov.aims.ereefs.pojo.shared.HistoryPolicy;
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskDao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Concrete implementation of the {@link JobDao} interface for a repository held in a
+ * {@link LogStore}. The status of each {@link Job} is held in memory, so
+ * {@link #findAllActive()} reads only the active {@link Job}s. The {@link Task}s are persisted
+ * with the {@link TaskDao} (eg: a {@code TaskDaoLogStoreImpl}).
+ */
+public class JobDaoLogStoreImpl extends AbstractPojoDaoLogStoreImpl<Job> implements JobDao {
+
+    final static protected String ATTRIBUTE_STATUS = "status";
+
+    /**
+     * How the {@code history} of the {@link Job}s is stored. See
+     * {@link #setHistoryPolicy(HistoryPolicy, HistoryArchive)}.
+     */
+    protected HistoryPolicy historyPolicy = HistoryPolicy.UNBOUNDED;
+
+    /**
+     * The archive of the events moved out of the {@code history} of the {@link Job}s, or
+     * {@code null} to discard them.
+     */
+    protected HistoryArchive historyArchive;
+
+    /**
+     * Cached reference to the {@link TaskDao} implementation for use when reading/writing the
+     * {@link Task}s associated with a {@link Job}.
+     */
+    protected TaskDao taskDao;
+
+    /**
+     * Constructor to open the {@link LogStore} in the specified directory.
+     */
+    public JobDaoLogStoreImpl(String path,
+                              TaskDao taskDao) {
+        super(path);
+        this.taskDao = taskDao;
+    }
+
+    /**
+     * Constructor to capture a reference to an open {@link LogStore}.
+     */
+    public JobDaoLogStoreImpl(LogStore store,
+                              TaskDao taskDao) {
+        super(store);
+        this.taskDao = taskDao;
+    }
+
+    /**
+     * Set how the {@code history} of the {@link Job}s is stored. This should be set before the
+     * repository is used.
+     *
+     * @param historyPolicy the policy.
+     * @param historyArchive the archive of the events moved out of the records, or {@code null}
+     *                       to discard them.
+     */
+    public void setHistoryPolicy(HistoryPolicy historyPolicy,
+                                 HistoryArchive historyArchive) {
+        this.historyPolicy = historyPolicy;
+        this.historyArchive = historyArchive;
+        this.jsonMapper = historyPolicy.configure(this.jsonMapper);
+    }
+
+    @Override
+    protected Map<String, String> getAttributes(Job job) {
+        return Collections.singletonMap(ATTRIBUTE_STATUS, (job.getStatus() == null) ? null : job.getStatus().name());
+    }
+
+    @Override
+    protected void write(Job job) {
+        this.historyPolicy.apply(job.getId(), job.getHistory(), this.historyArchive);
+        super.write(job);
+    }
+
+    /**
+     * Retrieve the {@link Job}, loading its {@link Task}s on first access.
+     */
+    @Override
+    public Job getById(String id) {
+        final Job job = super.getById(id);
+        if (job != null) {
+            job.setTaskLoader(new JobTaskLoader(this.taskDao));
+        }
+        return job;
+    }
+
+    /**
+     * Retrieve the {@link Job}s, whose {@link Task}s are loaded in a single batch on first access.
+     */
+    @Override
+    public Map<String, Job> getByIds(Collection<String> ids) {
+        final Map<String, Job> jobs = super.getByIds(ids);
+        final JobTaskLoader taskLoader = new JobTaskLoader(this.taskDao, jobs.keySet());
+        for (Job job : jobs.values()) {
+            job.setTaskLoader(taskLoader);
+        }
+        return jobs;
+    }
+
+    /**
+     * Find the active {@link Job}s from the status held in memory, reading only those
+     * {@link Job}s.
+     */
+    @Override
+    public List<Job> findAllActive() {
+        final Set<String> names = JobStatusHelper.ACTIVE_JOB_STATUSES.stream()
+            .map(JobStatus::name)
+            .collect(Collectors.toSet());
+        return this.find(attributes -> names.contains(attributes.get(ATTRIBUTE_STATUS)));
+    }
+
+    /**
+     * Transition the status while holding the lock of the {@link Job} id, so concurrent
+     * transitions are serialised. The {@link Task}s are not rewritten, and are loaded on first
+     * access.
+     */
+    @Override
+    public Job transitionStatus(String id,
+                                JobStatus expectedStatus,
+                                JobStatus newStatus,
+                                String actor,
+                                String optionalDetails) {
+        return this.update(id, job -> {
+            if (expectedStatus != null && job.getStatus() != expectedStatus) {
+                return false;
+            }
+            job.setStatus(newStatus, actor, optionalDetails);
+            return true;
+        });
+    }
+
+    @Override
+    public Job persist(Job job) {
+        if (this.logger.isDebugEnabled()) {
+            this.logger.debug("persist: " + job.getId());
+        }
+        this.write(job);
+
+        // Persist the Tasks in a single batch. Tasks which have not been loaded are unchanged.
+        final PersistResult<Task> result = this.taskDao.persistAll(job.getLoadedTasks());
+        if (!result.isSuccessful()) {
+            throw result.toException("Failed to persist the Tasks of the Job (\"" + job.getId() + "\")");
+        }
+
+        return job;
+    }
+
+    @Override
+    protected Class<Job> getPojoClass() {
+        return Job.class;
+    }
+
+    @Override
+    protected String getPojoId(Job job) {
+        return job.getId();
+    }
+
+}
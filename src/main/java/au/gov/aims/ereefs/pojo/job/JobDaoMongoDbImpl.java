@@ -1,15 +1,21 @@
 package au.gov.aims.ereefs.pojo.job;
 
 import au.gov.aims.ereefs.pojo.AbstractPojoDaoMongoDbImpl;
+import au.gov.aims.ereefs.pojo.PersistResult;
+import au.gov.aims.ereefs.pojo.shared.StatusEvent;
 import au.gov.aims.ereefs.pojo.task.Task;
 import au.gov.aims.ereefs.pojo.task.TaskDao;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
-import org.bson.Document;
+import com.mongodb.client.model.Updates;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Specialisation of {@link AbstractPojoDaoMongoDbImpl} class to support {@link Job} objects.
@@ -41,7 +47,8 @@ public class JobDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Job> implement
     // ---------------------------------------------------------------------------------------------
 
     /**
-     * Override the {@link #getById(String)} method to force loading child {@code Tasks}.
+     * Override the {@link #getById(String)} method to load the child {@code Tasks} on first
+     * access.
      */
     @Override
     public Job getById(String id) {
@@ -49,16 +56,38 @@ public class JobDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Job> implement
         // Populate the Job.
         Job job = super.getById(id);
         if (job != null) {
-            // Populate the Task list.
-            final List<Task> taskList = this.taskDao.getByJobId(id);
-            if (taskList != null) {
-                job.addTasks(taskList);
-            }
+            job.setTaskLoader(new JobTaskLoader(this.taskDao));
         }
 
         return job;
     }
 
+    /**
+     * Override the {@link #getByIds(Collection)} method to load the child {@code Tasks} on first
+     * access.
+     */
+    @Override
+    public Map<String, Job> getByIds(Collection<String> ids) {
+        final Map<String, Job> jobs = super.getByIds(ids);
+        this.bindTaskLoader(jobs.values());
+        return jobs;
+    }
+
+    /**
+     * Attach a {@link JobTaskLoader} shared by the {@code Jobs}, so the first access to the
+     * {@code Tasks} of any of them loads the {@code Tasks} of all of them with a single batched
+     * {@link TaskDao#getByJobIds(Collection)} query.
+     */
+    protected void bindTaskLoader(Collection<Job> jobs) {
+        final JobTaskLoader taskLoader = new JobTaskLoader(
+            this.taskDao,
+            jobs.stream().map(Job::getId).collect(Collectors.toList())
+        );
+        for (Job job : jobs) {
+            job.setTaskLoader(taskLoader);
+        }
+    }
+
     @Override
     protected Class<Job> getPojoClass() {
         return Job.class;
@@ -69,6 +98,16 @@ public class JobDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Job> implement
         return pojo.getId();
     }
 
+    @Override
+    protected List<StatusEvent> getHistory(Job pojo) {
+        return pojo.getHistory();
+    }
+
+    @Override
+    protected Class<? extends Enum<?>> getStatusEnum() {
+        return JobStatus.class;
+    }
+
     // ---------------------------------------------------------------------------------------------
 
     /**
@@ -80,40 +119,65 @@ public class JobDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Job> implement
         // Persist the Job.
         final Job persistedJob = super.persist(job);
 
-        // Persist the Tasks.
-        for (Task task : job.getTasks()) {
-            this.taskDao.persist(task);
+        // Persist the Tasks in a single batch. Tasks which have not been loaded are unchanged.
+        final PersistResult<Task> result = this.taskDao.persistAll(job.getLoadedTasks());
+        if (!result.isSuccessful()) {
+            throw result.toException("Failed to persist the Tasks of the Job (\"" + job.getId() + "\")");
         }
 
         return persistedJob;
 
     }
 
+    /**
+     * Transition the status with a single {@code findOneAndUpdate}, also recording the
+     * {@code actor} as {@link Job#setStatus(JobStatus, String, String)} does. The {@code Tasks}
+     * of the returned {@link Job} are loaded on first access.
+     */
+    @Override
+    public Job transitionStatus(String id,
+                                JobStatus expectedStatus,
+                                JobStatus newStatus,
+                                String actor,
+                                String optionalDetails) {
+        final Job job = this.transitionStatus(
+            id,
+            (expectedStatus == null) ? null : expectedStatus.name(),
+            StatusEvent.make(newStatus.name(), actor, optionalDetails),
+            Updates.set("createdBy", actor)
+        );
+        if (job != null) {
+            job.setTaskLoader(new JobTaskLoader(this.taskDao));
+        }
+        return job;
+    }
+
+    /**
+     * Retrieve the active {@code Jobs} with a single {@code $in} query on their status. Their
+     * {@code Tasks} are loaded with a single batched query on first access. The result is ordered by status,
+     * following {@link JobStatusHelper#ACTIVE_JOB_STATUSES}.
+     */
     @Override
     public List<Job> findAllActive() {
 
         // Declare the return value.
         final List<Job> list = new ArrayList<>();
 
-        // Run a query search for each JobStatus of interest, adding the results to the list.
-        for (JobStatus jobStatus : JobStatusHelper.ACTIVE_JOB_STATUSES) {
-
-            final MongoCursor<Document> iterator =
-                this.collection.find(Filters.eq("status", jobStatus.toString())).iterator();
-            while (iterator.hasNext()) {
-                Job job = this.convertToPojo(iterator.next());
-                if (job != null) {
-                    list.add(job);
-
-                    // Populate the Task list.
-                    final List<Task> taskList = this.taskDao.getByJobId(job.getId());
-                    if (taskList != null) {
-                        job.addTasks(taskList);
-                    }
-                }
+        // Run a single query for all JobStatuses of interest.
+        final List<String> statuses = JobStatusHelper.ACTIVE_JOB_STATUSES.stream()
+            .map(JobStatus::toString)
+            .collect(Collectors.toList());
+        final MongoCursor<Job> iterator = this.find(Filters.in("status", statuses)).iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (job != null) {
+                list.add(job);
             }
-
         }
+        list.sort(Comparator.comparingInt(job -> JobStatusHelper.ACTIVE_JOB_STATUSES.indexOf(job.getStatus())));
+
+        // Load the Task lists on demand.
+        this.bindTaskLoader(list);
 
         return list;
 
@@ -0,0 +1,220 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.utils.IndexLog;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent index of the {@link JobStatus} of each {@link Job} in a {@link JobDaoFileImpl}
+ * repository, so the active {@link Job}s are found without reading every {@link Job} file.
+ * <p>
+ * The index is an append-only {@link IndexLog}, {@link #FILENAME} in the root directory of the
+ * repository, of one {@code <id> <status>} line per status written, and is held in memory. The log
+ * is compacted once most of its lines have been replaced by later lines. The log is loaded on
+ * first use, and the lines appended by other processes are read before each query. If there is no
+ * log, the index is built by reading only the {@code status} of each {@link Job} file, and the log
+ * is written when a {@link Job} is first recorded, so a repository which is only read is not
+ * modified. Files written without the index (eg: copied into the repository) are not found until
+ * the index is {@link #rebuild() rebuilt}.
+ * </p>
+ */
+public class JobStatusIndex {
+
+    /**
+     * The name of the log in the root directory of the repository. It does not end in
+     * {@code .json}, so it is never loaded as a record.
+     */
+    final static public String FILENAME = "job-status.idx";
+
+    /**
+     * The root directory of the repository.
+     */
+    final protected File daoDir;
+
+    final protected IndexLog log;
+
+    /**
+     * Used to read the {@code status} of a {@link Job} file when the index is built.
+     */
+    final protected JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * The status of each {@link Job}, by {@code id}.
+     */
+    final protected Map<String, String> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * {@code true} once the log has been loaded, or the index built.
+     */
+    protected volatile boolean isLoaded;
+
+    /**
+     * {@code true} if the log holds the index, so changes are appended to it.
+     */
+    protected volatile boolean isLogged;
+
+    /**
+     * Constructor to capture references relevant to this implementation.
+     *
+     * @param daoDir the root directory of the repository.
+     */
+    public JobStatusIndex(File daoDir) {
+        super();
+        this.daoDir = daoDir;
+        this.log = new IndexLog(new File(daoDir, FILENAME));
+    }
+
+    /**
+     * Returns the {@code id}s of the {@link Job}s with one of the {@code statuses}.
+     */
+    public List<String> findIds(List<JobStatus> statuses) {
+        this.refresh();
+        final List<String> names = statuses.stream().map(JobStatus::name).collect(Collectors.toList());
+        return this.statuses.entrySet().stream()
+            .filter(entry -> names.contains(entry.getValue()))
+            .map(Map.Entry::getKey)
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Record the status of the {@link Job}, once its file has been written, appending it to the
+     * log unless it is already indexed. The status is set in memory and appended to the log
+     * atomically for the {@code id}, so concurrent records of the same {@link Job} leave the
+     * memory and the log with the same status. The caller should hold the lock of the {@link Job}
+     * file, so the status recorded last is the status written last.
+     */
+    public void record(String id, JobStatus status) {
+        this.refresh();
+        if (!this.isLogged) {
+            synchronized (this) {
+                if (!this.isLogged) {
+                    this.writeLog();
+                }
+            }
+        }
+        final String name = String.valueOf(status);
+        final boolean[] isAppended = new boolean[1];
+        this.statuses.compute(id, (key, previous) -> {
+            if (!name.equals(previous)) {
+                this.log.append(id, name);
+                isAppended[0] = true;
+            }
+            return name;
+        });
+        if (isAppended[0]) {
+            this.log.compactIfRequired(this.statuses.size());
+        }
+    }
+
+    /**
+     * Remove the {@link Job}, such as when its file no longer exists, from the index in memory.
+     * It is added again when it is next recorded.
+     */
+    public void forget(String id) {
+        this.statuses.remove(id);
+    }
+
+    /**
+     * Rebuild the index from the {@link Job} files, replacing the log.
+     */
+    public synchronized void rebuild() {
+        this.build();
+        this.writeLog();
+    }
+
+    /**
+     * Read the lines appended to the log since it was last read, loading the log, or building
+     * the index, on first use.
+     */
+    protected synchronized void refresh() {
+        if (!this.log.exists()) {
+            if (!this.isLoaded || this.isLogged) {
+
+                // There is no log, or it was removed.
+                this.build();
+            }
+            return;
+        }
+        if (!this.isLogged) {
+
+            // The log was written by another process.
+            this.log.reset();
+        }
+        this.isLoaded = true;
+        this.isLogged = true;
+        this.statuses.putAll(this.log.readAppended());
+    }
+
+    /**
+     * Build the index from the {@link Job} files, without writing the log.
+     */
+    protected synchronized void build() {
+        final Queue<JSONFileReader.LoadFailure> failures = new ConcurrentLinkedQueue<>();
+        final Map<String, String> built = new ConcurrentHashMap<>();
+        try (final Stream<Map.Entry<String, String>> stream = JSONFileReader.stream(
+            this.daoDir,
+            file -> {
+                final String name = file.getName();
+                final String status = JSONFileReader.parseFile(file, this.jsonFactory, JobStatusIndex::readStatus);
+                return (status == null) ? null :
+                    new AbstractMap.SimpleImmutableEntry<>(name.substring(0, name.length() - ".json".length()), status);
+            },
+            failures::add
+        )) {
+            stream.forEach(entry -> built.put(entry.getKey(), entry.getValue()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list Jobs at \"" + this.daoDir + "\"", e);
+        }
+        final JSONFileReader.LoadFailure failure = failures.peek();
+        if (failure != null) {
+            throw new RuntimeException("Failed to load/parse JSON for \"" + failure.getFile() + "\"",
+                failure.getException());
+        }
+        this.statuses.clear();
+        this.statuses.putAll(built);
+        this.isLoaded = true;
+        this.isLogged = false;
+    }
+
+    /**
+     * Replace the log with the index.
+     */
+    protected synchronized void writeLog() {
+        this.log.write(this.statuses);
+        this.isLogged = true;
+    }
+
+    /**
+     * Returns the top-level {@code status} of the JSON object, skipping the other fields without
+     * binding them, or {@code null} if there is none.
+     */
+    static protected String readStatus(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ("status".equals(field) && value == JsonToken.VALUE_STRING) {
+                return parser.getText();
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,107 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskDao;
+import au.gov.aims.ereefs.pojo.task.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the {@link Task}s of {@link Job}s on demand, bound to a {@link TaskDao}. A {@link JobDao}
+ * attaches a loader to each {@link Job} it retrieves (see {@link Job#setTaskLoader(JobTaskLoader)})
+ * instead of loading the {@link Task}s eagerly, so callers which only need the {@code status} or
+ * {@code history} of a {@link Job} never touch the {@link Task}s.
+ * <p>
+ * A loader may be shared by a batch of {@link Job}s (eg: the result of
+ * {@link JobDao#findAllActive()}). The first {@link Job} of the batch to access its {@link Task}s
+ * then loads the {@link Task}s of the whole batch with a single
+ * {@link TaskDao#getByJobIds(Collection)} call, rather than one call per {@link Job}. This class
+ * is thread-safe.
+ * </p>
+ */
+public class JobTaskLoader {
+
+    /**
+     * The {@link TaskDao} the {@link Task}s are loaded from.
+     */
+    final protected TaskDao taskDao;
+
+    /**
+     * The ids of the {@link Job}s sharing this loader.
+     */
+    final protected Set<String> jobIds;
+
+    /**
+     * The {@link Task}s of the batch, or {@code null} if not loaded yet. Access is synchronised on
+     * this loader.
+     */
+    protected Map<String, List<Task>> tasksByJobId;
+
+    /**
+     * Constructor for a loader which is not shared by a batch of {@link Job}s.
+     */
+    public JobTaskLoader(TaskDao taskDao) {
+        this(taskDao, Collections.emptySet());
+    }
+
+    /**
+     * Constructor for a loader shared by the {@link Job}s with the specified ids.
+     */
+    public JobTaskLoader(TaskDao taskDao,
+                         Collection<String> jobIds) {
+        super();
+        this.taskDao = taskDao;
+        this.jobIds = Collections.unmodifiableSet(new LinkedHashSet<>(jobIds));
+    }
+
+    /**
+     * Load the {@link Task}s of the {@link Job}, loading the whole batch if the {@link Job} is part
+     * of it.
+     *
+     * @return a new, modifiable list of the {@link Task}s.
+     */
+    public List<Task> load(String jobId) {
+        final List<Task> tasks;
+        if (this.jobIds.contains(jobId)) {
+            synchronized (this) {
+                if (this.tasksByJobId == null) {
+                    this.tasksByJobId = this.taskDao.getByJobIds(this.jobIds);
+                }
+                tasks = this.tasksByJobId.get(jobId);
+            }
+        } else {
+            tasks = this.taskDao.getByJobIds(Collections.singletonList(jobId)).get(jobId);
+        }
+        return (tasks == null) ? new ArrayList<>() : new ArrayList<>(tasks);
+    }
+
+    /**
+     * Load the {@link Task}s of the {@link Job} with one of the specified statuses. If the batch
+     * has already been loaded, the {@link Task}s are filtered in memory, otherwise only the
+     * matching {@link Task}s are retrieved from the {@link TaskDao}.
+     *
+     * @return a new, modifiable list of the matching {@link Task}s.
+     */
+    public List<Task> load(String jobId, Collection<TaskStatus> statuses) {
+        synchronized (this) {
+            if (this.tasksByJobId != null && this.jobIds.contains(jobId)) {
+                final List<Task> tasks = this.tasksByJobId.get(jobId);
+                if (tasks == null) {
+                    return new ArrayList<>();
+                }
+                return tasks.stream()
+                    .filter(task -> statuses.contains(task.getStatus()))
+                    .collect(Collectors.toList());
+            }
+        }
+        return new ArrayList<>(this.taskDao.getByJobId(jobId, statuses));
+    }
+
+}
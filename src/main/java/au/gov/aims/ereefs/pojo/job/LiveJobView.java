@@ -0,0 +1,421 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory view of the {@code active} {@link Job}s (see {@link JobStatusHelper#ACTIVE_JOB_STATUSES})
+ * and their {@link Task}s, kept up to date by a {@link JobChangeSource} rather than by polling
+ * {@link JobDao#findAllActive()}. The view is loaded once when {@link #start() started}, then
+ * only the changed {@link Job}s and {@link Task}s are applied, and each change to the view is
+ * pushed to the registered {@link Listener}s.
+ * <p>
+ * Changes received while the view is loading are buffered and applied afterwards, so no change
+ * is lost. The {@link Job}s in the view do not load their {@link Task}s; use
+ * {@link #getTasks(String)} instead of {@link Job#getTasks()}. This class is thread-safe.
+ * </p>
+ */
+public class LiveJobView implements AutoCloseable {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    final protected JobDao jobDao;
+
+    final protected TaskDao taskDao;
+
+    final protected JobChangeSource changeSource;
+
+    final protected List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The {@code active} {@link Job}s, by {@code id}, in the order they were added to the view.
+     */
+    final protected Map<String, Job> jobs = new LinkedHashMap<>();
+
+    /**
+     * The {@link Task}s of each {@link Job} in {@link #jobs}, by {@link Job} {@code id} then
+     * {@link Task} {@code id}.
+     */
+    final protected Map<String, Map<String, Task>> tasksByJobId = new HashMap<>();
+
+    /**
+     * The {@link Job} {@code id} of each {@link Task} in {@link #tasksByJobId}.
+     */
+    final protected Map<String, String> jobIdsByTaskId = new HashMap<>();
+
+    /**
+     * The changes received while the view is being loaded, or {@code null} if the view is not
+     * being loaded.
+     */
+    protected List<Runnable> pendingChanges;
+
+    /**
+     * The changes received for each {@link Job} whose {@link Task}s are being loaded, after it
+     * became {@code active}.
+     */
+    final protected Map<String, List<Runnable>> loadingJobs = new HashMap<>();
+
+    /**
+     * Serialises the loading of the whole view.
+     */
+    final protected Object resyncLock = new Object();
+
+    protected boolean isStarted = false;
+
+    /**
+     * Constructor.
+     *
+     * @param jobDao the repository the view is loaded from.
+     * @param taskDao the repository the {@link Task}s are loaded from.
+     * @param changeSource the source of changes to the repository.
+     */
+    public LiveJobView(JobDao jobDao,
+                       TaskDao taskDao,
+                       JobChangeSource changeSource) {
+        super();
+        this.jobDao = jobDao;
+        this.taskDao = taskDao;
+        this.changeSource = changeSource;
+    }
+
+    public void addListener(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Subscribe to the {@link JobChangeSource}, then load the view. The {@link Listener}s are
+     * notified of each {@link Job} and {@link Task} loaded.
+     *
+     * @throws IllegalStateException thrown if the view has already been started.
+     */
+    public void start() {
+        synchronized (this) {
+            if (this.isStarted) {
+                throw new IllegalStateException("The view has already been started.");
+            }
+            this.isStarted = true;
+        }
+        this.changeSource.start(new ChangeSink());
+        this.resync();
+    }
+
+    /**
+     * Stop receiving changes. The view is no longer updated.
+     */
+    @Override
+    public void close() {
+        this.changeSource.close();
+    }
+
+    /**
+     * Returns the {@code active} {@link Job}s.
+     */
+    public synchronized List<Job> getActiveJobs() {
+        return new ArrayList<>(this.jobs.values());
+    }
+
+    /**
+     * Returns the {@link Job}, or {@code null} if it is not {@code active}.
+     */
+    public synchronized Job getJob(String jobId) {
+        return this.jobs.get(jobId);
+    }
+
+    /**
+     * Returns the {@link Task}s of the {@link Job}, or an empty list if it is not {@code active}.
+     */
+    public synchronized List<Task> getTasks(String jobId) {
+        final Map<String, Task> tasks = this.tasksByJobId.get(jobId);
+        return (tasks == null) ? new ArrayList<>() : new ArrayList<>(tasks.values());
+    }
+
+    /**
+     * Returns the {@link Task}, or {@code null} if it does not belong to an {@code active}
+     * {@link Job}.
+     */
+    public synchronized Task getTask(String taskId) {
+        final String jobId = this.jobIdsByTaskId.get(taskId);
+        return (jobId == null) ? null : this.tasksByJobId.get(jobId).get(taskId);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * (Re)load the whole view, buffering the changes received meanwhile and applying them
+     * afterwards. As each change carries the state of the {@link Job} or {@link Task} when it was
+     * read, applying the buffered changes in order ends at the latest state, even if some
+     * precede the load.
+     */
+    protected void resync() {
+        synchronized (this.resyncLock) {
+            synchronized (this) {
+                this.pendingChanges = new ArrayList<>();
+            }
+            try {
+                final List<Job> activeJobs = this.jobDao.findAllActive();
+                final Map<String, List<Task>> tasks = this.taskDao.getByJobIds(
+                    activeJobs.stream().map(Job::getId).collect(Collectors.toList()));
+                synchronized (this) {
+                    final Set<String> activeJobIds = activeJobs.stream().map(Job::getId).collect(Collectors.toSet());
+                    for (String jobId : new ArrayList<>(this.jobs.keySet())) {
+                        if (!activeJobIds.contains(jobId)) {
+                            this.removeJob(jobId);
+                        }
+                    }
+                    for (Job job : activeJobs) {
+                        this.putJob(job, tasks.get(job.getId()));
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    final List<Runnable> changes = this.pendingChanges;
+                    this.pendingChanges = null;
+                    changes.forEach(Runnable::run);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a created or changed {@link Job}. A {@link Job} which has become {@code active} is
+     * added to the view once its {@link Task}s are loaded; the changes to the {@link Job}
+     * received meanwhile are buffered and applied afterwards.
+     */
+    protected void onJobChanged(Job job) {
+        final String jobId = job.getId();
+        synchronized (this) {
+            if (this.buffer(jobId, () -> this.onJobChanged(job))) {
+                return;
+            }
+            if (!JobStatusHelper.ACTIVE_JOB_STATUSES.contains(job.getStatus())) {
+                this.removeJob(jobId);
+                return;
+            }
+            if (this.jobs.containsKey(jobId)) {
+                this.putJob(job, null);
+                return;
+            }
+            this.loadingJobs.put(jobId, new ArrayList<>());
+        }
+
+        List<Task> tasks = null;
+        try {
+            tasks = this.taskDao.getByJobIds(Collections.singletonList(jobId)).get(jobId);
+        } finally {
+            synchronized (this) {
+                final List<Runnable> changes = this.loadingJobs.remove(jobId);
+                if (tasks != null) {
+                    this.putJob(job, tasks);
+                }
+                changes.forEach(Runnable::run);
+            }
+        }
+    }
+
+    protected synchronized void onJobDeleted(String jobId) {
+        if (!this.buffer(jobId, () -> this.onJobDeleted(jobId))) {
+            this.removeJob(jobId);
+        }
+    }
+
+    /**
+     * Apply a created or changed {@link Task}. Changes to the {@link Task}s of {@link Job}s which
+     * are not {@code active} are ignored.
+     */
+    protected synchronized void onTaskChanged(Task task) {
+        if (this.buffer(task.getJobId(), () -> this.onTaskChanged(task))) {
+            return;
+        }
+        if (this.jobs.containsKey(task.getJobId())) {
+            this.putTask(task);
+        }
+    }
+
+    protected synchronized void onTaskDeleted(String taskId) {
+        final Runnable change = () -> this.onTaskDeleted(taskId);
+        if (this.pendingChanges != null) {
+            this.pendingChanges.add(change);
+            return;
+        }
+
+        // The Job of a deleted Task is unknown unless the Task is in the view, so the deletion
+        // is also replayed after any Job which is loading.
+        for (List<Runnable> changes : this.loadingJobs.values()) {
+            changes.add(change);
+        }
+        final String jobId = this.jobIdsByTaskId.remove(taskId);
+        if (jobId != null) {
+            final Task task = this.tasksByJobId.get(jobId).remove(taskId);
+            this.notifyListeners(listener -> listener.taskRemoved(task));
+        }
+    }
+
+    /**
+     * Buffer the change if the view, or the {@link Job}, is loading.
+     *
+     * @return {@code true} if the change was buffered.
+     */
+    protected boolean buffer(String jobId, Runnable change) {
+        if (this.pendingChanges != null) {
+            this.pendingChanges.add(change);
+            return true;
+        }
+        final List<Runnable> changes = this.loadingJobs.get(jobId);
+        if (changes != null) {
+            changes.add(change);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add or replace the {@link Job}. If {@code tasks} is not {@code null}, it replaces the
+     * {@link Task}s of the {@link Job}.
+     */
+    protected void putJob(Job job, List<Task> tasks) {
+        this.jobs.put(job.getId(), job);
+        this.notifyListeners(listener -> listener.jobUpdated(job));
+        if (tasks == null) {
+            return;
+        }
+
+        final Set<String> taskIds = tasks.stream().map(Task::getId).collect(Collectors.toSet());
+        final Map<String, Task> current = this.tasksByJobId.computeIfAbsent(job.getId(), jobId -> new LinkedHashMap<>());
+        final Iterator<Task> iterator = current.values().iterator();
+        while (iterator.hasNext()) {
+            final Task task = iterator.next();
+            if (!taskIds.contains(task.getId())) {
+                iterator.remove();
+                this.jobIdsByTaskId.remove(task.getId());
+                this.notifyListeners(listener -> listener.taskRemoved(task));
+            }
+        }
+        for (Task task : tasks) {
+            this.putTask(task);
+        }
+    }
+
+    /**
+     * Add or replace the {@link Task}, whose {@link Job} must be in the view.
+     */
+    protected void putTask(Task task) {
+        final String previousJobId = this.jobIdsByTaskId.put(task.getId(), task.getJobId());
+        if (previousJobId != null && !previousJobId.equals(task.getJobId())) {
+            this.tasksByJobId.get(previousJobId).remove(task.getId());
+        }
+        this.tasksByJobId.computeIfAbsent(task.getJobId(), jobId -> new LinkedHashMap<>()).put(task.getId(), task);
+        this.notifyListeners(listener -> listener.taskUpdated(task));
+    }
+
+    /**
+     * Remove the {@link Job}, with its {@link Task}s, if it is in the view.
+     */
+    protected void removeJob(String jobId) {
+        final Job job = this.jobs.remove(jobId);
+        if (job == null) {
+            return;
+        }
+        final Map<String, Task> tasks = this.tasksByJobId.remove(jobId);
+        if (tasks != null) {
+            this.jobIdsByTaskId.keySet().removeAll(tasks.keySet());
+        }
+        this.notifyListeners(listener -> listener.jobRemoved(job));
+    }
+
+    /**
+     * Notify each {@link Listener}, logging rather than propagating their failures.
+     */
+    protected void notifyListeners(Consumer<Listener> notification) {
+        for (Listener listener : this.listeners) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                this.logger.error("A LiveJobView listener failed.", e);
+            }
+        }
+    }
+
+    /**
+     * Receives the changes to the view. The methods are invoked while the view is locked, in the
+     * order the changes are applied, so must return promptly. They may read the view.
+     */
+    public interface Listener {
+
+        /**
+         * A {@link Job} was added to the view, or changed.
+         */
+        default public void jobUpdated(Job job) {
+        }
+
+        /**
+         * A {@link Job} is no longer {@code active}, or was deleted, and was removed from the view
+         * with its {@link Task}s.
+         */
+        default public void jobRemoved(Job job) {
+        }
+
+        /**
+         * A {@link Task} of an {@code active} {@link Job} was added to the view, or changed.
+         */
+        default public void taskUpdated(Task task) {
+        }
+
+        /**
+         * A {@link Task} of an {@code active} {@link Job} was deleted.
+         */
+        default public void taskRemoved(Task task) {
+        }
+
+    }
+
+    /**
+     * Applies the changes from the {@link #changeSource} to the view.
+     */
+    protected class ChangeSink implements JobChangeSource.Sink {
+
+        @Override
+        public void jobChanged(Job job) {
+            LiveJobView.this.onJobChanged(job);
+        }
+
+        @Override
+        public void jobDeleted(String jobId) {
+            LiveJobView.this.onJobDeleted(jobId);
+        }
+
+        @Override
+        public void taskChanged(Task task) {
+            LiveJobView.this.onTaskChanged(task);
+        }
+
+        @Override
+        public void taskDeleted(String taskId) {
+            LiveJobView.this.onTaskDeleted(taskId);
+        }
+
+        @Override
+        public void resync() {
+            LiveJobView.this.resync();
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package au.gov.aims.ereefs.pojo.logstore;
+
+import java.util.Map;
+
+/**
+ * The location of the latest {@link LogRecord} of a key, held in memory by the {@link LogStore}
+ * (and in the hint file of each {@link LogSegment}), with the {@code sequence} and attributes of
+ * the record, so the key is found and filtered without reading the record.
+ */
+public class LogEntry {
+
+    /**
+     * {@code true} for the removal of the key. Only held by the hints of a {@link LogSegment}.
+     */
+    final protected boolean deleted;
+
+    final protected long sequence;
+
+    final protected long segmentId;
+
+    /**
+     * The position of the record in the segment.
+     */
+    final protected long offset;
+
+    /**
+     * The length of the record, including its header.
+     */
+    final protected int size;
+
+    final protected Map<String, String> attributes;
+
+    public LogEntry(boolean deleted,
+                    long sequence,
+                    long segmentId,
+                    long offset,
+                    int size,
+                    Map<String, String> attributes) {
+        super();
+        this.deleted = deleted;
+        this.sequence = sequence;
+        this.segmentId = segmentId;
+        this.offset = offset;
+        this.size = size;
+        this.attributes = attributes;
+    }
+
+    public boolean isDeleted() {
+        return this.deleted;
+    }
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    public long getSegmentId() {
+        return this.segmentId;
+    }
+
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public Map<String, String> getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * Returns a copy of this entry at another location, such as when the record is copied by a
+     * compaction.
+     */
+    public LogEntry moveTo(long segmentId, long offset) {
+        return new LogEntry(this.deleted, this.sequence, segmentId, offset, this.size, this.attributes);
+    }
+
+}
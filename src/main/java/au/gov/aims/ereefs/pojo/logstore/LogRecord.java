@@ -0,0 +1,214 @@
+package au.gov.aims.ereefs.pojo.logstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A record of a {@link LogSegment}: the value written for a key, or the removal of the key. Each
+ * record is written as:
+ *
+ * <pre>
+ * int    crc         CRC32 of the bytes which follow, to the end of the record
+ * int    length      the number of bytes which follow
+ * byte   type        {@link #TYPE_PUT} or {@link #TYPE_DELETE}
+ * long   sequence    the order of the write in the {@link LogStore}
+ * UTF    key
+ * short  the number of attributes, then a UTF name and a UTF value for each
+ * int    the length of the value, then the value (empty for {@link #TYPE_DELETE})
+ * </pre>
+ * <p>
+ * A record which is only partly written (eg: by a process which crashed), or has since been
+ * corrupted, fails the CRC check.
+ * </p>
+ */
+public class LogRecord {
+
+    final static public byte TYPE_PUT = 1;
+
+    final static public byte TYPE_DELETE = 2;
+
+    /**
+     * The length of the {@code crc} and {@code length} which precede the body of a record.
+     */
+    final static public int HEADER_BYTES = 8;
+
+    /**
+     * The position of the {@code sequence} in an encoded record, which is set by
+     * {@link #seal(ByteBuffer, long)}.
+     */
+    final static protected int SEQUENCE_POSITION = HEADER_BYTES + 1;
+
+    /**
+     * The length of the smallest possible body: the type, sequence, an empty key, no attributes
+     * and an empty value.
+     */
+    final static protected int MIN_BODY_BYTES = 1 + 8 + 2 + 2 + 4;
+
+    final protected boolean deleted;
+
+    final protected long sequence;
+
+    final protected String key;
+
+    final protected Map<String, String> attributes;
+
+    final protected byte[] value;
+
+    public LogRecord(boolean deleted,
+                     long sequence,
+                     String key,
+                     Map<String, String> attributes,
+                     byte[] value) {
+        super();
+        this.deleted = deleted;
+        this.sequence = sequence;
+        this.key = key;
+        this.attributes = attributes;
+        this.value = value;
+    }
+
+    public boolean isDeleted() {
+        return this.deleted;
+    }
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public Map<String, String> getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * Returns the value, or {@code null} if the record was {@link #decode(byte[], boolean) decoded}
+     * without it.
+     */
+    public byte[] getValue() {
+        return this.value;
+    }
+
+    /**
+     * Encode a record, without its {@code sequence} or {@code crc}, which are set by
+     * {@link #seal(ByteBuffer, long)} once the order of the write is known.
+     *
+     * @param key the key.
+     * @param attributes the attributes to hold in memory with the key, which may be empty.
+     * @param value the value, or {@code null} for the removal of the key.
+     */
+    static public ByteBuffer encode(String key, Map<String, String> attributes, byte[] value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+            HEADER_BYTES + MIN_BODY_BYTES + key.length() + ((value == null) ? 0 : value.length) + 64);
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(0);
+            output.writeInt(0);
+            output.writeByte((value == null) ? TYPE_DELETE : TYPE_PUT);
+            output.writeLong(0);
+            output.writeUTF(key);
+            writeAttributes(output, attributes);
+            if (value == null) {
+                output.writeInt(0);
+            } else {
+                output.writeInt(value.length);
+                output.write(value);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode the record (\"" + key + "\").", e);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(4, buffer.capacity() - HEADER_BYTES);
+        return buffer;
+    }
+
+    /**
+     * Set the {@code sequence} of an {@link #encode(String, Map, byte[]) encoded} record, then its
+     * {@code crc}.
+     */
+    static public void seal(ByteBuffer buffer, long sequence) {
+        buffer.putLong(SEQUENCE_POSITION, sequence);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, buffer.capacity() - HEADER_BYTES);
+        buffer.putInt(0, (int) crc.getValue());
+    }
+
+    /**
+     * Returns the length of the body of a record from its header, or {@code -1} if the length
+     * is not plausible (ie: the header is not that of a record), in which case the body must not
+     * be read.
+     *
+     * @param header the {@link #HEADER_BYTES} of the header.
+     * @param maxLength the maximum length of the body (eg: the remainder of the segment).
+     */
+    static public int getBodyLength(ByteBuffer header, long maxLength) {
+        final int length = header.getInt(4);
+        return (length < MIN_BODY_BYTES || length > maxLength) ? -1 : length;
+    }
+
+    /**
+     * Decode a record, which begins with its header.
+     *
+     * @param bytes the complete record.
+     * @param withValue {@code false} to skip the value (eg: when only the key and attributes are
+     *                  required).
+     * @return the record, or {@code null} if the {@code crc} does not match.
+     */
+    static public LogRecord decode(byte[] bytes, boolean withValue) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+        if (buffer.getInt(0) != (int) crc.getValue() || buffer.getInt(4) != bytes.length - HEADER_BYTES) {
+            return null;
+        }
+        try (final DataInputStream input = new DataInputStream(
+            new ByteArrayInputStream(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES))) {
+            final boolean deleted = (input.readByte() == TYPE_DELETE);
+            final long sequence = input.readLong();
+            final String key = input.readUTF();
+            final Map<String, String> attributes = readAttributes(input);
+            final byte[] value;
+            if (withValue && !deleted) {
+                value = new byte[input.readInt()];
+                input.readFully(value);
+            } else {
+                value = null;
+            }
+            return new LogRecord(deleted, sequence, key, attributes, value);
+        } catch (IOException e) {
+
+            // The crc matched, but the body is not that of a record.
+            return null;
+        }
+    }
+
+    static protected void writeAttributes(DataOutputStream output, Map<String, String> attributes) throws IOException {
+        output.writeShort(attributes.size());
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            output.writeUTF(attribute.getKey());
+            output.writeUTF(attribute.getValue());
+        }
+    }
+
+    static protected Map<String, String> readAttributes(DataInputStream input) throws IOException {
+        final int count = input.readShort();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        for (int index = 0; index < count; index++) {
+            attributes.put(input.readUTF(), input.readUTF());
+        }
+        return Collections.unmodifiableMap(attributes);
+    }
+
+}
@@ -0,0 +1,416 @@
+package au.gov.aims.ereefs.pojo.logstore;
+
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * A segment file of a {@link LogStore}, to which {@link LogRecord}s are appended until it is
+ * {@link #seal() sealed}, after which it is only read (and eventually removed by a compaction).
+ * <p>
+ * The segment {@code <id>.log} is accompanied, once sealed, by the hint file {@code <id>.hint},
+ * which holds the {@link LogEntry} of the latest record of each key in the segment, so the
+ * {@link LogStore} is opened by reading the hints rather than every record. A hint file which is
+ * missing, does not pass its CRC check, or does not match the length of the segment is ignored,
+ * and the segment is scanned instead.
+ * </p>
+ */
+public class LogSegment {
+
+    final static public String SUFFIX = ".log";
+
+    final static public String HINT_SUFFIX = ".hint";
+
+    /**
+     * The suffix of a segment being written by a compaction, which is removed when the store is
+     * opened.
+     */
+    final static public String TEMPORARY_SUFFIX = ".tmp";
+
+    final protected long id;
+
+    protected volatile File file;
+
+    protected volatile FileChannel channel;
+
+    /**
+     * The length of the segment, to which the next record is appended.
+     */
+    protected volatile long size;
+
+    /**
+     * The length of the segment which is known to be on disk (see {@link #sync()}).
+     */
+    protected volatile long syncedSize;
+
+    /**
+     * The total length of the records of the segment which are the latest of their key.
+     */
+    final protected AtomicLong liveBytes = new AtomicLong();
+
+    /**
+     * The latest {@link LogEntry} of each key written to the segment, which become the hints once
+     * the segment is sealed, or {@code null} once it is sealed.
+     */
+    protected Map<String, LogEntry> hints = new LinkedHashMap<>();
+
+    /**
+     * {@code true} once the segment has been {@link #close() closed}, after which it cannot be
+     * read.
+     */
+    protected volatile boolean isClosed;
+
+    protected LogSegment(long id, File file) throws IOException {
+        super();
+        this.id = id;
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = this.channel.size();
+        this.syncedSize = this.size;
+    }
+
+    /**
+     * Open the segment with the {@code id} in the {@code directory}, creating it if it does not
+     * exist.
+     */
+    static public LogSegment open(File directory, long id) throws IOException {
+        return new LogSegment(id, new File(directory, getName(id) + SUFFIX));
+    }
+
+    /**
+     * Create a segment which is hidden from {@link LogStore#LogStore(File) recovery} until it is
+     * {@link #publish() published}, such as the output of a compaction.
+     */
+    static public LogSegment createTemporary(File directory, long id) throws IOException {
+        final File file = new File(directory, "." + getName(id) + SUFFIX + TEMPORARY_SUFFIX);
+        Files.deleteIfExists(file.toPath());
+        return new LogSegment(id, file);
+    }
+
+    /**
+     * Returns the {@code id} of the segment file with the {@code name}, or {@code -1} if the file
+     * is not a segment.
+     */
+    static public long parseId(String name) {
+        if (!name.endsWith(SUFFIX) || name.startsWith(".")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static protected String getName(long id) {
+        return String.format("%012d", id);
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    public File getHintFile() {
+        return new File(this.file.getParentFile(), getName(this.id) + HINT_SUFFIX);
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public long getSyncedSize() {
+        return this.syncedSize;
+    }
+
+    public long getLiveBytes() {
+        return this.liveBytes.get();
+    }
+
+    public void addLiveBytes(long delta) {
+        this.liveBytes.addAndGet(delta);
+    }
+
+    public boolean isClosed() {
+        return this.isClosed;
+    }
+
+    /**
+     * Append the encoded record, returning its offset. Appends must not be concurrent. If the
+     * record cannot be written in full, the segment is truncated to its previous length, so a
+     * partial record is never followed by another record.
+     */
+    public long append(ByteBuffer record) throws IOException {
+        final long offset = this.size;
+        final FileChannel channel = this.getChannel();
+        try {
+            long position = offset;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+        } catch (IOException e) {
+            try {
+                this.getChannel().truncate(offset);
+            } catch (IOException truncateException) {
+                e.addSuppressed(truncateException);
+            }
+            throw e;
+        }
+        this.size = offset + record.capacity();
+        return offset;
+    }
+
+    /**
+     * Record the {@link LogEntry} of a record appended for the {@code key}, for the hints.
+     */
+    public synchronized void putHint(String key, LogEntry entry) {
+        if (this.hints != null) {
+            this.hints.put(key, entry);
+        }
+    }
+
+    /**
+     * Read the {@code size} bytes of the record at the {@code offset}. Reads may be concurrent.
+     *
+     * @throws ClosedChannelException thrown if the segment has been {@link #close() closed}.
+     */
+    public byte[] read(long offset, int size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        final FileChannel channel = this.getChannel();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("The record at " + offset + " of \"" + this.file + "\" is incomplete.");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Read each record of the segment in turn, without its value, stopping at the first record
+     * which is incomplete or fails its CRC check, and hold the {@link LogEntry} of the latest
+     * record of each key as the hints.
+     *
+     * @param interner interns the attributes of each record.
+     * @return the length of the segment which holds complete records.
+     */
+    public long scan(UnaryOperator<Map<String, String>> interner) throws IOException {
+        final Map<String, LogEntry> entries = new LinkedHashMap<>();
+        final long length = this.getChannel().size();
+        long offset = 0;
+        try (final DataInputStream input = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(this.file), 1 << 16))) {
+            final byte[] header = new byte[LogRecord.HEADER_BYTES];
+            while (offset + LogRecord.HEADER_BYTES <= length) {
+                input.readFully(header);
+                final int bodyLength = LogRecord.getBodyLength(ByteBuffer.wrap(header),
+                    length - offset - LogRecord.HEADER_BYTES);
+                if (bodyLength < 0) {
+                    break;
+                }
+                final byte[] bytes = new byte[LogRecord.HEADER_BYTES + bodyLength];
+                System.arraycopy(header, 0, bytes, 0, LogRecord.HEADER_BYTES);
+                input.readFully(bytes, LogRecord.HEADER_BYTES, bodyLength);
+                final LogRecord record = LogRecord.decode(bytes, false);
+                if (record == null) {
+                    break;
+                }
+                entries.put(record.getKey(), new LogEntry(record.isDeleted(), record.getSequence(), this.id,
+                    offset, bytes.length, interner.apply(record.getAttributes())));
+                offset += bytes.length;
+            }
+        }
+        synchronized (this) {
+            this.hints = entries;
+        }
+        return offset;
+    }
+
+    /**
+     * Truncate the segment, such as to remove an incomplete record.
+     */
+    public void truncate(long length) throws IOException {
+        this.getChannel().truncate(length);
+        this.size = length;
+        this.syncedSize = Math.min(this.syncedSize, length);
+    }
+
+    /**
+     * Force the records appended so far to disk.
+     */
+    public void sync() throws IOException {
+        final long size = this.size;
+        this.getChannel().force(false);
+        this.syncedSize = size;
+    }
+
+    /**
+     * Returns the hints of the segment, or {@code null} if the segment is sealed.
+     */
+    public synchronized Map<String, LogEntry> getHints() {
+        return this.hints;
+    }
+
+    /**
+     * Force the segment to disk, then write its hint file. No more records may be appended.
+     */
+    public void seal() throws IOException {
+        this.sync();
+        final Map<String, LogEntry> hints;
+        synchronized (this) {
+            hints = this.hints;
+            this.hints = null;
+        }
+        if (hints != null) {
+            this.writeHints(hints);
+        }
+    }
+
+    /**
+     * Write the hint file of the segment.
+     */
+    protected void writeHints(Map<String, LogEntry> hints) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + hints.size() * 96);
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(this.size);
+            output.writeInt(hints.size());
+            for (Map.Entry<String, LogEntry> hint : hints.entrySet()) {
+                final LogEntry entry = hint.getValue();
+                output.writeBoolean(entry.isDeleted());
+                output.writeLong(entry.getSequence());
+                output.writeUTF(hint.getKey());
+                output.writeLong(entry.getOffset());
+                output.writeInt(entry.getSize());
+                LogRecord.writeAttributes(output, entry.getAttributes());
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        new DataOutputStream(bytes).writeInt((int) crc.getValue());
+        FileUtils.writeAtomically(this.getHintFile(), bytes.toByteArray());
+    }
+
+    /**
+     * Read the hint file of the segment, marking the segment as sealed.
+     *
+     * @param interner interns the attributes of each entry.
+     * @return the {@link LogEntry} of the latest record of each key, or {@code null} if the hint
+     * file is missing or does not match the segment, in which case the segment must be
+     * {@link #scan(UnaryOperator) scanned}.
+     */
+    public Map<String, LogEntry> readHints(UnaryOperator<Map<String, String>> interner) throws IOException {
+        final File hintFile = this.getHintFile();
+        if (!hintFile.isFile()) {
+            return null;
+        }
+        final byte[] bytes = Files.readAllBytes(hintFile.toPath());
+        if (bytes.length < 16) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if (ByteBuffer.wrap(bytes).getInt(bytes.length - 4) != (int) crc.getValue()) {
+            return null;
+        }
+        final Map<String, LogEntry> entries = new LinkedHashMap<>();
+        try (final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (input.readLong() != this.size) {
+                return null;
+            }
+            final int count = input.readInt();
+            for (int index = 0; index < count; index++) {
+                final boolean deleted = input.readBoolean();
+                final long sequence = input.readLong();
+                final String key = input.readUTF();
+                final long offset = input.readLong();
+                final int size = input.readInt();
+                entries.put(key, new LogEntry(deleted, sequence, this.id, offset, size,
+                    interner.apply(LogRecord.readAttributes(input))));
+            }
+        }
+        synchronized (this) {
+            this.hints = null;
+        }
+        return entries;
+    }
+
+    /**
+     * Rename a {@link #createTemporary(File, long) temporary} segment to its permanent name.
+     */
+    public synchronized void publish() throws IOException {
+        final File target = new File(this.file.getParentFile(), getName(this.id) + SUFFIX);
+        try {
+            Files.move(this.file.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(this.file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.file = target;
+    }
+
+    /**
+     * Close the segment. Reads which are in progress, or follow, throw a
+     * {@code ClosedChannelException}.
+     */
+    public synchronized void close() throws IOException {
+        this.isClosed = true;
+        this.channel.close();
+    }
+
+    /**
+     * Close the segment, then remove it and its hint file.
+     */
+    public void delete() throws IOException {
+        this.close();
+        Files.deleteIfExists(this.file.toPath());
+        Files.deleteIfExists(this.getHintFile().toPath());
+    }
+
+    /**
+     * Returns the channel of the segment. A {@code FileChannel} is closed when a thread using it
+     * is interrupted, so the channel is reopened unless the segment has been closed.
+     */
+    protected FileChannel getChannel() throws IOException {
+        final FileChannel channel = this.channel;
+        if (channel.isOpen()) {
+            return channel;
+        }
+        synchronized (this) {
+            if (this.isClosed) {
+                throw new ClosedChannelException();
+            }
+            if (!this.channel.isOpen()) {
+                this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            return this.channel;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.file.getPath();
+    }
+
+}
@@ -0,0 +1,749 @@
+package au.gov.aims.ereefs.pojo.logstore;
+
+import au.gov.aims.ereefs.pojo.utils.WeakInterner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Log-structured store of values (eg: the JSON of a POJO) by key, held in a directory of
+ * {@link LogSegment} files. Each write appends a CRC-checked {@link LogRecord} to the active
+ * segment, rather than replacing a file, and the location of the latest record of each key is
+ * held in memory, with the attributes of the record (eg: the {@code status} of a {@code Task}),
+ * so a key is read with a single positional read and keys are found by their attributes without
+ * reading any record.
+ * <p>
+ * The active segment is sealed once it exceeds {@link #setMaxSegmentBytes(long) a maximum
+ * length}, and a hint file of its entries is written. When the store is opened, the index is
+ * rebuilt from the hint files, and only a segment without hints (ie: the active segment of a
+ * process which stopped without {@link #close() closing} the store) is scanned. A partial record
+ * at the end of a segment, left by a crash, is removed.
+ * </p>
+ * <p>
+ * Records which have been replaced or removed are reclaimed by a compaction, which copies the
+ * latest records of the sealed segments to new segments, then removes the sealed segments. A
+ * compaction runs in the background when at least {@link #setCompactionRatio(double) a fraction}
+ * of the sealed segments has been replaced, and does not block reads or writes. The order of the
+ * records across segments is given by the {@code sequence} of each record, so the copies made by
+ * a compaction replace neither later records nor removals of the key.
+ * </p>
+ * <p>
+ * A single instance may be shared between threads. Writes are serialised, and reads never block.
+ * The store is held by a single process, as the index is held in memory: the directory is locked
+ * while the store is open, and a second process (or instance) opening it fails.
+ * </p>
+ */
+public class LogStore implements Closeable {
+
+    /**
+     * The default value of {@link #maxSegmentBytes}.
+     */
+    final static public long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The default value of {@link #compactionRatio}.
+     */
+    final static public double DEFAULT_COMPACTION_RATIO = 0.5;
+
+    /**
+     * The default interval between checks of whether a compaction is required.
+     */
+    final static public long DEFAULT_COMPACTION_INTERVAL_MILLIS = 60 * 1000;
+
+    /**
+     * The name of the file locked while the store is open.
+     */
+    final static public String LOCK_FILENAME = "store.lock";
+
+    /**
+     * The number of times a read is attempted while a compaction is moving the record.
+     */
+    final static protected int MAX_READ_ATTEMPTS = 3;
+
+    /**
+     * Shares the attributes of the entries, as many records have the same attributes (eg: the
+     * {@code Task}s of a {@code Job} with the same {@code status}).
+     */
+    final static protected WeakInterner<Map<String, String>> ATTRIBUTES = new WeakInterner<>();
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    final protected File directory;
+
+    /**
+     * The channel holding the lock of the directory.
+     */
+    final protected FileChannel lockChannel;
+
+    /**
+     * The {@link LogEntry} of the latest record of each key.
+     */
+    final protected Map<String, LogEntry> index = new ConcurrentHashMap<>();
+
+    /**
+     * The segments, by {@code id}.
+     */
+    final protected Map<Long, LogSegment> segments = new ConcurrentHashMap<>();
+
+    /**
+     * The segment to which records are appended. Replaced while holding the {@link #writeLock}.
+     */
+    protected volatile LogSegment activeSegment;
+
+    /**
+     * The {@code sequence} of the latest record. Guarded by the {@link #writeLock}.
+     */
+    protected long sequence;
+
+    final protected AtomicLong nextSegmentId = new AtomicLong(1);
+
+    /**
+     * Lock held while a record is appended, and while the store is closed.
+     */
+    final protected Object writeLock = new Object();
+
+    /**
+     * Lock held while the active segment is forced to disk (see {@link #setSyncWrites(boolean)}).
+     */
+    final protected Object syncLock = new Object();
+
+    /**
+     * Lock held by a compaction, and while the store is closed.
+     */
+    final protected Object compactionLock = new Object();
+
+    protected volatile long maxSegmentBytes = DEFAULT_MAX_SEGMENT_BYTES;
+
+    protected volatile double compactionRatio = DEFAULT_COMPACTION_RATIO;
+
+    protected volatile boolean isSyncWrites;
+
+    final protected ScheduledExecutorService compactor;
+
+    protected ScheduledFuture<?> scheduledCompaction;
+
+    protected volatile boolean isClosed;
+
+    /**
+     * Open the store in the {@code directory}, creating the directory if it does not exist, and
+     * rebuild the index from its segments.
+     *
+     * @throws RuntimeException thrown if the store cannot be read, or is already open.
+     */
+    public LogStore(File directory) {
+        super();
+        this.directory = directory;
+        directory.mkdirs();
+        this.lockChannel = lock(directory);
+        try {
+            this.recover();
+        } catch (IOException | RuntimeException e) {
+            this.closeQuietly();
+            throw new RuntimeException("Failed to open the store at \"" + directory + "\".", e);
+        }
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "LogStore compaction (" + directory.getName() + ")");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.setCompactionInterval(DEFAULT_COMPACTION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Lock the {@link #LOCK_FILENAME} of the {@code directory}, returning the channel which holds
+     * the lock.
+     */
+    static protected FileChannel lock(File directory) {
+        final File lockFile = new File(directory, LOCK_FILENAME);
+        try {
+            final FileChannel channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                channel.close();
+                throw new RuntimeException("The store at \"" + directory + "\" is already open.");
+            }
+            return channel;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to lock the store at \"" + directory + "\".", e);
+        }
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Set the length beyond which the active segment is sealed and a new segment is started. A
+     * larger value means fewer files, but a longer scan of the active segment after a crash.
+     */
+    public void setMaxSegmentBytes(long maxSegmentBytes) {
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    /**
+     * Set the fraction of the sealed segments which must have been replaced (or removed) before
+     * a background compaction copies the rest.
+     */
+    public void setCompactionRatio(double compactionRatio) {
+        this.compactionRatio = compactionRatio;
+    }
+
+    /**
+     * Set the interval between checks of whether a background compaction is required. A value of
+     * {@code 0} or less disables background compactions (see {@link #compact()}).
+     */
+    public synchronized void setCompactionInterval(long compactionIntervalMillis) {
+        if (this.scheduledCompaction != null) {
+            this.scheduledCompaction.cancel(false);
+            this.scheduledCompaction = null;
+        }
+        if (compactionIntervalMillis > 0 && !this.isClosed) {
+            this.scheduledCompaction = this.compactor.scheduleWithFixedDelay(this::compactIfRequired,
+                compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Set whether each write is forced to disk before it returns, so it survives a crash of the
+     * operating system rather than only of the process. Concurrent writers share a single
+     * {@code fsync} (a group commit): a writer whose record was forced to disk by another
+     * writer's {@code fsync} does not force it again.
+     */
+    public void setSyncWrites(boolean isSyncWrites) {
+        this.isSyncWrites = isSyncWrites;
+    }
+
+    /**
+     * Returns the value of the {@code key}, or {@code null} if there is none.
+     *
+     * @throws RuntimeException thrown if the record cannot be read, or fails its CRC check.
+     */
+    public byte[] get(String key) {
+        for (int attempt = 1; ; attempt++) {
+            this.checkOpen();
+            final LogEntry entry = this.index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            final LogSegment segment = this.segments.get(entry.getSegmentId());
+            if (segment != null) {
+                try {
+                    final LogRecord record = LogRecord.decode(segment.read(entry.getOffset(), entry.getSize()), true);
+                    if (record == null || !key.equals(record.getKey())) {
+                        throw new RuntimeException("The record (\"" + key + "\") at " + entry.getOffset() +
+                            " of \"" + segment + "\" is corrupt.");
+                    }
+                    return record.getValue();
+                } catch (ClosedChannelException e) {
+                    if (!segment.isClosed()) {
+                        throw new RuntimeException("Interrupted while reading the record (\"" + key + "\").", e);
+                    }
+
+                    // The segment was removed by a compaction, which has moved the record.
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read the record (\"" + key + "\") from \"" +
+                        segment + "\".", e);
+                }
+            }
+            if (attempt >= MAX_READ_ATTEMPTS) {
+                throw new RuntimeException("Failed to read the record (\"" + key + "\") from \"" +
+                    this.directory + "\".");
+            }
+        }
+    }
+
+    /**
+     * Returns the attributes of the {@code key}, without reading its record, or {@code null} if
+     * there is no value.
+     */
+    public Map<String, String> getAttributes(String key) {
+        final LogEntry entry = this.index.get(key);
+        return (entry == null) ? null : entry.getAttributes();
+    }
+
+    /**
+     * Returns {@code true} if the {@code key} has a value.
+     */
+    public boolean containsKey(String key) {
+        return this.index.containsKey(key);
+    }
+
+    /**
+     * Returns the keys whose attributes match the {@code filter}, in order, from the index held
+     * in memory.
+     */
+    public List<String> find(Predicate<Map<String, String>> filter) {
+        this.checkOpen();
+        return this.index.entrySet().stream()
+            .filter(entry -> filter.test(entry.getValue().getAttributes()))
+            .map(Map.Entry::getKey)
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the number of keys with a value.
+     */
+    public int size() {
+        return this.index.size();
+    }
+
+    /**
+     * Write the {@code value} of the {@code key}, replacing any previous value.
+     *
+     * @param attributes the attributes of the value to hold in memory (see
+     *                   {@link #find(Predicate)}). Attributes with a {@code null} value are
+     *                   omitted.
+     */
+    public void put(String key, byte[] value, Map<String, String> attributes) {
+        final Map<String, String> interned = internAttributes(attributes);
+        this.append(key, LogRecord.encode(key, interned, value), interned, false);
+    }
+
+    /**
+     * Remove the value of the {@code key}.
+     *
+     * @return {@code true} if there was a value.
+     */
+    public boolean delete(String key) {
+        return this.append(key, LogRecord.encode(key, Collections.emptyMap(), null), Collections.emptyMap(), true) != null;
+    }
+
+    /**
+     * Append the encoded record to the active segment, and update the index.
+     *
+     * @return the previous {@link LogEntry} of the key, or {@code null} if there was none.
+     */
+    protected LogEntry append(String key, ByteBuffer record, Map<String, String> attributes, boolean deleted) {
+        final LogSegment segment;
+        final LogEntry previous;
+        final long end;
+        synchronized (this.writeLock) {
+            this.checkOpen();
+            if (deleted && !this.index.containsKey(key)) {
+                return null;
+            }
+            segment = this.activeSegment;
+            LogRecord.seal(record, this.sequence + 1);
+            final long offset;
+            try {
+                offset = segment.append(record);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write the record (\"" + key + "\") to \"" + segment + "\".", e);
+            }
+            this.sequence++;
+            final LogEntry entry = new LogEntry(deleted, this.sequence, segment.getId(), offset,
+                record.capacity(), attributes);
+            segment.putHint(key, entry);
+            if (deleted) {
+                previous = this.index.remove(key);
+            } else {
+                previous = this.index.put(key, entry);
+                segment.addLiveBytes(entry.getSize());
+            }
+            if (previous != null) {
+                final LogSegment previousSegment = this.segments.get(previous.getSegmentId());
+                if (previousSegment != null) {
+                    previousSegment.addLiveBytes(-previous.getSize());
+                }
+            }
+            end = offset + record.capacity();
+            if (segment.getSize() >= this.maxSegmentBytes) {
+                this.roll();
+            }
+        }
+        if (this.isSyncWrites) {
+            this.sync(segment, end);
+        }
+        return previous;
+    }
+
+    /**
+     * Force the {@code segment} to disk, up to at least {@code end}, unless another writer already
+     * has.
+     */
+    protected void sync(LogSegment segment, long end) {
+        synchronized (this.syncLock) {
+            if (segment.getSyncedSize() >= end) {
+                return;
+            }
+            try {
+                segment.sync();
+            } catch (ClosedChannelException e) {
+                if (!segment.isClosed()) {
+                    throw new RuntimeException("Interrupted while syncing \"" + segment + "\".", e);
+                }
+
+                // The segment was sealed, and removed by a compaction, which forced its copy.
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to sync \"" + segment + "\".", e);
+            }
+        }
+    }
+
+    /**
+     * Seal the active segment and start a new one. Must be invoked while holding the
+     * {@link #writeLock}.
+     */
+    protected void roll() {
+        final LogSegment sealed = this.activeSegment;
+        this.activeSegment = this.createSegment();
+        try {
+            sealed.seal();
+        } catch (IOException e) {
+            this.logger.warn("Failed to write the hints of \"" + sealed + "\", which will be scanned when " +
+                "the store is opened.", e);
+        }
+    }
+
+    protected LogSegment createSegment() {
+        final long id = this.nextSegmentId.getAndIncrement();
+        try {
+            final LogSegment segment = LogSegment.open(this.directory, id);
+            this.segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create a segment in \"" + this.directory + "\".", e);
+        }
+    }
+
+    /**
+     * Rebuild the index from the segments, reading the hints of each segment, or scanning the
+     * segment if it has no hints, then start a new active segment.
+     */
+    protected void recover() throws IOException {
+        final File[] files = this.directory.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list \"" + this.directory + "\".");
+        }
+        final List<Long> ids = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        for (File file : files) {
+            final String name = file.getName();
+            final long id = LogSegment.parseId(name);
+            if (id >= 0) {
+                ids.add(id);
+            } else if (name.endsWith(LogSegment.TEMPORARY_SUFFIX) ||
+                (name.endsWith(LogSegment.HINT_SUFFIX) && !names.contains(
+                    name.substring(0, name.length() - LogSegment.HINT_SUFFIX.length()) + LogSegment.SUFFIX))) {
+
+                // The output of a compaction which did not complete, or the hints of a segment
+                // which was removed.
+                file.delete();
+            }
+        }
+        Collections.sort(ids);
+
+        // The sequence of the removals of keys found so far, as a removal may be found before the
+        // record it replaces.
+        final Map<String, Long> removals = new HashMap<>();
+        for (long id : ids) {
+            final LogSegment segment = LogSegment.open(this.directory, id);
+            this.segments.put(id, segment);
+            this.nextSegmentId.set(Math.max(this.nextSegmentId.get(), id + 1));
+            Map<String, LogEntry> entries = segment.readHints(LogStore::internAttributes);
+            if (entries == null) {
+                final long length = segment.scan(LogStore::internAttributes);
+                if (length < segment.getSize()) {
+                    this.logger.warn("Removing " + (segment.getSize() - length) + " bytes of \"" + segment +
+                        "\" after the last complete record.");
+                    segment.truncate(length);
+                }
+                entries = segment.getHints();
+                segment.seal();
+            }
+            for (Map.Entry<String, LogEntry> entry : entries.entrySet()) {
+                this.replay(entry.getKey(), entry.getValue(), removals);
+            }
+        }
+        for (LogEntry entry : this.index.values()) {
+            this.segments.get(entry.getSegmentId()).addLiveBytes(entry.getSize());
+        }
+        this.activeSegment = this.createSegment();
+    }
+
+    /**
+     * Apply an entry read from a segment to the index, unless a later record of the key has
+     * already been applied.
+     */
+    protected void replay(String key, LogEntry entry, Map<String, Long> removals) {
+        this.sequence = Math.max(this.sequence, entry.getSequence());
+        final LogEntry current = this.index.get(key);
+        final Long removal = removals.get(key);
+        if ((current != null && current.getSequence() >= entry.getSequence()) ||
+            (removal != null && removal >= entry.getSequence())) {
+            return;
+        }
+        if (entry.isDeleted()) {
+            this.index.remove(key);
+            removals.put(key, entry.getSequence());
+        } else {
+            this.index.put(key, entry);
+        }
+    }
+
+    /**
+     * Compact the sealed segments if at least the {@link #compactionRatio} of their length has
+     * been replaced or removed. Invoked in the background; a failure is logged.
+     *
+     * @return {@code true} if the segments were compacted.
+     */
+    public boolean compactIfRequired() {
+        if (this.isClosed) {
+            return false;
+        }
+        long length = 0;
+        long liveBytes = 0;
+        for (LogSegment segment : this.getSealedSegments()) {
+            length += segment.getSize();
+            liveBytes += segment.getLiveBytes();
+        }
+        if (length == 0 || length - liveBytes < this.compactionRatio * length) {
+            return false;
+        }
+        try {
+            this.compact();
+            return true;
+        } catch (RuntimeException e) {
+            if (!this.isClosed) {
+                this.logger.warn("Failed to compact the store at \"" + this.directory + "\".", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Copy the latest records of the sealed segments to new segments, then remove the sealed
+     * segments. Records which are replaced while they are copied are not moved, and the removals
+     * of keys are dropped, as the records they removed are dropped with them.
+     * <p>
+     * The new segments are written under temporary names, and forced to disk, before they are
+     * published and the index is updated, then the sealed segments are removed. A crash at any
+     * point leaves either the sealed segments, or copies of their latest records, or both.
+     * </p>
+     */
+    public void compact() {
+        synchronized (this.compactionLock) {
+            this.checkOpen();
+            final List<LogSegment> sealed = this.getSealedSegments();
+            if (sealed.isEmpty()) {
+                return;
+            }
+            final Set<Long> sealedIds = sealed.stream().map(LogSegment::getId).collect(Collectors.toSet());
+
+            // The latest records of the sealed segments, in the order they were written.
+            final List<Map.Entry<String, LogEntry>> live = this.index.entrySet().stream()
+                .filter(entry -> sealedIds.contains(entry.getValue().getSegmentId()))
+                .map(entry -> new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing((Map.Entry<String, LogEntry> entry) -> entry.getValue().getSegmentId())
+                    .thenComparing(entry -> entry.getValue().getOffset()))
+                .collect(Collectors.toList());
+
+            final List<LogSegment> outputs = new ArrayList<>();
+            final Map<String, LogEntry[]> moves = new LinkedHashMap<>();
+            try {
+                LogSegment output = null;
+                for (Map.Entry<String, LogEntry> entry : live) {
+                    final LogEntry source = entry.getValue();
+                    final byte[] bytes = this.segments.get(source.getSegmentId()).read(source.getOffset(), source.getSize());
+                    if (LogRecord.decode(bytes, false) == null) {
+                        throw new IOException("The record (\"" + entry.getKey() + "\") at " + source.getOffset() +
+                            " of \"" + this.segments.get(source.getSegmentId()) + "\" is corrupt.");
+                    }
+                    if (output == null || output.getSize() >= this.maxSegmentBytes) {
+                        output = LogSegment.createTemporary(this.directory, this.nextSegmentId.getAndIncrement());
+                        outputs.add(output);
+                    }
+                    final LogEntry moved = source.moveTo(output.getId(), output.append(ByteBuffer.wrap(bytes)));
+                    output.putHint(entry.getKey(), moved);
+                    moves.put(entry.getKey(), new LogEntry[]{source, moved});
+                }
+                for (LogSegment segment : outputs) {
+                    segment.sync();
+                }
+            } catch (IOException | RuntimeException e) {
+                for (LogSegment segment : outputs) {
+                    try {
+                        segment.delete();
+                    } catch (IOException deleteException) {
+                        e.addSuppressed(deleteException);
+                    }
+                }
+                throw new RuntimeException("Failed to compact the store at \"" + this.directory + "\".", e);
+            }
+
+            // Publish the copies, then move the keys which have not been replaced since they were
+            // copied.
+            try {
+                for (LogSegment segment : outputs) {
+                    segment.publish();
+                    this.segments.put(segment.getId(), segment);
+                    segment.seal();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to publish the compacted segments of \"" + this.directory + "\".", e);
+            }
+            for (Map.Entry<String, LogEntry[]> move : moves.entrySet()) {
+                final LogEntry moved = move.getValue()[1];
+                if (this.index.replace(move.getKey(), move.getValue()[0], moved)) {
+                    this.segments.get(moved.getSegmentId()).addLiveBytes(moved.getSize());
+                }
+            }
+            for (LogSegment segment : sealed) {
+                this.segments.remove(segment.getId());
+                try {
+                    segment.delete();
+                } catch (IOException e) {
+                    this.logger.warn("Failed to remove the compacted segment \"" + segment + "\".", e);
+                }
+            }
+            if (this.logger.isDebugEnabled()) {
+                this.logger.debug("Compacted " + sealed.size() + " segments of \"" + this.directory + "\" to " +
+                    outputs.size() + ".");
+            }
+        }
+    }
+
+    /**
+     * Returns the segments other than the active segment, in order.
+     */
+    protected List<LogSegment> getSealedSegments() {
+        synchronized (this.writeLock) {
+            return this.segments.values().stream()
+                .filter(segment -> segment != this.activeSegment)
+                .sorted(Comparator.comparing(LogSegment::getId))
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the number of segments.
+     */
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * Returns the total length of the segments.
+     */
+    public long getDiskBytes() {
+        return this.segments.values().stream().mapToLong(LogSegment::getSize).sum();
+    }
+
+    /**
+     * Returns the total length of the latest record of each key.
+     */
+    public long getLiveBytes() {
+        return this.segments.values().stream().mapToLong(LogSegment::getLiveBytes).sum();
+    }
+
+    /**
+     * Seal the active segment (so the index is rebuilt from hints alone when the store is next
+     * opened), close the segments and unlock the directory. A compaction in progress completes
+     * first.
+     */
+    @Override
+    public void close() {
+        synchronized (this.compactionLock) {
+            synchronized (this.writeLock) {
+                if (this.isClosed) {
+                    return;
+                }
+                this.isClosed = true;
+                this.compactor.shutdown();
+                final LogSegment active = this.activeSegment;
+                try {
+                    if (active.getSize() == 0) {
+                        this.segments.remove(active.getId());
+                        active.delete();
+                    } else {
+                        active.seal();
+                    }
+                } catch (IOException e) {
+                    this.logger.warn("Failed to seal \"" + active + "\", which will be scanned when the store is " +
+                        "opened.", e);
+                }
+                this.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Close the segments and unlock the directory.
+     */
+    protected void closeQuietly() {
+        this.isClosed = true;
+        for (LogSegment segment : this.segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                this.logger.warn("Failed to close \"" + segment + "\".", e);
+            }
+        }
+        try {
+            this.lockChannel.close();
+        } catch (IOException e) {
+            this.logger.warn("Failed to unlock the store at \"" + this.directory + "\".", e);
+        }
+    }
+
+    protected void checkOpen() {
+        if (this.isClosed) {
+            throw new RuntimeException("The store at \"" + this.directory + "\" is closed.");
+        }
+    }
+
+    /**
+     * Returns an unmodifiable copy of the {@code attributes} without {@code null} values, shared
+     * with the equal attributes of other entries.
+     */
+    static protected Map<String, String> internAttributes(Map<String, String> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, String> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            if (attribute.getValue() != null) {
+                copy.put(attribute.getKey(), attribute.getValue());
+            }
+        }
+        return copy.isEmpty() ? Collections.emptyMap() : ATTRIBUTES.intern(Collections.unmodifiableMap(copy));
+    }
+
+}
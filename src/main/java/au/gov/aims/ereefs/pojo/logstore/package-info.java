@@ -0,0 +1,9 @@
+/**
+ * Provides a log-structured storage engine ({@link au.gov.aims.ereefs.pojo.logstore.LogStore})
+ * for the {@code DAO} implementations which extend
+ * {@link au.gov.aims.ereefs.pojo.AbstractPojoDaoLogStoreImpl}. Records are appended to segment
+ * files ({@link au.gov.aims.ereefs.pojo.logstore.LogSegment}) as CRC-checked
+ * {@link au.gov.aims.ereefs.pojo.logstore.LogRecord}s, located by an index held in memory, and
+ * reclaimed by a background compaction.
+ */
+package au.gov.aims.ereefs.pojo.logstore;
@@ -18,6 +18,15 @@ public interface MetadataDao extends PojoDao<Metadata> {
      */
     public List<Metadata> getByDefinitionId(String id, String type);
 
+    /**
+     * Retrieve a summary of the {@code Metadata} of all files for the specified
+     * {@code DefinitionId}, for detecting changed files without the cost of retrieving the
+     * complete records. The same records are returned as {@link #getByDefinitionId(String, String)},
+     * but an implementation may only populate the {@code id}, {@code definitionId},
+     * {@code fileURI}, {@code lastModified}, {@code checksum} and {@code status}.
+     */
+    public List<Metadata> getSummariesByDefinitionId(String id, String type);
+
     /**
      * Persist the {@code JSONObject} to the repository.
      */
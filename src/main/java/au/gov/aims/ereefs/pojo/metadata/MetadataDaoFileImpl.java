@@ -1,14 +1,12 @@
 package au.gov.aims.ereefs.pojo.metadata;
 
-import au.gov.aims.ereefs.pojo.AbstractPojoDaoFileImpl;
-import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import au.gov.aims.ereefs.pojo.AbstractCachePojoDaoFileImpl;
+import au.gov.aims.ereefs.pojo.CacheIndex;
 import org.json.JSONObject;
 
-import java.io.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Concrete implementation of the {@link MetadataDao} interface for a file-based
@@ -16,143 +14,111 @@ import java.util.TreeMap;
  *
  * @author Aaron Smith
  */
-public class MetadataDaoFileImpl extends AbstractPojoDaoFileImpl<Metadata>
+public class MetadataDaoFileImpl extends AbstractCachePojoDaoFileImpl<Metadata>
     implements MetadataDao {
 
     /**
-     * Internal cache of all {@link Metadata} retrieved from the database/repository. This
-     * cache is populated on the first invocation of {@link #getInternalCache()}. The key of this
-     * cache is the unique {@code DefinitionId}, which defines either a {@code Download Source} or
-     * a {@code ProductContext}.
+     * Index of the cached {@link Metadata} by type and unique {@code DefinitionId}, which defines
+     * either a {@code Download Source} or a {@code ProductContext}.
      */
-    private Map<String, List<Metadata>> internalCache = new TreeMap<>();
+    final protected CacheIndex<Metadata> definitionIndex;
 
     /**
-     * Internal flag to determine if the {@link #internalCache internal cache} has been populated.
+     * Index of the cached {@link NetCDFMetadata} by {@code status}.
      */
-    private boolean isCached = false;
+    final protected CacheIndex<Metadata> statusIndex;
+
+    /**
+     * Index of the cached {@link Metadata} by {@code fileURI}.
+     */
+    final protected CacheIndex<Metadata> fileURIIndex;
+
+    /**
+     * Streaming reader used to populate the internal cache directly from the files, skipping the
+     * subtrees that {@link NetCDFMetadata} does not map.
+     */
+    protected MetadataReader metadataReader = new MetadataReader(this.jsonMapper);
 
     /**
      * Constructor.
      */
     public MetadataDaoFileImpl(String path) {
         super(path);
+        this.definitionIndex = this.addIndex("definition", MetadataDaoFileImpl::getDefinitionKey);
+        this.statusIndex = this.addIndex("status", metadata -> (metadata instanceof NetCDFMetadata) ?
+            ((NetCDFMetadata) metadata).getStatus() : null);
+        this.fileURIIndex = this.addIndex("fileURI", Metadata::getFileURI);
     }
 
     /**
-     * Provides access to the {@link #internalCache internal cache}. The internal cache is
-     * automatically populated if not already (see {@link #isCached}).
+     * Returns the key of the {@link #definitionIndex} for the {@link Metadata}.
      */
-    private Map<String, List<Metadata>> getInternalCache() {
-        if (!this.isCached) {
-            this.internalCache.clear();
-            try {
-                for (JSONObject json : JSONFileReader.loadList(this.path)) {
-
-                    // Identify the ProductContext it belongs to.
-                    String id = json.getString("_id");
-
-                    // Add the entry to the cache if it doesn't already exist.
-                    String definitionId = json.getString("definitionId");
-                    String type = json.getString("type");
-                    String key = type + "::" + definitionId;
-                    this.internalCache.putIfAbsent(key, new ArrayList<>());
-
-                    // Add the metadata to the cache.
-                    try {
-                        this.internalCache.get(key).add(
-                            this.jsonMapper.readValue(
-                                json.toString(),
-                                Metadata.class)
-                        );
-                    } catch (Exception e) {
-                        throw new Exception("Failed to transform the JSON (\"" + id + "\").", e);
-                    }
-
-                }
-            } catch (Exception ignore) {
-                this.logger.warn("Failed to load metadata at \"" + this.path + "\".", ignore);
-            }
-            this.isCached = true;
-        }
-        return this.internalCache;
+    static protected String getDefinitionKey(Metadata metadata) {
+        return MetadataReader.getType(metadata) + "::" + metadata.getDefinitionId();
     }
 
     @Override
     public List<Metadata> getByDefinitionId(String id, String type) {
-        // Retrieve the results, or an empty list if no results.
-        final List<Metadata> list = this.getInternalCache().get(type + "::" + id);
-        return (list != null ? list : new ArrayList<>());
+        return this.getByIndex(this.definitionIndex, type + "::" + id);
     }
 
+    /**
+     * The cache already holds the complete records, so they are returned as the summaries.
+     */
     @Override
-    public Metadata getById(String id) {
-        for (List<Metadata> metadataList : this.getInternalCache().values()) {
-            for (Metadata metadata : metadataList) {
-                if (metadata.getId().equals(id)) {
-                    return metadata;
-                }
-            }
-        }
-        return null;
+    public List<Metadata> getSummariesByDefinitionId(String id, String type) {
+        return this.getByDefinitionId(id, type);
+    }
+
+    /**
+     * Returns the {@link NetCDFMetadata} with the specified {@code status}, or an empty list if
+     * none.
+     */
+    public List<Metadata> getByStatus(String status) {
+        return this.getByIndex(this.statusIndex, status);
+    }
+
+    /**
+     * Returns the {@link Metadata} with the specified {@code fileURI}, or an empty list if none.
+     */
+    public List<Metadata> getByFileURI(String fileURI) {
+        return this.getByIndex(this.fileURIIndex, fileURI);
     }
 
     @Override
     public Metadata persist(Metadata metadata) {
         try {
+            // Persist the object, updating only the affected entry of the cache.
             this.persist(
                 metadata.getId(),
-                this.jsonMapper.writeValueAsString(metadata)
+                this.jsonMapper.writeValueAsString(metadata),
+                metadata
             );
         } catch (IOException e) {
             throw new RuntimeException("Failed to write Metadata object.", e);
         }
-
-        // Invalidate the cache.
-        this.isCached = false;
-
         return metadata;
     }
 
     @Override
     public JSONObject persist(JSONObject jsonObject) {
+        // Persist the object, updating only the affected entry of the cache.
         this.persist(
             jsonObject.getString("_id"),
-            jsonObject.toString(4)
+            jsonObject.toString(4),
+            null
         );
-
-        // Invalidate the cache.
-        this.isCached = false;
-
         return jsonObject;
     }
 
-    /**
-     * Helper method to persist the POJO.
-     */
-    protected String persist(String id, String pojo) {
-
-        final String filePath = this.path + File.separator + id + ".json";
-
-        // Ensure the path exists.
-        File file = new File(filePath);
-        file.getParentFile().mkdirs();
-
-        // Write the file.
-        try (final BufferedWriter bufferedWriter = new BufferedWriter(
-            new OutputStreamWriter(
-                new FileOutputStream(
-                    new File(filePath))
-            )
-        )
-        ) {
-            bufferedWriter.write(pojo);
+    @Override
+    protected Metadata convertToPojo(File file) {
+        try {
+            return this.metadataReader.read(file);
         } catch (IOException e) {
-            throw new RuntimeException("Failed to write Metadata object.", e);
+            throw new RuntimeException("Failed to instantiate \"" + this.getPojoClass() + "\" from \"" +
+                file + "\".", e);
         }
-
-        return pojo;
-
     }
 
     @Override
@@ -0,0 +1,122 @@
+package au.gov.aims.ereefs.pojo.metadata;
+
+import au.gov.aims.ereefs.pojo.AbstractPojoDaoLogStoreImpl;
+import au.gov.aims.ereefs.pojo.logstore.LogStore;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Concrete implementation of the {@link MetadataDao} interface for a repository held in a
+ * {@link LogStore}. The {@code DefinitionId}, {@code status} and {@code fileURI} of each
+ * {@link Metadata} are held in memory, so the {@link Metadata} of a definition is found without
+ * reading any other {@link Metadata}.
+ */
+public class MetadataDaoLogStoreImpl extends AbstractPojoDaoLogStoreImpl<Metadata>
+    implements MetadataDao {
+
+    /**
+     * The type and {@code DefinitionId} of the {@link Metadata} (see
+     * {@link MetadataDaoFileImpl#getDefinitionKey(Metadata)}).
+     */
+    final static protected String ATTRIBUTE_DEFINITION = "definition";
+
+    final static protected String ATTRIBUTE_STATUS = "status";
+
+    final static protected String ATTRIBUTE_FILE_URI = "fileURI";
+
+    /**
+     * Streaming reader used to parse the records, skipping the subtrees that
+     * {@link NetCDFMetadata} does not map.
+     */
+    protected MetadataReader metadataReader = new MetadataReader(this.jsonMapper);
+
+    /**
+     * Constructor to open the {@link LogStore} in the specified directory.
+     */
+    public MetadataDaoLogStoreImpl(String path) {
+        super(path);
+    }
+
+    /**
+     * Constructor to capture a reference to an open {@link LogStore}.
+     */
+    public MetadataDaoLogStoreImpl(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    protected Map<String, String> getAttributes(Metadata metadata) {
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put(ATTRIBUTE_DEFINITION, MetadataDaoFileImpl.getDefinitionKey(metadata));
+        if (metadata instanceof NetCDFMetadata) {
+            attributes.put(ATTRIBUTE_STATUS, ((NetCDFMetadata) metadata).getStatus());
+        }
+        attributes.put(ATTRIBUTE_FILE_URI, metadata.getFileURI());
+        return attributes;
+    }
+
+    @Override
+    public List<Metadata> getByDefinitionId(String id, String type) {
+        final String key = type + "::" + id;
+        return this.find(attributes -> key.equals(attributes.get(ATTRIBUTE_DEFINITION)));
+    }
+
+    /**
+     * The complete records are returned as the summaries, as only the matching records are read.
+     */
+    @Override
+    public List<Metadata> getSummariesByDefinitionId(String id, String type) {
+        return this.getByDefinitionId(id, type);
+    }
+
+    /**
+     * Returns the {@link NetCDFMetadata} with the specified {@code status}, or an empty list if
+     * none.
+     */
+    public List<Metadata> getByStatus(String status) {
+        return this.find(attributes -> status.equals(attributes.get(ATTRIBUTE_STATUS)));
+    }
+
+    /**
+     * Returns the {@link Metadata} with the specified {@code fileURI}, or an empty list if none.
+     */
+    public List<Metadata> getByFileURI(String fileURI) {
+        return this.find(attributes -> fileURI.equals(attributes.get(ATTRIBUTE_FILE_URI)));
+    }
+
+    /**
+     * Persist the JSON as it is, with the attributes of the {@link Metadata} it represents.
+     */
+    @Override
+    public JSONObject persist(JSONObject jsonObject) {
+        final byte[] json = jsonObject.toString().getBytes(StandardCharsets.UTF_8);
+        this.store.put(jsonObject.getString("_id"), json, this.getAttributes(this.convertToPojo(json)));
+        return jsonObject;
+    }
+
+    @Override
+    protected Metadata convertToPojo(byte[] json) {
+        try {
+            return this.metadataReader.read(new ByteArrayInputStream(json));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to instantiate \"" + this.getPojoClass() + "\".", e);
+        }
+    }
+
+    @Override
+    protected Class<Metadata> getPojoClass() {
+        return Metadata.class;
+    }
+
+    @Override
+    protected String getPojoId(Metadata pojo) {
+        return pojo.getId();
+    }
+
+}
@@ -1,6 +1,7 @@
 package au.gov.aims.ereefs.pojo.metadata;
 
 import au.gov.aims.ereefs.pojo.AbstractPojoDaoMongoDbImpl;
+import au.gov.aims.ereefs.pojo.utils.JacksonProjection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
@@ -24,6 +25,14 @@ public class MetadataDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Metadata>
      */
     final static public String COLLECTION_NAME = "metadata";
 
+    /**
+     * Projection of the fields populated by {@link #getSummariesByDefinitionId(String, String)}.
+     * The {@code type} is included so the correct {@link Metadata} specialisation is bound.
+     */
+    final static public JacksonProjection SUMMARY_PROJECTION = JacksonProjection.include(
+        "type", "definitionId", "fileURI", "lastModified", "checksum", "status"
+    );
+
     /**
      * Constructor to capture references relevant to this implementation.
      */
@@ -47,21 +56,35 @@ public class MetadataDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Metadata>
 
     @Override
     public List<Metadata> getByDefinitionId(String id, String type) {
+        return this.getByDefinitionId(id, type, this.getProjection());
+    }
+
+    @Override
+    public List<Metadata> getSummariesByDefinitionId(String id, String type) {
+        return this.getByDefinitionId(id, type, SUMMARY_PROJECTION);
+    }
+
+    /**
+     * Retrieve the valid {@code Metadata} for the {@code DefinitionId}, returning only the fields
+     * included by the {@code projection}.
+     */
+    protected List<Metadata> getByDefinitionId(String id, String type, JacksonProjection projection) {
 
         // Declare the return value.
         final List<Metadata> list = new ArrayList<>();
 
         // Filter the collection.
-        final MongoCursor<Document> iterator =
-            this.collection.find(
+        final MongoCursor<Metadata> iterator =
+            this.find(
                 Filters.and(
                     Filters.eq("type", type),
                     Filters.eq("definitionId", id),
                     Filters.eq("status", "VALID")
-                )
+                ),
+                projection
             ).iterator();
         while (iterator.hasNext()) {
-            Metadata pojo = this.convertToPojo(iterator.next());
+            Metadata pojo = iterator.next();
             if (pojo != null) {
                 list.add(pojo);
             }
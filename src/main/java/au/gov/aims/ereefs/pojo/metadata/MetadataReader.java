@@ -0,0 +1,308 @@
+package au.gov.aims.ereefs.pojo.metadata;
+
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Streaming reader for {@link Metadata} JSON documents. Unlike binding the whole document with
+ * {@code Jackson}, this reader walks the {@code JsonParser} tokens directly and calls
+ * {@code skipChildren()} on every subtree that {@link NetCDFMetadata} does not map (eg:
+ * {@code verticalDomain}, {@code horizontalDomain}, {@code parameter} and {@code attributes} of
+ * each {@link NetCDFMetadata.Variable}), so no intermediate tree or {@code String} copy of the
+ * document is ever built.
+ * <p>
+ * The {@code type} property may appear anywhere in the document, so the mapped values are held
+ * in local variables until the end of the object is reached, at which point the appropriate
+ * {@link Metadata} specialisation is instantiated. Properties that are not recognised are skipped
+ * rather than rejected.
+ * </p>
+ * <p>
+ * Variables within a single document usually share the same time axis, so each distinct list of
+ * {@code timeValues} is parsed once per document and the resulting {@code double[]} is shared by
+ * every {@link NetCDFMetadata.TemporalDomain} with that axis. The
+ * {@link NetCDFMetadata.TemporalDomain}s themselves are then interned by
+ * {@link NetCDFMetadata.Variable}, which shares them across documents.
+ * </p>
+ */
+public class MetadataReader {
+
+    /**
+     * Type definition used for binding the top-level {@code attributes} of a
+     * {@link NetCDFMetadata}.
+     */
+    protected JavaType attributesType;
+
+    /**
+     * Utility from the {@code Jackson} library, used for binding small scalar values (such as
+     * {@code Date}s) so their format matches the rest of the library.
+     */
+    protected ObjectMapper jsonMapper;
+
+    /**
+     * Factory for instantiating {@code JsonParser}s.
+     */
+    protected JsonFactory jsonFactory;
+
+    /**
+     * Constructor using a default {@code ObjectMapper}.
+     */
+    public MetadataReader() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * Constructor to capture the {@code ObjectMapper} to use for binding scalar values.
+     */
+    public MetadataReader(ObjectMapper jsonMapper) {
+        super();
+        this.jsonMapper = jsonMapper;
+        this.jsonFactory = jsonMapper.getFactory();
+        this.attributesType = jsonMapper.getTypeFactory()
+            .constructMapType(TreeMap.class, String.class, String.class);
+    }
+
+    /**
+     * Read the {@link Metadata} from the specified file.
+     */
+    public Metadata read(File file) throws IOException {
+        return JSONFileReader.parseFile(file, this.jsonFactory, this::read);
+    }
+
+    /**
+     * Read the {@link Metadata} from the specified {@code InputStream}. The stream is not closed.
+     */
+    public Metadata read(InputStream inputStream) throws IOException {
+        try (final JsonParser parser = this.jsonFactory.createParser(inputStream)) {
+            return this.read(parser);
+        }
+    }
+
+    /**
+     * Read the {@link Metadata} from the specified {@code JsonParser}. The parser must either be
+     * positioned before, or on, the {@code START_OBJECT} token of the document.
+     */
+    public Metadata read(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(parser, "Expected a Metadata object, found " + token + ".");
+        }
+
+        String id = null;
+        String type = null;
+        String definitionId = null;
+        String datasetId = null;
+        String fileURI = null;
+        Date lastModified = null;
+        String status = null;
+        String checksum = null;
+        Map<String, NetCDFMetadata.Variable> variableMap = null;
+        Map<String, String> attributesMap = null;
+
+        // Time axes already parsed from this document, keyed by their String values.
+        final Map<List<String>, double[]> timeAxes = new HashMap<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "_id":
+                    id = this.readString(parser);
+                    break;
+                case "type":
+                    type = this.readString(parser);
+                    break;
+                case "definitionId":
+                    definitionId = this.readString(parser);
+                    break;
+                case "datasetId":
+                    datasetId = this.readString(parser);
+                    break;
+                case "fileURI":
+                    fileURI = this.readString(parser);
+                    break;
+                case "lastModified":
+                    lastModified = this.jsonMapper.readValue(parser, Date.class);
+                    break;
+                case "status":
+                    status = this.readString(parser);
+                    break;
+                case "checksum":
+                    checksum = this.readString(parser);
+                    break;
+                case "variables":
+                    variableMap = this.readVariables(parser, timeAxes);
+                    break;
+                case "attributes":
+                    attributesMap = this.jsonMapper.readValue(parser, this.attributesType);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        // Instantiate the specialisation identified by the type.
+        if (NetCDFMetadata.TYPE.equals(type)) {
+            return NetCDFMetadata.make(
+                id,
+                definitionId,
+                fileURI,
+                lastModified,
+                datasetId,
+                status,
+                checksum,
+                variableMap,
+                attributesMap
+            );
+        }
+        final Metadata metadata = new Metadata(id);
+        metadata.setDefinitionId(definitionId);
+        metadata.setFileURI(fileURI);
+        metadata.setLastModified(lastModified);
+        return metadata;
+    }
+
+    /**
+     * Returns the {@code type} name that identifies the class of the specified {@link Metadata}
+     * object, or an empty {@code String} for the base {@link Metadata} class.
+     */
+    static public String getType(Metadata metadata) {
+        return (metadata instanceof NetCDFMetadata) ? NetCDFMetadata.TYPE : "";
+    }
+
+    /**
+     * Read the {@code variables} object, keyed by variable name. Time axes are shared via the
+     * {@code timeAxes} map.
+     */
+    protected Map<String, NetCDFMetadata.Variable> readVariables(JsonParser parser,
+                                                                 Map<List<String>, double[]> timeAxes) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        final Map<String, NetCDFMetadata.Variable> variableMap = new TreeMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            variableMap.put(name, this.readVariable(parser, timeAxes));
+        }
+        return variableMap;
+    }
+
+    /**
+     * Read a single {@link NetCDFMetadata.Variable}, skipping all unmapped subtrees.
+     */
+    protected NetCDFMetadata.Variable readVariable(JsonParser parser,
+                                                   Map<List<String>, double[]> timeAxes) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String id = null;
+        NetCDFMetadata.TemporalDomain temporalDomain = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "id":
+                    id = this.readString(parser);
+                    break;
+                case "temporalDomain":
+                    temporalDomain = this.readTemporalDomain(parser, timeAxes);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new NetCDFMetadata.Variable(id, temporalDomain);
+    }
+
+    /**
+     * Read a single {@link NetCDFMetadata.TemporalDomain}, skipping all unmapped subtrees. If an
+     * identical list of {@code timeValues} has already been parsed, the existing
+     * {@code double[]} is reused.
+     */
+    protected NetCDFMetadata.TemporalDomain readTemporalDomain(JsonParser parser,
+                                                               Map<List<String>, double[]> timeAxes) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String timezone = null;
+        String[] timeValues = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "timezone":
+                    timezone = this.readString(parser);
+                    break;
+                case "timeValues":
+                    timeValues = this.readStringArray(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        final double[] timeValuesSinceEpoch = timeAxes.computeIfAbsent(
+            Arrays.asList((timeValues != null) ? timeValues : new String[0]),
+            key -> NetCDFMetadata.TemporalDomain.parseTimeValues(key.toArray(new String[key.size()]))
+        );
+        final NetCDFMetadata.TemporalDomain temporalDomain =
+            new NetCDFMetadata.TemporalDomain(timeValuesSinceEpoch);
+        if (timezone != null) {
+            temporalDomain.timezone = timezone;
+        }
+        return temporalDomain;
+    }
+
+    /**
+     * Read an array of {@code String} values.
+     */
+    protected String[] readStringArray(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        final List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(this.readString(parser));
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Read a scalar value as a {@code String}, returning {@code null} for a {@code JSON null}.
+     * Structured values are skipped.
+     */
+    protected String readString(JsonParser parser) throws IOException {
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+}
@@ -1,6 +1,7 @@
 package au.gov.aims.ereefs.pojo.metadata;
 
 import au.gov.aims.ereefs.pojo.utils.DateTimeUtils;
+import au.gov.aims.ereefs.pojo.utils.WeakInterner;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -8,8 +9,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
 
 /**
@@ -26,49 +29,155 @@ public class NetCDFMetadata extends Metadata {
     @JsonIgnoreProperties({"internalTimezone", "maxDate", "minDate", "name"})
     static public class TemporalDomain {
 
+        /**
+         * Intern table used by {@link #intern(TemporalDomain)}.
+         */
+        final static protected WeakInterner<TemporalDomain> INTERNER = new WeakInterner<>();
+
         protected String timezone = "Australia/Brisbane";
 
         public String getTimezone() {
             return timezone;
         }
 
+        /**
+         * The time values, as days (decimal) since {@code DateTimeConstants.EPOCH}. This array may
+         * be shared between {@code Variable}s with an identical time axis, so it must not be
+         * modified.
+         */
         @JsonIgnore
-        protected Double[] timeValuesSinceEpoch;
+        protected double[] timeValuesSinceEpoch;
 
+        /**
+         * Returns a copy of the time values, as days (decimal) since
+         * {@code DateTimeConstants.EPOCH}.
+         *
+         * @deprecated use {@link #copyTimeValuesSinceEpoch()}, which does not box the values.
+         */
+        @Deprecated
         public Double[] getTimeValuesSinceEpoch() {
+            final Double[] timeValuesSinceEpoch = new Double[this.timeValuesSinceEpoch.length];
+            for (int index = 0; index < timeValuesSinceEpoch.length; index++) {
+                timeValuesSinceEpoch[index] = this.timeValuesSinceEpoch[index];
+            }
+            return timeValuesSinceEpoch;
+        }
+
+        /**
+         * Returns a copy of the time values, as days (decimal) since
+         * {@code DateTimeConstants.EPOCH}.
+         */
+        public double[] copyTimeValuesSinceEpoch() {
+            return this.timeValuesSinceEpoch.clone();
+        }
+
+        /**
+         * Returns the time values without copying them. The array may be shared between
+         * {@code Variable}s with an identical time axis, so it is read-only and must not be
+         * modified.
+         */
+        protected double[] getReadOnlyTimeValuesSinceEpoch() {
             return this.timeValuesSinceEpoch;
         }
 
+        /**
+         * Cache of the {@code String} representation of {@link #timeValuesSinceEpoch}, rendered on
+         * the first call to {@link #getTimeValues()}.
+         */
+        protected volatile String[] renderedTimeValues;
+
+        /**
+         * Cached hash of {@link #timeValuesSinceEpoch}, or {@code 0} if not yet calculated.
+         */
+        protected int axisHash;
+
         /**
          * Utility method for converting {@code timeValues} to an array of {@code String} values.
+         * The values are rendered once and cached, and a copy of the cache is returned.
          */
         public String[] getTimeValues() {
-            final ZoneId zoneId = ZoneId.of(this.getTimezone());
-            final int size = this.timeValuesSinceEpoch.length;
-            final String[] timeValues = new String[size];
-            for (int index = 0; index < size; index++) {
-                final LocalDateTime localDateTime = DateTimeUtils.toDateTime(this.timeValuesSinceEpoch[index]);
-                timeValues[index] = DateTimeUtils.isoDateTimeFormatter.format(localDateTime.atZone(zoneId));
+            String[] timeValues = this.renderedTimeValues;
+            if (timeValues == null) {
+                final ZoneId zoneId = ZoneId.of(this.getTimezone());
+                final int size = this.timeValuesSinceEpoch.length;
+                timeValues = new String[size];
+                for (int index = 0; index < size; index++) {
+                    final LocalDateTime localDateTime = DateTimeUtils.toDateTime(this.timeValuesSinceEpoch[index]);
+                    timeValues[index] = DateTimeUtils.isoDateTimeFormatter.format(localDateTime.atZone(zoneId));
+                }
+                this.renderedTimeValues = timeValues;
             }
-            return timeValues;
+            return timeValues.clone();
         }
 
         @JsonCreator
         public TemporalDomain(@JsonProperty("timeValues") String[] timeValues) {
-            this.timeValuesSinceEpoch = new Double[timeValues.length];
-            for (int index = 0; index < timeValues.length; index++) {
-                String value = timeValues[index];
-                final LocalDateTime timeValue = (value.endsWith("Z")) ?
-                    DateTimeUtils.instantDateTimeFormatter.parse(value, LocalDateTime::from) :
-                    DateTimeUtils.isoDateTimeFormatter.parse(value, LocalDateTime::from);
-                this.timeValuesSinceEpoch[index] = DateTimeUtils.sinceEpochInDays(timeValue);
-            }
+            this(parseTimeValues(timeValues));
         }
 
         // Convenience constructor when creating manually.
         public TemporalDomain(Double[] timeValuesSinceEpoch) {
+            this.timeValuesSinceEpoch = new double[timeValuesSinceEpoch.length];
+            for (int index = 0; index < timeValuesSinceEpoch.length; index++) {
+                this.timeValuesSinceEpoch[index] = timeValuesSinceEpoch[index];
+            }
+        }
+
+        /**
+         * Constructor which uses the specified array directly, rather than a copy, so that the time
+         * axis can be shared.
+         */
+        public TemporalDomain(double[] timeValuesSinceEpoch) {
             this.timeValuesSinceEpoch = timeValuesSinceEpoch;
         }
+
+        /**
+         * Utility method for converting ISO-8601 {@code String} values to days since
+         * {@code DateTimeConstants.EPOCH}.
+         */
+        static public double[] parseTimeValues(String[] timeValues) {
+            final double[] timeValuesSinceEpoch = new double[timeValues.length];
+            for (int index = 0; index < timeValues.length; index++) {
+                timeValuesSinceEpoch[index] = DateTimeUtils.parseSinceEpochInDays(timeValues[index]);
+            }
+            return timeValuesSinceEpoch;
+        }
+
+        /**
+         * Returns the canonical instance equal to the specified {@code TemporalDomain}, so that
+         * {@code Variable}s with the same time axis, within and across {@code NetCDFMetadata}
+         * objects, hold a single instance. The instance must not be modified once interned.
+         */
+        static public TemporalDomain intern(TemporalDomain temporalDomain) {
+            if (temporalDomain != null && temporalDomain.timezone != null) {
+                temporalDomain.timezone = temporalDomain.timezone.intern();
+            }
+            return INTERNER.intern(temporalDomain);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final TemporalDomain that = (TemporalDomain) o;
+            return Objects.equals(this.timezone, that.timezone) &&
+                this.hashCode() == that.hashCode() &&
+                Arrays.equals(this.timeValuesSinceEpoch, that.timeValuesSinceEpoch);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = this.axisHash;
+            if (hash == 0) {
+                hash = Arrays.hashCode(this.timeValuesSinceEpoch);
+                this.axisHash = hash;
+            }
+            return 31 * hash + Objects.hashCode(this.timezone);
+        }
     }
 
     // ---------- Variable ----------
@@ -91,7 +200,9 @@ public class NetCDFMetadata extends Metadata {
                         @JsonProperty("temporalDomain") TemporalDomain temporalDomain) {
             super();
             this.id = id;
-            this.temporalDomain = temporalDomain;
+
+            // Canonicalise the time axis, as most variables share the same one.
+            this.temporalDomain = TemporalDomain.intern(temporalDomain);
         }
     }
 
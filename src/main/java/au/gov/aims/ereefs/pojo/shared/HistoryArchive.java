@@ -0,0 +1,72 @@
+package au.gov.aims.ereefs.pojo.shared;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only store of the {@link StatusEvent}s moved out of the {@code history} of
+ * {@code Job}s and {@code Task}s by a {@link HistoryPolicy}. Archiving is idempotent: an event
+ * archived twice (eg: by concurrent transitions, or because a write of its owner failed after
+ * archiving) is only returned once, as identified by {@link #keyOf(String, StatusEvent)}.
+ */
+public interface HistoryArchive {
+
+    /**
+     * Append the events to the archived history of the owner.
+     *
+     * @param ownerId the {@code id} of the {@code Job} or {@code Task}.
+     * @param events the events, oldest first.
+     */
+    void archive(String ownerId, List<StatusEvent> events);
+
+    /**
+     * Returns the archived history of the owner, oldest first.
+     */
+    List<StatusEvent> getArchived(String ownerId);
+
+    /**
+     * Returns the key identifying an archived event of the owner, used to ignore an event which
+     * is archived more than once. An event whose timestamp cannot be parsed is identified by the
+     * timestamp as written.
+     */
+    static public String keyOf(String ownerId, StatusEvent event) {
+        final Long timestampMillis = event.getTimestampMillis();
+        return ownerId + "/" + (timestampMillis != null ? timestampMillis.toString() : event.getTimestamp()) +
+            "/" + event.getStatus();
+    }
+
+    /**
+     * Returns the fields of the record of an archived event, which retains the {@code actor} and
+     * {@code details} of the event as well as its {@code description}.
+     */
+    static public Map<String, Object> toRecord(String ownerId, StatusEvent event) {
+        final Map<String, Object> record = new LinkedHashMap<>();
+        record.put("_id", keyOf(ownerId, event));
+        record.put("ownerId", ownerId);
+        record.put("timestampMillis", event.getTimestampMillis());
+        record.put("timestamp", event.getTimestamp());
+        record.put("status", event.getStatus());
+        record.put("actor", event.getActor());
+        record.put("details", event.getDetails());
+        record.put("description", event.getDescription());
+        return record;
+    }
+
+    /**
+     * Returns the event from the fields of its record (see {@link #toRecord(String, StatusEvent)}).
+     */
+    static public StatusEvent fromRecord(Map<String, Object> record) {
+        final Number timestampMillis = (Number) record.get("timestampMillis");
+        final String status = (String) record.get("status");
+        final String actor = (String) record.get("actor");
+        if (timestampMillis == null) {
+            return new StatusEvent((String) record.get("timestamp"), status, (String) record.get("description"));
+        }
+        if (actor == null) {
+            return new StatusEvent(timestampMillis.longValue(), status, (String) record.get("description"));
+        }
+        return new StatusEvent(timestampMillis.longValue(), status, actor, (String) record.get("details"));
+    }
+
+}
@@ -0,0 +1,126 @@
+package au.gov.aims.ereefs.pojo.shared;
+
+import au.gov.aims.ereefs.pojo.utils.FileLayout;
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Concrete implementation of the {@link HistoryArchive} interface for a file-based repository. The
+ * archived events of each owner are appended to their own file, {@code <ownerId>.history}, one
+ * JSON record per line. The name does not end in {@code .json}, so the archive may share the
+ * directory of the repository without its files being loaded as records. The files are arranged
+ * by a {@link FileLayout}; an existing file is appended to in whichever layout it was written.
+ */
+public class HistoryArchiveFileImpl implements HistoryArchive {
+
+    final static protected TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    /**
+     * Cached reference to the root directory of the archive.
+     */
+    final protected File directory;
+
+    /**
+     * Utility object for converting the records to and from JSON.
+     */
+    protected ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * How new files are arranged beneath the {@link #directory}.
+     */
+    protected FileLayout fileLayout = FileLayout.FLAT;
+
+    /**
+     * Constructor to capture references and initialise the object.
+     */
+    public HistoryArchiveFileImpl(String path) {
+        super();
+        this.directory = new File(path);
+        this.directory.mkdirs();
+    }
+
+    /**
+     * Set how new files are arranged beneath the root directory of the archive.
+     */
+    public void setFileLayout(FileLayout fileLayout) {
+        this.fileLayout = fileLayout;
+    }
+
+    /**
+     * Returns the existing file of the owner, in either layout, or the file where the
+     * {@link #fileLayout} places it if there is none.
+     */
+    protected File getFile(String ownerId) {
+        return this.fileLayout.find(this.directory, ownerId, ".history");
+    }
+
+    /**
+     * Append the records with a single write, while holding the lock of the file (see
+     * {@link FileUtils#withLock(File, FileUtils.IOSupplier)}), so appends to the same file, by
+     * this or another process, do not interleave.
+     */
+    @Override
+    public void archive(String ownerId, List<StatusEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        final StringBuilder lines = new StringBuilder();
+        try {
+            for (StatusEvent event : events) {
+                lines.append(this.jsonMapper.writeValueAsString(HistoryArchive.toRecord(ownerId, event))).append('\n');
+            }
+            final File file = this.getFile(ownerId);
+            FileUtils.withLock(file, () -> {
+                try (final FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    final ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to archive the history of \"" + ownerId + "\".", e);
+        }
+    }
+
+    @Override
+    public List<StatusEvent> getArchived(String ownerId) {
+        final File file = this.getFile(ownerId);
+        final List<StatusEvent> events = new ArrayList<>();
+        if (!file.isFile()) {
+            return events;
+        }
+        final Set<Object> keys = new HashSet<>();
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final Map<String, Object> record = this.jsonMapper.readValue(line, RECORD_TYPE);
+                if (keys.add(record.get("_id"))) {
+                    events.add(HistoryArchive.fromRecord(record));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the archived history of \"" + ownerId + "\".", e);
+        }
+        return events;
+    }
+
+}
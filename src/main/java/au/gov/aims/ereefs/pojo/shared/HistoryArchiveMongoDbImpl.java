@@ -0,0 +1,108 @@
+package au.gov.aims.ereefs.pojo.shared;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Concrete implementation of the {@link HistoryArchive} interface for a {@code MongoDB}-based
+ * repository, storing one document per archived event in a separate collection (eg:
+ * {@link #TASK_COLLECTION_NAME}). Each document is keyed by
+ * {@link HistoryArchive#keyOf(String, StatusEvent)} and only inserted if there is no document
+ * with its key, so archiving an event again neither duplicates nor rewrites it.
+ */
+public class HistoryArchiveMongoDbImpl implements HistoryArchive {
+
+    /**
+     * Constant identifying the name of the collection for the history of {@code Task}s.
+     */
+    final static public String TASK_COLLECTION_NAME = "task_history";
+
+    /**
+     * Constant identifying the name of the collection for the history of {@code Job}s.
+     */
+    final static public String JOB_COLLECTION_NAME = "job_history";
+
+    /**
+     * The code of the error raised when a document with the same {@code _id} already exists.
+     */
+    final static protected int DUPLICATE_KEY_ERROR_CODE = 11000;
+
+    /**
+     * Cached reference to the underlying {@code Collection} in {@code MongoDB}.
+     */
+    final protected MongoCollection<Document> collection;
+
+    /**
+     * {@code true} once the index supporting {@link #getArchived(String)} has been created.
+     */
+    protected volatile boolean isIndexCreated;
+
+    /**
+     * Constructor to capture references relevant to this implementation.
+     */
+    public HistoryArchiveMongoDbImpl(MongoDatabase mongoDatabase,
+                                     String collectionName) {
+        super();
+        this.collection = mongoDatabase.getCollection(collectionName);
+    }
+
+    @Override
+    public void archive(String ownerId, List<StatusEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!this.isIndexCreated) {
+            this.collection.createIndex(Indexes.ascending("ownerId", "timestampMillis"));
+            this.isIndexCreated = true;
+        }
+        final List<WriteModel<Document>> requests = new ArrayList<>(events.size());
+        for (StatusEvent event : events) {
+            final Document record = new Document(HistoryArchive.toRecord(ownerId, event));
+            final Object key = record.remove("_id");
+            requests.add(new UpdateOneModel<>(
+                Filters.eq("_id", key),
+                new Document("$setOnInsert", record),
+                new UpdateOptions().upsert(true)
+            ));
+        }
+        try {
+            this.collection.bulkWrite(requests, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+
+            // A concurrent archive of the same event may insert it first.
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR_CODE) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<StatusEvent> getArchived(String ownerId) {
+        final List<StatusEvent> events = new ArrayList<>();
+        final MongoCursor<Document> iterator = this.collection
+            .find(Filters.eq("ownerId", ownerId))
+            .sort(Sorts.ascending("timestampMillis", "_id"))
+            .iterator();
+        while (iterator.hasNext()) {
+            events.add(HistoryArchive.fromRecord(iterator.next()));
+        }
+        return events;
+    }
+
+}
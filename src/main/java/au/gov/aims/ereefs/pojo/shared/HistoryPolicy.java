@@ -0,0 +1,97 @@
+package au.gov.aims.ereefs.pojo.shared;
+
+import au.gov.aims.ereefs.pojo.utils.StatusEventSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How a repository stores the {@link StatusEvent} {@code history} of {@code Job}s and
+ * {@code Task}s: whether the events are written in the compact form (see
+ * {@link StatusEventSerializer}), and the maximum number of events kept in each document. When a
+ * document is written with more events, the oldest are moved to a {@link HistoryArchive}, so a
+ * {@code Task} which is retried many times does not grow without bound.
+ */
+public class HistoryPolicy {
+
+    /**
+     * The default policy: events are written as objects, and are never moved.
+     */
+    final static public HistoryPolicy UNBOUNDED = new HistoryPolicy(Integer.MAX_VALUE, false);
+
+    /**
+     * The maximum number of events kept in a document.
+     */
+    final protected int maxEvents;
+
+    /**
+     * {@code true} if the events are written in the compact form.
+     */
+    final protected boolean isCompact;
+
+    /**
+     * Constructor.
+     *
+     * @param maxEvents the maximum number of events kept in a document.
+     * @param isCompact {@code true} to write the events in the compact form.
+     */
+    public HistoryPolicy(int maxEvents,
+                         boolean isCompact) {
+        super();
+        if (maxEvents < 1) {
+            throw new IllegalArgumentException("The maximum number of events must be positive (" + maxEvents + ").");
+        }
+        this.maxEvents = maxEvents;
+        this.isCompact = isCompact;
+    }
+
+    public int getMaxEvents() {
+        return this.maxEvents;
+    }
+
+    public boolean isCompact() {
+        return this.isCompact;
+    }
+
+    /**
+     * Returns a copy of the {@code jsonMapper} which writes events as this policy specifies.
+     */
+    public ObjectMapper configure(ObjectMapper jsonMapper) {
+        final ObjectMapper configured = jsonMapper.copy();
+        configured.setConfig(configured.getSerializationConfig()
+            .withAttribute(StatusEventSerializer.COMPACT_ATTRIBUTE, this.isCompact));
+        return configured;
+    }
+
+    /**
+     * Returns {@code true} if the {@code history} has more than {@link #maxEvents} events.
+     */
+    public boolean isOverflowing(List<StatusEvent> history) {
+        return history != null && history.size() > this.maxEvents;
+    }
+
+    /**
+     * Move the oldest events of the {@code history}, beyond the most recent {@link #maxEvents},
+     * to the {@code archive}. The events are removed from the {@code history} only once they have
+     * been archived.
+     *
+     * @param ownerId the {@code id} of the {@code Job} or {@code Task} the {@code history} belongs
+     *                to.
+     * @param history the (modifiable) {@code history}.
+     * @param archive the archive, or {@code null} to discard the oldest events.
+     */
+    public void apply(String ownerId,
+                      List<StatusEvent> history,
+                      HistoryArchive archive) {
+        if (!this.isOverflowing(history)) {
+            return;
+        }
+        final List<StatusEvent> overflow = history.subList(0, history.size() - this.maxEvents);
+        if (archive != null) {
+            archive.archive(ownerId, new ArrayList<>(overflow));
+        }
+        overflow.clear();
+    }
+
+}
@@ -0,0 +1,18 @@
+package au.gov.aims.ereefs.pojo.shared;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Identifies the {@code enum} of the statuses recorded by a {@link StatusEvent} property (eg: the
+ * {@code history} of a {@code Task}), so the compact form can record each status by its ordinal.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface StatusEnum {
+
+    Class<? extends Enum<?>> value();
+
+}
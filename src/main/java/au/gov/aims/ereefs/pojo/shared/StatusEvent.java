@@ -1,19 +1,52 @@
 package au.gov.aims.ereefs.pojo.shared;
 
+import au.gov.aims.ereefs.pojo.utils.StatusEventDeserializer;
+import au.gov.aims.ereefs.pojo.utils.StatusEventSerializer;
+import au.gov.aims.ereefs.pojo.utils.WeakInterner;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 
 /**
  * A supporting POJO that records a single status change event for {@code Job}s and {@code Task}s.
+ * <p>
+ * An event is written as an object of its {@code timestamp}, {@code status} and
+ * {@code description}, or, if the {@code ObjectMapper} is configured by a {@link HistoryPolicy}
+ * for compact events, as an array (see {@link StatusEventSerializer}). Both forms are read.
+ * </p>
  *
  * @author Aaron Smith
  */
+@JsonSerialize(using = StatusEventSerializer.class)
+@JsonDeserialize(using = StatusEventDeserializer.class)
 public class StatusEvent {
 
+    final static protected DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    /**
+     * Canonical instances of the {@link #actor}s, which are repeated across many events.
+     */
+    final static protected WeakInterner<String> ACTORS = new WeakInterner<>();
+
     protected String timestamp;
     public String getTimestamp() {
         return timestamp;
     }
 
+    /**
+     * The {@link #timestamp} in milliseconds since the epoch, or {@code null} if not known yet.
+     */
+    protected Long timestampMillis;
+
     protected String status;
     public String getStatus() {
         return status;
@@ -24,12 +57,36 @@ public class StatusEvent {
         return description;
     }
 
+    /**
+     * The system component/actor which changed the status, or {@code null} if the event was not
+     * made by {@link #make(String, String, String)} (eg: it was read from an object), in which
+     * case the {@link #description} cannot be rebuilt from it.
+     */
+    protected String actor;
+
+    @JsonIgnore
+    public String getActor() {
+        return this.actor;
+    }
+
+    /**
+     * The optional details of the change.
+     */
+    protected String details;
+
+    @JsonIgnore
+    public String getDetails() {
+        return this.details;
+    }
+
     @JsonCreator
     public StatusEvent() {
     }
 
     /**
-     * Convenience constructor.
+     * Convenience constructor. If the {@code description} was built by
+     * {@link #make(String, String, String)}, the {@link #actor} and {@link #details} are recovered
+     * from it, so an event read from an object can still be written in the compact form.
      */
     public StatusEvent(String timestamp,
                        String status,
@@ -37,6 +94,94 @@ public class StatusEvent {
         this.timestamp = timestamp;
         this.status = status;
         this.description = description;
+        if (description != null && status != null) {
+            final String prefix = describe(status, "", null);
+            if (description.startsWith(prefix) && description.length() > prefix.length()) {
+                final String rest = description.substring(prefix.length());
+                final int separator = rest.indexOf(". ");
+                this.actor = ACTORS.intern(separator < 0 ? rest : rest.substring(0, separator));
+                this.details = separator < 0 ? null : rest.substring(separator + 2);
+            }
+        }
+    }
+
+    /**
+     * Constructor for an event with a {@code description} which is not rebuilt from an
+     * {@code actor}, such as when read from the compact form.
+     */
+    public StatusEvent(long timestampMillis,
+                       String status,
+                       String description) {
+        this(format(timestampMillis), status, description);
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * Constructor for an event made by an {@code actor}, such as when read from the compact form.
+     * The {@link #description} is rebuilt as {@link #make(String, String, String)} builds it.
+     */
+    public StatusEvent(long timestampMillis,
+                       String status,
+                       String actor,
+                       String optionalDetails) {
+        this(timestampMillis, status, describe(status, actor, optionalDetails));
+        this.actor = ACTORS.intern(actor);
+        this.details = (optionalDetails == null || optionalDetails.isEmpty()) ? null : optionalDetails;
+    }
+
+    /**
+     * Factory method to instantiate a {@link StatusEvent} recording a change to the specified
+     * {@code status}, made now by the {@code actor}. The timestamp is truncated to milliseconds,
+     * so it is unchanged by the compact form.
+     *
+     * @param status the new status.
+     * @param actor the system component/actor changing the status.
+     * @param optionalDetails if specified, appended to the description.
+     */
+    static public StatusEvent make(String status,
+                                   String actor,
+                                   String optionalDetails) {
+        final long nowMillis = ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS).toInstant().toEpochMilli();
+        return new StatusEvent(nowMillis, status, actor, optionalDetails);
+    }
+
+    /**
+     * Returns the {@link #timestamp} in milliseconds since the epoch, or {@code null} if it cannot
+     * be parsed.
+     */
+    @JsonIgnore
+    public Long getTimestampMillis() {
+        if (this.timestampMillis == null && this.timestamp != null) {
+            try {
+                this.timestampMillis = OffsetDateTime.parse(this.timestamp, dateTimeFormatter)
+                    .toInstant()
+                    .toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return this.timestampMillis;
+    }
+
+    /**
+     * Build the description of a change to the {@code status} by the {@code actor}.
+     */
+    static protected String describe(String status,
+                                     String actor,
+                                     String optionalDetails) {
+        String message = "Status changed to " + status + " by " + actor;
+        if (optionalDetails != null && optionalDetails.length() > 0) {
+            message += ". " + optionalDetails;
+        }
+        return message;
+    }
+
+    /**
+     * Format the time in the time zone of the system, as {@link #make(String, String, String)}
+     * does.
+     */
+    static protected String format(long timestampMillis) {
+        return dateTimeFormatter.format(Instant.ofEpochMilli(timestampMillis).atZone(ZoneId.systemDefault()));
     }
 
 }
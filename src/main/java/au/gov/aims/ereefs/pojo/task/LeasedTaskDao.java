@@ -0,0 +1,70 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.Stage;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Specialisation of the {@link TaskDao} interface with the atomic operations required by a
+ * {@link TaskQueue} to lease {@link Task}s to workers.
+ * <p>
+ * A {@link Task} is {@code claimable} if its status is {@link TaskStatus#CREATED}, or if it is
+ * {@link TaskStatus#ASSIGNED} or {@link TaskStatus#RUNNING} and its lease has expired (ie: the
+ * worker which claimed it has stopped renewing the lease).
+ * </p>
+ */
+public interface LeasedTaskDao extends TaskDao {
+
+    /**
+     * Retrieve a page of the {@code claimable} {@link Task}s with the specified {@code Stage}, in
+     * {@code id} order. The next page starts after the last {@code id} of the previous page, so
+     * {@link Task}s claimed by other workers between the pages do not move the later
+     * {@link Task}s to an earlier page.
+     *
+     * @param types the {@code type}s of {@link Task} (eg: {@code ncaggregate}), or {@code null} for
+     *              all types.
+     * @param stage the {@code Stage} of the {@link Task}s.
+     * @param nowMillis the current time, for determining whether a lease has expired.
+     * @param afterId the last {@code id} of the previous page, or {@code null} for the first
+     *                page.
+     * @param limit the maximum number of {@link Task}s to return.
+     */
+    List<Task> findClaimable(Collection<String> types,
+                             Stage stage,
+                             long nowMillis,
+                             String afterId,
+                             int limit);
+
+    /**
+     * Atomically claim the {@link Task} for the worker if it is still {@code claimable}, setting
+     * its status to {@link TaskStatus#ASSIGNED} and recording the lease.
+     *
+     * @return the claimed {@link Task}, or {@code null} if it is no longer {@code claimable}.
+     */
+    Task claim(String id,
+               String workerId,
+               long nowMillis,
+               long leaseExpiresAt);
+
+    /**
+     * Extend the lease of a {@link Task} which is {@link TaskStatus#ASSIGNED} or
+     * {@link TaskStatus#RUNNING}, provided it is still claimed by the worker.
+     *
+     * @return {@code true} if the lease was extended, or {@code false} if the worker no longer
+     * holds the {@link Task}.
+     */
+    boolean renewLease(String id,
+                       String workerId,
+                       long leaseExpiresAt);
+
+    /**
+     * Return an {@link TaskStatus#ASSIGNED} {@link Task} claimed by the worker to
+     * {@link TaskStatus#CREATED}, so it can be claimed again.
+     *
+     * @return the released {@link Task}, or {@code null} if the worker no longer holds it.
+     */
+    Task release(String id,
+                 String workerId);
+
+}
@@ -2,6 +2,7 @@ package au.gov.aims.ereefs.pojo.task;
 
 import au.gov.aims.ereefs.pojo.Pojo;
 import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.shared.StatusEnum;
 import au.gov.aims.ereefs.pojo.shared.StatusEvent;
 import com.fasterxml.jackson.annotation.*;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -10,6 +11,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -90,29 +92,49 @@ public class Task extends Pojo {
                           String actor,
                           String optionalDetails) {
         this.status = newStatus;
-        String message = "Status changed to " + newStatus.name() + " by " + actor;
-        if (optionalDetails != null && optionalDetails.length() > 0) {
-            message += ". " + optionalDetails;
-        }
-        this.history.add(
-            new StatusEvent(
-                dateTimeFormatter.format(ZonedDateTime.now()),
-                newStatus.name(),
-                message
-            )
-        );
+        this.history.add(StatusEvent.make(newStatus.name(), actor, optionalDetails));
     }
 
     /**
      * The list of {@link StatusEvent} objects that track {@link #status} changes to the {@link Task}.
      */
     @JsonProperty
+    @StatusEnum(TaskStatus.class)
     protected List<StatusEvent> history;
 
     public List<StatusEvent> getHistory() {
         return history;
     }
 
+    /**
+     * The id of the worker which claimed the {@code Task} from a {@link TaskQueue}, or {@code null}
+     * if it has not been claimed.
+     */
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    protected String claimedBy;
+
+    public String getClaimedBy() {
+        return this.claimedBy;
+    }
+
+    /**
+     * The time (in milliseconds since the epoch) at which the claim of {@link #claimedBy} lapses,
+     * unless renewed, after which another worker may claim the {@code Task}.
+     */
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    protected Long leaseExpiresAt;
+
+    public Long getLeaseExpiresAt() {
+        return this.leaseExpiresAt;
+    }
+
+    protected void setLease(String claimedBy, Long leaseExpiresAt) {
+        this.claimedBy = claimedBy;
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
     /**
      * The lifecycle {@code Stage} of the {@code Product} that the {@code Task} relates to. This
      * value may be of use when scheduling {@code Task} execution.
@@ -168,7 +190,7 @@ public class Task extends Pojo {
         this.history = new ArrayList<StatusEvent>() {{
             add(
                 new StatusEvent(
-                    dateTimeFormatter.format(ZonedDateTime.now()),
+                    dateTimeFormatter.format(ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS)),
                     TaskStatus.CREATED.name(),
                     "Task created."
                 )
@@ -0,0 +1,316 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.utils.IndexLog;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent index of the {@code Stage}, status, {@code type} and lease expiry of each
+ * {@link Task} in a {@link TaskDaoFileImpl} repository, so the {@code claimable} {@link Task}s
+ * (see {@link LeasedTaskDao}) are found without reading every {@link Task} file.
+ * <p>
+ * The index is an append-only {@link IndexLog}, {@link #FILENAME} in the root directory of the
+ * repository, of one {@code <id> <stage> <status> <type> <leaseExpiresAt>} line per change
+ * written. The {@link Task}s which may be {@code claimable} (ie: those in one of the
+ * {@link #OPEN_STATUSES}) are held in memory in {@code id} order, so a page of candidates is read
+ * from after the last {@code id} of the previous page. The log is compacted once most of its lines
+ * have been replaced by later lines. The log is loaded on first use, and the lines appended by
+ * other processes are read before each query. If there is no log, the index is built from the
+ * {@link Task} files, and the log is written when a {@link Task} is first recorded, so a
+ * repository which is only read is not modified. Files written without the index (eg: copied into
+ * the repository) are not found until the index is {@link #rebuild() rebuilt}.
+ * </p>
+ */
+public class TaskClaimIndex {
+
+    /**
+     * The name of the log in the root directory of the repository. It does not end in
+     * {@code .json}, so it is never loaded as a record.
+     */
+    final static public String FILENAME = "task-claims.idx";
+
+    /**
+     * The statuses of the {@link Task}s which may be {@code claimable}, now or once their lease
+     * expires.
+     */
+    final static public List<TaskStatus> OPEN_STATUSES = Arrays.asList(
+        TaskStatus.CREATED,
+        TaskStatus.ASSIGNED,
+        TaskStatus.RUNNING
+    );
+
+    /**
+     * Written in place of a missing value, so each line has the same number of fields.
+     */
+    final static protected String NONE = "-";
+
+    /**
+     * The root directory of the repository.
+     */
+    final protected File daoDir;
+
+    final protected IndexLog log;
+
+    /**
+     * Used to read the {@link Task} files when the index is built.
+     */
+    final protected ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * The latest logged value of each {@link Task}, by {@code id}, so an unchanged value is not
+     * logged again.
+     */
+    final protected Map<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * The {@link Task}s in one of the {@link #OPEN_STATUSES}, by {@code id}.
+     */
+    final protected ConcurrentSkipListMap<String, Entry> openEntries = new ConcurrentSkipListMap<>();
+
+    /**
+     * {@code true} once the log has been loaded, or the index built.
+     */
+    protected volatile boolean isLoaded;
+
+    /**
+     * {@code true} if the log holds the index, so changes are appended to it.
+     */
+    protected volatile boolean isLogged;
+
+    /**
+     * Constructor to capture references relevant to this implementation.
+     *
+     * @param daoDir the root directory of the repository.
+     */
+    public TaskClaimIndex(File daoDir) {
+        super();
+        this.daoDir = daoDir;
+        this.log = new IndexLog(new File(daoDir, FILENAME));
+    }
+
+    /**
+     * Returns the {@code id}s of the {@code claimable} {@link Task}s with the specified
+     * {@code Stage}, in {@code id} order (see
+     * {@link LeasedTaskDao#findClaimable(Collection, Stage, long, String, int)}).
+     */
+    public List<String> findClaimable(Collection<String> types,
+                                      Stage stage,
+                                      long nowMillis,
+                                      String afterId,
+                                      int limit) {
+        this.refresh();
+        final String stageName = String.valueOf(stage);
+        final NavigableMap<String, Entry> entries = (afterId == null) ?
+            this.openEntries :
+            this.openEntries.tailMap(afterId, false);
+        return entries.entrySet().stream()
+            .filter(entry -> stageName.equals(entry.getValue().stage) &&
+                (types == null || types.contains(entry.getValue().type)) &&
+                entry.getValue().isClaimable(nowMillis))
+            .limit(limit)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Record the {@link Task}, once its file has been written, appending it to the log unless it
+     * is already indexed.
+     */
+    public void record(Task task) {
+        this.refresh();
+        if (!this.isLogged) {
+            synchronized (this) {
+                if (!this.isLogged) {
+                    this.writeLog();
+                }
+            }
+        }
+        final String value = format(task);
+        if (!value.equals(this.put(task.getId(), value))) {
+            this.log.append(task.getId(), value);
+            this.log.compactIfRequired(this.values.size());
+        }
+    }
+
+    /**
+     * Remove the {@link Task}, such as when its file no longer exists, from the index in memory.
+     * It is added again when it is next recorded.
+     */
+    public void forget(String id) {
+        this.values.remove(id);
+        this.openEntries.remove(id);
+    }
+
+    /**
+     * Rebuild the index from the {@link Task} files, replacing the log.
+     */
+    public synchronized void rebuild() {
+        this.build();
+        this.writeLog();
+    }
+
+    /**
+     * Set the value of the {@link Task} in memory.
+     *
+     * @return the previous value.
+     */
+    protected String put(String id, String value) {
+        final Entry entry = Entry.parse(value);
+        if (entry != null && entry.isOpen()) {
+            this.openEntries.put(id, entry);
+        } else {
+            this.openEntries.remove(id);
+        }
+        return this.values.put(id, value);
+    }
+
+    /**
+     * Read the lines appended to the log since it was last read, loading the log, or building
+     * the index, on first use.
+     */
+    protected synchronized void refresh() {
+        if (!this.log.exists()) {
+            if (!this.isLoaded || this.isLogged) {
+
+                // There is no log, or it was removed.
+                this.build();
+            }
+            return;
+        }
+        if (!this.isLogged) {
+
+            // The log was written by another process.
+            this.log.reset();
+        }
+        this.isLoaded = true;
+        this.isLogged = true;
+        this.log.readAppended().forEach(this::put);
+    }
+
+    /**
+     * Build the index from the {@link Task} files, without writing the log.
+     */
+    protected synchronized void build() {
+        final Queue<JSONFileReader.LoadFailure> failures = new ConcurrentLinkedQueue<>();
+        final Map<String, String> built = new ConcurrentHashMap<>();
+        try (final Stream<Task> stream = JSONFileReader.stream(
+            this.daoDir,
+            file -> JSONFileReader.loadFile(file, this.jsonMapper, Task.class),
+            failures::add
+        )) {
+            stream
+                .filter(task -> task != null)
+                .forEach(task -> built.put(task.getId(), format(task)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list Tasks at \"" + this.daoDir + "\".", e);
+        }
+        final JSONFileReader.LoadFailure failure = failures.peek();
+        if (failure != null) {
+            throw new RuntimeException("Failed to load/parse JSON for \"" + failure.getFile() + "\"",
+                failure.getException());
+        }
+        this.values.clear();
+        this.openEntries.clear();
+        built.forEach(this::put);
+        this.isLoaded = true;
+        this.isLogged = false;
+    }
+
+    /**
+     * Replace the log with the index.
+     */
+    protected synchronized void writeLog() {
+        this.log.write(this.values);
+        this.isLogged = true;
+    }
+
+    /**
+     * Returns the value logged for the {@link Task}.
+     */
+    static protected String format(Task task) {
+        final String type = TaskDaoFileImpl.TYPE_NAMES.get(task.getClass());
+        return String.valueOf(task.getStage()) + ' ' +
+            task.getStatus() + ' ' +
+            (type == null ? NONE : type) + ' ' +
+            (task.getLeaseExpiresAt() == null ? NONE : task.getLeaseExpiresAt().toString());
+    }
+
+    /**
+     * The indexed attributes of a {@link Task}.
+     */
+    static protected class Entry {
+
+        final protected String stage;
+
+        final protected String status;
+
+        final protected String type;
+
+        final protected Long leaseExpiresAt;
+
+        protected Entry(String stage, String status, String type, Long leaseExpiresAt) {
+            this.stage = stage;
+            this.status = status;
+            this.type = type;
+            this.leaseExpiresAt = leaseExpiresAt;
+        }
+
+        /**
+         * Returns the entry of a logged value, or {@code null} if the value cannot be parsed (eg:
+         * it was written by a later version).
+         */
+        static protected Entry parse(String value) {
+            final String[] fields = value.split(" ");
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                return new Entry(
+                    fields[0],
+                    fields[1],
+                    NONE.equals(fields[2]) ? null : fields[2],
+                    NONE.equals(fields[3]) ? null : Long.valueOf(fields[3])
+                );
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        protected boolean isOpen() {
+            for (TaskStatus status : OPEN_STATUSES) {
+                if (status.name().equals(this.status)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if the {@link Task} is {@code claimable} (see
+         * {@link LeasedTaskDao}).
+         */
+        protected boolean isClaimable(long nowMillis) {
+            if (TaskStatus.CREATED.name().equals(this.status)) {
+                return true;
+            }
+            return this.isOpen() && this.leaseExpiresAt != null && this.leaseExpiresAt < nowMillis;
+        }
+
+    }
+
+}
@@ -2,7 +2,11 @@ package au.gov.aims.ereefs.pojo.task;
 
 import au.gov.aims.ereefs.pojo.PojoDao;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * {@link Task}-based specialisation of the {@link PojoDao} interface.
@@ -16,4 +20,60 @@ public interface TaskDao extends PojoDao<Task> {
      */
     public List<Task> getByJobId(String jobId);
 
+    /**
+     * Atomically change the status of the {@code Task}, recording the change in its history (see
+     * {@link Task#setStatus(TaskStatus, String, String)}), without rewriting the rest of the
+     * {@code Task}. The change is only made if the current status is {@code expectedStatus}, so
+     * concurrent workers cannot overwrite each other's transitions. The default reads the
+     * {@code Task}, changes its status and persists it, which is not atomic, so implementations
+     * should override it to make the change atomically in the repository.
+     *
+     * @param id the id of the {@code Task}.
+     * @param expectedStatus the required current status, or {@code null} for any status.
+     * @param newStatus the new status.
+     * @param actor the system component/actor changing the status.
+     * @param optionalDetails if specified, appended to the description of the change.
+     * @return the updated {@code Task}, or {@code null} if the {@code Task} does not exist or its
+     * status is not {@code expectedStatus}.
+     */
+    default public Task transitionStatus(String id,
+                                         TaskStatus expectedStatus,
+                                         TaskStatus newStatus,
+                                         String actor,
+                                         String optionalDetails) {
+        final Task task = this.getById(id);
+        if (task == null || (expectedStatus != null && task.getStatus() != expectedStatus)) {
+            return null;
+        }
+        task.setStatus(newStatus, actor, optionalDetails);
+        return this.persist(task);
+    }
+
+    /**
+     * Retrieve the {@code Task}s for the specified {@code JobId} with one of the specified
+     * statuses. Implementations should override the default, which filters the result of
+     * {@link #getByJobId(String)}, to filter in the repository.
+     */
+    default public List<Task> getByJobId(String jobId, Collection<TaskStatus> statuses) {
+        return this.getByJobId(jobId).stream()
+            .filter(task -> statuses.contains(task.getStatus()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Retrieve the {@code Task}s for each of the specified {@code JobId}s. The result has an entry
+     * (possibly an empty list) for each distinct {@code JobId}, in request order. Implementations
+     * should override the default, which invokes {@link #getByJobId(String)} for each
+     * {@code JobId}, to retrieve the {@code Task}s in a single batch.
+     */
+    default public Map<String, List<Task>> getByJobIds(Collection<String> jobIds) {
+        final Map<String, List<Task>> tasksByJobId = new LinkedHashMap<>();
+        for (String jobId : jobIds) {
+            if (jobId != null && !tasksByJobId.containsKey(jobId)) {
+                tasksByJobId.put(jobId, this.getByJobId(jobId));
+            }
+        }
+        return tasksByJobId;
+    }
+
 }
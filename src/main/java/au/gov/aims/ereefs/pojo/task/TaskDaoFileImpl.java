@@ -1,22 +1,41 @@
 package au.gov.aims.ereefs.pojo.task;
 
+import au.gov.aims.ereefs.pojo.PersistResult;
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.shared.HistoryArchive;
+import au.gov.aims.ereefs.pojo.shared.HistoryPolicy;
+import au.gov.aims.ereefs.pojo.utils.AtomicFileWriter;
+import au.gov.aims.ereefs.pojo.utils.FileLayout;
 import au.gov.aims.ereefs.pojo.utils.FileUtils;
 import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Concrete implementation of the {@link TaskDao} interface for a file-based repository.
  *
  * @author Aaron Smith
  */
-public class TaskDaoFileImpl implements TaskDao {
+public class TaskDaoFileImpl implements LeasedTaskDao {
 
     protected Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -30,6 +49,51 @@ public class TaskDaoFileImpl implements TaskDao {
      */
     protected ObjectMapper jsonMapper = new ObjectMapper();
 
+    /**
+     * How the {@code Job} directories are arranged beneath {@link #daoPath}. {@link Task}s are
+     * read from either layout.
+     */
+    protected FileLayout fileLayout = FileLayout.FLAT;
+
+    /**
+     * Writes the files of the {@link Task}s, forcing them to disk as its durability requires.
+     */
+    protected AtomicFileWriter fileWriter = AtomicFileWriter.NON_DURABLE;
+
+    /**
+     * Index of the directory of each {@link Task}, so a {@link Task} file is found without
+     * listing the directory tree.
+     */
+    final protected TaskPathIndex pathIndex;
+
+    /**
+     * Index of the {@code Stage}, status, {@code type} and lease expiry of each {@link Task}, so
+     * the {@code claimable} {@link Task}s are found without reading every {@link Task} file.
+     */
+    final protected TaskClaimIndex claimIndex;
+
+    /**
+     * The {@code type} names of the {@link Task} classes, as written by {@code Jackson}.
+     */
+    final static protected Map<Class<?>, String> TYPE_NAMES = new HashMap<>();
+    static {
+        for (JsonSubTypes.Type type : Task.class.getAnnotation(JsonSubTypes.class).value()) {
+            TYPE_NAMES.put(type.value(), type.name());
+        }
+    }
+
+    /**
+     * How the {@code history} of the {@link Task}s is stored. See
+     * {@link #setHistoryPolicy(HistoryPolicy, HistoryArchive)}.
+     */
+    protected HistoryPolicy historyPolicy = HistoryPolicy.UNBOUNDED;
+
+    /**
+     * The archive of the events moved out of the {@code history} of the {@link Task}s, or
+     * {@code null} to discard them.
+     */
+    protected HistoryArchive historyArchive;
+
     /**
      * Constructor to capture references and initialise the object.
      */
@@ -41,65 +105,345 @@ public class TaskDaoFileImpl implements TaskDao {
         // Ensure the directory exists.
         final File daoDir = new File(this.daoPath);
         daoDir.mkdirs();
+
+        this.pathIndex = new TaskPathIndex(daoDir);
+        this.claimIndex = new TaskClaimIndex(daoDir);
+    }
+
+    /**
+     * Set how the {@code Job} directories are arranged beneath the root directory. {@link Task}s
+     * written in the other layout are still read, and are moved when they are next persisted.
+     */
+    public void setFileLayout(FileLayout fileLayout) {
+        this.fileLayout = fileLayout;
+    }
+
+    /**
+     * Set how the files of the {@link Task}s are written, such as to force them to disk. A single
+     * {@link AtomicFileWriter} may be shared by the DAOs of a process, so their concurrent writes
+     * share the {@code fsync}s of a group commit.
+     */
+    public void setFileWriter(AtomicFileWriter fileWriter) {
+        this.fileWriter = fileWriter;
     }
 
+    /**
+     * Rebuild the index of the {@link Task} files (see {@link TaskPathIndex}) from the directory
+     * tree, such as after files have been removed or moved by another tool.
+     */
+    public void rebuildPathIndex() {
+        this.pathIndex.rebuild();
+    }
+
+    /**
+     * Rebuild the index of the {@code claimable} {@link Task}s (see {@link TaskClaimIndex}) from
+     * the {@link Task} files, such as after files have been copied into the repository.
+     */
+    public void rebuildClaimIndex() {
+        this.claimIndex.rebuild();
+    }
+
+    /**
+     * Set how the {@code history} of the {@link Task}s is stored. This should be set before the
+     * repository is used.
+     *
+     * @param historyPolicy the policy.
+     * @param historyArchive the archive of the events moved out of the files, or {@code null} to
+     *                       discard them.
+     */
+    public void setHistoryPolicy(HistoryPolicy historyPolicy,
+                                 HistoryArchive historyArchive) {
+        this.historyPolicy = historyPolicy;
+        this.historyArchive = historyArchive;
+        this.jsonMapper = historyPolicy.configure(this.jsonMapper);
+    }
+
+    /**
+     * Retrieve the {@link Task}, finding its file with the {@link #pathIndex}.
+     */
     @Override
     public Task getById(String id) {
-        final List<String> filenames = FileUtils.listFiles(this.daoPath, id + ".json");
-        if (filenames.size() > 0) {
-            final String filename = filenames.get(0);
-            if (filename != null) {
-                try {
-                    return this.jsonMapper.readValue(
-                        JSONFileReader.loadFileAsString(filename).toString(),
-                        Task.class);
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to load the Task (\"" + id + "\").", e);
-                }
+        final File file = this.pathIndex.lookup(id);
+        if (file != null) {
+            try {
+                return JSONFileReader.loadFile(file, this.jsonMapper, Task.class);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load the Task (\"" + id + "\").", e);
             }
         }
         return null;
     }
 
+    /**
+     * Retrieve the {@link Task}s, finding their files with the {@link #pathIndex}, then load the
+     * files in parallel.
+     */
+    @Override
+    public Map<String, Task> getByIds(Collection<String> ids) {
+        final Set<String> idSet = new LinkedHashSet<>(ids);
+        idSet.remove(null);
+        final Map<String, File> filesById = new HashMap<>();
+        for (String id : idSet) {
+            final File file = this.pathIndex.lookup(id);
+            if (file != null) {
+                filesById.put(id, file);
+            }
+        }
+
+        final Map<String, Task> loaded = new ConcurrentHashMap<>();
+        filesById.entrySet().parallelStream().forEach(entry -> {
+            try {
+                final Task task = JSONFileReader.loadFile(entry.getValue(), this.jsonMapper, Task.class);
+                if (task != null) {
+                    loaded.put(entry.getKey(), task);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load the Task (\"" + entry.getKey() + "\").", e);
+            }
+        });
+
+        // Order the result by the requested ids.
+        final Map<String, Task> tasks = new LinkedHashMap<>();
+        for (String id : idSet) {
+            final Task task = loaded.get(id);
+            if (task != null) {
+                tasks.put(id, task);
+            }
+        }
+        return tasks;
+    }
+
     @Override
     public Task persist(Task task) {
 
-        final String filePath = this.daoPath + task.getJobId() + File.separator + task.getId() + ".json";
-
-        // Ensure the path exists.
-        File file = new File(filePath);
-        file.getParentFile().mkdirs();
-
-        // Write the file.
-        try (final BufferedWriter bufferedWriter = new BufferedWriter(
-            new OutputStreamWriter(
-                new FileOutputStream(
-                    new File(filePath))
-            )
-        )
-        ) {
-            bufferedWriter.write(this.jsonMapper.writeValueAsString(task));
+        // Write the file, creating the path if required, then remove any copy in the other
+        // layout.
+        this.historyPolicy.apply(task.getId(), task.getHistory(), this.historyArchive);
+        final File daoDir = new File(this.daoPath);
+        try {
+            this.fileWriter.write(
+                new File(this.fileLayout.getDirectory(daoDir, task.getJobId()), task.getId() + ".json"),
+                this.jsonMapper.writeValueAsString(task)
+            );
         } catch(IOException e) {
             throw new RuntimeException("Failed to write Task object.", e);
         }
+        this.pathIndex.record(task.getId(), this.fileLayout.getRelativePath(task.getJobId()));
+        this.claimIndex.record(task);
+        new File(this.fileLayout.other().getDirectory(daoDir, task.getJobId()), task.getId() + ".json").delete();
 
         return task;
 
     }
 
+    /**
+     * Transition the status while holding the lock of the {@link Task} file (see
+     * {@link FileUtils#withLock(File, FileUtils.IOSupplier)}), so concurrent transitions, by this
+     * or another process, are serialised.
+     */
+    @Override
+    public Task transitionStatus(String id,
+                                 TaskStatus expectedStatus,
+                                 TaskStatus newStatus,
+                                 String actor,
+                                 String optionalDetails) {
+        return this.update(id, task -> {
+            if (expectedStatus != null && task.getStatus() != expectedStatus) {
+                return false;
+            }
+            task.setStatus(newStatus, actor, optionalDetails);
+            return true;
+        });
+    }
+
+    /**
+     * Apply the {@code update} to the {@link Task} while holding the lock of its file, writing the
+     * {@link Task} if the {@code update} returns {@code true}.
+     *
+     * @return the updated {@link Task}, or {@code null} if the {@link Task} does not exist or was
+     * not updated.
+     */
+    protected Task update(String id, Predicate<Task> update) {
+        final File file = this.pathIndex.lookup(id);
+        if (file == null) {
+            this.claimIndex.forget(id);
+            return null;
+        }
+        try {
+            return FileUtils.withLock(file, () -> {
+                if (!file.isFile()) {
+                    this.claimIndex.forget(id);
+                    return null;
+                }
+                final Task task = JSONFileReader.loadFile(file, this.jsonMapper, Task.class);
+                if (task == null) {
+                    return null;
+                }
+                if (!update.test(task)) {
+
+                    // Correct the claim index, should it be stale (eg: the file was replaced
+                    // without the index).
+                    this.claimIndex.record(task);
+                    return null;
+                }
+                this.historyPolicy.apply(task.getId(), task.getHistory(), this.historyArchive);
+                this.fileWriter.write(file, this.jsonMapper.writeValueAsString(task));
+                this.claimIndex.record(task);
+                return task;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to update the Task (\"" + id + "\").", e);
+        }
+    }
+
+    /**
+     * Write the {@link Task}s in parallel, as each is written to its own file.
+     */
+    @Override
+    public PersistResult<Task> persistAll(Collection<Task> tasks) {
+        return PersistResult.persistEach(tasks, this::persist, true);
+    }
+
+    /**
+     * Load the {@link Task} files of the {@code Job}, from its directory in either layout. While
+     * a {@code Job} is moved between layouts, a {@link Task} in both directories is loaded from
+     * the directory of the current layout.
+     */
     @Override
     public List<Task> getByJobId(String jobId) {
-        final List<Task> tasks = new ArrayList<>();
-        final String jobPath = this.daoPath + File.separator + jobId;
+        final List<Task> tasks;
+        final Queue<JSONFileReader.LoadFailure> failures = new ConcurrentLinkedQueue<>();
+        final File daoDir = new File(this.daoPath);
+        final File jobDir = this.fileLayout.findDirectory(daoDir, jobId);
+        final String jobPath = jobDir.getPath();
         try {
-            final List<JSONObject> taskJsonList = JSONFileReader.loadList(jobPath);
-            for (JSONObject json : taskJsonList) {
-                tasks.add(this.jsonMapper.readValue(json.toString(), Task.class));
+            final List<File> files = new ArrayList<>(JSONFileReader.listJsonFiles(jobDir, failures::add));
+            final File otherJobDir = this.fileLayout.other().getDirectory(daoDir, jobId);
+            if (!otherJobDir.equals(jobDir) && otherJobDir.isDirectory()) {
+                final Set<String> names = files.stream().map(File::getName).collect(Collectors.toSet());
+                for (File file : JSONFileReader.listJsonFiles(otherJobDir, failures::add)) {
+                    if (!names.contains(file.getName())) {
+                        files.add(file);
+                    }
+                }
+            }
+            try (final Stream<Task> stream = JSONFileReader.stream(
+                files,
+                file -> JSONFileReader.loadFile(file, this.jsonMapper, Task.class),
+                failures::add
+            )) {
+                tasks = stream.collect(Collectors.toList());
             }
         } catch (IOException e) {
-            e.printStackTrace();
             throw new RuntimeException("Failed to load list of Tasks (\"" + jobPath + "\".", e);
         }
+        final JSONFileReader.LoadFailure failure = failures.peek();
+        if (failure != null) {
+            throw new RuntimeException("Failed to load list of Tasks (\"" + jobPath + "\".",
+                failure.getException());
+        }
         return tasks;
     }
+
+    /**
+     * Retrieve the {@link Task}s of the {@code Job}s in parallel, as each {@code Job} has its own
+     * directory.
+     */
+    @Override
+    public Map<String, List<Task>> getByJobIds(Collection<String> jobIds) {
+        final Set<String> distinctJobIds = new LinkedHashSet<>(jobIds);
+        distinctJobIds.remove(null);
+        final Map<String, List<Task>> loaded = new ConcurrentHashMap<>();
+        distinctJobIds.parallelStream().forEach(jobId -> loaded.put(jobId, this.getByJobIdIfExists(jobId)));
+
+        final Map<String, List<Task>> tasksByJobId = new LinkedHashMap<>();
+        for (String jobId : distinctJobIds) {
+            tasksByJobId.put(jobId, loaded.get(jobId));
+        }
+        return tasksByJobId;
+    }
+
+    /**
+     * Invoke {@link #getByJobId(String)}, returning an empty list if the {@code Job} has no
+     * directory.
+     */
+    protected List<Task> getByJobIdIfExists(String jobId) {
+        if (!this.fileLayout.findDirectory(new File(this.daoPath), jobId).isDirectory()) {
+            return new ArrayList<>();
+        }
+        return this.getByJobId(jobId);
+    }
+
+    /**
+     * Returns {@code true} if the {@link Task} is {@code claimable} (see {@link LeasedTaskDao}).
+     */
+    protected boolean isClaimable(Task task, long nowMillis) {
+        if (task.getStatus() == TaskStatus.CREATED) {
+            return true;
+        }
+        return (task.getStatus() == TaskStatus.ASSIGNED || task.getStatus() == TaskStatus.RUNNING) &&
+            task.getLeaseExpiresAt() != null && task.getLeaseExpiresAt() < nowMillis;
+    }
+
+    /**
+     * Find the {@code claimable} {@link Task}s with the {@link #claimIndex}, then load only the
+     * files of the requested page. A stale candidate is harmless, as {@link #claim} re-checks the
+     * {@link Task} under its lock.
+     */
+    @Override
+    public List<Task> findClaimable(Collection<String> types,
+                                    Stage stage,
+                                    long nowMillis,
+                                    String afterId,
+                                    int limit) {
+        final List<String> ids = this.claimIndex.findClaimable(types, stage, nowMillis, afterId, limit);
+        return new ArrayList<>(this.getByIds(ids).values());
+    }
+
+    /**
+     * Claim the {@link Task} while holding the lock of its file (see
+     * {@link FileUtils#withLock(File, FileUtils.IOSupplier)}).
+     */
+    @Override
+    public Task claim(String id,
+                      String workerId,
+                      long nowMillis,
+                      long leaseExpiresAt) {
+        return this.update(id, task -> {
+            if (!this.isClaimable(task, nowMillis)) {
+                return false;
+            }
+            task.setStatus(TaskStatus.ASSIGNED, workerId, "Claimed from the task queue.");
+            task.setLease(workerId, leaseExpiresAt);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean renewLease(String id,
+                              String workerId,
+                              long leaseExpiresAt) {
+        return this.update(id, task -> {
+            if (!workerId.equals(task.getClaimedBy()) ||
+                (task.getStatus() != TaskStatus.ASSIGNED && task.getStatus() != TaskStatus.RUNNING)) {
+                return false;
+            }
+            task.setLease(workerId, leaseExpiresAt);
+            return true;
+        }) != null;
+    }
+
+    @Override
+    public Task release(String id,
+                        String workerId) {
+        return this.update(id, task -> {
+            if (!workerId.equals(task.getClaimedBy()) || task.getStatus() != TaskStatus.ASSIGNED) {
+                return false;
+            }
+            task.setStatus(TaskStatus.CREATED, workerId, "Released to the task queue.");
+            task.setLease(null, null);
+            return true;
+        });
+    }
+
 }
@@ -0,0 +1,243 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.AbstractPojoDaoLogStoreImpl;
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.logstore.LogStore;
+import au.gov.aims.ereefs.pojo.shared.HistoryArchive;
+import au.gov.aims.ereefs.pojo.shared.HistoryPolicy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Concrete implementation of the {@link TaskDao} interface for a repository held in a
+ * {@link LogStore}, for workloads with frequent status updates. The {@code JobId}, status,
+ * {@code Stage}, {@code type} and lease expiry of each {@link Task} are held in memory, so the
+ * {@link Task}s of a {@code Job}, and the {@code claimable} {@link Task}s, are found without
+ * reading any other {@link Task}.
+ */
+public class TaskDaoLogStoreImpl extends AbstractPojoDaoLogStoreImpl<Task> implements LeasedTaskDao {
+
+    final static protected String ATTRIBUTE_JOB_ID = "jobId";
+
+    final static protected String ATTRIBUTE_STATUS = "status";
+
+    final static protected String ATTRIBUTE_STAGE = "stage";
+
+    final static protected String ATTRIBUTE_TYPE = "type";
+
+    final static protected String ATTRIBUTE_LEASE_EXPIRES_AT = "leaseExpiresAt";
+
+    /**
+     * How the {@code history} of the {@link Task}s is stored. See
+     * {@link #setHistoryPolicy(HistoryPolicy, HistoryArchive)}.
+     */
+    protected HistoryPolicy historyPolicy = HistoryPolicy.UNBOUNDED;
+
+    /**
+     * The archive of the events moved out of the {@code history} of the {@link Task}s, or
+     * {@code null} to discard them.
+     */
+    protected HistoryArchive historyArchive;
+
+    /**
+     * Constructor to open the {@link LogStore} in the specified directory.
+     */
+    public TaskDaoLogStoreImpl(String path) {
+        super(path);
+    }
+
+    /**
+     * Constructor to capture a reference to an open {@link LogStore}.
+     */
+    public TaskDaoLogStoreImpl(LogStore store) {
+        super(store);
+    }
+
+    /**
+     * Set how the {@code history} of the {@link Task}s is stored. This should be set before the
+     * repository is used.
+     *
+     * @param historyPolicy the policy.
+     * @param historyArchive the archive of the events moved out of the records, or {@code null}
+     *                       to discard them.
+     */
+    public void setHistoryPolicy(HistoryPolicy historyPolicy,
+                                 HistoryArchive historyArchive) {
+        this.historyPolicy = historyPolicy;
+        this.historyArchive = historyArchive;
+        this.jsonMapper = historyPolicy.configure(this.jsonMapper);
+    }
+
+    @Override
+    protected Map<String, String> getAttributes(Task task) {
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put(ATTRIBUTE_JOB_ID, task.getJobId());
+        attributes.put(ATTRIBUTE_STATUS, (task.getStatus() == null) ? null : task.getStatus().name());
+        attributes.put(ATTRIBUTE_STAGE, (task.getStage() == null) ? null : task.getStage().name());
+        attributes.put(ATTRIBUTE_TYPE, TaskDaoFileImpl.TYPE_NAMES.get(task.getClass()));
+        attributes.put(ATTRIBUTE_LEASE_EXPIRES_AT,
+            (task.getLeaseExpiresAt() == null) ? null : task.getLeaseExpiresAt().toString());
+        return attributes;
+    }
+
+    @Override
+    protected void write(Task task) {
+        this.historyPolicy.apply(task.getId(), task.getHistory(), this.historyArchive);
+        super.write(task);
+    }
+
+    @Override
+    public List<Task> getByJobId(String jobId) {
+        return this.find(attributes -> jobId.equals(attributes.get(ATTRIBUTE_JOB_ID)));
+    }
+
+    /**
+     * Filter by the status held in memory, reading only the matching {@link Task}s.
+     */
+    @Override
+    public List<Task> getByJobId(String jobId, Collection<TaskStatus> statuses) {
+        final Set<String> names = statuses.stream().map(TaskStatus::name).collect(Collectors.toSet());
+        return this.find(attributes -> jobId.equals(attributes.get(ATTRIBUTE_JOB_ID)) &&
+            names.contains(attributes.get(ATTRIBUTE_STATUS)));
+    }
+
+    /**
+     * Find the {@link Task}s of all of the {@code Job}s with a single pass of the index, then read
+     * them in a single batch.
+     */
+    @Override
+    public Map<String, List<Task>> getByJobIds(Collection<String> jobIds) {
+        final Set<String> distinctJobIds = new LinkedHashSet<>(jobIds);
+        distinctJobIds.remove(null);
+        final List<Task> tasks = this.find(attributes -> distinctJobIds.contains(attributes.get(ATTRIBUTE_JOB_ID)));
+        final Map<String, List<Task>> tasksByJobId = new LinkedHashMap<>();
+        for (String jobId : distinctJobIds) {
+            tasksByJobId.put(jobId, new ArrayList<>());
+        }
+        for (Task task : tasks) {
+            final List<Task> jobTasks = tasksByJobId.get(task.getJobId());
+            if (jobTasks != null) {
+                jobTasks.add(task);
+            }
+        }
+        return tasksByJobId;
+    }
+
+    @Override
+    public Task transitionStatus(String id,
+                                 TaskStatus expectedStatus,
+                                 TaskStatus newStatus,
+                                 String actor,
+                                 String optionalDetails) {
+        return this.update(id, task -> {
+            if (expectedStatus != null && task.getStatus() != expectedStatus) {
+                return false;
+            }
+            task.setStatus(newStatus, actor, optionalDetails);
+            return true;
+        });
+    }
+
+    /**
+     * Returns {@code true} if the attributes held in memory are those of a {@code claimable}
+     * {@link Task} (see {@link LeasedTaskDao}).
+     */
+    protected boolean isClaimable(Map<String, String> attributes, long nowMillis) {
+        final String status = attributes.get(ATTRIBUTE_STATUS);
+        if (TaskStatus.CREATED.name().equals(status)) {
+            return true;
+        }
+        final String leaseExpiresAt = attributes.get(ATTRIBUTE_LEASE_EXPIRES_AT);
+        return (TaskStatus.ASSIGNED.name().equals(status) || TaskStatus.RUNNING.name().equals(status)) &&
+            leaseExpiresAt != null && Long.parseLong(leaseExpiresAt) < nowMillis;
+    }
+
+    /**
+     * Returns {@code true} if the {@link Task} is {@code claimable} (see {@link LeasedTaskDao}).
+     */
+    protected boolean isClaimable(Task task, long nowMillis) {
+        return this.isClaimable(this.getAttributes(task), nowMillis);
+    }
+
+    /**
+     * Find the {@code claimable} {@link Task}s from the attributes held in memory, reading only the
+     * requested page.
+     */
+    @Override
+    public List<Task> findClaimable(Collection<String> types,
+                                    Stage stage,
+                                    long nowMillis,
+                                    String afterId,
+                                    int limit) {
+        final String stageName = stage.name();
+        final List<String> ids = this.store.find(attributes ->
+            stageName.equals(attributes.get(ATTRIBUTE_STAGE)) &&
+                (types == null || types.contains(attributes.get(ATTRIBUTE_TYPE))) &&
+                this.isClaimable(attributes, nowMillis));
+        return new ArrayList<>(this.getByIds(ids.stream()
+            .filter(id -> afterId == null || id.compareTo(afterId) > 0)
+            .limit(limit)
+            .collect(Collectors.toList())
+        ).values());
+    }
+
+    @Override
+    public Task claim(String id,
+                      String workerId,
+                      long nowMillis,
+                      long leaseExpiresAt) {
+        return this.update(id, task -> {
+            if (!this.isClaimable(task, nowMillis)) {
+                return false;
+            }
+            task.setStatus(TaskStatus.ASSIGNED, workerId, "Claimed from the task queue.");
+            task.setLease(workerId, leaseExpiresAt);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean renewLease(String id,
+                              String workerId,
+                              long leaseExpiresAt) {
+        return this.update(id, task -> {
+            if (!workerId.equals(task.getClaimedBy()) ||
+                (task.getStatus() != TaskStatus.ASSIGNED && task.getStatus() != TaskStatus.RUNNING)) {
+                return false;
+            }
+            task.setLease(workerId, leaseExpiresAt);
+            return true;
+        }) != null;
+    }
+
+    @Override
+    public Task release(String id,
+                        String workerId) {
+        return this.update(id, task -> {
+            if (!workerId.equals(task.getClaimedBy()) || task.getStatus() != TaskStatus.ASSIGNED) {
+                return false;
+            }
+            task.setStatus(TaskStatus.CREATED, workerId, "Released to the task queue.");
+            task.setLease(null, null);
+            return true;
+        });
+    }
+
+    @Override
+    protected Class<Task> getPojoClass() {
+        return Task.class;
+    }
+
+    @Override
+    protected String getPojoId(Task task) {
+        return task.getId();
+    }
+
+}
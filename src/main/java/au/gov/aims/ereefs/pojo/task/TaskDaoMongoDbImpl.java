@@ -1,26 +1,49 @@
 package au.gov.aims.ereefs.pojo.task;
 
 import au.gov.aims.ereefs.pojo.AbstractPojoDaoMongoDbImpl;
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.shared.StatusEvent;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
-import org.bson.Document;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import org.bson.conversions.Bson;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Specialisation of {@link AbstractPojoDaoMongoDbImpl} class to support {@link Task} objects.
  *
  * @author Aaron Smith
  */
-public class TaskDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Task> implements TaskDao {
+public class TaskDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Task> implements LeasedTaskDao {
 
     /**
      * Constant identifying the name of the underlying {@code MongoDB} collection.
      */
     final static public String COLLECTION_NAME = "task";
 
+    /**
+     * The statuses of a {@link Task} which is held under a lease.
+     */
+    final static protected List<String> LEASED_STATUSES = Arrays.asList(
+        TaskStatus.ASSIGNED.name(),
+        TaskStatus.RUNNING.name()
+    );
+
+    /**
+     * {@code true} once the compound index supporting {@link #findClaimable} has been created.
+     */
+    protected volatile boolean isClaimIndexCreated;
+
     /**
      * Constructor to capture references relevant to this implementation.
      */
@@ -38,8 +61,31 @@ public class TaskDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Task> impleme
         return pojo.getId();
     }
 
+    @Override
+    protected List<StatusEvent> getHistory(Task pojo) {
+        return pojo.getHistory();
+    }
+
+    @Override
+    protected Class<? extends Enum<?>> getStatusEnum() {
+        return TaskStatus.class;
+    }
+
     // ---------------------------------------------------------------------------------------------
 
+    @Override
+    public Task transitionStatus(String id,
+                                 TaskStatus expectedStatus,
+                                 TaskStatus newStatus,
+                                 String actor,
+                                 String optionalDetails) {
+        return this.transitionStatus(
+            id,
+            (expectedStatus == null) ? null : expectedStatus.name(),
+            StatusEvent.make(newStatus.name(), actor, optionalDetails)
+        );
+    }
+
     @Override
     public List<Task> getByJobId(String jobId) {
 
@@ -47,10 +93,10 @@ public class TaskDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Task> impleme
         final List<Task> list = new ArrayList<>();
 
         // Filter the collection.
-        final MongoCursor<Document> iterator =
-            this.collection.find(Filters.eq("jobId", jobId)).iterator();
+        final MongoCursor<Task> iterator =
+            this.find(Filters.eq("jobId", jobId)).iterator();
         while (iterator.hasNext()) {
-            Task pojo = this.convertToPojo(iterator.next());
+            Task pojo = iterator.next();
             if (pojo != null) {
                 list.add(pojo);
             }
@@ -60,4 +106,171 @@ public class TaskDaoMongoDbImpl extends AbstractPojoDaoMongoDbImpl<Task> impleme
 
     }
 
+    /**
+     * Filter the collection on both the {@code JobId} and the status.
+     */
+    @Override
+    public List<Task> getByJobId(String jobId, Collection<TaskStatus> statuses) {
+
+        // Declare the return value.
+        final List<Task> list = new ArrayList<>();
+
+        // Filter the collection.
+        final List<String> statusNames = statuses.stream()
+            .map(TaskStatus::name)
+            .collect(Collectors.toList());
+        final MongoCursor<Task> iterator = this.find(
+            Filters.and(Filters.eq("jobId", jobId), Filters.in("status", statusNames))
+        ).iterator();
+        while (iterator.hasNext()) {
+            Task pojo = iterator.next();
+            if (pojo != null) {
+                list.add(pojo);
+            }
+        }
+
+        return list;
+
+    }
+
+    /**
+     * Retrieve the {@code Task}s with a single {@code $in} query per chunk of
+     * {@link #inChunkSize} {@code JobId}s, grouping them in memory.
+     */
+    @Override
+    public Map<String, List<Task>> getByJobIds(Collection<String> jobIds) {
+
+        // Declare the return value, with an entry for each JobId in request order.
+        final Map<String, List<Task>> tasksByJobId = new LinkedHashMap<>();
+        for (String jobId : jobIds) {
+            if (jobId != null) {
+                tasksByJobId.putIfAbsent(jobId, new ArrayList<>());
+            }
+        }
+
+        // Filter the collection.
+        final List<String> distinctJobIds = new ArrayList<>(tasksByJobId.keySet());
+        for (int from = 0; from < distinctJobIds.size(); from += this.inChunkSize) {
+            final List<String> chunk =
+                distinctJobIds.subList(from, Math.min(from + this.inChunkSize, distinctJobIds.size()));
+            final MongoCursor<Task> iterator = this.find(Filters.in("jobId", chunk)).iterator();
+            while (iterator.hasNext()) {
+                Task pojo = iterator.next();
+                if (pojo != null) {
+                    final List<Task> list = tasksByJobId.get(pojo.getJobId());
+                    if (list != null) {
+                        list.add(pojo);
+                    }
+                }
+            }
+        }
+
+        return tasksByJobId;
+
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the filter matching a {@code claimable} {@link Task}.
+     */
+    protected Bson claimableFilter(long nowMillis) {
+        return Filters.or(
+            Filters.eq("status", TaskStatus.CREATED.name()),
+            Filters.and(
+                Filters.in("status", LEASED_STATUSES),
+                Filters.lt("leaseExpiresAt", nowMillis)
+            )
+        );
+    }
+
+    /**
+     * Query the compound {@code (stage, status, type, _id)} index, which is created on first use.
+     * The index is in {@code _id} order for each {@code status} and {@code type}, so the server
+     * merges the ranges after {@code afterId} rather than sorting the candidates, and returns a
+     * page without skipping the earlier pages.
+     */
+    @Override
+    public List<Task> findClaimable(Collection<String> types,
+                                    Stage stage,
+                                    long nowMillis,
+                                    String afterId,
+                                    int limit) {
+        if (!this.isClaimIndexCreated) {
+            this.collection.createIndex(Indexes.ascending("stage", "status", "type", "_id"));
+            this.isClaimIndexCreated = true;
+        }
+
+        final List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("stage", this.jsonMapper.convertValue(stage, String.class)));
+        filters.add(this.claimableFilter(nowMillis));
+        if (types != null) {
+            filters.add(Filters.in("type", types));
+        }
+        if (afterId != null) {
+            filters.add(Filters.gt("_id", afterId));
+        }
+
+        // Declare the return value.
+        final List<Task> list = new ArrayList<>();
+        final MongoCursor<Task> iterator = this.getPojoCollection()
+            .find(Filters.and(filters))
+            .sort(Sorts.ascending("_id"))
+            .limit(limit)
+            .iterator();
+        while (iterator.hasNext()) {
+            Task pojo = iterator.next();
+            if (pojo != null) {
+                list.add(pojo);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Claim the {@link Task} with a single {@code findOneAndUpdate}, guarded by the
+     * {@code claimable} filter.
+     */
+    @Override
+    public Task claim(String id,
+                      String workerId,
+                      long nowMillis,
+                      long leaseExpiresAt) {
+        return this.transitionStatus(
+            Filters.and(Filters.eq("_id", id), this.claimableFilter(nowMillis)),
+            StatusEvent.make(TaskStatus.ASSIGNED.name(), workerId, "Claimed from the task queue."),
+            Updates.set("claimedBy", workerId),
+            Updates.set("leaseExpiresAt", leaseExpiresAt)
+        );
+    }
+
+    @Override
+    public boolean renewLease(String id,
+                              String workerId,
+                              long leaseExpiresAt) {
+        return this.collection.updateOne(
+            Filters.and(
+                Filters.eq("_id", id),
+                Filters.eq("claimedBy", workerId),
+                Filters.in("status", LEASED_STATUSES)
+            ),
+            Updates.set("leaseExpiresAt", leaseExpiresAt)
+        ).getMatchedCount() > 0;
+    }
+
+    @Override
+    public Task release(String id,
+                        String workerId) {
+        return this.transitionStatus(
+            Filters.and(
+                Filters.eq("_id", id),
+                Filters.eq("claimedBy", workerId),
+                Filters.eq("status", TaskStatus.ASSIGNED.name())
+            ),
+            StatusEvent.make(TaskStatus.CREATED.name(), workerId, "Released to the task queue."),
+            Updates.unset("claimedBy"),
+            Updates.unset("leaseExpiresAt")
+        );
+    }
+
 }
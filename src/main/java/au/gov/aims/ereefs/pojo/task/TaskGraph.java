@@ -0,0 +1,442 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.job.Job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dependency graph of a set of {@link Task}s (normally the {@link Task}s of a {@link Job}),
+ * built from {@link Task#getDependsOnIds()}. The graph is int-indexed and stored in compressed
+ * sparse row form (an offset array and a single array of successor indexes), and only the
+ * {@code id}s of the {@link Task}s are retained, so a graph of 100,000 {@link Task}s occupies a
+ * few megabytes.
+ * <p>
+ * The graph supports cycle detection ({@link #findCycle()}), grouping into topological waves for
+ * parallel dispatch ({@link #getWaves()}) and the critical path ({@link #getCriticalPath()}). It
+ * also tracks progress: {@link #pollReady()} returns a {@link Task} whose dependencies have all
+ * completed, and {@link #complete(String)} releases its dependents, each in time proportional to
+ * the number of dependents. {@link Task}s with a {@link TaskStatus#SUCCESS} status when the graph
+ * is built start completed.
+ * </p>
+ * <p>
+ * Dependencies on {@code id}s which are not in the graph are ignored, and are reported by
+ * {@link #getExternalDependencyIds()}. This class is not thread-safe.
+ * </p>
+ */
+public class TaskGraph {
+
+    /**
+     * The {@code id} of each {@link Task}, by index.
+     */
+    final protected String[] ids;
+
+    /**
+     * The index of each {@link Task}, by {@code id}.
+     */
+    final protected Map<String, Integer> indexes;
+
+    /**
+     * The successors (dependents) of the {@link Task} at index {@code i} are
+     * {@code successors[successorOffsets[i]]} to {@code successors[successorOffsets[i + 1] - 1]}.
+     */
+    final protected int[] successorOffsets;
+
+    final protected int[] successors;
+
+    /**
+     * The number of dependencies (within the graph) of each {@link Task}.
+     */
+    final protected int[] dependencyCounts;
+
+    /**
+     * The {@code id}s depended on which are not in the graph.
+     */
+    final protected Set<String> externalDependencyIds;
+
+    /**
+     * The number of dependencies of each {@link Task} which have not completed.
+     */
+    final protected int[] pendingCounts;
+
+    /**
+     * The completed {@link Task}s.
+     */
+    final protected BitSet completed;
+
+    /**
+     * FIFO queue of the {@link Task}s which are ready, but have not been returned by
+     * {@link #pollReady()}. Each {@link Task} is queued at most once, so the queue never
+     * exceeds the size of the graph.
+     */
+    final protected int[] readyQueue;
+
+    protected int readyHead;
+
+    protected int readyTail;
+
+    /**
+     * Constructor. See {@link #of(Collection)}.
+     */
+    protected TaskGraph(List<Task> tasks) {
+        super();
+        final int size = tasks.size();
+        this.ids = new String[size];
+        this.indexes = new HashMap<>(size * 4 / 3 + 1);
+        for (int index = 0; index < size; index++) {
+            final String id = tasks.get(index).getId();
+            if (this.indexes.put(id, index) != null) {
+                throw new IllegalArgumentException("Duplicate Task id \"" + id + "\".");
+            }
+            this.ids[index] = id;
+        }
+
+        // Count the edges from each dependency, then fill the rows.
+        this.dependencyCounts = new int[size];
+        this.successorOffsets = new int[size + 1];
+        final Set<String> externalIds = new LinkedHashSet<>();
+        for (int index = 0; index < size; index++) {
+            for (String dependencyId : tasks.get(index).getDependsOnIds()) {
+                final Integer dependency = this.indexes.get(dependencyId);
+                if (dependency == null) {
+                    externalIds.add(dependencyId);
+                } else {
+                    this.successorOffsets[dependency + 1]++;
+                    this.dependencyCounts[index]++;
+                }
+            }
+        }
+        for (int index = 0; index < size; index++) {
+            this.successorOffsets[index + 1] += this.successorOffsets[index];
+        }
+        this.successors = new int[this.successorOffsets[size]];
+        final int[] fill = Arrays.copyOf(this.successorOffsets, size);
+        for (int index = 0; index < size; index++) {
+            for (String dependencyId : tasks.get(index).getDependsOnIds()) {
+                final Integer dependency = this.indexes.get(dependencyId);
+                if (dependency != null) {
+                    this.successors[fill[dependency]++] = index;
+                }
+            }
+        }
+        this.externalDependencyIds = Collections.unmodifiableSet(externalIds);
+
+        // Initialise the progress from the statuses of the Tasks.
+        this.pendingCounts = Arrays.copyOf(this.dependencyCounts, size);
+        this.completed = new BitSet(size);
+        this.readyQueue = new int[size];
+        for (int index = 0; index < size; index++) {
+            if (tasks.get(index).getStatus() == TaskStatus.SUCCESS) {
+                this.completed.set(index);
+            }
+        }
+        for (int index = this.completed.nextSetBit(0); index >= 0; index = this.completed.nextSetBit(index + 1)) {
+            for (int edge = this.successorOffsets[index]; edge < this.successorOffsets[index + 1]; edge++) {
+                this.pendingCounts[this.successors[edge]]--;
+            }
+        }
+        for (int index = 0; index < size; index++) {
+            if (this.pendingCounts[index] == 0 && !this.completed.get(index)) {
+                this.readyQueue[this.readyTail++] = index;
+            }
+        }
+    }
+
+    /**
+     * Build the graph of the specified {@link Task}s.
+     *
+     * @throws IllegalArgumentException thrown if two {@link Task}s have the same {@code id}.
+     */
+    static public TaskGraph of(Collection<? extends Task> tasks) {
+        return new TaskGraph(new ArrayList<>(tasks));
+    }
+
+    /**
+     * Build the graph of the {@link Task}s of the {@link Job}.
+     */
+    static public TaskGraph of(Job job) {
+        return of(job.getTasks());
+    }
+
+    /**
+     * Returns the number of {@link Task}s in the graph.
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * Returns the {@code id}s of the {@link Task}s which depend on the specified {@link Task}.
+     */
+    public List<String> getDependentIds(String id) {
+        final int index = this.indexOf(id);
+        final List<String> dependentIds = new ArrayList<>();
+        for (int edge = this.successorOffsets[index]; edge < this.successorOffsets[index + 1]; edge++) {
+            dependentIds.add(this.ids[this.successors[edge]]);
+        }
+        return dependentIds;
+    }
+
+    /**
+     * Returns the {@code id}s depended on which are not in the graph. These dependencies are
+     * ignored.
+     */
+    public Set<String> getExternalDependencyIds() {
+        return this.externalDependencyIds;
+    }
+
+    /**
+     * Returns the index of the {@link Task}.
+     *
+     * @throws IllegalArgumentException thrown if the {@link Task} is not in the graph.
+     */
+    protected int indexOf(String id) {
+        final Integer index = this.indexes.get(id);
+        if (index == null) {
+            throw new IllegalArgumentException("Task \"" + id + "\" is not in the graph.");
+        }
+        return index;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the {@code id}s of the {@link Task}s forming a dependency cycle (each depending on
+     * the next, and the last on the first), or an empty list if the graph is acyclic.
+     */
+    public List<String> findCycle() {
+        final int size = this.ids.length;
+
+        // Remove the Tasks which are not part of (or blocked by) a cycle.
+        final int[] remainingCounts = Arrays.copyOf(this.dependencyCounts, size);
+        final int[] queue = new int[size];
+        int tail = 0;
+        for (int index = 0; index < size; index++) {
+            if (remainingCounts[index] == 0) {
+                queue[tail++] = index;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            final int index = queue[head];
+            for (int edge = this.successorOffsets[index]; edge < this.successorOffsets[index + 1]; edge++) {
+                if (--remainingCounts[this.successors[edge]] == 0) {
+                    queue[tail++] = this.successors[edge];
+                }
+            }
+        }
+        if (tail == size) {
+            return Collections.emptyList();
+        }
+
+        // Every remaining Task has a remaining dependency, so walking backwards along successor
+        // edges from any remaining Task must revisit a Task. Build the reverse (predecessor)
+        // choice for the remaining Tasks.
+        final int[] predecessor = new int[size];
+        Arrays.fill(predecessor, -1);
+        for (int index = 0; index < size; index++) {
+            if (remainingCounts[index] > 0) {
+                for (int edge = this.successorOffsets[index]; edge < this.successorOffsets[index + 1]; edge++) {
+                    final int successor = this.successors[edge];
+                    if (remainingCounts[successor] > 0 && predecessor[successor] < 0) {
+                        predecessor[successor] = index;
+                    }
+                }
+            }
+        }
+        int start = 0;
+        while (remainingCounts[start] == 0) {
+            start++;
+        }
+        final int[] visitOrder = new int[size];
+        Arrays.fill(visitOrder, -1);
+        int index = start;
+        for (int step = 0; visitOrder[index] < 0; step++) {
+            visitOrder[index] = step;
+            index = predecessor[index];
+        }
+
+        // The walk re-entered the cycle at index. Collect it, each Task depending on the next.
+        final List<String> cycle = new ArrayList<>();
+        int member = index;
+        do {
+            cycle.add(this.ids[member]);
+            member = predecessor[member];
+        } while (member != index);
+        return cycle;
+    }
+
+    /**
+     * Returns {@code true} if the graph contains a dependency cycle.
+     */
+    public boolean hasCycle() {
+        return !this.findCycle().isEmpty();
+    }
+
+    /**
+     * Returns the depth of each {@link Task}: 0 for a {@link Task} without dependencies, otherwise
+     * one more than the deepest of its dependencies.
+     *
+     * @throws IllegalStateException thrown if the graph contains a cycle.
+     */
+    protected int[] computeDepths() {
+        final int size = this.ids.length;
+        final int[] depths = new int[size];
+        final int[] remainingCounts = Arrays.copyOf(this.dependencyCounts, size);
+        final int[] queue = new int[size];
+        int tail = 0;
+        for (int index = 0; index < size; index++) {
+            if (remainingCounts[index] == 0) {
+                queue[tail++] = index;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            final int index = queue[head];
+            for (int edge = this.successorOffsets[index]; edge < this.successorOffsets[index + 1]; edge++) {
+                final int successor = this.successors[edge];
+                depths[successor] = Math.max(depths[successor], depths[index] + 1);
+                if (--remainingCounts[successor] == 0) {
+                    queue[tail++] = successor;
+                }
+            }
+        }
+        if (tail < size) {
+            throw new IllegalStateException("The Task graph contains a cycle: " + this.findCycle());
+        }
+        return depths;
+    }
+
+    /**
+     * Group the {@link Task}s into topological waves: the first wave has no dependencies, and
+     * each later wave depends only on earlier waves, so the {@link Task}s of a wave may be
+     * dispatched in parallel once the previous waves have completed.
+     *
+     * @throws IllegalStateException thrown if the graph contains a cycle.
+     */
+    public List<List<String>> getWaves() {
+        final int[] depths = this.computeDepths();
+        final List<List<String>> waves = new ArrayList<>();
+        for (int index = 0; index < depths.length; index++) {
+            while (waves.size() <= depths[index]) {
+                waves.add(new ArrayList<>());
+            }
+            waves.get(depths[index]).add(this.ids[index]);
+        }
+        return waves;
+    }
+
+    /**
+     * Returns the number of {@link Task}s on the longest dependency chain, which is the minimum
+     * number of sequential steps needed to execute the graph.
+     *
+     * @throws IllegalStateException thrown if the graph contains a cycle.
+     */
+    public int getCriticalPathLength() {
+        int length = 0;
+        for (int depth : this.computeDepths()) {
+            length = Math.max(length, depth + 1);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the {@code id}s of the {@link Task}s on a longest dependency chain, in execution
+     * order.
+     *
+     * @throws IllegalStateException thrown if the graph contains a cycle.
+     */
+    public List<String> getCriticalPath() {
+        final int[] depths = this.computeDepths();
+        if (depths.length == 0) {
+            return Collections.emptyList();
+        }
+
+        // Walk backwards from the deepest Task, through a dependency one level shallower.
+        final int[] predecessor = new int[depths.length];
+        Arrays.fill(predecessor, -1);
+        int deepest = 0;
+        for (int index = 0; index < depths.length; index++) {
+            if (depths[index] > depths[deepest]) {
+                deepest = index;
+            }
+            for (int edge = this.successorOffsets[index]; edge < this.successorOffsets[index + 1]; edge++) {
+                final int successor = this.successors[edge];
+                if (depths[successor] == depths[index] + 1) {
+                    predecessor[successor] = index;
+                }
+            }
+        }
+        final List<String> path = new ArrayList<>();
+        for (int index = deepest; index >= 0; index = predecessor[index]) {
+            path.add(this.ids[index]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the {@code id} of the next {@link Task} whose dependencies have all completed,
+     * removing it from the ready set, or {@code null} if no {@link Task} is ready. Each
+     * {@link Task} is returned at most once.
+     */
+    public String pollReady() {
+        if (this.readyHead == this.readyTail) {
+            return null;
+        }
+        return this.ids[this.readyQueue[this.readyHead++]];
+    }
+
+    /**
+     * Returns the number of {@link Task}s in the ready set.
+     */
+    public int getReadyCount() {
+        return this.readyTail - this.readyHead;
+    }
+
+    /**
+     * Returns {@code true} if the {@link Task} has completed.
+     */
+    public boolean isComplete(String id) {
+        return this.completed.get(this.indexOf(id));
+    }
+
+    /**
+     * Returns {@code true} if every {@link Task} has completed.
+     */
+    public boolean isAllComplete() {
+        return this.completed.cardinality() == this.ids.length;
+    }
+
+    /**
+     * Mark the {@link Task} as completed, adding the dependents whose dependencies have now all
+     * completed to the ready set.
+     *
+     * @return the {@code id}s of the {@link Task}s added to the ready set.
+     */
+    public List<String> complete(String id) {
+        final int index = this.indexOf(id);
+        if (this.completed.get(index)) {
+            return Collections.emptyList();
+        }
+        this.completed.set(index);
+        final List<String> readyIds = new ArrayList<>();
+        for (int edge = this.successorOffsets[index]; edge < this.successorOffsets[index + 1]; edge++) {
+            final int successor = this.successors[edge];
+            if (--this.pendingCounts[successor] == 0 && !this.completed.get(successor)) {
+                this.readyQueue[this.readyTail++] = successor;
+                readyIds.add(this.ids[successor]);
+            }
+        }
+        return readyIds;
+    }
+
+}
@@ -0,0 +1,298 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.utils.IndexLog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent index of the directory of each {@link Task} file in a {@link TaskDaoFileImpl}
+ * repository, so the file (eg: {@code <daoPath>/<jobId>/<id>.json}, in any
+ * {@link au.gov.aims.ereefs.pojo.utils.FileLayout}) is found without listing the directory tree.
+ * <p>
+ * The index is an append-only {@link IndexLog}, {@link #FILENAME} in the root directory of the
+ * repository, of one {@code <id> <dir>} line per {@link Task} written, where {@code dir} is the
+ * directory of the file relative to the root (empty for the root itself), and is held in memory. A
+ * later line replaces an earlier line for the same {@code id}, and the log is compacted once most
+ * of its lines have been replaced. The log is loaded on first use. If it does not exist, the index
+ * is built from the directory tree, and the log is written when a {@link Task} is first recorded,
+ * so a repository which is only read is not modified.
+ * </p>
+ * <p>
+ * Other processes append to the same log, so a lookup which misses first reads the lines appended
+ * since the log was last read. Files written without the index (eg: copied into the repository)
+ * are found by then re-listing only the directories modified since they were last listed, which
+ * costs one {@code stat} per directory. A stale entry, whose file no longer exists, is treated as
+ * a miss.
+ * </p>
+ */
+public class TaskPathIndex {
+
+    /**
+     * The name of the log in the root directory of the repository. It does not end in
+     * {@code .json}, so it is never loaded as a record.
+     */
+    final static public String FILENAME = "task-paths.idx";
+
+    final static protected String JSON_SUFFIX = ".json";
+
+    /**
+     * The root directory of the repository.
+     */
+    final protected File daoDir;
+
+    final protected IndexLog log;
+
+    /**
+     * The directory of each {@link Task} file, relative to {@link #daoDir}, by {@code id}.
+     */
+    final protected Map<String, String> dirs = new ConcurrentHashMap<>();
+
+    /**
+     * Each directory when it was last listed, by its path relative to {@link #daoDir}.
+     */
+    final protected Map<String, Listing> listedDirs = new HashMap<>();
+
+    /**
+     * {@code true} once the log has been loaded, or the index built.
+     */
+    protected volatile boolean isLoaded;
+
+    /**
+     * {@code true} if the log holds the index, so changes are appended to it.
+     */
+    protected volatile boolean isLogged;
+
+    /**
+     * Constructor to capture references relevant to this implementation.
+     *
+     * @param daoDir the root directory of the repository.
+     */
+    public TaskPathIndex(File daoDir) {
+        super();
+        this.daoDir = daoDir;
+        this.log = new IndexLog(new File(daoDir, FILENAME));
+    }
+
+    /**
+     * Returns the {@link Task} file of the {@code id}, or {@code null} if there is no such file.
+     */
+    public File lookup(String id) {
+        this.load();
+        File file = this.getIndexedFile(id);
+        if (file != null) {
+            return file;
+        }
+        synchronized (this) {
+            this.readLog();
+            file = this.getIndexedFile(id);
+            if (file == null) {
+                this.listModifiedDirs();
+                file = this.getIndexedFile(id);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Record the directory of the {@link Task}, relative to the root directory, once its file has
+     * been written, appending it to the log unless it is already indexed.
+     */
+    public void record(String id, String dir) {
+        this.load();
+        if (!this.isLogged) {
+            synchronized (this) {
+                if (!this.isLogged) {
+                    this.writeLog();
+                }
+            }
+        }
+        if (!dir.equals(this.dirs.put(id, dir))) {
+            this.log.append(id, dir);
+            this.log.compactIfRequired(this.dirs.size());
+        }
+    }
+
+    /**
+     * Rebuild the index from the directory tree, replacing the log.
+     */
+    public synchronized void rebuild() {
+        this.build();
+        this.writeLog();
+    }
+
+    /**
+     * Load the log if it has not been loaded yet, or build the index if there is no log.
+     */
+    protected void load() {
+        if (this.isLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!this.isLoaded) {
+                this.readLog();
+            }
+        }
+    }
+
+    /**
+     * Build the index from the directory tree, without writing the log.
+     */
+    protected synchronized void build() {
+        this.dirs.clear();
+        this.listedDirs.clear();
+        this.walk(this.daoDir, "", (id, dir) -> {});
+        this.isLoaded = true;
+        this.isLogged = false;
+    }
+
+    /**
+     * Replace the log with the index.
+     */
+    protected synchronized void writeLog() {
+        this.log.write(this.dirs);
+        this.isLogged = true;
+    }
+
+    /**
+     * Returns the file of the indexed {@code id} if it exists, removing a stale entry.
+     */
+    protected File getIndexedFile(String id) {
+        final String dir = this.dirs.get(id);
+        if (dir == null) {
+            return null;
+        }
+        final File file = new File(dir.isEmpty() ? this.daoDir : new File(this.daoDir, dir), id + JSON_SUFFIX);
+        if (file.isFile()) {
+            return file;
+        }
+        this.dirs.remove(id, dir);
+        return null;
+    }
+
+    /**
+     * Read the complete lines appended to the log since it was last read, building the index if
+     * there is no log.
+     */
+    protected synchronized void readLog() {
+        if (!this.log.exists()) {
+            if (!this.isLoaded || this.isLogged) {
+
+                // There is no log, or it was removed.
+                this.build();
+            }
+            return;
+        }
+        if (!this.isLogged) {
+
+            // The log was written by another process.
+            this.log.reset();
+        }
+        this.isLoaded = true;
+        this.isLogged = true;
+        this.dirs.putAll(this.log.readAppended());
+    }
+
+    /**
+     * List the directories modified since they were last listed, indexing (and logging) the
+     * {@link Task} files which are not indexed yet.
+     */
+    protected synchronized void listModifiedDirs() {
+        final Map<String, String> unlogged = new LinkedHashMap<>();
+        final IndexConsumer logger = (id, dir) -> {
+            if (!dir.equals(this.dirs.get(id))) {
+                unlogged.put(id, dir);
+            }
+        };
+        this.walk(this.daoDir, "", logger);
+        if (this.isLogged) {
+            this.log.append(unlogged);
+            this.log.compactIfRequired(this.dirs.size());
+        }
+    }
+
+    /**
+     * Walk the directory tree, listing the directories modified since they were last listed (see
+     * {@link #listDir(File, String, IndexConsumer)}). The sub-directories of a directory which has
+     * not been modified are those found when it was last listed.
+     *
+     * @param directory the directory.
+     * @param dir the directory, relative to {@link #daoDir}.
+     */
+    protected void walk(File directory, String dir, IndexConsumer consumer) {
+        Listing listing = this.listedDirs.get(dir);
+        if (listing == null || listing.modified != directory.lastModified()) {
+            listing = this.listDir(directory, dir, consumer);
+        }
+        if (listing == null) {
+            this.listedDirs.remove(dir);
+            return;
+        }
+        for (String name : listing.subdirs) {
+            this.walk(new File(directory, name), dir.isEmpty() ? name : dir + "/" + name, consumer);
+        }
+    }
+
+    /**
+     * Index the {@link Task} files in the directory, passing each to the {@code consumer} before
+     * it is indexed, and find its sub-directories. Hidden files (eg: temporary and lock files) are
+     * ignored, and the {@code .json} files are not checked for being directories.
+     *
+     * @param directory the directory.
+     * @param dir the directory, relative to {@link #daoDir}.
+     * @return the listing, or {@code null} if the directory does not exist.
+     */
+    protected Listing listDir(File directory, String dir, IndexConsumer consumer) {
+        final long modified = directory.lastModified();
+        final String[] filenames = directory.list();
+        if (filenames == null) {
+            return null;
+        }
+        final Listing listing = new Listing(modified);
+        for (String filename : filenames) {
+            if (filename.startsWith(".") || (dir.isEmpty() && filename.equals(FILENAME))) {
+                continue;
+            }
+            if (filename.endsWith(JSON_SUFFIX)) {
+                final String id = filename.substring(0, filename.length() - JSON_SUFFIX.length());
+                consumer.accept(id, dir);
+                this.dirs.put(id, dir);
+            } else if (new File(directory, filename).isDirectory()) {
+                listing.subdirs.add(filename);
+            }
+        }
+        this.listedDirs.put(dir, listing);
+        return listing;
+    }
+
+    /**
+     * A directory when it was last listed: its modification time and sub-directories.
+     */
+    static protected class Listing {
+
+        final protected long modified;
+
+        final protected List<String> subdirs = new ArrayList<>();
+
+        protected Listing(long modified) {
+            this.modified = modified;
+        }
+
+    }
+
+    /**
+     * Receives each {@link Task} file listed by {@link #listDir(File, String, IndexConsumer)}.
+     */
+    @FunctionalInterface
+    protected interface IndexConsumer {
+
+        void accept(String id, String dir);
+
+    }
+
+}
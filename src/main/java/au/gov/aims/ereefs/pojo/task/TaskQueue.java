@@ -0,0 +1,187 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.Stage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Work queue over a {@link LeasedTaskDao}, allowing many workers (eg: {@code ncAggregate} or
+ * {@code ncAnimate} instances) to pull {@link Task}s without racing each other.
+ * {@link #claimNext(String, Collection, Collection)} atomically moves a {@code claimable}
+ * {@link Task} whose dependencies have all succeeded to {@link TaskStatus#ASSIGNED}, leased to the
+ * worker for {@link #leaseMillis}. The worker keeps the lease with {@link #heartbeat(String, String)}
+ * while it works; if the worker dies, the lease expires and the {@link Task} can be claimed again.
+ * <p>
+ * {@link Task}s are claimed in {@link #STAGE_PRIORITY} order. This class is thread-safe.
+ * </p>
+ */
+public class TaskQueue {
+
+    /**
+     * The order in which {@link Task}s are claimed, by {@code Stage}.
+     */
+    final static public List<Stage> STAGE_PRIORITY = Arrays.asList(
+        Stage.HIGH_PRIORITY,
+        Stage.OPERATIONAL,
+        Stage.PROTOTYPE,
+        Stage.DISCONTINUED
+    );
+
+    /**
+     * The default value of {@link #pageSize}.
+     */
+    final static public int DEFAULT_PAGE_SIZE = 32;
+
+    /**
+     * The underlying repository.
+     */
+    final protected LeasedTaskDao taskDao;
+
+    /**
+     * The duration (in milliseconds) of a lease, from the time of the claim or last heartbeat.
+     */
+    final protected long leaseMillis;
+
+    /**
+     * The number of candidate {@link Task}s retrieved at a time when looking for a {@link Task}
+     * to claim.
+     */
+    protected int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Constructor.
+     *
+     * @param taskDao the underlying repository.
+     * @param leaseMillis the duration (in milliseconds) of a lease.
+     */
+    public TaskQueue(LeasedTaskDao taskDao,
+                     long leaseMillis) {
+        super();
+        this.taskDao = taskDao;
+        this.leaseMillis = leaseMillis;
+    }
+
+    public void setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive (" + pageSize + ").");
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Claim the next {@link Task} for the worker: the highest priority {@code claimable}
+     * {@link Task} of the specified {@code type}s and {@code Stage}s whose dependencies (see
+     * {@link Task#getDependsOnIds()}) have all completed with {@link TaskStatus#SUCCESS}.
+     *
+     * @param workerId the unique id of the worker.
+     * @param types the {@code type}s of {@link Task} the worker executes (eg: {@code ncaggregate}),
+     *              or {@code null} for all types.
+     * @param stages the {@code Stage}s of {@link Task} the worker executes, or {@code null} for all
+     *               {@code Stage}s.
+     * @return the claimed {@link Task}, or {@code null} if there is nothing to claim.
+     */
+    public Task claimNext(String workerId,
+                          Collection<String> types,
+                          Collection<Stage> stages) {
+        final long nowMillis = System.currentTimeMillis();
+        for (Stage stage : STAGE_PRIORITY) {
+            if (stages != null && !stages.contains(stage)) {
+                continue;
+            }
+            String afterId = null;
+            while (true) {
+                final List<Task> candidates =
+                    this.taskDao.findClaimable(types, stage, nowMillis, afterId, this.pageSize);
+                final Task claimed = this.claimAny(this.filterReady(candidates), workerId, nowMillis);
+                if (claimed != null) {
+                    return claimed;
+                }
+                if (candidates.size() < this.pageSize) {
+                    break;
+                }
+                afterId = candidates.get(candidates.size() - 1).getId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Attempt to claim each of the {@code candidates} in turn. The attempts start at a random
+     * candidate, so concurrent workers seeing the same page mostly try different {@link Task}s
+     * rather than all contending for the first.
+     */
+    protected Task claimAny(List<Task> candidates, String workerId, long nowMillis) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        final int start = ThreadLocalRandom.current().nextInt(candidates.size());
+        for (int index = 0; index < candidates.size(); index++) {
+            final Task candidate = candidates.get((start + index) % candidates.size());
+            final Task claimed = this.taskDao.claim(
+                candidate.getId(), workerId, nowMillis, nowMillis + this.leaseMillis);
+            if (claimed != null) {
+                return claimed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the {@code candidates} whose dependencies have all completed with
+     * {@link TaskStatus#SUCCESS}, retrieving the dependencies of the whole page in one batch.
+     */
+    protected List<Task> filterReady(List<Task> candidates) {
+        final Set<String> dependencyIds = new HashSet<>();
+        for (Task candidate : candidates) {
+            dependencyIds.addAll(candidate.getDependsOnIds());
+        }
+        final Map<String, Task> dependencies = dependencyIds.isEmpty() ?
+            null :
+            this.taskDao.getByIds(dependencyIds);
+
+        final List<Task> ready = new ArrayList<>();
+        for (Task candidate : candidates) {
+            boolean isReady = true;
+            for (String dependencyId : candidate.getDependsOnIds()) {
+                final Task dependency = dependencies.get(dependencyId);
+                if (dependency == null || dependency.getStatus() != TaskStatus.SUCCESS) {
+                    isReady = false;
+                    break;
+                }
+            }
+            if (isReady) {
+                ready.add(candidate);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * Extend the lease of a {@link Task} held by the worker. Workers should invoke this well
+     * within {@link #leaseMillis} of the claim or the previous heartbeat.
+     *
+     * @return {@code true} if the lease was extended, or {@code false} if the worker no longer
+     * holds the {@link Task} (eg: the lease expired and another worker claimed it), in which case
+     * the worker should abandon it.
+     */
+    public boolean heartbeat(String taskId, String workerId) {
+        return this.taskDao.renewLease(taskId, workerId, System.currentTimeMillis() + this.leaseMillis);
+    }
+
+    /**
+     * Return a claimed {@link Task} which the worker has not started to the queue.
+     *
+     * @return the released {@link Task}, or {@code null} if the worker no longer holds it.
+     */
+    public Task release(String taskId, String workerId) {
+        return this.taskDao.release(taskId, workerId);
+    }
+
+}
@@ -0,0 +1,336 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes files atomically: the content is written to a temporary file in the same directory,
+ * which is then moved over the target, so neither a concurrent reader nor a crash of the process
+ * observes a partially written file. The temporary file name does not end in {@code .json}, so it
+ * is never loaded as a record.
+ * <p>
+ * The {@link Durability} sets whether the writes are also forced to disk, so they survive a crash
+ * of the operating system. A durable write forces the temporary file before it is moved, then
+ * forces the directory, which makes the move durable. The directories created for the file, and
+ * the directory holding the first of them, are also forced, so the new directories survive a
+ * crash too. With {@link Durability#GROUP_COMMIT}, a writer which is not alone leads a group:
+ * it waits for the {@link #setGroupCommitWindowMillis(long) window}, while the writers which
+ * arrive meanwhile join its group and wait for it, then forces the directories of the whole group
+ * at once, with a single {@code fsync} of each directory. A single writer does not wait. A single
+ * instance should be shared by the DAOs of a process, so their writes are grouped together.
+ * </p>
+ */
+public class AtomicFileWriter {
+
+    /**
+     * Whether, and how, the writes are forced to disk.
+     */
+    public enum Durability {
+
+        /**
+         * The writes are not forced to disk. A crash of the operating system may lose recent
+         * writes, or leave an empty file.
+         */
+        NONE,
+
+        /**
+         * Each write forces its file, then its directory, to disk before it returns.
+         */
+        SYNC,
+
+        /**
+         * Each write forces its file to disk, then shares the {@code fsync} of its directory with
+         * the concurrent writes, before it returns.
+         */
+        GROUP_COMMIT
+
+    }
+
+    /**
+     * The default time a writer waits for the concurrent writers to join its group.
+     */
+    final static public long DEFAULT_GROUP_COMMIT_WINDOW_MILLIS = 2;
+
+    /**
+     * The instance used by {@link FileUtils#writeAtomically(File, byte[])}, which does not force
+     * the writes to disk.
+     */
+    final static public AtomicFileWriter NON_DURABLE = new AtomicFileWriter(Durability.NONE);
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    final protected Durability durability;
+
+    protected volatile long groupCommitWindowMillis = DEFAULT_GROUP_COMMIT_WINDOW_MILLIS;
+
+    /**
+     * The number of writes in progress.
+     */
+    final protected AtomicLong activeWrites = new AtomicLong();
+
+    /**
+     * The directories of the files which have been moved, but whose directory has not yet been
+     * forced to disk by a group commit.
+     */
+    final protected Set<File> pendingDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The number of writes which have asked for a group commit. Incremented after the directory
+     * of the write is added to {@link #pendingDirectories}.
+     */
+    final protected AtomicLong requestedCommits = new AtomicLong();
+
+    /**
+     * The number of writes which have been made durable by a group commit. Guarded by the
+     * {@link #commitLock}.
+     */
+    protected long completedCommits;
+
+    /**
+     * The lock held by the writer which forces the {@link #pendingDirectories} to disk, and on
+     * which the writers of a group wait for it.
+     */
+    final protected Object commitLock = new Object();
+
+    /**
+     * {@code true} while the leader of a group waits for the writers to join it. Guarded by the
+     * {@link #commitLock}.
+     */
+    protected boolean isGathering;
+
+    /**
+     * The number of times a directory has been forced to disk.
+     */
+    final protected AtomicLong directorySyncCount = new AtomicLong();
+
+    public AtomicFileWriter(Durability durability) {
+        super();
+        this.durability = durability;
+    }
+
+    public Durability getDurability() {
+        return this.durability;
+    }
+
+    /**
+     * Set the time the leader of a group waits for the concurrent writers to join it (see
+     * {@link Durability#GROUP_COMMIT}). A writer only leads a group if other writes are in
+     * progress, and does not hold the {@link #commitLock} while it waits. A longer window means fewer
+     * {@code fsync}s, but a longer wait for each concurrent write.
+     */
+    public void setGroupCommitWindowMillis(long groupCommitWindowMillis) {
+        this.groupCommitWindowMillis = groupCommitWindowMillis;
+    }
+
+    /**
+     * Returns the number of times a directory has been forced to disk by this instance.
+     */
+    public long getDirectorySyncCount() {
+        return this.directorySyncCount.get();
+    }
+
+    /**
+     * Write the {@code content} to the {@code file} as UTF-8, as {@link #write(File, byte[])}
+     * does.
+     */
+    public void write(File file, String content) throws IOException {
+        this.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write the {@code content} to the {@code file}, creating the parent directories if required,
+     * and replacing any existing file. Returns once the write is as durable as the
+     * {@link #durability} requires.
+     *
+     * @throws IOException thrown if the file cannot be written, in which case the temporary file
+     *                     is removed, or cannot be forced to disk.
+     */
+    public void write(File file, byte[] content) throws IOException {
+        this.activeWrites.incrementAndGet();
+        try {
+            final File directory = file.getAbsoluteFile().getParentFile();
+            final List<File> directories = this.makeDirectories(directory);
+            final File tempFile = new File(directory, "." + file.getName() + "." + UUID.randomUUID() + ".tmp");
+            try {
+                try (final FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+                    outputStream.write(content);
+                    if (this.durability != Durability.NONE) {
+                        outputStream.getFD().sync();
+                    }
+                }
+                try {
+                    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                tempFile.delete();
+                throw e;
+            }
+
+            switch (this.durability) {
+                case SYNC:
+                    for (File syncDirectory : directories) {
+                        this.syncDirectory(syncDirectory);
+                    }
+                    break;
+                case GROUP_COMMIT:
+                    this.commit(directories);
+                    break;
+                default:
+                    break;
+            }
+        } finally {
+            this.activeWrites.decrementAndGet();
+        }
+    }
+
+    /**
+     * Create the {@code directory}, and its missing ancestors, if required.
+     *
+     * @return the directories to force to disk to make a file moved into the {@code directory}
+     * durable: the {@code directory}, and the parent of each directory which was created.
+     */
+    protected List<File> makeDirectories(File directory) {
+        final List<File> directories = new ArrayList<>();
+        directories.add(directory);
+        if (this.durability == Durability.NONE) {
+            directory.mkdirs();
+            return directories;
+        }
+
+        // The directories which do not exist yet, from the deepest.
+        final List<File> missing = new ArrayList<>();
+        File ancestor = directory;
+        while (ancestor != null && !ancestor.isDirectory()) {
+            missing.add(ancestor);
+            ancestor = ancestor.getParentFile();
+        }
+        if (!missing.isEmpty()) {
+            directory.mkdirs();
+            for (File created : missing) {
+                final File parent = created.getParentFile();
+                if (created.isDirectory() && parent != null) {
+                    directories.add(parent);
+                }
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Wait until the {@code directories} have been forced to disk since the file was moved, as a
+     * member of a group. A writer which arrives while the leader of a group waits for the window
+     * joins the group, and waits for the leader to force the directories of the group. Otherwise,
+     * if other writes are in progress, the writer leads a new group, waiting for the window
+     * without holding the {@link #commitLock}, or else forces the directories itself.
+     */
+    protected void commit(List<File> directories) throws IOException {
+        this.pendingDirectories.addAll(directories);
+        final long ticket = this.requestedCommits.incrementAndGet();
+        final long windowMillis = this.groupCommitWindowMillis;
+        synchronized (this.commitLock) {
+            while (this.isGathering && this.completedCommits < ticket) {
+                try {
+                    this.commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the group commit.");
+                }
+            }
+            if (this.completedCommits >= ticket) {
+                return;
+            }
+            if (windowMillis <= 0 || this.activeWrites.get() <= 1) {
+                this.syncPendingDirectories();
+                return;
+            }
+            this.isGathering = true;
+        }
+
+        // Let the concurrent writers join the group, without holding the lock.
+        try {
+            Thread.sleep(windowMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this.commitLock) {
+            this.isGathering = false;
+            try {
+                this.syncPendingDirectories();
+            } finally {
+                this.commitLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Force the {@link #pendingDirectories} to disk, which must be invoked while holding the
+     * {@link #commitLock}.
+     */
+    protected void syncPendingDirectories() throws IOException {
+
+        // Every write counted in the target added its directories before it was counted, so the
+        // directories taken after reading the target include them.
+        final long target = this.requestedCommits.get();
+        final List<File> pending = new ArrayList<>();
+        for (Iterator<File> iterator = this.pendingDirectories.iterator(); iterator.hasNext(); ) {
+            pending.add(iterator.next());
+            iterator.remove();
+        }
+        for (int index = 0; index < pending.size(); index++) {
+            try {
+                this.syncDirectory(pending.get(index));
+            } catch (IOException e) {
+
+                // Leave the directories which were not forced for the next group.
+                this.pendingDirectories.addAll(pending.subList(index, pending.size()));
+                throw e;
+            }
+        }
+        this.completedCommits = target;
+    }
+
+    /**
+     * Force the {@code directory} to disk, so the files moved into it are durable.
+     */
+    protected void syncDirectory(File directory) throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+
+            // A directory cannot be opened on some platforms (eg: Windows), where the move is
+            // made durable by the file system.
+            if (this.logger.isDebugEnabled()) {
+                this.logger.debug("Cannot open the directory \"" + directory + "\" to force it to disk.", e);
+            }
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+        this.directorySyncCount.incrementAndGet();
+    }
+
+}
@@ -1,5 +1,7 @@
 package au.gov.aims.ereefs.pojo.utils;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -37,6 +39,12 @@ public class DateTimeUtils {
         DateTimeFormatter.ISO_INSTANT
             .withZone(DateTimeConstants.DEFAULT_TIME_ZONE_ID);
 
+    /**
+     * The {@link DateTimeConstants#EPOCH} expressed as a count of days since 1970-01-01, used by
+     * {@link #parseSinceEpochInDays(String)}.
+     */
+    static final protected long EPOCH_DAY = DateTimeConstants.EPOCH.toLocalDate().toEpochDay();
+
     /**
      * The {@code ZoneId} of the timezone specified in constructor. At present this is ignored.
      */
@@ -97,4 +105,127 @@ public class DateTimeUtils {
     static public LocalDateTime parseAsDate(String dateTime) {
         return DateTimeUtils.dateFormatter.parse(dateTime, LocalDateTime::from);
     }
+
+    /**
+     * Parse an ISO-8601 date/time (eg: {@code 2010-09-01T00:00:00.000+10:00}) and return the number
+     * of days (decimal) since the {@link DateTimeConstants#EPOCH}. Consistent with the rest of this
+     * class, the offset of the value is ignored and the local date/time is used, except for values
+     * in UTC ({@code Z} suffix), which are converted to {@link DateTimeConstants#DEFAULT_TIME_ZONE}.
+     * <p>
+     * Values in the common {@code yyyy-MM-ddTHH:mm[:ss[.SSS]]+HH:mm} form are parsed directly from
+     * the characters without using a {@code DateTimeFormatter}, as this method is invoked for every
+     * time value of every variable when loading {@code Metadata}. All other values fall back to
+     * {@link #isoDateTimeFormatter} or {@link #instantDateTimeFormatter}, so the result (and any
+     * parse exception) is identical either way.
+     * </p>
+     */
+    static public double parseSinceEpochInDays(String value) {
+        if (!value.endsWith("Z")) {
+            try {
+                final long secondsSinceEpoch = parseSecondsSinceEpoch(value);
+                if (secondsSinceEpoch != Long.MIN_VALUE) {
+                    return secondsSinceEpoch / DateTimeConstants.SECONDS_IN_24_HOURS;
+                }
+            } catch (DateTimeException ignore) {
+                // Invalid date, such as 31 June. Fall through to the formatter for the exception.
+            }
+        }
+        final LocalDateTime timeValue = (value.endsWith("Z")) ?
+            instantDateTimeFormatter.parse(value, LocalDateTime::from) :
+            isoDateTimeFormatter.parse(value, LocalDateTime::from);
+        return sinceEpochInDays(timeValue);
+    }
+
+    /**
+     * Fast-path parser for {@link #parseSinceEpochInDays(String)}. Returns the whole number of
+     * seconds between the {@link DateTimeConstants#EPOCH} and the local date/time of the value
+     * (truncated in the same way as {@link #differenceInDays(LocalDateTime, LocalDateTime)}), or
+     * {@code Long.MIN_VALUE} if the value is not in the supported form.
+     */
+    static protected long parseSecondsSinceEpoch(String value) {
+        final int length = value.length();
+
+        // yyyy-MM-ddTHH:mm is the minimum, followed by an offset of +HH:mm.
+        if (length < 22 || value.charAt(4) != '-' || value.charAt(7) != '-' ||
+            value.charAt(10) != 'T' || value.charAt(13) != ':') {
+            return Long.MIN_VALUE;
+        }
+        final int year = parseDigits(value, 0, 4);
+        final int month = parseDigits(value, 5, 7);
+        final int day = parseDigits(value, 8, 10);
+        final int hour = parseDigits(value, 11, 13);
+        final int minute = parseDigits(value, 14, 16);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        // Optional seconds and fraction of a second.
+        int second = 0;
+        boolean hasFraction = false;
+        int position = 16;
+        if (value.charAt(position) == ':') {
+            second = parseDigits(value, position + 1, position + 3);
+            if (second < 0) {
+                return Long.MIN_VALUE;
+            }
+            position += 3;
+            if (position < length && value.charAt(position) == '.') {
+                final int start = ++position;
+                while (position < length && Character.isDigit(value.charAt(position))) {
+                    if (value.charAt(position) != '0') {
+                        hasFraction = true;
+                    }
+                    position++;
+                }
+                if (position == start || position - start > 9) {
+                    return Long.MIN_VALUE;
+                }
+            }
+        }
+
+        // Offset, which must be exactly +HH:mm or -HH:mm. The value is validated but not applied.
+        if (length - position != 6 || value.charAt(position + 3) != ':') {
+            return Long.MIN_VALUE;
+        }
+        final char sign = value.charAt(position);
+        final int offsetHours = parseDigits(value, position + 1, position + 3);
+        final int offsetMinutes = parseDigits(value, position + 4, position + 6);
+        if ((sign != '+' && sign != '-') || offsetHours < 0 || offsetHours > 18 ||
+            offsetMinutes < 0 || offsetMinutes > 59 || (offsetHours == 18 && offsetMinutes > 0)) {
+            return Long.MIN_VALUE;
+        }
+        if (hour > 23 || minute > 59 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+
+        // LocalDate validates the month and day-of-month.
+        final long days = LocalDate.of(year, month, day).toEpochDay() - EPOCH_DAY;
+        long seconds = days * 24 * 60 * 60 + hour * 60 * 60 + minute * 60 + second;
+
+        // A partial second before the epoch is not a complete second, so round towards the epoch.
+        if (seconds < 0 && hasFraction) {
+            seconds++;
+        }
+        return seconds;
+    }
+
+    /**
+     * Parse the decimal digits between {@code start} (inclusive) and {@code end} (exclusive),
+     * returning {@code -1} if any character is not a digit.
+     */
+    static protected int parseDigits(String value, int start, int end) {
+        if (end > value.length()) {
+            return -1;
+        }
+        int result = 0;
+        for (int index = start; index < end; index++) {
+            final char c = value.charAt(index);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
 }
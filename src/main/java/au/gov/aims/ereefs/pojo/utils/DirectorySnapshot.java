@@ -0,0 +1,165 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Snapshot of the state (last modified time and size) of the JSON files beneath a directory. Two
+ * snapshots of the same directory can be compared to identify the files that have been added,
+ * changed or removed in between, so a cache of the files only needs to reparse those.
+ * <p>
+ * Comparing snapshots is used in preference to a {@code WatchService}, as it also works on network
+ * file systems and does not need a background thread. A file rewritten with the same size within
+ * the resolution of the file system's timestamps will not be detected as changed.
+ * </p>
+ */
+public class DirectorySnapshot {
+
+    /**
+     * The state of each file, keyed by file.
+     */
+    final protected Map<File, FileState> fileStates = new TreeMap<>();
+
+    /**
+     * Constructor for an empty snapshot.
+     */
+    public DirectorySnapshot() {
+        super();
+    }
+
+    /**
+     * Recursively find the JSON files (with a {@code .json} suffix, ignoring case) beneath the
+     * specified directory, using a {@code FileVisitor} that follows links, and capture their
+     * state. Files and directories that cannot be visited are reported to the
+     * {@code failureHandler} rather than aborting the search.
+     *
+     * @param directory the root directory to search.
+     * @param failureHandler invoked for each file or directory which cannot be visited.
+     * @return the snapshot of the directory.
+     * @throws IOException thrown if the directory cannot be searched.
+     */
+    static public DirectorySnapshot take(File directory,
+                                         Consumer<JSONFileReader.LoadFailure> failureHandler) throws IOException {
+        final DirectorySnapshot snapshot = new DirectorySnapshot();
+        Files.walkFileTree(
+            directory.toPath(),
+            EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+            Integer.MAX_VALUE,
+            new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() &&
+                        file.getFileName().toString().toLowerCase().endsWith(".json")) {
+                        snapshot.fileStates.put(file.toFile(), new FileState(attributes));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    failureHandler.accept(new JSONFileReader.LoadFailure(file.toFile(), e));
+                    return FileVisitResult.CONTINUE;
+                }
+
+            }
+        );
+        return snapshot;
+    }
+
+    /**
+     * Returns the sorted list of files in the snapshot.
+     */
+    public List<File> getFiles() {
+        return new ArrayList<>(this.fileStates.keySet());
+    }
+
+    /**
+     * Returns the files in this snapshot that are not in the {@code previous} snapshot, or whose
+     * state differs.
+     */
+    public List<File> getChangedSince(DirectorySnapshot previous) {
+        final List<File> changed = new ArrayList<>();
+        for (Map.Entry<File, FileState> entry : this.fileStates.entrySet()) {
+            if (!entry.getValue().equals(previous.fileStates.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the files in the {@code previous} snapshot that are not in this snapshot.
+     */
+    public List<File> getRemovedSince(DirectorySnapshot previous) {
+        final List<File> removed = new ArrayList<>();
+        for (File file : previous.fileStates.keySet()) {
+            if (!this.fileStates.containsKey(file)) {
+                removed.add(file);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Capture the current state of a single file, such as after it has been written by the
+     * current process, so it is not reported as changed by the next comparison. A file which no
+     * longer exists is removed from the snapshot.
+     */
+    public void update(File file) {
+        try {
+            this.fileStates.put(
+                file,
+                new FileState(Files.readAttributes(file.toPath(), BasicFileAttributes.class))
+            );
+        } catch (IOException e) {
+            this.fileStates.remove(file);
+        }
+    }
+
+    /**
+     * The state of a single file.
+     */
+    static protected class FileState {
+
+        final protected long lastModified;
+
+        final protected long size;
+
+        protected FileState(BasicFileAttributes attributes) {
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final FileState that = (FileState) o;
+            return this.lastModified == that.lastModified && this.size == that.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(this.lastModified) + Long.hashCode(this.size);
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * How the files of a file-based repository are arranged beneath its root directory, by the
+ * {@code id} of each record (or, for {@code Task}s, of each {@code Job} directory).
+ * <p>
+ * {@link #FLAT} places every file directly in the root directory, as the repositories always
+ * have. {@link #HASHED} places each file two levels down, in directories named by a hexadecimal
+ * hash of the {@code id} (eg: {@code <root>/3f/a2/<id>.json}), so no directory holds more than a
+ * few hundred entries when the repository holds hundreds of thousands of records.
+ * </p>
+ * <p>
+ * Files are found with {@link #find(File, String, String)}, which falls back to the other layout,
+ * so a repository can be switched to {@link #HASHED} before its files have been moved (see
+ * {@link ReshardTool}).
+ * </p>
+ */
+public enum FileLayout {
+
+    FLAT,
+
+    HASHED;
+
+    /**
+     * Returns the path of the {@code id}, relative to the root directory, using {@code /} as the
+     * separator (eg: {@code 3f/a2/<id>}).
+     */
+    public String getRelativePath(String id) {
+        if (this == FLAT) {
+            return id;
+        }
+        final String shard = shardOf(id);
+        return shard.substring(0, 2) + "/" + shard.substring(2, 4) + "/" + id;
+    }
+
+    /**
+     * Returns the file of the {@code id}, with the {@code suffix} (eg: {@code .json}), where this
+     * layout places it. The file may not exist.
+     */
+    public File getFile(File root, String id, String suffix) {
+        return new File(root, this.getRelativePath(id) + suffix);
+    }
+
+    /**
+     * Returns the directory of the {@code id} where this layout places it (eg: the directory of
+     * the {@code Task}s of a {@code Job}). The directory may not exist.
+     */
+    public File getDirectory(File root, String id) {
+        return new File(root, this.getRelativePath(id));
+    }
+
+    /**
+     * Returns the existing file of the {@code id}, where this layout places it or, if there is no
+     * such file, where the other layout places it. Returns the file where this layout places it
+     * if neither exists.
+     */
+    public File find(File root, String id, String suffix) {
+        final File file = this.getFile(root, id, suffix);
+        if (file.isFile()) {
+            return file;
+        }
+        final File otherFile = this.other().getFile(root, id, suffix);
+        return otherFile.isFile() ? otherFile : file;
+    }
+
+    /**
+     * Returns the existing directory of the {@code id}, as {@link #find(File, String, String)}
+     * does for files.
+     */
+    public File findDirectory(File root, String id) {
+        final File directory = this.getDirectory(root, id);
+        if (directory.isDirectory()) {
+            return directory;
+        }
+        final File otherDirectory = this.other().getDirectory(root, id);
+        return otherDirectory.isDirectory() ? otherDirectory : directory;
+    }
+
+    /**
+     * Returns the file of the {@code id} where the other layout places it, if it exists, or
+     * {@code null}. Used to remove the legacy copy of a record once it has been written where
+     * this layout places it.
+     */
+    public File findMisplaced(File root, String id, String suffix) {
+        final File otherFile = this.other().getFile(root, id, suffix);
+        return otherFile.isFile() ? otherFile : null;
+    }
+
+    /**
+     * Returns the other layout, from which files are also read.
+     */
+    public FileLayout other() {
+        return (this == FLAT) ? HASHED : FLAT;
+    }
+
+    /**
+     * Returns the four hexadecimal digits of the hash of the {@code id} naming its directories in
+     * the {@link #HASHED} layout. The hash is stable across processes and platforms.
+     */
+    static public String shardOf(String id) {
+        final CRC32 crc = new CRC32();
+        crc.update(id.getBytes(StandardCharsets.UTF_8));
+        final String hex = Long.toHexString(crc.getValue() & 0xffffL);
+        return "0000".substring(hex.length()) + hex;
+    }
+
+}
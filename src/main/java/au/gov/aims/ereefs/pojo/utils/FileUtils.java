@@ -1,14 +1,35 @@
 package au.gov.aims.ereefs.pojo.utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Utility class for files.
  */
 public class FileUtils {
 
+    /**
+     * The name of the file locked in a directory by {@link #withLock(File, IOSupplier)}, which
+     * does not end in {@code .json}, so it is never loaded as a record.
+     */
+    final static public String LOCK_FILENAME = ".lock";
+
+    /**
+     * The locks excluding the threads of this process in {@link #withLock(File, IOSupplier)}, by
+     * file. A lock is removed once no thread holds or waits for it. Each file has its own lock,
+     * so an action may lock another file (eg: an archive or index) without risking a deadlock
+     * with an unrelated file sharing its lock.
+     */
+    final static protected Map<File, ThreadLock> THREAD_LOCKS = new HashMap<>();
+
     /**
      * Invoke {@link #listFiles(File)} with the specified {@code path}.
      */
@@ -71,4 +92,198 @@ public class FileUtils {
         return filenames;
     }
 
+    /**
+     * Write the {@code content} to the {@code file} as UTF-8, creating the parent directories if
+     * required. The content is written to a temporary file in the same directory which is then
+     * moved over the target, so concurrent readers never observe a partially written file. The
+     * write is not forced to disk (see {@link AtomicFileWriter} for durable writes).
+     *
+     * @throws IOException thrown if the file cannot be written, in which case the temporary file
+     *                     is removed.
+     */
+    static public void writeAtomically(File file, String content) throws IOException {
+        AtomicFileWriter.NON_DURABLE.write(file, content);
+    }
+
+    /**
+     * Write the {@code content} to the {@code file}, as {@link #writeAtomically(File, String)}
+     * does.
+     */
+    static public void writeAtomically(File file, byte[] content) throws IOException {
+        AtomicFileWriter.NON_DURABLE.write(file, content);
+    }
+
+    /**
+     * Execute the {@code action} while holding an exclusive lock for the {@code file}, for
+     * read-modify-write updates which must not interleave, whether made by this or another
+     * process. The threads of this process are excluded per file, while other processes are
+     * excluded by a lock on the single {@link #LOCK_FILENAME} file of the directory, which is held
+     * for as long as any thread of this process holds the lock of a file in the directory. The
+     * file itself is not locked, as it may be replaced (see {@link #writeAtomically(File, String)})
+     * while locked, and closing any other channel open on it would release the lock on some
+     * platforms.
+     *
+     * @return the result of the {@code action}.
+     * @throws IOException thrown if the lock cannot be acquired, or by the {@code action}.
+     */
+    static public <T> T withLock(File file, IOSupplier<T> action) throws IOException {
+        final File absoluteFile = file.getAbsoluteFile();
+        final File directory = absoluteFile.getParentFile();
+        directory.mkdirs();
+        final ThreadLock threadLock = ThreadLock.acquire(absoluteFile);
+        try {
+            final DirectoryLock directoryLock = DirectoryLock.acquire(directory);
+            try {
+                return action.get();
+            } finally {
+                directoryLock.release();
+            }
+        } finally {
+            threadLock.release();
+        }
+    }
+
+    /**
+     * The lock of a file excluding the threads of this process (see
+     * {@link #withLock(File, IOSupplier)}).
+     */
+    static protected class ThreadLock {
+
+        final protected File file;
+
+        final protected ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The number of threads which hold, or wait for, the lock. Guarded by
+         * {@link #THREAD_LOCKS}.
+         */
+        protected int holders;
+
+        protected ThreadLock(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Returns the lock of the {@code file}, once it is held by this thread.
+         */
+        static protected ThreadLock acquire(File file) {
+            final ThreadLock threadLock;
+            synchronized (THREAD_LOCKS) {
+                threadLock = THREAD_LOCKS.computeIfAbsent(file, ThreadLock::new);
+                threadLock.holders++;
+            }
+            threadLock.lock.lock();
+            return threadLock;
+        }
+
+        /**
+         * Release the lock, removing it once no thread holds or waits for it.
+         */
+        protected void release() {
+            this.lock.unlock();
+            synchronized (THREAD_LOCKS) {
+                this.holders--;
+                if (this.holders == 0) {
+                    THREAD_LOCKS.remove(this.file);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The lock of a directory held by this process, shared by the threads of this process which
+     * hold the lock of a file in the directory (see {@link #withLock(File, IOSupplier)}).
+     */
+    static protected class DirectoryLock {
+
+        /**
+         * The locks held by this process, by directory. Guards the {@link #holders} of each.
+         */
+        final static protected Map<File, DirectoryLock> LOCKS = new HashMap<>();
+
+        final protected File directory;
+
+        /**
+         * The number of threads which hold, or are acquiring, the lock.
+         */
+        protected int holders;
+
+        /**
+         * The channel open on the {@link #LOCK_FILENAME} file, and the lock held on it. Set by
+         * the first holder, while synchronized on this instance.
+         */
+        protected FileChannel channel;
+        protected FileLock lock;
+
+        protected DirectoryLock(File directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Returns the lock of the {@code directory}, once it is held by this process.
+         */
+        static protected DirectoryLock acquire(File directory) throws IOException {
+            final DirectoryLock directoryLock;
+            synchronized (LOCKS) {
+                directoryLock = LOCKS.computeIfAbsent(directory, DirectoryLock::new);
+                directoryLock.holders++;
+            }
+            boolean acquired = false;
+            try {
+                synchronized (directoryLock) {
+                    if (directoryLock.lock == null) {
+                        directoryLock.channel = FileChannel.open(new File(directory, LOCK_FILENAME).toPath(),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        try {
+                            directoryLock.lock = directoryLock.channel.lock();
+                        } catch (IOException | RuntimeException e) {
+                            directoryLock.channel.close();
+                            directoryLock.channel = null;
+                            throw e;
+                        }
+                    }
+                }
+                acquired = true;
+                return directoryLock;
+            } finally {
+                if (!acquired) {
+                    directoryLock.release();
+                }
+            }
+        }
+
+        /**
+         * Release the lock of this thread, releasing the lock of the process once no thread holds
+         * it.
+         */
+        protected void release() throws IOException {
+            synchronized (LOCKS) {
+                this.holders--;
+                if (this.holders > 0) {
+                    return;
+                }
+                LOCKS.remove(this.directory);
+                if (this.channel != null) {
+                    try {
+                        this.lock.release();
+                    } finally {
+                        this.channel.close();
+                        this.channel = null;
+                        this.lock = null;
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A supplier which may throw an {@code IOException}.
+     */
+    @FunctionalInterface
+    public interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
 }
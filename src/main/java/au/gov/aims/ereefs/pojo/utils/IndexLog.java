@@ -0,0 +1,363 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Append-only log of {@code <key> <value>} lines, backing an index of a file-based repository
+ * (eg: the {@code JobId} of each {@code Task}). A later line replaces an earlier line for the same
+ * key. Several processes may append to the same log; each reads the lines appended since it last
+ * read the log. Keys must not contain spaces or start with {@code #}, and neither keys nor values
+ * may contain line breaks.
+ * <p>
+ * Once the lines replaced by later lines exceed the {@link #setCompactionThreshold(int)
+ * threshold} (see {@link #compactIfRequired(int)}), the log is compacted by replacing it with the
+ * latest line of each key. Each log written by this class starts with a unique {@code #} header
+ * line, so a reader which finds the log has been replaced since it was last read reads it again
+ * from the start.
+ * </p>
+ * <p>
+ * The name of the log should not end in {@code .json}, so it is never loaded as a record.
+ * </p>
+ */
+public class IndexLog {
+
+    /**
+     * The default number of replaced lines above which the log is compacted.
+     */
+    final static public int DEFAULT_COMPACTION_THRESHOLD = 10000;
+
+    /**
+     * The start of the header line, which identifies the log.
+     */
+    final static protected String HEADER_PREFIX = "#";
+
+    /**
+     * The maximum length of the header line which is compared to identify the log.
+     */
+    final static protected int MAX_HEADER_LENGTH = 256;
+
+    final protected File file;
+
+    /**
+     * The number of replaced lines above which the log is compacted.
+     */
+    protected volatile int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    /**
+     * The header line of the log which has been read, or {@code null}.
+     */
+    protected String identity;
+
+    /**
+     * The length of the log which has been read.
+     */
+    protected long offset;
+
+    /**
+     * The header line of the log whose lines have been counted, or {@code null}.
+     */
+    protected String countedIdentity;
+
+    /**
+     * The length of the log whose lines have been counted.
+     */
+    protected long countedOffset;
+
+    /**
+     * The number of complete lines in the log, up to the {@link #countedOffset}.
+     */
+    protected long lineCount;
+
+    /**
+     * Constructor.
+     *
+     * @param file the log.
+     */
+    public IndexLog(File file) {
+        super();
+        this.file = file;
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    public boolean exists() {
+        return this.file.isFile();
+    }
+
+    /**
+     * Set the number of replaced lines above which the log is compacted. The log is only
+     * compacted once the replaced lines also outnumber the keys, so the cost of the compactions
+     * is proportional to the number of lines appended.
+     */
+    public void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Returns the entries of the complete lines appended since the log was last read (or
+     * {@link #write(Map) written}), in order. The whole log is read again if it has been replaced
+     * (eg: compacted) since it was last read.
+     */
+    public synchronized Map<String, String> readAppended() {
+        final Tail tail = this.readTail(this.identity, this.offset);
+        if (tail == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, String> entries = new LinkedHashMap<>();
+        final int end = parse(tail.bytes, (key, value) -> {
+
+            // Keep the order of the latest line of each key.
+            entries.remove(key);
+            entries.put(key, value);
+        });
+
+        // A partial last line is read again once it is complete.
+        this.identity = tail.identity;
+        this.offset = tail.start + end;
+        return entries;
+    }
+
+    /**
+     * Read the whole log again on the next {@link #readAppended()}.
+     */
+    public synchronized void reset() {
+        this.identity = null;
+        this.offset = 0;
+    }
+
+    /**
+     * Replace the log with the {@code entries}.
+     */
+    public void write(Map<String, String> entries) {
+        try {
+            FileUtils.withLock(this.file, () -> {
+                this.replace(entries);
+                synchronized (this) {
+                    this.identity = this.countedIdentity;
+                    this.offset = this.countedOffset;
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write the index (\"" + this.file + "\").", e);
+        }
+    }
+
+    /**
+     * Append a line for the entry.
+     */
+    public void append(String key, String value) {
+        this.append(Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Append a line for each of the {@code entries} with a single write, while holding the lock of
+     * the log (see {@link FileUtils#withLock(File, FileUtils.IOSupplier)}), so appends by this or
+     * another process do not interleave, and are not lost by a concurrent compaction.
+     */
+    public void append(Map<String, String> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            FileUtils.withLock(this.file, () -> {
+                try (final FileChannel channel = FileChannel.open(this.file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    final String lines = (channel.size() == 0) ? makeHeader() + '\n' + format(entries) : format(entries);
+                    final ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to update the index (\"" + this.file + "\").", e);
+        }
+    }
+
+    /**
+     * Compact the log if the lines replaced by later lines exceed the
+     * {@link #compactionThreshold}, and outnumber the keys.
+     *
+     * @param keyCount the number of keys in the log (eg: the size of the index held in memory).
+     * @return {@code true} if the log was compacted.
+     */
+    public boolean compactIfRequired(int keyCount) {
+        final long replacedLines = this.countLines() - keyCount;
+        if (replacedLines <= Math.max(this.compactionThreshold, keyCount)) {
+            return false;
+        }
+        this.compact();
+        return true;
+    }
+
+    /**
+     * Replace the log with the latest line of each key, while holding the lock of the log. The
+     * log is replaced atomically, so a concurrent reader reads either the old or the compacted
+     * log.
+     */
+    public void compact() {
+        try {
+            FileUtils.withLock(this.file, () -> {
+                if (!this.exists()) {
+                    return null;
+                }
+                final Map<String, String> entries = new LinkedHashMap<>();
+                parse(Files.readAllBytes(this.file.toPath()), entries::put);
+                this.replace(entries);
+                return null;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact the index (\"" + this.file + "\").", e);
+        }
+    }
+
+    /**
+     * Replace the log with the {@code entries}, which must be invoked while holding the lock of
+     * the log, and count its lines.
+     */
+    protected void replace(Map<String, String> entries) throws IOException {
+        final String header = makeHeader();
+        FileUtils.writeAtomically(this.file, header + '\n' + format(entries));
+        synchronized (this) {
+            this.countedIdentity = header;
+            this.countedOffset = this.file.length();
+            this.lineCount = entries.size();
+        }
+    }
+
+    /**
+     * Count the complete lines appended since the lines were last counted.
+     *
+     * @return the number of complete lines in the log.
+     */
+    protected synchronized long countLines() {
+        final Tail tail = this.readTail(this.countedIdentity, this.countedOffset);
+        if (tail == null) {
+            return 0;
+        }
+        if (tail.start == 0) {
+            this.lineCount = 0;
+        }
+        final long[] lines = new long[1];
+        final int end = parse(tail.bytes, (key, value) -> lines[0]++);
+        this.countedIdentity = tail.identity;
+        this.countedOffset = tail.start + end;
+        this.lineCount += lines[0];
+        return this.lineCount;
+    }
+
+    /**
+     * Read the log from the {@code offset} to its end, or from the start if its header line is
+     * not the {@code identity} or it is shorter than the {@code offset}. The header and the lines
+     * are read from the same open file, so they are consistent even if the log is replaced
+     * meanwhile.
+     *
+     * @return the bytes read, or {@code null} if there is no log.
+     */
+    protected Tail readTail(String identity, long offset) {
+        if (!this.exists()) {
+            return null;
+        }
+        try (final RandomAccessFile log = new RandomAccessFile(this.file, "r")) {
+            final long length = log.length();
+            final byte[] headerBytes = new byte[(int) Math.min(length, MAX_HEADER_LENGTH)];
+            log.readFully(headerBytes);
+            int headerLength = 0;
+            while (headerLength < headerBytes.length && headerBytes[headerLength] != '\n') {
+                headerLength++;
+            }
+            final String header = new String(headerBytes, 0, headerLength, StandardCharsets.UTF_8);
+            final long start = (header.equals(identity) && length >= offset) ? offset : 0;
+            final byte[] bytes = new byte[(int) (length - start)];
+            log.seek(start);
+            log.readFully(bytes);
+            return new Tail(header, start, bytes);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the index (\"" + this.file + "\").", e);
+        }
+    }
+
+    /**
+     * Returns a new, unique, header line, without its line break.
+     */
+    static protected String makeHeader() {
+        return HEADER_PREFIX + UUID.randomUUID();
+    }
+
+    /**
+     * Pass the key and value of each complete line of the {@code bytes}, other than the header,
+     * to the {@code consumer}.
+     *
+     * @return the length of the complete lines.
+     */
+    static protected int parse(byte[] bytes, LineConsumer consumer) {
+        int start = 0;
+        for (int index = 0; index < bytes.length; index++) {
+            if (bytes[index] == '\n') {
+                final String line = new String(bytes, start, index - start, StandardCharsets.UTF_8);
+                final int separator = line.indexOf(' ');
+                if (separator > 0 && !line.startsWith(HEADER_PREFIX)) {
+                    consumer.accept(line.substring(0, separator), line.substring(separator + 1));
+                }
+                start = index + 1;
+            }
+        }
+        return start;
+    }
+
+    static protected String format(Map<String, String> entries) {
+        final StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            lines.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return lines.toString();
+    }
+
+    /**
+     * The bytes of a log from {@link #start} to its end, and the header line of the log.
+     */
+    static protected class Tail {
+
+        final protected String identity;
+
+        final protected long start;
+
+        final protected byte[] bytes;
+
+        protected Tail(String identity, long start, byte[] bytes) {
+            this.identity = identity;
+            this.start = start;
+            this.bytes = bytes;
+        }
+
+    }
+
+    /**
+     * Receives the key and value of each line read by {@link #parse(byte[], LineConsumer)}.
+     */
+    @FunctionalInterface
+    protected interface LineConsumer {
+
+        void accept(String key, String value);
+
+    }
+
+}
@@ -1,16 +1,44 @@
 package au.gov.aims.ereefs.pojo.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import org.json.JSONObject;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Utility class for loading JSON files.
  */
 public class JSONFileReader {
 
+    /**
+     * Files of at least this size (in bytes) are memory-mapped by
+     * {@link #parseFile(File, JsonFactory, ParserFunction)}. Smaller files are read into a
+     * per-thread buffer, as mapping has a higher fixed cost.
+     */
+    final static public long MAPPED_FILE_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Per-thread buffer for reading files smaller than {@link #MAPPED_FILE_THRESHOLD}. The buffer
+     * is removed while in use, so a nested call on the same thread allocates its own.
+     */
+    final static protected ThreadLocal<byte[]> BUFFER = new ThreadLocal<>();
+
     /**
      * Recursively load JSON files form the specified directory.
      *
@@ -23,16 +51,46 @@ public class JSONFileReader {
     }
 
     /**
-     * Recursively load JSON files form the specified directory.
+     * Recursively load JSON files form the specified directory. The files are read and parsed in
+     * parallel (see {@link #stream(File, FileParser, Consumer)}), and the order of the result
+     * follows the sorted paths of the files.
      *
      * @param directory the root directory to load JSON files from.
      * @return a {@code List} of {@code JSONObjects}.
      * @throws IOException thrown if unable to load a file.
      */
     static public List<JSONObject> loadList(File directory) throws IOException {
+        final Queue<LoadFailure> failures = new ConcurrentLinkedQueue<>();
+        final List<JSONObject> list;
+        try (final Stream<JSONObject> stream = stream(directory, JSONFileReader::loadFileAsJSONObject, failures::add)) {
+            list = stream.collect(Collectors.toList());
+        }
 
-        List<JSONObject> list = new ArrayList<>();
+        // Maintain the original contract of failing if any file could not be loaded.
+        final LoadFailure failure = failures.peek();
+        if (failure != null) {
+            if (failure.getException() instanceof IOException) {
+                throw (IOException) failure.getException();
+            }
+            throw new IOException("Failed to load \"" + failure.getFile().getPath() + "\".",
+                failure.getException());
+        }
+        return list;
+    }
 
+    /**
+     * Recursively find the JSON files (with a {@code .json} suffix, ignoring case) beneath the
+     * specified directory, using a {@code FileVisitor} that follows links. Files and directories
+     * that cannot be visited are reported to the {@code failureHandler} rather than aborting the
+     * search.
+     *
+     * @param directory the root directory to search.
+     * @param failureHandler invoked for each file or directory which cannot be visited.
+     * @return the sorted list of JSON files.
+     * @throws IOException thrown if the directory does not exist or is not a directory.
+     */
+    static public List<File> listJsonFiles(File directory,
+                                           Consumer<LoadFailure> failureHandler) throws IOException {
         if (!directory.exists()) {
             throw new FileNotFoundException("The directory \"" + directory.getPath() +
                 "\" does not exist.");
@@ -41,22 +99,58 @@ public class JSONFileReader {
             throw new FileNotFoundException("\"" + directory.getName() + "\" is not a directory.");
         }
 
-        // Retrieve a list of all files in the directory.
-        File[] allFiles = directory.listFiles();
-        for (File file : allFiles) {
-
-            // If the current file is a directory, recursively load from that directory also.
-            if (file.isDirectory()) {
-                list.addAll(loadList(file));
-            }
+        return DirectorySnapshot.take(directory, failureHandler).getFiles();
+    }
 
-            // If the file ends in '.json', load it.
-            if (file.getName().toLowerCase().endsWith(".json")) {
-                list.add(loadFileAsJSONObject(file));
-            }
-        }
+    /**
+     * Recursively find the JSON files beneath the specified directory (see
+     * {@link #listJsonFiles(File, Consumer)}) and return a parallel {@code Stream} of the objects
+     * produced by applying the {@code parser} to each file. The files are only read and parsed
+     * when the {@code Stream} is consumed, on the common {@code ForkJoinPool}, so the parsed
+     * objects need not be held in memory at once.
+     * <p>
+     * A file that cannot be parsed does not abort the {@code Stream}. Instead it is reported to the
+     * {@code failureHandler} and omitted, as are files for which the {@code parser} returns
+     * {@code null}. The {@code failureHandler} may be invoked concurrently from several threads.
+     * </p>
+     * <p>
+     * Use {@code forEachOrdered()} to consume the {@code Stream} into a structure that is not
+     * thread-safe.
+     * </p>
+     *
+     * @param directory the root directory to load JSON files from.
+     * @param parser converts each file to the required object.
+     * @param failureHandler invoked for each file which cannot be visited or parsed.
+     * @throws IOException thrown if the directory does not exist or is not a directory.
+     */
+    static public <T> Stream<T> stream(File directory,
+                                       FileParser<T> parser,
+                                       Consumer<LoadFailure> failureHandler) throws IOException {
+        return stream(listJsonFiles(directory, failureHandler), parser, failureHandler);
+    }
 
-        return list;
+    /**
+     * Return a parallel {@code Stream} of the objects produced by applying the {@code parser} to
+     * each of the specified files. See {@link #stream(File, FileParser, Consumer)}.
+     *
+     * @param files the JSON files to load.
+     * @param parser converts each file to the required object.
+     * @param failureHandler invoked for each file which cannot be parsed.
+     */
+    static public <T> Stream<T> stream(List<File> files,
+                                       FileParser<T> parser,
+                                       Consumer<LoadFailure> failureHandler) {
+        return files
+            .parallelStream()
+            .map(file -> {
+                try {
+                    return parser.parse(file);
+                } catch (Exception e) {
+                    failureHandler.accept(new LoadFailure(file, e));
+                    return null;
+                }
+            })
+            .filter(Objects::nonNull);
     }
 
     /**
@@ -93,25 +187,138 @@ public class JSONFileReader {
     }
 
     /**
-     * Load the specified JSON file.
+     * Load the specified JSON file, returning a {@code String} representation. The file is
+     * decoded as {@code UTF-8}, and the content is returned unchanged.
      *
      * @param file the reference of the JSON file to load.
-     * @return a {@code JSONObject} representing the JSON file.
+     * @return a {@code String} representing the JSON file.
      * @throws IOException thrown if unable to load a file.
      */
     static public String loadFileAsString(File file) throws IOException {
-        StringBuffer sb = new StringBuffer();
-        try (BufferedReader bufferedReader = new BufferedReader(
-            new InputStreamReader(
-                new FileInputStream(file)
-            )
-        )) {
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                sb.append(line);
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Bind the specified JSON file to an object of the specified type using the
+     * {@code ObjectMapper}. See {@link #parseFile(File, JsonFactory, ParserFunction)}.
+     *
+     * @param file the reference of the JSON file to load.
+     * @param jsonMapper the {@code ObjectMapper} to bind the JSON with.
+     * @param type the type of the object to return.
+     * @return the object represented by the JSON file.
+     * @throws IOException thrown if unable to load or bind the file.
+     */
+    static public <T> T loadFile(File file, ObjectMapper jsonMapper, Class<T> type) throws IOException {
+        return parseFile(file, jsonMapper.getFactory(), parser -> jsonMapper.readValue(parser, type));
+    }
+
+    /**
+     * Open a {@code JsonParser} over the raw bytes of the specified file and apply the
+     * {@code function} to it. No {@code String} copy of the document is created: the bytes are
+     * handed straight to {@code Jackson}, which detects the encoding ({@code UTF-8} by default).
+     * Files of at least {@link #MAPPED_FILE_THRESHOLD} bytes are memory-mapped, while smaller
+     * files are read into a buffer which is reused by the current thread.
+     * <p>
+     * The parser is only valid until the {@code function} returns, and is closed by this method.
+     * </p>
+     *
+     * @param file the reference of the JSON file to load.
+     * @param jsonFactory the factory used to create the {@code JsonParser}.
+     * @param function the function to apply to the {@code JsonParser}.
+     * @return the result of the {@code function}.
+     * @throws IOException thrown if unable to load or parse the file.
+     */
+    static public <T> T parseFile(File file,
+                                  JsonFactory jsonFactory,
+                                  ParserFunction<T> function) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            // Map large files. The mapping is released when the buffer is garbage collected.
+            if (size >= MAPPED_FILE_THRESHOLD) {
+                final MappedByteBuffer mappedByteBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                try (final JsonParser parser = jsonFactory.createParser(
+                    new ByteBufferBackedInputStream(mappedByteBuffer))) {
+                    return function.apply(parser);
+                }
+            }
+
+            // Read small files into the buffer of the current thread.
+            byte[] buffer = BUFFER.get();
+            BUFFER.remove();
+            if (buffer == null || buffer.length < size) {
+                buffer = new byte[(int) size];
+            }
+            final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            while (channel.read(byteBuffer) > 0 && byteBuffer.hasRemaining()) {
+                // Read until the buffer is full or the end of the file is reached.
+            }
+            try (final JsonParser parser = jsonFactory.createParser(buffer, 0, byteBuffer.position())) {
+                return function.apply(parser);
+            } finally {
+                BUFFER.set(buffer);
             }
-            return sb.toString();
         }
     }
 
+    /**
+     * Function applied to the {@code JsonParser} by
+     * {@link #parseFile(File, JsonFactory, ParserFunction)}.
+     */
+    @FunctionalInterface
+    public interface ParserFunction<T> {
+
+        /**
+         * Apply the function to the {@code JsonParser}.
+         */
+        T apply(JsonParser parser) throws IOException;
+
+    }
+
+    /**
+     * Converts a single file to an object for {@link #stream(File, FileParser, Consumer)}.
+     */
+    @FunctionalInterface
+    public interface FileParser<T> {
+
+        /**
+         * Parse the specified file, returning {@code null} if the file should be ignored.
+         */
+        T parse(File file) throws Exception;
+
+    }
+
+    /**
+     * Details of a file which could not be loaded by {@link #stream(File, FileParser, Consumer)}.
+     */
+    static public class LoadFailure {
+
+        /**
+         * The file which could not be loaded.
+         */
+        final protected File file;
+
+        /**
+         * The cause of the failure.
+         */
+        final protected Exception exception;
+
+        /**
+         * Constructor.
+         */
+        public LoadFailure(File file, Exception exception) {
+            this.file = file;
+            this.exception = exception;
+        }
+
+        public File getFile() {
+            return this.file;
+        }
+
+        public Exception getException() {
+            return this.exception;
+        }
+
+    }
+
 }
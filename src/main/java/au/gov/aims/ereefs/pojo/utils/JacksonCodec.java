@@ -0,0 +1,247 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * {@code MongoDB} {@code Codec} which converts between BSON and a POJO using {@code Jackson},
+ * without an intermediate JSON {@code String}. When decoding, the BSON values are read from the
+ * {@code BsonReader} (which, for documents returned by the driver, reads directly from the wire
+ * buffer) into a {@code Jackson} {@code TokenBuffer}, which is then bound to the POJO. When
+ * encoding, the POJO is serialised to a {@code TokenBuffer}, which is then replayed into the
+ * {@code BsonWriter}. As the POJO is bound by the {@code ObjectMapper}, all {@code Jackson}
+ * annotations, including the polymorphic {@code type} property, are honoured.
+ * <p>
+ * The result is the same as the previous path (relaxed extended JSON, then {@code Jackson}, and
+ * {@code Jackson}, then {@code Document.parse()}): BSON types without a plain JSON equivalent,
+ * such as dates and {@code ObjectId}s, are presented to {@code Jackson} as their relaxed extended
+ * JSON form, and integers are written as {@code Int32} where they fit.
+ * </p>
+ */
+public class JacksonCodec<T> implements Codec<T> {
+
+    /**
+     * Settings for presenting BSON types without a plain JSON equivalent to {@code Jackson}.
+     */
+    final static protected JsonWriterSettings WRITER_SETTINGS =
+        JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+    final static protected BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+
+    /**
+     * The {@code ObjectMapper} used to bind the POJO.
+     */
+    final protected ObjectMapper jsonMapper;
+
+    /**
+     * The class of the POJO.
+     */
+    final protected Class<T> pojoClass;
+
+    /**
+     * Constructor.
+     *
+     * @param jsonMapper the {@code ObjectMapper} used to bind the POJO.
+     * @param pojoClass the class of the POJO.
+     */
+    public JacksonCodec(ObjectMapper jsonMapper,
+                        Class<T> pojoClass) {
+        super();
+        this.jsonMapper = jsonMapper;
+        this.pojoClass = pojoClass;
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return this.pojoClass;
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        final TokenBuffer buffer = new TokenBuffer(this.jsonMapper, false);
+        try {
+            this.readValue(reader, buffer);
+            try (JsonParser parser = buffer.asParser()) {
+                return this.jsonMapper.readValue(parser, this.pojoClass);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to instantiate \"" + this.pojoClass + "\".", e);
+        }
+    }
+
+    /**
+     * Copy the current BSON value from the {@code reader} to the {@code buffer}.
+     */
+    protected void readValue(BsonReader reader, TokenBuffer buffer) throws IOException {
+        final BsonType bsonType = reader.getCurrentBsonType();
+        switch (bsonType == null ? BsonType.DOCUMENT : bsonType) {
+            case DOCUMENT:
+                reader.readStartDocument();
+                buffer.writeStartObject();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    buffer.writeFieldName(reader.readName());
+                    this.readValue(reader, buffer);
+                }
+                reader.readEndDocument();
+                buffer.writeEndObject();
+                break;
+            case ARRAY:
+                reader.readStartArray();
+                buffer.writeStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    this.readValue(reader, buffer);
+                }
+                reader.readEndArray();
+                buffer.writeEndArray();
+                break;
+            case STRING:
+                buffer.writeString(reader.readString());
+                break;
+            case INT32:
+                buffer.writeNumber(reader.readInt32());
+                break;
+            case INT64:
+                buffer.writeNumber(reader.readInt64());
+                break;
+            case BOOLEAN:
+                buffer.writeBoolean(reader.readBoolean());
+                break;
+            case NULL:
+                reader.readNull();
+                buffer.writeNull();
+                break;
+            case DOUBLE:
+                final double value = reader.readDouble();
+                if (Double.isFinite(value)) {
+                    buffer.writeNumber(value);
+                } else {
+                    this.copyExtendedJson(new BsonDouble(value), buffer);
+                }
+                break;
+            default:
+                this.copyExtendedJson(BSON_VALUE_CODEC.decode(reader, DecoderContext.builder().build()), buffer);
+        }
+    }
+
+    /**
+     * Copy the relaxed extended JSON form of a BSON value without a plain JSON equivalent to the
+     * {@code buffer}. These values are rare, so this does not need to be efficient.
+     */
+    protected void copyExtendedJson(BsonValue value, TokenBuffer buffer) throws IOException {
+        final String json = new BsonDocument("value", value).toJson(WRITER_SETTINGS);
+        try (JsonParser parser = this.jsonMapper.getFactory().createParser(json)) {
+            parser.nextToken(); // START_OBJECT
+            parser.nextToken(); // FIELD_NAME
+            parser.nextToken();
+            buffer.copyCurrentStructure(parser);
+        }
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        final TokenBuffer buffer = new TokenBuffer(this.jsonMapper, false);
+        try {
+            this.jsonMapper.writeValue(buffer, value);
+            try (JsonParser parser = buffer.asParser()) {
+                JsonToken token;
+                while ((token = parser.nextToken()) != null) {
+                    this.writeToken(parser, token, writer);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialise \"" + this.pojoClass + "\".", e);
+        }
+    }
+
+    /**
+     * Write the current token of the {@code parser} to the {@code writer}.
+     */
+    protected void writeToken(JsonParser parser, JsonToken token, BsonWriter writer) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                writer.writeStartDocument();
+                break;
+            case END_OBJECT:
+                writer.writeEndDocument();
+                break;
+            case START_ARRAY:
+                writer.writeStartArray();
+                break;
+            case END_ARRAY:
+                writer.writeEndArray();
+                break;
+            case FIELD_NAME:
+                writer.writeName(parser.getCurrentName());
+                break;
+            case VALUE_STRING:
+                writer.writeString(parser.getText());
+                break;
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        writer.writeInt32(parser.getIntValue());
+                        break;
+                    case LONG:
+                        final long longValue = parser.getLongValue();
+                        if (longValue == (int) longValue) {
+                            writer.writeInt32((int) longValue);
+                        } else {
+                            writer.writeInt64(longValue);
+                        }
+                        break;
+                    default:
+                        if (parser.getBigIntegerValue().bitLength() < 64) {
+                            writer.writeInt64(parser.getLongValue());
+                        } else {
+                            writer.writeDouble(parser.getDoubleValue());
+                        }
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                // Widen a float via its text, as Document.parse() would have.
+                writer.writeDouble(parser.getNumberType() == JsonParser.NumberType.FLOAT ?
+                    Double.parseDouble(parser.getText()) :
+                    parser.getDoubleValue());
+                break;
+            case VALUE_TRUE:
+                writer.writeBoolean(true);
+                break;
+            case VALUE_FALSE:
+                writer.writeBoolean(false);
+                break;
+            case VALUE_NULL:
+                writer.writeNull();
+                break;
+            case VALUE_EMBEDDED_OBJECT:
+                final Object embedded = parser.getEmbeddedObject();
+                if (embedded == null) {
+                    writer.writeNull();
+                } else if (embedded instanceof byte[]) {
+                    writer.writeString(Base64.getEncoder().encodeToString((byte[]) embedded));
+                } else {
+                    writer.writeString(embedded.toString());
+                }
+                break;
+            default:
+                throw new IOException("Unsupported token: " + token);
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * {@code CodecProvider} which supplies a {@link JacksonCodec} for a base class and each of its
+ * subclasses, as the driver looks up the {@code Codec} for the runtime class of a POJO when
+ * writing it (eg: {@code NcAggregateTask} rather than {@code Task}).
+ */
+public class JacksonCodecProvider implements CodecProvider {
+
+    /**
+     * The {@code ObjectMapper} used to bind the POJOs.
+     */
+    final protected ObjectMapper jsonMapper;
+
+    /**
+     * The base class of the POJOs supported by this provider.
+     */
+    final protected Class<?> baseClass;
+
+    /**
+     * Constructor.
+     *
+     * @param jsonMapper the {@code ObjectMapper} used to bind the POJOs.
+     * @param baseClass the base class of the POJOs supported by this provider.
+     */
+    public JacksonCodecProvider(ObjectMapper jsonMapper,
+                                Class<?> baseClass) {
+        super();
+        this.jsonMapper = jsonMapper;
+        this.baseClass = baseClass;
+    }
+
+    @Override
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        if (this.baseClass.isAssignableFrom(clazz)) {
+            return new JacksonCodec<>(this.jsonMapper, clazz);
+        }
+        return null;
+    }
+
+}
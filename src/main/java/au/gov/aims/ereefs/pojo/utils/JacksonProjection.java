@@ -0,0 +1,462 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.AbstractDeserializer;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBase;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Server-side {@code MongoDB} projection which limits the fields returned by a query to those that
+ * are bound by {@code Jackson} when the result is converted to a POJO, so fields that would be
+ * discarded (eg: the {@code verticalDomain} of each {@code NetCDFMetadata.Variable}) do not cross
+ * the wire.
+ * <p>
+ * The projection is derived (see {@link #of(ObjectMapper, Class)}) from the bean deserialisers
+ * {@code Jackson} builds for the POJO class, so it honours {@code @JsonIgnore},
+ * {@code @JsonIgnoreProperties}, renamed properties and creator parameters, and includes the
+ * properties of every registered subtype, and the type property, of a polymorphic class. Values
+ * that cannot be pruned safely, such as those bound by a custom deserialiser, a delegating creator
+ * or an any-setter, or typed as {@code JsonNode} or {@code Object}, are returned whole.
+ * </p>
+ * <p>
+ * Nested beans, and collections of beans, are projected with dotted paths, which work with
+ * {@code find()}. Maps of beans (eg: {@code NetCDFMetadata.variables}) have dynamic keys, which a
+ * {@code find()} projection cannot express, so a projection including one must be applied with
+ * an aggregation {@code $project} stage instead (see {@link #requiresAggregation()}).
+ * </p>
+ */
+public class JacksonProjection {
+
+    /**
+     * Node of a projection describing a value which is returned whole.
+     */
+    final static protected Node WHOLE = new Node();
+
+    /**
+     * The projection of the root document.
+     */
+    final protected Node root;
+
+    protected JacksonProjection(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Derive the projection of the fields bound by the {@code jsonMapper} when converting a
+     * document to the {@code pojoClass}.
+     */
+    static public JacksonProjection of(ObjectMapper jsonMapper, Class<?> pojoClass) {
+        return new JacksonProjection(new Resolver(jsonMapper).describe(
+            jsonMapper.constructType(pojoClass),
+            new HashSet<>()
+        ));
+    }
+
+    /**
+     * Returns a projection of the specified top-level fields, each returned whole.
+     */
+    static public JacksonProjection include(String... fieldNames) {
+        final Map<String, Node> properties = new LinkedHashMap<>();
+        for (String fieldName : fieldNames) {
+            properties.put(fieldName, WHOLE);
+        }
+        return new JacksonProjection(new BeanNode(properties));
+    }
+
+    /**
+     * Returns {@code true} if the projection does not limit the fields returned, in which case
+     * it should not be applied.
+     */
+    public boolean isEmpty() {
+        return this.root == WHOLE;
+    }
+
+    /**
+     * Returns {@code true} if the projection includes a map of beans, so it must be applied with
+     * {@link #toProjectStage()} rather than {@link #toProjection()}.
+     */
+    public boolean requiresAggregation() {
+        return this.root.containsMap();
+    }
+
+    /**
+     * Returns the top-level field names included by the projection, or an empty set if the
+     * projection {@link #isEmpty()}.
+     */
+    public Set<String> getFieldNames() {
+        return (this.root instanceof BeanNode) ?
+            Collections.unmodifiableSet(((BeanNode) this.root).properties.keySet()) :
+            Collections.emptySet();
+    }
+
+    /**
+     * Returns the projection for use with {@code find()}, as a list of dotted paths to include.
+     *
+     * @throws IllegalStateException if the projection {@link #requiresAggregation()}.
+     */
+    public Bson toProjection() {
+        if (this.requiresAggregation()) {
+            throw new IllegalStateException("Projection requires an aggregation $project stage.");
+        }
+        final List<String> paths = new ArrayList<>();
+        this.root.addPaths("", paths);
+        return Projections.include(paths);
+    }
+
+    /**
+     * Returns the projection as an aggregation {@code $project} stage. Fields without a map of
+     * beans are included by dotted path, while maps of beans are rebuilt with
+     * {@code $objectToArray}/{@code $arrayToObject}, keeping only the bound fields of each value.
+     */
+    public Bson toProjectStage() {
+        final Document specification = new Document();
+        if (this.root instanceof BeanNode) {
+            for (Map.Entry<String, Node> entry : ((BeanNode) this.root).properties.entrySet()) {
+                final Node node = entry.getValue();
+                if (node.containsMap()) {
+                    specification.append(entry.getKey(), node.toExpression("$" + entry.getKey(), 0));
+                } else {
+                    final List<String> paths = new ArrayList<>();
+                    node.addPaths(entry.getKey(), paths);
+                    for (String path : paths) {
+                        specification.append(path, 1);
+                    }
+                }
+            }
+        }
+        return Aggregates.project(specification);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Node of a projection. The base class describes a value which is returned whole.
+     */
+    static protected class Node {
+
+        /**
+         * Returns {@code true} if this node contains a map of beans.
+         */
+        protected boolean containsMap() {
+            return false;
+        }
+
+        /**
+         * Add the dotted paths included by this node, which is at {@code path}, to the list.
+         */
+        protected void addPaths(String path, List<String> paths) {
+            paths.add(path);
+        }
+
+        /**
+         * Returns the aggregation expression projecting this node, whose value is given by the
+         * {@code value} expression. {@code depth} is used for naming {@code $map} variables.
+         */
+        protected Object toExpression(String value, int depth) {
+            return value;
+        }
+
+        /**
+         * Returns the node which includes the fields of both this node and the {@code other}.
+         */
+        protected Node union(Node other) {
+            return WHOLE;
+        }
+
+    }
+
+    /**
+     * Node describing a bean, of which only the listed properties are included.
+     */
+    static protected class BeanNode extends Node {
+
+        final protected Map<String, Node> properties;
+
+        protected BeanNode(Map<String, Node> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        protected boolean containsMap() {
+            for (Node node : this.properties.values()) {
+                if (node.containsMap()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected void addPaths(String path, List<String> paths) {
+            for (Map.Entry<String, Node> entry : this.properties.entrySet()) {
+                entry.getValue().addPaths(path.isEmpty() ? entry.getKey() : path + "." + entry.getKey(), paths);
+            }
+        }
+
+        @Override
+        protected Object toExpression(String value, int depth) {
+            final Document fields = new Document();
+            for (Map.Entry<String, Node> entry : this.properties.entrySet()) {
+                fields.append(entry.getKey(), entry.getValue().toExpression(value + "." + entry.getKey(), depth));
+            }
+            // Only rebuild objects, so missing, null or unexpected values are passed through.
+            return new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList(new Document("$type", value), "object")),
+                fields,
+                value
+            ));
+        }
+
+        @Override
+        protected Node union(Node other) {
+            if (!(other instanceof BeanNode)) {
+                return WHOLE;
+            }
+            final Map<String, Node> properties = new LinkedHashMap<>(this.properties);
+            for (Map.Entry<String, Node> entry : ((BeanNode) other).properties.entrySet()) {
+                properties.merge(entry.getKey(), entry.getValue(), Node::union);
+            }
+            return new BeanNode(properties);
+        }
+
+    }
+
+    /**
+     * Node describing a collection (or array) of beans.
+     */
+    static protected class ArrayNode extends Node {
+
+        final protected Node element;
+
+        protected ArrayNode(Node element) {
+            this.element = element;
+        }
+
+        @Override
+        protected boolean containsMap() {
+            return this.element.containsMap();
+        }
+
+        @Override
+        protected void addPaths(String path, List<String> paths) {
+            // Dotted paths apply to each element of an array.
+            this.element.addPaths(path, paths);
+        }
+
+        @Override
+        protected Object toExpression(String value, int depth) {
+            final String variable = "v" + depth;
+            return new Document("$cond", Arrays.asList(
+                new Document("$isArray", value),
+                new Document("$map", new Document("input", value)
+                    .append("as", variable)
+                    .append("in", this.element.toExpression("$$" + variable, depth + 1))),
+                value
+            ));
+        }
+
+        @Override
+        protected Node union(Node other) {
+            return (other instanceof ArrayNode) ?
+                new ArrayNode(this.element.union(((ArrayNode) other).element)) :
+                WHOLE;
+        }
+
+    }
+
+    /**
+     * Node describing a map, with dynamic keys, of beans.
+     */
+    static protected class MapNode extends Node {
+
+        final protected Node value;
+
+        protected MapNode(Node value) {
+            this.value = value;
+        }
+
+        @Override
+        protected boolean containsMap() {
+            return true;
+        }
+
+        @Override
+        protected void addPaths(String path, List<String> paths) {
+            throw new IllegalStateException("A map of beans cannot be projected by path.");
+        }
+
+        @Override
+        protected Object toExpression(String value, int depth) {
+            final String variable = "v" + depth;
+            return new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList(new Document("$type", value), "object")),
+                new Document("$arrayToObject", new Document("$map", new Document("input", new Document("$objectToArray", value))
+                    .append("as", variable)
+                    .append("in", new Document("k", "$$" + variable + ".k")
+                        .append("v", this.value.toExpression("$$" + variable + ".v", depth + 1))))),
+                value
+            ));
+        }
+
+        @Override
+        protected Node union(Node other) {
+            return (other instanceof MapNode) ?
+                new MapNode(this.value.union(((MapNode) other).value)) :
+                WHOLE;
+        }
+
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Derives the {@link Node}s of a projection from the deserialisers of an {@code ObjectMapper}.
+     */
+    static protected class Resolver {
+
+        final protected ObjectMapper jsonMapper;
+
+        final protected DeserializationConfig config;
+
+        final protected DefaultDeserializationContext context;
+
+        protected Resolver(ObjectMapper jsonMapper) {
+            this.jsonMapper = jsonMapper;
+            this.config = jsonMapper.getDeserializationConfig();
+            this.context = ((DefaultDeserializationContext) jsonMapper.getDeserializationContext())
+                .createInstance(this.config, null, null);
+        }
+
+        /**
+         * Returns the node describing the fields bound for a value of the specified type.
+         * {@code inProgress} holds the classes being described, to stop recursive types.
+         */
+        protected Node describe(JavaType type, Set<Class<?>> inProgress) {
+            if (type.isMapLikeType()) {
+                final Node value = this.describe(type.getContentType(), inProgress);
+                return (value == WHOLE) ? WHOLE : new MapNode(value);
+            }
+            if (type.isCollectionLikeType() || type.isArrayType()) {
+                final Node element = this.describe(type.getContentType(), inProgress);
+                return (element == WHOLE) ? WHOLE : new ArrayNode(element);
+            }
+            if (type.isContainerType() || !inProgress.add(type.getRawClass())) {
+                return WHOLE;
+            }
+            try {
+                return this.describeBean(type, inProgress);
+            } catch (JsonMappingException | RuntimeException e) {
+                // The deserialiser could not be built, so leave any failure to the conversion.
+                return WHOLE;
+            } finally {
+                inProgress.remove(type.getRawClass());
+            }
+        }
+
+        /**
+         * Returns the node describing the union of the properties of the bean and each of its
+         * registered subtypes, or {@link #WHOLE} if any cannot be pruned safely.
+         */
+        protected Node describeBean(JavaType type, Set<Class<?>> inProgress) throws JsonMappingException {
+            final BeanDescription description = this.config.introspectClassAnnotations(type);
+            final Map<String, Node> properties = new LinkedHashMap<>();
+
+            // Include the type property of a polymorphic class.
+            final JsonTypeInfo typeInfo = description.getClassAnnotations().get(JsonTypeInfo.class);
+            if (typeInfo != null && typeInfo.use() != JsonTypeInfo.Id.NONE) {
+                if (typeInfo.include() != JsonTypeInfo.As.PROPERTY &&
+                    typeInfo.include() != JsonTypeInfo.As.EXISTING_PROPERTY) {
+                    return WHOLE;
+                }
+                properties.put(
+                    typeInfo.property().isEmpty() ? typeInfo.use().getDefaultPropertyName() : typeInfo.property(),
+                    WHOLE
+                );
+            }
+
+            final List<JavaType> types = new ArrayList<>();
+            types.add(type);
+            for (NamedType namedType : this.jsonMapper.getSubtypeResolver()
+                .collectAndResolveSubtypesByClass(this.config, description.getClassInfo())) {
+                if (namedType.getType() != type.getRawClass()) {
+                    types.add(this.jsonMapper.constructType(namedType.getType()));
+                }
+            }
+
+            for (JavaType beanType : types) {
+                final JsonDeserializer<?> deserializer = this.context.findContextualValueDeserializer(beanType, null);
+                if (deserializer instanceof AbstractDeserializer) {
+                    // An abstract base class, whose subtypes are described separately.
+                    continue;
+                }
+                if (!(deserializer instanceof BeanDeserializerBase)) {
+                    return WHOLE;
+                }
+                final BeanDeserializerBase beanDeserializer = (BeanDeserializerBase) deserializer;
+                if (beanDeserializer.getValueInstantiator().canCreateUsingDelegate() ||
+                    beanDeserializer.getValueInstantiator().canCreateUsingArrayDelegate() ||
+                    this.config.introspect(beanType).findAnySetterAccessor() != null) {
+                    return WHOLE;
+                }
+
+                final Iterator<SettableBeanProperty> iterator = beanDeserializer.properties();
+                while (iterator.hasNext()) {
+                    final SettableBeanProperty property = iterator.next();
+                    final AnnotatedMember member = property.getMember();
+                    if (member != null && member.hasAnnotation(JsonUnwrapped.class)) {
+                        return WHOLE;
+                    }
+                    final Node node = (member != null && member.hasAnnotation(JsonDeserialize.class)) ?
+                        WHOLE :
+                        this.describe(property.getType(), inProgress);
+                    final List<String> names = new ArrayList<>();
+                    names.add(property.getName());
+                    if (member != null) {
+                        final List<PropertyName> aliases = this.config.getAnnotationIntrospector().findPropertyAliases(member);
+                        if (aliases != null) {
+                            for (PropertyName alias : aliases) {
+                                names.add(alias.getSimpleName());
+                            }
+                        }
+                    }
+                    for (String name : names) {
+                        if (name.isEmpty() || name.contains(".") || name.startsWith("$")) {
+                            return WHOLE;
+                        }
+                        properties.merge(name, node, Node::union);
+                    }
+                }
+            }
+
+            return properties.isEmpty() ? WHOLE : new BeanNode(properties);
+        }
+
+    }
+
+}
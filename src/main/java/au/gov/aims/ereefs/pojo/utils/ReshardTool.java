@@ -0,0 +1,198 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import au.gov.aims.ereefs.pojo.task.TaskPathIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline tool to move the files of a file-based repository into a {@link FileLayout}. It must
+ * not be run while the repository is in use, although the DAOs read files in either layout, so
+ * a repository which is only partly moved (eg: because the tool was interrupted) is still read
+ * correctly, and the tool can simply be run again.
+ * <p>
+ * Most repositories hold a file per record, named by its {@code id} (eg: {@code <id>.json}, or
+ * {@code <id>.history} for a {@code HistoryArchiveFileImpl}), and each file is moved. The
+ * {@code Task} repository holds a directory per {@code Job} instead, and each directory is moved
+ * ({@code --directories}); its {@link TaskPathIndex} log is then removed, so it is rebuilt. The
+ * {@code Task} repository must not be moved file by file. Where a record is found in both
+ * layouts, the most recently modified file is kept.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... au.gov.aims.ereefs.pojo.utils.ReshardTool &lt;path&gt; &lt;FLAT|HASHED&gt; [--directories]
+ * </pre>
+ */
+public class ReshardTool {
+
+    /**
+     * The suffixes of the record files which are moved.
+     */
+    final static protected String[] SUFFIXES = new String[]{".json", ".history"};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReshardTool <path> <FLAT|HASHED> [--directories]");
+            System.exit(1);
+        }
+        final File root = new File(args[0]);
+        final FileLayout layout = FileLayout.valueOf(args[1].toUpperCase());
+        final boolean isDirectories = args.length > 2 && args[2].equals("--directories");
+        final int moved = isDirectories ? reshardDirectories(root, layout) : reshardFiles(root, layout);
+        System.out.println("Moved " + moved + (isDirectories ? " directories" : " files") +
+            " to the " + layout + " layout in \"" + root + "\".");
+    }
+
+    /**
+     * Move each record file beneath the {@code root} to where the {@code layout} places it, then
+     * remove the directories left empty.
+     *
+     * @return the number of files moved.
+     */
+    static public int reshardFiles(File root, FileLayout layout) throws IOException {
+        int moved = 0;
+        for (File file : listFiles(root)) {
+            final String name = file.getName();
+            for (String suffix : SUFFIXES) {
+                if (name.endsWith(suffix)) {
+                    final String id = name.substring(0, name.length() - suffix.length());
+                    if (move(file, layout.getFile(root, id, suffix))) {
+                        moved++;
+                    }
+                    break;
+                }
+            }
+        }
+        removeEmptyDirectories(root, root);
+        return moved;
+    }
+
+    /**
+     * Move each directory of record files beneath the {@code root} (eg: the {@code Task}s of a
+     * {@code Job}) to where the {@code layout} places it, merging it with any directory already
+     * there, then remove the directories left empty and the {@link TaskPathIndex} log.
+     *
+     * @return the number of directories moved.
+     */
+    static public int reshardDirectories(File root, FileLayout layout) throws IOException {
+        int moved = 0;
+        for (File directory : listRecordDirectories(root)) {
+            final File target = layout.getDirectory(root, directory.getName());
+            if (directory.equals(target)) {
+                continue;
+            }
+            if (!target.exists()) {
+                target.getParentFile().mkdirs();
+                Files.move(directory.toPath(), target.toPath());
+            } else {
+                for (File file : listFiles(directory)) {
+                    move(file, new File(target, directory.toPath().relativize(file.toPath()).toString()));
+                }
+            }
+            moved++;
+        }
+        removeEmptyDirectories(root, root);
+        new File(root, TaskPathIndex.FILENAME).delete();
+        return moved;
+    }
+
+    /**
+     * Move the {@code file} to the {@code target}, unless they are the same file. If the
+     * {@code target} exists, the most recently modified of the two is kept.
+     *
+     * @return {@code true} if the {@code file} was moved (or removed).
+     */
+    static protected boolean move(File file, File target) throws IOException {
+        if (file.equals(target)) {
+            return false;
+        }
+        if (target.exists() && target.lastModified() >= file.lastModified()) {
+            Files.delete(file.toPath());
+            return true;
+        }
+        target.getParentFile().mkdirs();
+        try {
+            Files.move(file.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the files beneath the {@code directory}, ignoring hidden (eg: temporary and lock)
+     * files.
+     */
+    static protected List<File> listFiles(File directory) {
+        final List<File> files = new ArrayList<>();
+        final File[] children = directory.listFiles();
+        if (children == null) {
+            return files;
+        }
+        for (File child : children) {
+            if (child.getName().startsWith(".")) {
+                continue;
+            }
+            if (child.isDirectory()) {
+                files.addAll(listFiles(child));
+            } else {
+                files.add(child);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the directories beneath the {@code root} which directly hold record files.
+     */
+    static protected List<File> listRecordDirectories(File root) {
+        final List<File> directories = new ArrayList<>();
+        final File[] children = root.listFiles(File::isDirectory);
+        if (children == null) {
+            return directories;
+        }
+        for (File child : children) {
+            final String[] records = child.list((dir, name) -> name.endsWith(".json") && !name.startsWith("."));
+            if (records != null && records.length > 0) {
+                directories.add(child);
+            } else {
+                directories.addAll(listRecordDirectories(child));
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Remove the empty directories beneath (but not including) the {@code root}, including those
+     * holding only hidden files (eg: lock files).
+     *
+     * @return {@code true} if the {@code directory} was removed.
+     */
+    static protected boolean removeEmptyDirectories(File root, File directory) {
+        final File[] children = directory.listFiles();
+        if (children == null) {
+            return false;
+        }
+        boolean isEmpty = true;
+        for (File child : children) {
+            if (child.isDirectory()) {
+                isEmpty &= removeEmptyDirectories(root, child);
+            } else if (!child.getName().startsWith(".")) {
+                isEmpty = false;
+            }
+        }
+        if (!isEmpty || directory.equals(root)) {
+            return false;
+        }
+        for (File child : children) {
+            child.delete();
+        }
+        return directory.delete();
+    }
+
+}
@@ -0,0 +1,116 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import au.gov.aims.ereefs.pojo.shared.StatusEnum;
+import au.gov.aims.ereefs.pojo.shared.StatusEvent;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * {@code Deserializer} implementation to deserialise a {@link StatusEvent} from either the object
+ * or the compact array form written by {@link StatusEventSerializer}, so documents written with
+ * and without compact events can be read by any {@code ObjectMapper}.
+ */
+public class StatusEventDeserializer extends StdDeserializer<StatusEvent> implements ContextualDeserializer {
+
+    final static private long serialVersionUID = 1L;
+
+    /**
+     * The {@code enum} of the statuses of the property being deserialised, or {@code null}.
+     */
+    final protected Class<? extends Enum<?>> statusEnum;
+
+    public StatusEventDeserializer() {
+        this(null);
+    }
+
+    protected StatusEventDeserializer(Class<? extends Enum<?>> statusEnum) {
+        super(StatusEvent.class);
+        this.statusEnum = statusEnum;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext deserializationContext,
+                                                BeanProperty property) {
+        final StatusEnum annotation = (property == null) ? null : property.getAnnotation(StatusEnum.class);
+        return (annotation == null) ? this : new StatusEventDeserializer(annotation.value());
+    }
+
+    @Override
+    public StatusEvent deserialize(JsonParser jsonParser,
+                                   DeserializationContext deserializationContext)
+        throws IOException {
+        if (jsonParser.isExpectedStartArrayToken()) {
+            return this.deserializeCompact(jsonParser, deserializationContext);
+        }
+
+        // Object form. Unknown fields are ignored.
+        String timestamp = null;
+        String status = null;
+        String description = null;
+        JsonToken token = jsonParser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jsonParser.nextToken();
+        }
+        for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+            final String fieldName = jsonParser.getCurrentName();
+            jsonParser.nextToken();
+            switch (fieldName) {
+                case "timestamp":
+                    timestamp = jsonParser.getValueAsString();
+                    break;
+                case "status":
+                    status = jsonParser.getValueAsString();
+                    break;
+                case "description":
+                    description = jsonParser.getValueAsString();
+                    break;
+                default:
+                    jsonParser.skipChildren();
+            }
+        }
+        return new StatusEvent(timestamp, status, description);
+    }
+
+    /**
+     * Read the compact array form, the parser being positioned at the start of the array.
+     */
+    protected StatusEvent deserializeCompact(JsonParser jsonParser,
+                                             DeserializationContext deserializationContext)
+        throws IOException {
+        jsonParser.nextToken();
+        final long timestampMillis = jsonParser.getLongValue();
+
+        jsonParser.nextToken();
+        final String status;
+        if (jsonParser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            if (this.statusEnum == null) {
+                throw JsonMappingException.from(jsonParser,
+                    "The status of the StatusEvent is an ordinal, but the property has no @StatusEnum.");
+            }
+            status = this.statusEnum.getEnumConstants()[jsonParser.getIntValue()].name();
+        } else {
+            status = jsonParser.getValueAsString();
+        }
+
+        jsonParser.nextToken();
+        final String actor = jsonParser.getValueAsString();
+
+        String last = null;
+        if (jsonParser.nextToken() != JsonToken.END_ARRAY) {
+            last = jsonParser.getValueAsString();
+            jsonParser.nextToken();
+        }
+        return (actor == null) ?
+            new StatusEvent(timestampMillis, status, last) :
+            new StatusEvent(timestampMillis, status, actor, last);
+    }
+
+}
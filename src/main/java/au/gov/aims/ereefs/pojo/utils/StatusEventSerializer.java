@@ -0,0 +1,121 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import au.gov.aims.ereefs.pojo.shared.StatusEnum;
+import au.gov.aims.ereefs.pojo.shared.StatusEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code Serializer} implementation to serialise a {@link StatusEvent}. By default, an event is
+ * written as an object of its {@code timestamp}, {@code status} and {@code description}. If the
+ * {@link #COMPACT_ATTRIBUTE} of the {@code ObjectMapper} is {@code true} (see
+ * {@code HistoryPolicy}), it is written as an array instead:
+ *
+ * <pre>
+ * [timestampMillis, status, actor, optionalDetails]    // made by an actor
+ * [timestampMillis, status, null, description]         // otherwise
+ * </pre>
+ *
+ * where {@code status} is the ordinal of the {@link StatusEnum} of the property, or the name if
+ * the property has none, and the optional last element is omitted if {@code null}. An event whose
+ * timestamp cannot be parsed is written as an object.
+ */
+public class StatusEventSerializer extends StdSerializer<StatusEvent> implements ContextualSerializer {
+
+    final static private long serialVersionUID = 1L;
+
+    /**
+     * The {@code ObjectMapper} attribute which selects the compact form.
+     */
+    final static public String COMPACT_ATTRIBUTE = StatusEventSerializer.class.getName() + ".compact";
+
+    /**
+     * The {@code enum} of the statuses of the property being serialised, or {@code null}.
+     */
+    final protected Class<? extends Enum<?>> statusEnum;
+
+    public StatusEventSerializer() {
+        this(null);
+    }
+
+    protected StatusEventSerializer(Class<? extends Enum<?>> statusEnum) {
+        super(StatusEvent.class);
+        this.statusEnum = statusEnum;
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider serializerProvider,
+                                              BeanProperty property) {
+        final StatusEnum annotation = (property == null) ? null : property.getAnnotation(StatusEnum.class);
+        return (annotation == null) ? this : new StatusEventSerializer(annotation.value());
+    }
+
+    @Override
+    public void serialize(StatusEvent event,
+                          JsonGenerator jsonGenerator,
+                          SerializerProvider serializerProvider)
+        throws IOException {
+        final List<Object> compact = Boolean.TRUE.equals(serializerProvider.getAttribute(COMPACT_ATTRIBUTE)) ?
+            toCompact(event, this.statusEnum) :
+            null;
+        if (compact == null) {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeStringField("timestamp", event.getTimestamp());
+            jsonGenerator.writeStringField("status", event.getStatus());
+            jsonGenerator.writeStringField("description", event.getDescription());
+            jsonGenerator.writeEndObject();
+            return;
+        }
+        jsonGenerator.writeStartArray();
+        for (Object value : compact) {
+            jsonGenerator.writeObject(value);
+        }
+        jsonGenerator.writeEndArray();
+    }
+
+    /**
+     * Returns the values of the compact form of the {@code event}, or {@code null} if its
+     * timestamp cannot be parsed.
+     *
+     * @param statusEnum the {@code enum} of the status, or {@code null} to record the name.
+     */
+    static public List<Object> toCompact(StatusEvent event, Class<? extends Enum<?>> statusEnum) {
+        final Long timestampMillis = event.getTimestampMillis();
+        if (timestampMillis == null) {
+            return null;
+        }
+        final List<Object> values = new ArrayList<>(4);
+        values.add(timestampMillis);
+        values.add(toOrdinal(event.getStatus(), statusEnum));
+        values.add(event.getActor());
+        final String last = (event.getActor() == null) ? event.getDescription() : event.getDetails();
+        if (last != null) {
+            values.add(last);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the ordinal of the {@code status}, or the {@code status} if it is not a constant of
+     * the {@code statusEnum}.
+     */
+    static protected Object toOrdinal(String status, Class<? extends Enum<?>> statusEnum) {
+        if (statusEnum != null && status != null) {
+            for (Enum<?> constant : statusEnum.getEnumConstants()) {
+                if (constant.name().equals(status)) {
+                    return constant.ordinal();
+                }
+            }
+        }
+        return status;
+    }
+
+}
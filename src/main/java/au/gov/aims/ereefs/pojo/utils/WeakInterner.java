@@ -0,0 +1,50 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Intern table which canonicalises equal objects to a single instance, similar to
+ * {@code String.intern()}. Instances are only weakly referenced by the table, so an interned
+ * instance is garbage collected once it is no longer referenced elsewhere.
+ * <p>
+ * The type being interned must be effectively immutable once interned, and must implement
+ * {@code equals()} and {@code hashCode()}.
+ * </p>
+ */
+public class WeakInterner<T> {
+
+    /**
+     * The table of canonical instances. The value refers to the same object as the key, so it must
+     * also be a weak reference to allow the entry to be removed.
+     */
+    final protected Map<T, WeakReference<T>> table = new WeakHashMap<>();
+
+    /**
+     * Returns the canonical instance equal to the specified object, adding the object to the table
+     * if no equal instance exists. {@code null} is returned unchanged.
+     */
+    public synchronized T intern(T object) {
+        if (object == null) {
+            return null;
+        }
+        final WeakReference<T> reference = this.table.get(object);
+        if (reference != null) {
+            final T canonical = reference.get();
+            if (canonical != null) {
+                return canonical;
+            }
+        }
+        this.table.put(object, new WeakReference<>(object));
+        return object;
+    }
+
+    /**
+     * Returns the number of canonical instances currently held by the table.
+     */
+    public synchronized int size() {
+        return this.table.size();
+    }
+
+}
@@ -0,0 +1,141 @@
+package au.gov.aims.ereefs.pojo.benchmark;
+
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import au.gov.aims.ereefs.pojo.utils.JacksonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-alone benchmark comparing {@link JacksonCodec} against the previous path between BSON and
+ * a POJO (a {@code Document}, then relaxed extended JSON, then {@code Jackson} to decode, and
+ * {@code Jackson}, then {@code Document.parse()}, then BSON to encode). Documents are decoded
+ * from, and encoded to, the binary form used on the wire, so no {@code MongoDB} server is needed.
+ * Reports the bytes allocated per document and the number of documents per second. This is not a
+ * unit test, and is run manually:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     au.gov.aims.ereefs.pojo.benchmark.JacksonCodecBenchmark [directory] [iterations]
+ * </pre>
+ */
+public class JacksonCodecBenchmark {
+
+    /**
+     * Converts a single document using the approach being measured.
+     */
+    interface Converter {
+        Object convert(RawBsonDocument document, Metadata pojo) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String directory = (args.length > 0) ? args[0] :
+            System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" +
+                File.separator + "resources" + File.separator + "metadata" + File.separator + "products";
+        final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+
+        final ObjectMapper jsonMapper = new ObjectMapper();
+        final JacksonCodec<Metadata> codec = new JacksonCodec<>(jsonMapper, Metadata.class);
+        final DocumentCodec documentCodec = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+        final JsonWriterSettings writerSettings = JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+        // Load the documents into their binary form.
+        final List<RawBsonDocument> documents = new ArrayList<>();
+        final List<Metadata> pojos = new ArrayList<>();
+        for (String filename : FileUtils.listFiles(directory, ".json")) {
+            final Metadata pojo = JSONFileReader.loadFile(new File(filename), jsonMapper, Metadata.class);
+            pojos.add(pojo);
+            documents.add(RawBsonDocument.parse(jsonMapper.writeValueAsString(pojo)));
+        }
+
+        final Converter stringDecoder = (document, pojo) -> jsonMapper.readValue(
+            documentCodec
+                .decode(new BsonBinaryReader(document.getByteBuffer().asNIO()), DecoderContext.builder().build())
+                .toJson(writerSettings),
+            Metadata.class
+        );
+        final Converter codecDecoder = (document, pojo) -> codec.decode(
+            new BsonBinaryReader(document.getByteBuffer().asNIO()),
+            DecoderContext.builder().build()
+        );
+        final Converter stringEncoder = (document, pojo) -> {
+            final BasicOutputBuffer buffer = new BasicOutputBuffer();
+            documentCodec.encode(
+                new BsonBinaryWriter(buffer),
+                Document.parse(jsonMapper.writeValueAsString(pojo)),
+                EncoderContext.builder().build()
+            );
+            return buffer;
+        };
+        final Converter codecEncoder = (document, pojo) -> {
+            final BasicOutputBuffer buffer = new BasicOutputBuffer();
+            codec.encode(new BsonBinaryWriter(buffer), pojo, EncoderContext.builder().build());
+            return buffer;
+        };
+
+        // Warm up all paths before measuring.
+        for (Converter converter : new Converter[]{stringDecoder, codecDecoder, stringEncoder, codecEncoder}) {
+            run(documents, pojos, iterations, converter);
+        }
+
+        report("decode: JSON String", documents, pojos, iterations, stringDecoder);
+        report("decode: JacksonCodec", documents, pojos, iterations, codecDecoder);
+        report("encode: JSON String", documents, pojos, iterations, stringEncoder);
+        report("encode: JacksonCodec", documents, pojos, iterations, codecEncoder);
+    }
+
+    static protected void report(String name,
+                                 List<RawBsonDocument> documents,
+                                 List<Metadata> pojos,
+                                 int iterations,
+                                 Converter converter) throws Exception {
+        final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        final long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        final long startNanos = System.nanoTime();
+        final int count = run(documents, pojos, iterations, converter);
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        System.out.println(String.format(
+            "%-22s %,14d bytes/doc %,10.1f docs/sec",
+            name,
+            allocatedBytes / count,
+            count / (elapsedNanos / 1e9)
+        ));
+    }
+
+    static protected int run(List<RawBsonDocument> documents,
+                             List<Metadata> pojos,
+                             int iterations,
+                             Converter converter) throws Exception {
+        int count = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int index = 0; index < documents.size(); index++) {
+                if (converter.convert(documents.get(index), pojos.get(index)) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+}
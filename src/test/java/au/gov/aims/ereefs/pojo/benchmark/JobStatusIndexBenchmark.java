@@ -0,0 +1,103 @@
+package au.gov.aims.ereefs.pojo.benchmark;
+
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.job.JobDaoFileImpl;
+import au.gov.aims.ereefs.pojo.job.JobStatus;
+import au.gov.aims.ereefs.pojo.job.JobStatusHelper;
+import au.gov.aims.ereefs.pojo.job.JobStatusIndex;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Stand-alone benchmark of {@link JobDaoFileImpl#findAllActive()} over a repository of many
+ * completed (historical) {@link Job}s and a few active {@link Job}s. Reports the time of a full
+ * scan of the {@link Job} files (as {@code findAllActive} did before the {@link JobStatusIndex}),
+ * of building the index, of loading the log in a new instance, and of a query once loaded. The
+ * repository is written to {@code target/test-output}. This is not a unit test, and is run
+ * manually:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     au.gov.aims.ereefs.pojo.benchmark.JobStatusIndexBenchmark [historicalJobs] [activeJobs]
+ * </pre>
+ */
+public class JobStatusIndexBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int historicalCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        final int activeCount = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+
+        final String randomPath = System.getProperty("user.dir") + File.separator + "target" +
+            File.separator + "test-output" + File.separator + UUID.randomUUID().toString() + File.separator;
+        final String jobPath = randomPath + "job" + File.separator;
+        final String taskPath = randomPath + "task";
+
+        // Write the Job files directly, without the index.
+        final ObjectMapper jsonMapper = new ObjectMapper();
+        IntStream.range(0, historicalCount + activeCount).parallel().forEach(index -> {
+            final Job job = Job.make("benchmark", "OPERATIONAL");
+            if (index < historicalCount) {
+                job.setStatus(JobStatus.RUNNING, "benchmark", null);
+                job.setStatus(JobStatus.COMPLETED, "benchmark", null);
+            }
+            try {
+                FileUtils.writeAtomically(new File(jobPath + job.getId() + ".json"), jsonMapper.writeValueAsString(job));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // A full scan, parsing every Job.
+        long startNanos = System.nanoTime();
+        final List<Job> scanned;
+        try (final Stream<Job> jobs = JSONFileReader.stream(
+            new File(jobPath),
+            file -> JSONFileReader.loadFile(file, jsonMapper, Job.class),
+            failure -> {
+                throw new RuntimeException(failure.getException());
+            }
+        )) {
+            scanned = jobs
+                .filter(job -> JobStatusHelper.ACTIVE_JOB_STATUSES.contains(job.getStatus()))
+                .collect(Collectors.toList());
+        }
+        report("full scan", startNanos, scanned.size());
+
+        // Build the index, reading only the status of each Job, then write the log.
+        final JobDaoFileImpl dao = new JobDaoFileImpl(jobPath, new TaskDaoFileImpl(taskPath));
+        startNanos = System.nanoTime();
+        report("index build", startNanos, dao.findAllActive().size());
+        dao.rebuildStatusIndex();
+
+        // Load the log in a new instance.
+        final JobDaoFileImpl otherDao = new JobDaoFileImpl(jobPath, new TaskDaoFileImpl(taskPath));
+        startNanos = System.nanoTime();
+        report("log load", startNanos, otherDao.findAllActive().size());
+
+        // Queries once the index is loaded.
+        final int queries = 20;
+        final List<Integer> sizes = new ArrayList<>();
+        startNanos = System.nanoTime();
+        for (int query = 0; query < queries; query++) {
+            sizes.add(otherDao.findAllActive().size());
+        }
+        System.out.printf("%-12s %10.2f ms/query, %d active%n", "indexed",
+            (System.nanoTime() - startNanos) / 1e6 / queries, sizes.get(0));
+        System.exit(0);
+    }
+
+    static protected void report(String name, long startNanos, int activeCount) {
+        System.out.printf("%-12s %10.2f ms, %d active%n", name, (System.nanoTime() - startNanos) / 1e6, activeCount);
+    }
+
+}
@@ -0,0 +1,93 @@
+package au.gov.aims.ereefs.pojo.benchmark;
+
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.metadata.MetadataReader;
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Stand-alone benchmark comparing {@link MetadataReader} against the previous loading path
+ * ({@code JSONObject}, then {@code toString()}, then {@code Jackson}). Reports the bytes allocated
+ * per file and the number of files loaded per second. This is not a unit test, and is run
+ * manually:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     au.gov.aims.ereefs.pojo.benchmark.MetadataReaderBenchmark [directory] [iterations]
+ * </pre>
+ */
+public class MetadataReaderBenchmark {
+
+    /**
+     * Loads a single file using the approach being measured.
+     */
+    interface Loader {
+        Metadata load(File file) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String directory = (args.length > 0) ? args[0] :
+            System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" +
+                File.separator + "resources" + File.separator + "metadata";
+        final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+
+        final List<String> filenames = FileUtils.listFiles(directory, ".json");
+        final ObjectMapper jsonMapper = new ObjectMapper();
+        final MetadataReader reader = new MetadataReader(jsonMapper);
+
+        final Loader jsonObjectLoader = file -> jsonMapper.readValue(
+            JSONFileReader.loadFileAsJSONObject(file).toString(),
+            Metadata.class
+        );
+        final Loader streamingLoader = reader::read;
+
+        // Warm up both paths before measuring.
+        run(filenames, iterations, jsonObjectLoader);
+        run(filenames, iterations, streamingLoader);
+
+        report("JSONObject + Jackson", filenames, iterations, jsonObjectLoader);
+        report("MetadataReader", filenames, iterations, streamingLoader);
+    }
+
+    static protected void report(String name,
+                                 List<String> filenames,
+                                 int iterations,
+                                 Loader loader) throws Exception {
+        final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        final long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        final long startNanos = System.nanoTime();
+        final int count = run(filenames, iterations, loader);
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        System.out.println(String.format(
+            "%-22s %,14d bytes/file %,10.1f files/sec",
+            name,
+            allocatedBytes / count,
+            count / (elapsedNanos / 1e9)
+        ));
+    }
+
+    static protected int run(List<String> filenames,
+                             int iterations,
+                             Loader loader) throws Exception {
+        int count = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (String filename : filenames) {
+                if (loader.load(new File(filename)) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+}
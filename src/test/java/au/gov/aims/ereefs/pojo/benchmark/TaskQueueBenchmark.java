@@ -0,0 +1,101 @@
+package au.gov.aims.ereefs.pojo.benchmark;
+
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.task.LeasedTaskDao;
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskBuilder;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.TaskDaoMongoDbImpl;
+import au.gov.aims.ereefs.pojo.task.TaskQueue;
+import au.gov.aims.ereefs.pojo.utils.MongoDbTestUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-alone benchmark of {@link TaskQueue#claimNext(String, java.util.Collection,
+ * java.util.Collection)}, with many concurrent claimers draining a queue of {@link Task}s. Reports
+ * the number of claims per second, and verifies no {@link Task} was claimed twice (the leases do
+ * not expire during the run). The {@code file} backend writes to {@code target/test-output}; the
+ * {@code mongodb} backend uses {@link MongoDbTestUtils} (and clears the {@code task} collection).
+ * This is not a unit test, and is run manually:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     au.gov.aims.ereefs.pojo.benchmark.TaskQueueBenchmark [file|mongodb] [tasks] [claimers]
+ * </pre>
+ */
+public class TaskQueueBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final String backend = (args.length > 0) ? args[0] : "file";
+        final int taskCount = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        final int claimers = (args.length > 2) ? Integer.parseInt(args[2]) : 64;
+
+        final LeasedTaskDao dao;
+        if (backend.equals("mongodb")) {
+            MongoDbTestUtils.clearCollection(
+                MongoDbTestUtils.getMongoDatabase().getCollection(TaskDaoMongoDbImpl.COLLECTION_NAME));
+            dao = new TaskDaoMongoDbImpl(MongoDbTestUtils.getMongoDatabase());
+        } else {
+            dao = new TaskDaoFileImpl(System.getProperty("user.dir") + File.separator + "target" +
+                File.separator + "test-output" + File.separator + UUID.randomUUID().toString());
+        }
+
+        // Populate the queue, with a mix of Stages.
+        final Stage[] stages = new Stage[]{Stage.HIGH_PRIORITY, Stage.OPERATIONAL, Stage.OPERATIONAL, Stage.PROTOTYPE};
+        final List<Task> tasks = new ArrayList<>();
+        for (int index = 0; index < taskCount; index++) {
+            final Job job = Job.make("benchmark", "OPERATIONAL");
+            final Task task = TaskBuilder.buildAggregationTask(job, UUID.randomUUID().toString());
+            task.setStage(stages[index % stages.length]);
+            tasks.add(task);
+        }
+        dao.persistAll(tasks);
+
+        // The lease outlasts the run, so no Task is reclaimed.
+        final TaskQueue queue = new TaskQueue(dao, 3600000);
+        final Set<String> claimedIds = ConcurrentHashMap.newKeySet();
+        final AtomicInteger duplicateCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(claimers);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int claimer = 0; claimer < claimers; claimer++) {
+            final String workerId = "worker-" + claimer;
+            futures.add(executor.submit(() -> {
+                start.await();
+                Task task;
+                while ((task = queue.claimNext(workerId, null, null)) != null) {
+                    if (!claimedIds.add(task.getId())) {
+                        duplicateCount.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        final long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+        executor.shutdown();
+
+        System.out.printf("%s backend, %d tasks, %d claimers: %.1f claims/s (%.2f s), %d claimed, %d duplicates%n",
+            backend, taskCount, claimers, claimedIds.size() / seconds, seconds, claimedIds.size(),
+            duplicateCount.get());
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,139 @@
+package au.gov.aims.ereefs.pojo.benchmark;
+
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskBuilder;
+import au.gov.aims.ereefs.pojo.task.TaskDao;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.TaskDaoLogStoreImpl;
+import au.gov.aims.ereefs.pojo.task.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Stand-alone benchmark of {@link TaskDao#transitionStatus(String, TaskStatus, TaskStatus, String,
+ * String)} at a fixed rate, comparing {@link TaskDaoFileImpl} with {@link TaskDaoLogStoreImpl}.
+ * The threads share the target rate, each updating a random {@link Task} at its scheduled time,
+ * and the latency of each update is measured from its scheduled time, so a backlog is reported
+ * rather than hidden. Reports the rate achieved, the 50th and 99th percentile latency, and the
+ * files and bytes on disk. The repositories are written to {@code target/test-output}. This is
+ * not a unit test, and is run manually:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     au.gov.aims.ereefs.pojo.benchmark.TaskStatusUpdateBenchmark [tasks] [updatesPerSecond] [seconds] [threads]
+ * </pre>
+ */
+public class TaskStatusUpdateBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int taskCount = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        final int rate = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+        final int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        final int threads = (args.length > 3) ? Integer.parseInt(args[3]) : 16;
+
+        final String randomPath = System.getProperty("user.dir") + File.separator + "target" +
+            File.separator + "test-output" + File.separator + UUID.randomUUID().toString() + File.separator;
+
+        final File filePath = new File(randomPath + "file");
+        run("file", new TaskDaoFileImpl(filePath.getPath()), filePath, taskCount, rate, seconds, threads);
+
+        final File logStorePath = new File(randomPath + "logstore");
+        final TaskDaoLogStoreImpl logStoreDao = new TaskDaoLogStoreImpl(logStorePath.getPath());
+        run("log store", logStoreDao, logStorePath, taskCount, rate, seconds, threads);
+        logStoreDao.getStore().compact();
+        report("compacted", logStorePath);
+        logStoreDao.close();
+
+        System.exit(0);
+    }
+
+    static protected void run(String name,
+                              TaskDao dao,
+                              File directory,
+                              int taskCount,
+                              int rate,
+                              int seconds,
+                              int threads) throws Exception {
+        final List<String> ids = new ArrayList<>();
+        final List<Task> tasks = new ArrayList<>();
+        Job job = null;
+        for (int index = 0; index < taskCount; index++) {
+            if (index % 100 == 0) {
+                job = Job.make("benchmark", "OPERATIONAL");
+            }
+            final Task task = TaskBuilder.buildAggregationTask(job, "definition");
+            tasks.add(task);
+            ids.add(task.getId());
+        }
+        dao.persistAll(tasks);
+
+        // Each thread issues its share of the updates at evenly spaced times.
+        final long intervalNanos = 1000000000L * threads / rate;
+        final int updatesPerThread = rate * seconds / threads;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<long[]>> futures = new ArrayList<>();
+        final long startNanos = System.nanoTime();
+        for (int thread = 0; thread < threads; thread++) {
+            final long offsetNanos = intervalNanos * thread / threads;
+            final int seed = thread;
+            futures.add(executor.submit(() -> {
+                final long[] latencies = new long[updatesPerThread];
+                int next = seed;
+                for (int update = 0; update < updatesPerThread; update++) {
+                    final long scheduledNanos = startNanos + offsetNanos + update * intervalNanos;
+                    final long waitNanos = scheduledNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        LockSupport.parkNanos(waitNanos);
+                    }
+                    next = Math.floorMod(next * 1103515245 + 12345, ids.size());
+                    dao.transitionStatus(ids.get(next), null,
+                        (update % 2 == 0) ? TaskStatus.RUNNING : TaskStatus.ASSIGNED, "benchmark", null);
+                    latencies[update] = System.nanoTime() - scheduledNanos;
+                }
+                return latencies;
+            }));
+        }
+        final long[] latencies = new long[updatesPerThread * threads];
+        int count = 0;
+        for (Future<long[]> future : futures) {
+            for (long latency : future.get()) {
+                latencies[count++] = latency;
+            }
+        }
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-12s %10.0f updates/s, p50 %8.2f ms, p99 %8.2f ms%n", name,
+            latencies.length / (elapsedNanos / 1e9),
+            latencies[latencies.length / 2] / 1e6,
+            latencies[(int) (latencies.length * 0.99)] / 1e6);
+        report(name, directory);
+    }
+
+    static protected void report(String name, File directory) throws IOException {
+        long files = 0;
+        long bytes = 0;
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                files++;
+                bytes += Files.size(path);
+            }
+        }
+        System.out.printf("%-12s %10d files, %10.2f MB on disk%n", name, files, bytes / 1e6);
+    }
+
+}
@@ -0,0 +1,99 @@
+package au.gov.aims.ereefs.pojo.benchmark;
+
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.metadata.MetadataReader;
+import au.gov.aims.ereefs.pojo.metadata.NetCDFMetadata;
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stand-alone report of the heap retained by the time axes of the {@link NetCDFMetadata} in a
+ * directory, comparing one boxed {@code Double[]} per variable, one {@code double[]} per variable,
+ * and the interned {@link NetCDFMetadata.TemporalDomain}s. Sizes are estimated for a 64-bit JVM
+ * with compressed references. This is not a unit test, and is run manually:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... \
+ *     au.gov.aims.ereefs.pojo.benchmark.TemporalDomainHeapReport [directory]
+ * </pre>
+ */
+public class TemporalDomainHeapReport {
+
+    /**
+     * Estimated size of a {@link NetCDFMetadata.TemporalDomain} object, excluding the array.
+     */
+    final static protected long TEMPORAL_DOMAIN_BYTES = 32;
+
+    /**
+     * Estimated size of an array header.
+     */
+    final static protected long ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * Estimated size of a boxed {@code Double}.
+     */
+    final static protected long BOXED_DOUBLE_BYTES = 16;
+
+    public static void main(String[] args) throws Exception {
+        final String directory = (args.length > 0) ? args[0] :
+            System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" +
+                File.separator + "resources" + File.separator + "metadata";
+
+        final MetadataReader reader = new MetadataReader();
+        final List<Metadata> metadataList = new ArrayList<>();
+        for (String filename : FileUtils.listFiles(directory, ".json")) {
+            try {
+                metadataList.add(reader.read(new File(filename)));
+            } catch (IOException e) {
+                System.out.println("Skipping " + filename + ": " + e.getMessage());
+            }
+        }
+
+        long variableCount = 0;
+        long boxedBytes = 0;
+        long primitiveBytes = 0;
+        final Map<NetCDFMetadata.TemporalDomain, Boolean> distinct = new IdentityHashMap<>();
+        for (Metadata metadata : metadataList) {
+            if (!(metadata instanceof NetCDFMetadata)) {
+                continue;
+            }
+            for (NetCDFMetadata.Variable variable : ((NetCDFMetadata) metadata).getVariables().values()) {
+                final NetCDFMetadata.TemporalDomain temporalDomain = variable.getTemporalDomain();
+                if (temporalDomain == null) {
+                    continue;
+                }
+                final int length = temporalDomain.copyTimeValuesSinceEpoch().length;
+                variableCount++;
+                boxedBytes += TEMPORAL_DOMAIN_BYTES + align(ARRAY_HEADER_BYTES + 4L * length) +
+                    BOXED_DOUBLE_BYTES * length;
+                primitiveBytes += TEMPORAL_DOMAIN_BYTES + ARRAY_HEADER_BYTES + 8L * length;
+                distinct.put(temporalDomain, Boolean.TRUE);
+            }
+        }
+        long internedBytes = 0;
+        for (NetCDFMetadata.TemporalDomain temporalDomain : distinct.keySet()) {
+            internedBytes += TEMPORAL_DOMAIN_BYTES + ARRAY_HEADER_BYTES +
+                8L * temporalDomain.copyTimeValuesSinceEpoch().length;
+        }
+
+        System.out.println(String.format("%,d files, %,d variables with a temporal domain, %,d distinct axes",
+            metadataList.size(), variableCount, distinct.size()));
+        System.out.println(String.format("%-28s %,12d bytes", "Double[] per variable", boxedBytes));
+        System.out.println(String.format("%-28s %,12d bytes", "double[] per variable", primitiveBytes));
+        System.out.println(String.format("%-28s %,12d bytes", "interned TemporalDomain", internedBytes));
+    }
+
+    /**
+     * Round the size up to the 8 byte object alignment.
+     */
+    static protected long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,6 @@
+/**
+ * Stand-alone benchmarks, each with a {@code main} method which prints its results. These are not
+ * unit tests, and are run manually against {@code target/classes} and {@code target/test-classes}
+ * (see the documentation of each class for its arguments).
+ */
+package au.gov.aims.ereefs.pojo.benchmark;
@@ -0,0 +1,254 @@
+package au.gov.aims.ereefs.pojo.definition.product;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test cases for {@link CachingProductDefinitionDao}, decorating a
+ * {@link ProductDefinitionDaoFileImpl} which counts the retrievals passed to it.
+ */
+public class CachingProductDefinitionDaoTest extends AbstractProductDefinitionDaoImplTest {
+
+    /**
+     * Constant identifying the path to the test data.
+     */
+    final public String TEST_DATA_PATH = System.getProperty("user.dir") + File.separator + "src" +
+        File.separator + "test" + File.separator + "resources" + File.separator + "definitions" +
+        File.separator + "products";
+
+    /**
+     * The number of {@code getById} calls passed to the decorated DAO.
+     */
+    final protected AtomicInteger getByIdCount = new AtomicInteger();
+
+    /**
+     * The number of {@code getByIds} calls passed to the decorated DAO.
+     */
+    final protected AtomicInteger getByIdsCount = new AtomicInteger();
+
+    /**
+     * The number of {@code findAllEnabled} calls passed to the decorated DAO.
+     */
+    final protected AtomicInteger findAllEnabledCount = new AtomicInteger();
+
+    /**
+     * Factory method for instantiating a counting {@link ProductDefinitionDaoFileImpl}.
+     */
+    protected ProductDefinitionDao makeDelegate() {
+        return new ProductDefinitionDaoFileImpl(TEST_DATA_PATH) {
+            @Override
+            public ProductDefinition getById(String id) {
+                CachingProductDefinitionDaoTest.this.getByIdCount.incrementAndGet();
+                return super.getById(id);
+            }
+
+            @Override
+            public Map<String, ProductDefinition> getByIds(Collection<String> ids) {
+                CachingProductDefinitionDaoTest.this.getByIdsCount.incrementAndGet();
+                return super.getByIds(ids);
+            }
+
+            @Override
+            public List<ProductDefinition> findAllEnabled() {
+                CachingProductDefinitionDaoTest.this.findAllEnabledCount.incrementAndGet();
+                return super.findAllEnabled();
+            }
+        };
+    }
+
+    /**
+     * Factory method for instantiating a {@link ProductDefinitionDao} instance.
+     */
+    protected ProductDefinitionDao makeDao() {
+        return new CachingProductDefinitionDao(this.makeDelegate(), 10, 60000);
+    }
+
+    /**
+     * Invoke {@link #doTestFindAllEnabled()} to test {@link ProductDefinitionDao#findAllEnabled()}.
+     */
+    @Test
+    public void testFindAllEnabled() {
+        super.doTestFindAllEnabled();
+    }
+
+    /**
+     * Invoke {@link #doTestProductNcAggregate()}.
+     */
+    @Test
+    public void testProductNcAggregate() {
+        super.doTestProductNcAggregate();
+    }
+
+    /**
+     * Invoke {@link #doTestProductNcAnimate()}.
+     */
+    @Test
+    public void testProductNcAnimate() {
+        super.doTestProductNcAnimate();
+    }
+
+    /**
+     * Verify repeated retrievals are satisfied by the cache, and that missing records are not
+     * cached.
+     */
+    @Test
+    public void testReadThrough() {
+        final CachingProductDefinitionDao dao = new CachingProductDefinitionDao(this.makeDelegate(), 10, 60000);
+        for (int i = 0; i < 5; i++) {
+            Assertions
+                .assertThat(dao.getById(NCAGGREGATE_PRODUCT_ID).getId())
+                .isEqualTo(NCAGGREGATE_PRODUCT_ID);
+            Assertions.assertThat(dao.getById("unknown")).isNull();
+        }
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(6);
+        Assertions.assertThat(dao.getHitCount()).isEqualTo(4);
+        Assertions.assertThat(dao.getMissCount()).isEqualTo(6);
+        Assertions.assertThat(dao.size()).isEqualTo(1);
+
+        // The list of enabled records is cached, and seeds the cache of individual records.
+        dao.invalidateAll();
+        this.getByIdCount.set(0);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThat(dao.findAllEnabled()).hasSize(productIds.length);
+        }
+        for (String id : productIds) {
+            Assertions.assertThat(dao.getById(id).getId()).isEqualTo(id);
+        }
+        Assertions.assertThat(this.findAllEnabledCount.get()).isEqualTo(1);
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(0);
+    }
+
+    /**
+     * Verify a batched retrieval serves cached records from the cache, and loads the remaining
+     * records with a single call to the decorated DAO.
+     */
+    @Test
+    public void testGetByIds() {
+        final CachingProductDefinitionDao dao = new CachingProductDefinitionDao(this.makeDelegate(), 10, 60000);
+        final ProductDefinition cached = dao.getById(NCAGGREGATE_PRODUCT_ID);
+
+        final Map<String, ProductDefinition> found = dao.getByIds(
+            Arrays.asList(NCANIMATE_PRODUCT_ID, "unknown", NCAGGREGATE_PRODUCT_ID));
+        Assertions
+            .assertThat(found.keySet())
+            .containsExactly(NCANIMATE_PRODUCT_ID, NCAGGREGATE_PRODUCT_ID);
+        Assertions.assertThat(found.get(NCAGGREGATE_PRODUCT_ID)).isSameAs(cached);
+        Assertions.assertThat(this.getByIdsCount.get()).isEqualTo(1);
+        Assertions.assertThat(dao.getHitCount()).isEqualTo(1);
+        Assertions.assertThat(dao.getMissCount()).isEqualTo(3);
+
+        // The loaded record is now cached.
+        Assertions.assertThat(dao.getById(NCANIMATE_PRODUCT_ID)).isSameAs(found.get(NCANIMATE_PRODUCT_ID));
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(1);
+    }
+
+    /**
+     * Verify the least-recently-used record is evicted when the cache is full, and that records
+     * expire after the time-to-live.
+     */
+    @Test
+    public void testEviction() throws Exception {
+        final CachingProductDefinitionDao dao = new CachingProductDefinitionDao(this.makeDelegate(), 1, 60000);
+        dao.getById(NCAGGREGATE_PRODUCT_ID);
+        dao.getById(NCANIMATE_PRODUCT_ID);
+        dao.getById(NCAGGREGATE_PRODUCT_ID);
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(3);
+        Assertions.assertThat(dao.getEvictionCount()).isEqualTo(2);
+        Assertions.assertThat(dao.size()).isEqualTo(1);
+
+        final CachingProductDefinitionDao expiringDao = new CachingProductDefinitionDao(this.makeDelegate(), 10, 20);
+        this.getByIdCount.set(0);
+        expiringDao.getById(NCAGGREGATE_PRODUCT_ID);
+        Thread.sleep(50);
+        expiringDao.cleanUp();
+        Assertions.assertThat(expiringDao.size()).isEqualTo(0);
+        expiringDao.getById(NCAGGREGATE_PRODUCT_ID);
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(2);
+        Assertions.assertThat(expiringDao.getEvictionCount()).isEqualTo(1);
+    }
+
+    /**
+     * Verify a persist through the decorator invalidates the cached record and list, even if the
+     * persist fails.
+     */
+    @Test
+    public void testPersistInvalidates() {
+        final CachingProductDefinitionDao dao = new CachingProductDefinitionDao(this.makeDelegate(), 10, 60000);
+        final ProductDefinition productDefinition = dao.getById(NCAGGREGATE_PRODUCT_ID);
+        dao.findAllEnabled();
+        Assertions
+            .assertThatThrownBy(() -> dao.persist(productDefinition))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessage("Not implemented.");
+        dao.getById(NCAGGREGATE_PRODUCT_ID);
+        dao.findAllEnabled();
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(2);
+        Assertions.assertThat(this.findAllEnabledCount.get()).isEqualTo(2);
+    }
+
+    /**
+     * Verify a record retrieved after the refresh-ahead time is returned from the cache and
+     * reloaded by the refresh-ahead {@code Executor}.
+     */
+    @Test
+    public void testRefreshAhead() {
+        final CachingProductDefinitionDao dao = new CachingProductDefinitionDao(this.makeDelegate(), 10, 60000);
+        final List<Runnable> tasks = new ArrayList<>();
+        dao.setRefreshAhead(tasks::add, 0);
+
+        final ProductDefinition first = dao.getById(NCAGGREGATE_PRODUCT_ID);
+        Assertions.assertThat(dao.getById(NCAGGREGATE_PRODUCT_ID)).isSameAs(first);
+        Assertions.assertThat(dao.getById(NCAGGREGATE_PRODUCT_ID)).isSameAs(first);
+
+        // Only one refresh is scheduled while one is pending.
+        Assertions.assertThat(tasks).hasSize(1);
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(1);
+        tasks.remove(0).run();
+        Assertions.assertThat(this.getByIdCount.get()).isEqualTo(2);
+        Assertions.assertThat(dao.getRefreshCount()).isEqualTo(1);
+        Assertions.assertThat(dao.getById(NCAGGREGATE_PRODUCT_ID).getId()).isEqualTo(NCAGGREGATE_PRODUCT_ID);
+        Assertions.assertThat(tasks).hasSize(1);
+    }
+
+    /**
+     * Verify invalidating one record does not discard a load of another record, and that a
+     * refresh superseded by another load of its record is discarded without blocking later
+     * refreshes.
+     */
+    @Test
+    public void testInvalidateIsPerRecord() {
+        final CachingProductDefinitionDao dao = new CachingProductDefinitionDao(this.makeDelegate(), 10, 60000);
+        final List<Runnable> tasks = new ArrayList<>();
+        dao.setRefreshAhead(tasks::add, 0);
+
+        // A refresh in progress while another record is invalidated is cached.
+        final ProductDefinition first = dao.getById(NCAGGREGATE_PRODUCT_ID);
+        dao.getById(NCAGGREGATE_PRODUCT_ID);
+        Assertions.assertThat(tasks).hasSize(1);
+        dao.invalidate(NCANIMATE_PRODUCT_ID);
+        tasks.remove(0).run();
+        Assertions.assertThat(dao.getRefreshCount()).isEqualTo(1);
+
+        // The refreshed record is cached, so the next retrieval schedules another refresh.
+        Assertions.assertThat(dao.getById(NCAGGREGATE_PRODUCT_ID).getId()).isEqualTo(first.getId());
+        Assertions.assertThat(tasks).hasSize(1);
+
+        // A refresh superseded by another load of its record is discarded, and the next
+        // retrieval schedules a refresh.
+        final Runnable superseded = tasks.remove(0);
+        dao.invalidate(NCAGGREGATE_PRODUCT_ID);
+        final ProductDefinition reloaded = dao.getById(NCAGGREGATE_PRODUCT_ID);
+        superseded.run();
+        Assertions.assertThat(dao.getById(NCAGGREGATE_PRODUCT_ID)).isSameAs(reloaded);
+        Assertions.assertThat(tasks).hasSize(1);
+    }
+
+}
@@ -198,4 +198,37 @@ abstract public class AbstractJobDaoImplTest {
 
     }
 
+    /**
+     * Test {@link JobDao#transitionStatus(String, JobStatus, JobStatus, String, String)} only
+     * changes the status from the expected status, without rewriting the {@link Task}s.
+     */
+    protected void doTestTransitionStatus() {
+        final Job preparedJob = this.testData.stream()
+            .filter(job -> job.getStatus() == JobStatus.APPROVED)
+            .findFirst()
+            .orElse(null);
+        Assertions.assertThat(preparedJob).isNotNull();
+        final int historySize = preparedJob.getHistory().size();
+
+        // The expected status must match.
+        Assertions
+            .assertThat(this.jobDao.transitionStatus(
+                preparedJob.getId(), JobStatus.CREATED, JobStatus.RUNNING, "scheduler", null))
+            .isNull();
+
+        final Job runningJob = this.jobDao.transitionStatus(
+            preparedJob.getId(), JobStatus.APPROVED, JobStatus.RUNNING, "scheduler", null);
+        Assertions.assertThat(runningJob.getStatus()).isEqualTo(JobStatus.RUNNING);
+        Assertions.assertThat(runningJob.getCreatedBy()).isEqualTo("scheduler");
+
+        final Job persistedJob = this.jobDao.getById(preparedJob.getId());
+        Assertions.assertThat(persistedJob.getStatus()).isEqualTo(JobStatus.RUNNING);
+        Assertions.assertThat(persistedJob.getHistory()).hasSize(historySize + 1);
+        Assertions.assertThat(persistedJob.getTasks()).hasSameSizeAs(preparedJob.getTasks());
+
+        Assertions
+            .assertThat(this.jobDao.transitionStatus("INVALID_JOB_ID", null, JobStatus.RUNNING, "scheduler", null))
+            .isNull();
+    }
+
 }
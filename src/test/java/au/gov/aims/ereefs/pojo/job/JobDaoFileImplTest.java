@@ -1,10 +1,18 @@
 package au.gov.aims.ereefs.pojo.job;
 
+import au.gov.aims.ereefs.pojo.task.Task;
 import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.TaskStatus;
+import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Extends {@link AbstractJobDaoImplTest} for testing the {@code File}-implementation of
@@ -12,6 +20,11 @@ import java.util.UUID;
  */
 public class JobDaoFileImplTest extends AbstractJobDaoImplTest {
 
+    /**
+     * The number of {@code getByJobIds} calls passed to the {@code TaskDao}.
+     */
+    final protected AtomicInteger getByJobIdsCount = new AtomicInteger();
+
     /**
      * Constructor to instantiate {@link #jobDao} and {@link #testDataPopulator} to populate the
      * system with test data.
@@ -25,7 +38,13 @@ public class JobDaoFileImplTest extends AbstractJobDaoImplTest {
             UUID.randomUUID().toString() + File.separator;
         this.jobDao = new JobDaoFileImpl(
             randomPath + "job",
-            new TaskDaoFileImpl(randomPath + "task")
+            new TaskDaoFileImpl(randomPath + "task") {
+                @Override
+                public Map<String, List<Task>> getByJobIds(Collection<String> jobIds) {
+                    JobDaoFileImplTest.this.getByJobIdsCount.incrementAndGet();
+                    return super.getByJobIds(jobIds);
+                }
+            }
         );
 
         // Instantiate the test data populator.
@@ -49,4 +68,82 @@ public class JobDaoFileImplTest extends AbstractJobDaoImplTest {
         this.doTestFindAllActive();
     }
 
+    /**
+     * Invokes {@link super#doTestTransitionStatus()} to test
+     * {@link JobDao#transitionStatus(String, JobStatus, JobStatus, String, String)}.
+     */
+    @Test
+    public void testTransitionStatus() {
+        this.doTestTransitionStatus();
+    }
+
+    /**
+     * Verify {@link JobDao#findAllActive()} follows changes made by another instance, omits a
+     * {@link Job} whose file was removed, and finds the same {@link Job}s once the
+     * {@link JobStatusIndex} is built again.
+     */
+    @Test
+    public void testStatusIndex() {
+        final String randomPath = System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator +
+            UUID.randomUUID().toString() + File.separator;
+        final JobDaoFileImpl dao = new JobDaoFileImpl(randomPath + "job", new TaskDaoFileImpl(randomPath + "task"));
+        final JobDaoFileImpl otherDao = new JobDaoFileImpl(randomPath + "job", new TaskDaoFileImpl(randomPath + "task"));
+
+        final Job active = dao.persist(Job.make("pojoTest", "OPERATIONAL"));
+        final Job completed = dao.persist(Job.make("pojoTest", "OPERATIONAL"));
+        final Job removed = dao.persist(Job.make("pojoTest", "OPERATIONAL"));
+        Assertions
+            .assertThat(dao.findAllActive())
+            .extracting(Job::getId)
+            .containsOnly(active.getId(), completed.getId(), removed.getId());
+
+        otherDao.transitionStatus(completed.getId(), null, JobStatus.COMPLETED, "pojoTest", null);
+        new File(randomPath + "job" + File.separator + removed.getId() + ".json").delete();
+        Assertions
+            .assertThat(dao.findAllActive())
+            .extracting(Job::getId)
+            .containsOnly(active.getId());
+
+        new File(randomPath + "job" + File.separator + JobStatusIndex.FILENAME).delete();
+        Assertions
+            .assertThat(new JobDaoFileImpl(randomPath + "job", new TaskDaoFileImpl(randomPath + "task")).findAllActive())
+            .extracting(Job::getId)
+            .containsOnly(active.getId());
+    }
+
+    /**
+     * Verify the {@link Task}s of the {@link Job}s retrieved by {@link JobDao#findAllActive()} are
+     * only loaded on first access, with a single batch for all of the {@link Job}s.
+     */
+    @Test
+    public void testLazyTasks() {
+        final List<Job> activeJobs = this.jobDao.findAllActive();
+        Assertions.assertThat(activeJobs).isNotEmpty();
+        for (Job job : activeJobs) {
+            Assertions.assertThat(job.getStatus()).isNotNull();
+            Assertions.assertThat(job.isTasksLoaded()).isFalse();
+        }
+        Assertions.assertThat(this.getByJobIdsCount.get()).isEqualTo(0);
+
+        for (Job job : activeJobs) {
+            Assertions.assertThat(job.getTasks()).isNotEmpty();
+            Assertions.assertThat(job.isTasksLoaded()).isTrue();
+        }
+        Assertions.assertThat(this.getByJobIdsCount.get()).isEqualTo(1);
+
+        // Filtering by status does not load the Tasks, and persisting an unloaded Job does not
+        // load (or drop) its Tasks.
+        final Job job = this.jobDao.getById(activeJobs.get(0).getId());
+        Assertions
+            .assertThat(job.getTasksByStatus(Collections.singleton(TaskStatus.CREATED)))
+            .extracting(Task::getStatus)
+            .containsOnly(TaskStatus.CREATED);
+        this.jobDao.persist(job);
+        Assertions.assertThat(job.isTasksLoaded()).isFalse();
+        Assertions
+            .assertThat(this.jobDao.getById(job.getId()).getTasks())
+            .hasSameSizeAs(activeJobs.get(0).getTasks());
+    }
+
 }
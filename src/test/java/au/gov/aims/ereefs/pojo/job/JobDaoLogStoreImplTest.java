@@ -0,0 +1,71 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.task.TaskDaoLogStoreImpl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.UUID;
+
+/**
+ * Extends {@link AbstractJobDaoImplTest} for testing the {@code LogStore}-implementation of
+ * {@link JobDao}.
+ */
+public class JobDaoLogStoreImplTest extends AbstractJobDaoImplTest {
+
+    /**
+     * The {@code TaskDao} used by {@link #jobDao}.
+     */
+    final protected TaskDaoLogStoreImpl taskDao;
+
+    /**
+     * Constructor to instantiate {@link #jobDao} and {@link #testDataPopulator} to populate the
+     * system with test data.
+     */
+    public JobDaoLogStoreImplTest() {
+        super();
+
+        // Instantiate the DAO, pointing it at a randomly generated path.
+        final String randomPath = System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator +
+            UUID.randomUUID().toString() + File.separator;
+        this.taskDao = new TaskDaoLogStoreImpl(randomPath + "task");
+        this.jobDao = new JobDaoLogStoreImpl(randomPath + "job", this.taskDao);
+
+        // Instantiate the test data populator.
+        this.testDataPopulator = new TestDataPopulator(this.jobDao);
+
+    }
+
+    @After
+    public void closeDaos() {
+        ((JobDaoLogStoreImpl) this.jobDao).close();
+        this.taskDao.close();
+    }
+
+    /**
+     * Invokes {@link super#doTestGetById()} to test {@link JobDao#persist(Object)}.
+     */
+    @Test
+    public void testGetById() {
+        this.doTestGetById();
+    }
+
+    /**
+     * Invokes {@link super#doTestFindAllActive()} to test {@link JobDao#findAllActive()}.
+     */
+    @Test
+    public void testFindAllActive() {
+        this.doTestFindAllActive();
+    }
+
+    /**
+     * Invokes {@link super#doTestTransitionStatus()} to test
+     * {@link JobDao#transitionStatus(String, JobStatus, JobStatus, String, String)}.
+     */
+    @Test
+    public void testTransitionStatus() {
+        this.doTestTransitionStatus();
+    }
+
+}
@@ -62,4 +62,13 @@ public class JobDaoMongoDbImplTest extends AbstractJobDaoImplTest {
         this.doTestFindAllActive();
     }
 
+    /**
+     * Invokes {@link super#doTestTransitionStatus()} to test
+     * {@link JobDao#transitionStatus(String, JobStatus, JobStatus, String, String)}.
+     */
+    @Test
+    public void testTransitionStatus() {
+        this.doTestTransitionStatus();
+    }
+
 }
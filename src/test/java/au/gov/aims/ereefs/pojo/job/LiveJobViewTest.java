@@ -0,0 +1,169 @@
+package au.gov.aims.ereefs.pojo.job;
+
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.TaskStatus;
+import au.gov.aims.ereefs.pojo.utils.FileLayout;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Test cases for {@link LiveJobView}, over the file-based repository.
+ */
+public class LiveJobViewTest {
+
+    /**
+     * The root directory of the repository.
+     */
+    final protected String randomPath = System.getProperty("user.dir") + File.separator +
+        "target" + File.separator + "test-output" + File.separator +
+        UUID.randomUUID().toString() + File.separator;
+
+    final protected TaskDaoFileImpl taskDao = new TaskDaoFileImpl(this.randomPath + "task");
+
+    final protected JobDaoFileImpl jobDao = new JobDaoFileImpl(this.randomPath + "job", this.taskDao);
+
+    /**
+     * Records each change pushed by the view, as {@code <change>:<id>}.
+     */
+    final protected List<String> changes = new CopyOnWriteArrayList<>();
+
+    protected LiveJobView.Listener makeListener() {
+        return new LiveJobView.Listener() {
+
+            @Override
+            public void jobUpdated(Job job) {
+                LiveJobViewTest.this.changes.add("jobUpdated:" + job.getId());
+            }
+
+            @Override
+            public void jobRemoved(Job job) {
+                LiveJobViewTest.this.changes.add("jobRemoved:" + job.getId());
+            }
+
+            @Override
+            public void taskUpdated(Task task) {
+                LiveJobViewTest.this.changes.add("taskUpdated:" + task.getId());
+            }
+
+        };
+    }
+
+    /**
+     * Wait up to 10 seconds for the {@code condition} to become {@code true}.
+     */
+    protected void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Verify the view is loaded when started, then updated incrementally from the changes
+     * published to a {@link JobChangeSourceLocalImpl}.
+     */
+    @Test
+    public void testLocalChanges() {
+        final Job running = this.jobDao.persist(JobBuilder.buildJob(JobStatus.RUNNING));
+        this.jobDao.persist(JobBuilder.buildJob(JobStatus.COMPLETED));
+
+        final JobChangeSourceLocalImpl changeSource = new JobChangeSourceLocalImpl();
+        try (final LiveJobView view = new LiveJobView(this.jobDao, this.taskDao, changeSource)) {
+            view.addListener(this.makeListener());
+            view.start();
+            Assertions.assertThat(view.getActiveJobs()).extracting(Job::getId).containsExactly(running.getId());
+            Assertions.assertThat(view.getTasks(running.getId())).hasSize(2);
+            Assertions.assertThat(this.changes).hasSize(3).startsWith("jobUpdated:" + running.getId());
+
+            // A new Job is added with its Tasks.
+            this.changes.clear();
+            final Job created = this.jobDao.persist(JobBuilder.buildJob(JobStatus.CREATED));
+            changeSource.publishJob(created);
+            Assertions.assertThat(view.getActiveJobs()).hasSize(2);
+            Assertions.assertThat(view.getTasks(created.getId())).hasSize(2);
+
+            // A changed Task is replaced, and Tasks of inactive Jobs are ignored.
+            final Task task = this.taskDao.transitionStatus(
+                view.getTasks(created.getId()).get(0).getId(), null, TaskStatus.SUCCESS, "pojoTest", null);
+            changeSource.publishTask(task);
+            Assertions.assertThat(view.getTask(task.getId()).getStatus()).isEqualTo(TaskStatus.SUCCESS);
+            changeSource.publishTask(running.getTasks().get(0));
+            changeSource.publishTaskDeleted(task.getId());
+            Assertions.assertThat(view.getTask(task.getId())).isNull();
+            Assertions.assertThat(view.getTasks(created.getId())).hasSize(1);
+
+            // A Job which completes is removed with its Tasks.
+            changeSource.publishJob(this.jobDao.transitionStatus(
+                running.getId(), JobStatus.RUNNING, JobStatus.COMPLETED, "pojoTest", null));
+            Assertions.assertThat(view.getActiveJobs()).extracting(Job::getId).containsExactly(created.getId());
+            Assertions.assertThat(view.getTasks(running.getId())).isEmpty();
+            Assertions.assertThat(this.changes).endsWith("jobRemoved:" + running.getId());
+
+            changeSource.publishJobDeleted(created.getId());
+            Assertions.assertThat(view.getActiveJobs()).isEmpty();
+        }
+    }
+
+    /**
+     * Verify the view follows changes made to the files, found by a {@link JobChangeSourceFileImpl}.
+     */
+    @Test
+    public void testFileChanges() throws Exception {
+        final JobChangeSourceFileImpl changeSource = new JobChangeSourceFileImpl(
+            this.randomPath + "job", this.randomPath + "task", 20);
+        try (final LiveJobView view = new LiveJobView(this.jobDao, this.taskDao, changeSource)) {
+            view.addListener(this.makeListener());
+            view.start();
+            Assertions.assertThat(view.getActiveJobs()).isEmpty();
+
+            final Job job = this.jobDao.persist(JobBuilder.buildJob(JobStatus.CREATED));
+            this.await(() -> view.getTasks(job.getId()).size() == 2);
+
+            final String taskId = job.getTasks().get(1).getId();
+            this.taskDao.transitionStatus(taskId, null, TaskStatus.RUNNING, "pojoTest", null);
+            this.await(() -> view.getTask(taskId).getStatus() == TaskStatus.RUNNING);
+
+            this.jobDao.transitionStatus(job.getId(), null, JobStatus.COMPLETED, "pojoTest", null);
+            this.await(() -> view.getActiveJobs().isEmpty());
+            Assertions.assertThat(this.changes).contains("taskUpdated:" + taskId, "jobRemoved:" + job.getId());
+        }
+    }
+
+    /**
+     * Verify a {@link Job} and its {@link Task}s moved to the {@link FileLayout#HASHED} layout
+     * when they are persisted are not removed from the view.
+     */
+    @Test
+    public void testLayoutSwitch() throws Exception {
+        final Job job = this.jobDao.persist(JobBuilder.buildJob(JobStatus.RUNNING));
+        final JobChangeSourceFileImpl changeSource = new JobChangeSourceFileImpl(
+            this.randomPath + "job", this.randomPath + "task", 20);
+        try (final LiveJobView view = new LiveJobView(this.jobDao, this.taskDao, changeSource)) {
+            view.addListener(this.makeListener());
+            view.start();
+            Assertions.assertThat(view.getTasks(job.getId())).hasSize(2);
+
+            this.jobDao.setFileLayout(FileLayout.HASHED);
+            this.taskDao.setFileLayout(FileLayout.HASHED);
+            this.jobDao.persist(job);
+            Assertions.assertThat(FileLayout.HASHED.getFile(new File(this.randomPath + "job"), job.getId(), ".json"))
+                .isFile();
+
+            // Once a Job persisted after the move is seen, the move has been seen.
+            final Job marker = this.jobDao.persist(JobBuilder.buildJob(JobStatus.CREATED));
+            this.await(() -> view.getTasks(marker.getId()).size() == 2);
+            Assertions.assertThat(view.getActiveJobs()).extracting(Job::getId).contains(job.getId());
+            Assertions.assertThat(view.getTasks(job.getId())).hasSize(2);
+            Assertions.assertThat(this.changes).doesNotContain("jobRemoved:" + job.getId());
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+package au.gov.aims.ereefs.pojo.logstore;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Test cases for {@link LogStore}.
+ */
+public class LogStoreTest {
+
+    /**
+     * The stores opened by the test, which are closed after the test.
+     */
+    final protected List<LogStore> stores = new ArrayList<>();
+
+    @After
+    public void closeStores() {
+        for (LogStore store : this.stores) {
+            store.close();
+        }
+    }
+
+    /**
+     * Returns a randomly generated path for writing test data.
+     */
+    protected File makeRandomPath() {
+        return new File(System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator + UUID.randomUUID().toString());
+    }
+
+    /**
+     * Open the store in the {@code directory}, without background compactions.
+     */
+    protected LogStore open(File directory) {
+        final LogStore store = new LogStore(directory);
+        store.setCompactionInterval(0);
+        this.stores.add(store);
+        return store;
+    }
+
+    /**
+     * Close the store, so the directory can be opened again.
+     */
+    protected void close(LogStore store) {
+        store.close();
+        this.stores.remove(store);
+    }
+
+    /**
+     * Returns the segment files of the store, in order.
+     */
+    protected List<File> listSegments(File directory) {
+        final File[] files = directory.listFiles((dir, name) -> LogSegment.parseId(name) >= 0);
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    protected static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    protected static String string(byte[] value) {
+        return (value == null) ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Verify values and attributes are written, replaced, found and removed.
+     */
+    @Test
+    public void testPutGetDelete() {
+        final LogStore store = this.open(this.makeRandomPath());
+        store.put("b", bytes("first"), Collections.singletonMap("status", "CREATED"));
+        store.put("a", bytes("second"), Collections.singletonMap("status", "CREATED"));
+        store.put("b", bytes("replaced"), Collections.singletonMap("status", "RUNNING"));
+
+        Assertions.assertThat(string(store.get("a"))).isEqualTo("second");
+        Assertions.assertThat(string(store.get("b"))).isEqualTo("replaced");
+        Assertions.assertThat(store.get("missing")).isNull();
+        Assertions.assertThat(store.getAttributes("b")).containsEntry("status", "RUNNING");
+        Assertions.assertThat(store.size()).isEqualTo(2);
+        Assertions
+            .assertThat(store.find(attributes -> "CREATED".equals(attributes.get("status"))))
+            .containsExactly("a");
+        Assertions
+            .assertThat(store.find(attributes -> true))
+            .containsExactly("a", "b");
+
+        Assertions.assertThat(store.delete("a")).isTrue();
+        Assertions.assertThat(store.delete("a")).isFalse();
+        Assertions.assertThat(store.get("a")).isNull();
+        Assertions.assertThat(store.containsKey("a")).isFalse();
+        Assertions.assertThat(store.size()).isEqualTo(1);
+    }
+
+    /**
+     * Verify the store is rebuilt from the hints of its segments when it is opened again, and that
+     * a store cannot be opened twice.
+     */
+    @Test
+    public void testReopen() {
+        final File directory = this.makeRandomPath();
+        final LogStore store = this.open(directory);
+        store.setMaxSegmentBytes(256);
+        for (int index = 0; index < 20; index++) {
+            store.put("key" + index, bytes("value" + index), Collections.singletonMap("index", "" + index));
+        }
+        store.delete("key0");
+        Assertions.assertThat(store.getSegmentCount()).isGreaterThan(1);
+        Assertions
+            .assertThatThrownBy(() -> new LogStore(directory))
+            .hasMessageContaining("is already open");
+        this.close(store);
+
+        for (File segment : this.listSegments(directory)) {
+            Assertions
+                .assertThat(new File(directory, segment.getName().replace(LogSegment.SUFFIX, LogSegment.HINT_SUFFIX)))
+                .isFile();
+        }
+        final LogStore reopened = this.open(directory);
+        Assertions.assertThat(reopened.size()).isEqualTo(19);
+        Assertions.assertThat(reopened.get("key0")).isNull();
+        Assertions.assertThat(string(reopened.get("key19"))).isEqualTo("value19");
+        Assertions.assertThat(reopened.getAttributes("key7")).containsEntry("index", "7");
+
+        // Later writes replace the records written before the store was opened again.
+        reopened.put("key1", bytes("replaced"), Collections.emptyMap());
+        this.close(reopened);
+        Assertions.assertThat(string(this.open(directory).get("key1"))).isEqualTo("replaced");
+    }
+
+    /**
+     * Verify a record which was only partly written (eg: by a crash) is removed when the store is
+     * opened again, and the records before it are kept.
+     */
+    @Test
+    public void testTornWrite() throws IOException {
+        final File directory = this.makeRandomPath();
+        final LogStore store = this.open(directory);
+        store.put("a", bytes("first"), Collections.emptyMap());
+        store.put("b", bytes("second"), Collections.emptyMap());
+        store.put("c", bytes("third"), Collections.emptyMap());
+        this.close(store);
+
+        // Remove the hints and the end of the last record, as if the process had crashed.
+        final List<File> segments = this.listSegments(directory);
+        final File segment = segments.get(segments.size() - 1);
+        new File(directory, segment.getName().replace(LogSegment.SUFFIX, LogSegment.HINT_SUFFIX)).delete();
+        final long length = segment.length();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(length - 3);
+        }
+
+        final LogStore reopened = this.open(directory);
+        Assertions.assertThat(string(reopened.get("a"))).isEqualTo("first");
+        Assertions.assertThat(string(reopened.get("b"))).isEqualTo("second");
+        Assertions.assertThat(reopened.get("c")).isNull();
+        Assertions.assertThat(segment.length()).isLessThan(length - 3);
+
+        // The store is still writable after the partial record.
+        reopened.put("c", bytes("written again"), Collections.emptyMap());
+        this.close(reopened);
+        Assertions.assertThat(string(this.open(directory).get("c"))).isEqualTo("written again");
+    }
+
+    /**
+     * Verify a record which is corrupted on disk fails its CRC check when it is read, rather than
+     * returning the corrupted value.
+     */
+    @Test
+    public void testCorruptRecord() throws IOException {
+        final File directory = this.makeRandomPath();
+        final LogStore store = this.open(directory);
+        store.put("a", bytes("first"), Collections.emptyMap());
+        store.put("b", bytes("second"), Collections.emptyMap());
+        this.close(store);
+
+        // Change the last byte of the value of "b".
+        final List<File> segments = this.listSegments(directory);
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(segments.size() - 1), "rw")) {
+            file.seek(file.length() - 1);
+            file.write('X');
+        }
+
+        final LogStore reopened = this.open(directory);
+        Assertions.assertThat(string(reopened.get("a"))).isEqualTo("first");
+        Assertions
+            .assertThatThrownBy(() -> reopened.get("b"))
+            .isInstanceOf(RuntimeException.class);
+    }
+
+    /**
+     * Verify a compaction reclaims the space of replaced and removed records, keeping the latest
+     * value of each key, including after the store is opened again.
+     */
+    @Test
+    public void testCompaction() {
+        final File directory = this.makeRandomPath();
+        final LogStore store = this.open(directory);
+        store.setMaxSegmentBytes(1024);
+        for (int round = 0; round < 10; round++) {
+            for (int index = 0; index < 50; index++) {
+                store.put("key" + index, bytes("value" + index + "-" + round),
+                    Collections.singletonMap("round", "" + round));
+            }
+        }
+        for (int index = 0; index < 10; index++) {
+            store.delete("key" + index);
+        }
+        final int segmentCount = store.getSegmentCount();
+        final long diskBytes = store.getDiskBytes();
+
+        Assertions.assertThat(store.compactIfRequired()).isTrue();
+        Assertions.assertThat(store.getSegmentCount()).isLessThan(segmentCount);
+        Assertions.assertThat(store.getDiskBytes()).isLessThan(diskBytes / 2);
+        Assertions.assertThat(store.size()).isEqualTo(40);
+        Assertions.assertThat(store.get("key0")).isNull();
+        Assertions.assertThat(string(store.get("key49"))).isEqualTo("value49-9");
+        Assertions.assertThat(store.getAttributes("key49")).containsEntry("round", "9");
+        this.close(store);
+
+        final LogStore reopened = this.open(directory);
+        Assertions.assertThat(reopened.size()).isEqualTo(40);
+        for (int index = 0; index < 50; index++) {
+            Assertions
+                .assertThat(string(reopened.get("key" + index)))
+                .isEqualTo(index < 10 ? null : "value" + index + "-9");
+        }
+    }
+
+}
@@ -2,7 +2,10 @@ package au.gov.aims.ereefs.pojo.metadata;
 
 import org.assertj.core.api.Assertions;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract base test class that implements tests that are common to all
@@ -110,6 +113,53 @@ abstract public class AbstractMetadataDaoImplTest {
 
     }
 
+    /**
+     * Verify the {@link MetadataDao#getSummariesByDefinitionId(String, String)} returns the same
+     * records as {@link MetadataDao#getByDefinitionId(String, String)}, with the summary fields
+     * populated.
+     */
+    protected void doTestGetSummariesByDefinitionId() {
+        final MetadataDao dao = this.makeDao();
+
+        final List<Metadata> metadataList = dao.getByDefinitionId(
+            PRODUCT_DEFINITIONS_ID,
+            NetCDFMetadata.TYPE
+        );
+        final List<Metadata> summaryList = dao.getSummariesByDefinitionId(
+            PRODUCT_DEFINITIONS_ID,
+            NetCDFMetadata.TYPE
+        );
+        Assertions
+            .assertThat(summaryList)
+            .extracting(Metadata::getId)
+            .containsExactlyInAnyOrder(PRODUCT_METADATA_IDS);
+
+        for (final Metadata summary : summaryList) {
+            final Metadata metadata = metadataList.stream()
+                .filter(candidate -> candidate.getId().equals(summary.getId()))
+                .findFirst()
+                .get();
+            Assertions
+                .assertThat(summary)
+                .isInstanceOf(NetCDFMetadata.class);
+            Assertions
+                .assertThat(summary.getDefinitionId())
+                .isEqualTo(metadata.getDefinitionId());
+            Assertions
+                .assertThat(summary.getFileURI())
+                .isEqualTo(metadata.getFileURI());
+            Assertions
+                .assertThat(summary.getLastModified())
+                .isEqualTo(metadata.getLastModified());
+            Assertions
+                .assertThat(((NetCDFMetadata) summary).getStatus())
+                .isEqualTo(((NetCDFMetadata) metadata).getStatus());
+            Assertions
+                .assertThat(((NetCDFMetadata) summary).getChecksum())
+                .isEqualTo(((NetCDFMetadata) metadata).getChecksum());
+        }
+    }
+
     /**
      * Verify the {@link MetadataDao#getByDefinitionId(String, String)} returns the expected data
      * for an invalid {@code definitionId}.
@@ -151,4 +201,31 @@ abstract public class AbstractMetadataDaoImplTest {
 
     }
 
+    /**
+     * Verify the {@link MetadataDao#getByIds(java.util.Collection)} method returns the requested
+     * {@link Metadata} in request order, omitting duplicates and unknown ids.
+     */
+    public void doTestGetByIds() {
+        final MetadataDao dao = this.makeDao();
+        final Map<String, Metadata> metadataMap = dao.getByIds(Arrays.asList(
+            PRODUCT_METADATA_IDS[3],
+            "INVALID_METADATA_ID",
+            DOWNLOAD_METADATA_IDS[0],
+            PRODUCT_METADATA_IDS[1],
+            PRODUCT_METADATA_IDS[3]
+        ));
+        Assertions
+            .assertThat(metadataMap.keySet())
+            .containsExactly(PRODUCT_METADATA_IDS[3], DOWNLOAD_METADATA_IDS[0], PRODUCT_METADATA_IDS[1]);
+        for (Map.Entry<String, Metadata> entry : metadataMap.entrySet()) {
+            Assertions
+                .assertThat(entry.getValue().getId())
+                .isEqualTo(entry.getKey());
+        }
+        Assertions
+            .assertThat(dao.getByIds(Collections.emptyList()))
+            .isEmpty();
+
+    }
+
 }
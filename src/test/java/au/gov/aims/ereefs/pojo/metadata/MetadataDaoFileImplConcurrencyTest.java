@@ -0,0 +1,135 @@
+package au.gov.aims.ereefs.pojo.metadata;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded stress test for the cache of {@link MetadataDaoFileImpl}, verifying that a single
+ * instance can be shared between threads performing {@code getById}, {@code getByDefinitionId}
+ * and {@code persist}, while another process rewrites files in the same directory.
+ */
+public class MetadataDaoFileImplConcurrencyTest {
+
+    /**
+     * Constant identifying the path to the test data.
+     */
+    final public String TEST_DATA_PATH = System.getProperty("user.dir") + File.separator + "src" +
+        File.separator + "test" + File.separator + "resources" + File.separator + "metadata" +
+        File.separator + "products" + File.separator + "gbr4_v2" + File.separator + "daily-monthly";
+
+    /**
+     * The number of operations performed by each thread.
+     */
+    final static protected int ITERATIONS = 500;
+
+    @Test
+    public void testParallelGetAndPersist() throws Exception {
+        // Copy the Product metadata to a randomly generated path.
+        final File randomPath = new File(System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator + UUID.randomUUID().toString());
+        randomPath.mkdirs();
+        for (File file : new File(TEST_DATA_PATH).listFiles()) {
+            Files.copy(file.toPath(), new File(randomPath, file.getName()).toPath());
+        }
+        final String externalJson = new String(
+            Files.readAllBytes(new File(randomPath, "daily-monthly-2011-01.nc.json").toPath()),
+            StandardCharsets.UTF_8
+        );
+
+        // Check for changes on every access, to maximise contention with the refresher.
+        final MetadataDaoFileImpl dao = new MetadataDaoFileImpl(randomPath.getPath());
+        dao.setRefreshInterval(0);
+
+        final int readers = 6;
+        final int persisters = 2;
+        final ExecutorService executor = Executors.newFixedThreadPool(readers + persisters + 1);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < readers; thread++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                        final String id = AbstractMetadataDaoImplTest.PRODUCT_METADATA_IDS[
+                            iteration % AbstractMetadataDaoImplTest.PRODUCT_METADATA_IDS.length];
+                        Assertions
+                            .assertThat(dao.getById(id))
+                            .isNotNull()
+                            .extracting(Metadata::getId)
+                            .containsExactly(id);
+                        Assertions
+                            .assertThat(dao.getByDefinitionId(
+                                AbstractMetadataDaoImplTest.PRODUCT_DEFINITIONS_ID,
+                                NetCDFMetadata.TYPE
+                            ))
+                            .extracting(Metadata::getId)
+                            .contains(AbstractMetadataDaoImplTest.PRODUCT_METADATA_IDS);
+                    }
+                    return null;
+                }));
+            }
+            for (int thread = 0; thread < persisters; thread++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int iteration = 0; iteration < ITERATIONS / 10; iteration++) {
+                        final String id = AbstractMetadataDaoImplTest.PRODUCT_METADATA_IDS[
+                            iteration % AbstractMetadataDaoImplTest.PRODUCT_METADATA_IDS.length];
+                        dao.persist(dao.getById(id));
+                    }
+                    return null;
+                }));
+            }
+
+            // Simulate another process repeatedly writing and deleting a file, non-atomically.
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                final File externalFile = new File(randomPath, "external.json");
+                for (int iteration = 0; iteration < ITERATIONS / 10; iteration++) {
+                    Files.write(
+                        externalFile.toPath(),
+                        externalJson
+                            .replace(
+                                AbstractMetadataDaoImplTest.PRODUCT_METADATA_IDS[4],
+                                "external-" + iteration
+                            )
+                            .getBytes(StandardCharsets.UTF_8)
+                    );
+                    if (iteration % 3 == 0) {
+                        externalFile.delete();
+                    }
+                }
+                return null;
+            }));
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Once quiet, the cache matches the directory.
+        Assertions
+            .assertThat(dao.getByDefinitionId(
+                AbstractMetadataDaoImplTest.PRODUCT_DEFINITIONS_ID,
+                NetCDFMetadata.TYPE
+            ))
+            .extracting(Metadata::getId)
+            .contains(AbstractMetadataDaoImplTest.PRODUCT_METADATA_IDS);
+    }
+
+}
@@ -1,8 +1,14 @@
 package au.gov.aims.ereefs.pojo.metadata;
 
+import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Test cases for {@link MetadataDao}.
@@ -30,6 +36,14 @@ public class MetadataDaoFileImplTest extends AbstractMetadataDaoImplTest {
         super.doTestGetByDefinitionIdValid();
     }
 
+    /**
+     * Invoke {@link #doTestGetSummariesByDefinitionId()}.
+     */
+    @Test
+    public void testGetSummariesByDefinitionId() {
+        super.doTestGetSummariesByDefinitionId();
+    }
+
     /**
      * Invoke {@link #doTestGetByDefinitionIdInvalid()}.
      */
@@ -54,4 +68,105 @@ public class MetadataDaoFileImplTest extends AbstractMetadataDaoImplTest {
         super.doTestGetByIdInvalid();
     }
 
+    /**
+     * Invoke {@link #doTestGetByIds()}.
+     */
+    @Test
+    public void testGetByIds() {
+        super.doTestGetByIds();
+    }
+
+    /**
+     * Verify the secondary indexes declared by {@link MetadataDaoFileImpl}.
+     */
+    @Test
+    public void testSecondaryIndexes() {
+        final MetadataDaoFileImpl dao = new MetadataDaoFileImpl(TEST_DATA_PATH);
+
+        Assertions
+            .assertThat(dao.getByStatus("VALID"))
+            .hasSize(DOWNLOAD_METADATA_IDS.length + PRODUCT_METADATA_IDS.length);
+        Assertions
+            .assertThat(dao.getByStatus("CORRUPTED"))
+            .hasSize(1);
+        Assertions
+            .assertThat(dao.getByStatus("UNKNOWN"))
+            .isEmpty();
+
+        Assertions
+            .assertThat(dao.getByFileURI("file:/data/ereefs/netcdf/ereefs/gbr4_v2/gbr4_simple_2010-10.nc"))
+            .extracting(Metadata::getId)
+            .containsExactly(DOWNLOAD_METADATA_IDS[1]);
+        Assertions
+            .assertThat(dao.getByFileURI("file:/invalid"))
+            .isEmpty();
+    }
+
+    /**
+     * Verify that the cache is updated incrementally, both for {@link Metadata} persisted through
+     * the DAO and for files added, changed and deleted by another process, and that unaffected
+     * entries are not reparsed.
+     */
+    @Test
+    public void testIncrementalRefresh() throws IOException {
+        // Copy the Product metadata to a randomly generated path.
+        final File sourcePath = new File(TEST_DATA_PATH + File.separator + "products" +
+            File.separator + "gbr4_v2" + File.separator + "daily-monthly");
+        final File randomPath = new File(System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator + UUID.randomUUID().toString());
+        randomPath.mkdirs();
+        for (File file : sourcePath.listFiles()) {
+            Files.copy(file.toPath(), new File(randomPath, file.getName()).toPath());
+        }
+        final MetadataDaoFileImpl dao = new MetadataDaoFileImpl(randomPath.getPath());
+        dao.setRefreshInterval(0);
+
+        final Metadata unaffected = dao.getById(PRODUCT_METADATA_IDS[0]);
+        Assertions
+            .assertThat(dao.getByDefinitionId(PRODUCT_DEFINITIONS_ID, NetCDFMetadata.TYPE))
+            .hasSize(PRODUCT_METADATA_IDS.length);
+
+        // Persisting replaces only the affected entry.
+        final Metadata persisted = dao.getById(PRODUCT_METADATA_IDS[1]);
+        dao.persist(persisted);
+        Assertions
+            .assertThat(dao.getById(PRODUCT_METADATA_IDS[1]))
+            .isSameAs(persisted);
+        Assertions
+            .assertThat(dao.getByDefinitionId(PRODUCT_DEFINITIONS_ID, NetCDFMetadata.TYPE))
+            .hasSize(PRODUCT_METADATA_IDS.length);
+
+        // A file added by another process is picked up.
+        final String addedId = PRODUCT_DEFINITIONS_ID + "/daily-monthly-2099-01";
+        final String json = new String(
+            Files.readAllBytes(new File(randomPath, "daily-monthly-2011-01.nc.json").toPath()),
+            StandardCharsets.UTF_8
+        );
+        Files.write(
+            new File(randomPath, "added.json").toPath(),
+            json.replace(PRODUCT_METADATA_IDS[4], addedId).getBytes(StandardCharsets.UTF_8)
+        );
+        Assertions
+            .assertThat(dao.getById(addedId))
+            .isNotNull();
+
+        // A file deleted by another process is removed.
+        new File(randomPath, "daily-monthly-2010-12.nc.json").delete();
+        Assertions
+            .assertThat(dao.getById(PRODUCT_METADATA_IDS[3]))
+            .isNull();
+        final List<Metadata> metadataList = dao.getByDefinitionId(PRODUCT_DEFINITIONS_ID, NetCDFMetadata.TYPE);
+        Assertions
+            .assertThat(metadataList)
+            .hasSize(PRODUCT_METADATA_IDS.length)
+            .extracting(Metadata::getId)
+            .contains(addedId)
+            .doesNotContain(PRODUCT_METADATA_IDS[3]);
+
+        // Unaffected entries were not reparsed.
+        Assertions
+            .assertThat(dao.getById(PRODUCT_METADATA_IDS[0]))
+            .isSameAs(unaffected);
+    }
+
 }
@@ -87,6 +87,14 @@ public class MetadataDaoMongoDbImplTest extends AbstractMetadataDaoImplTest {
         super.doTestGetByDefinitionIdValid();
     }
 
+    /**
+     * Invoke {@link #doTestGetSummariesByDefinitionId()}.
+     */
+    @Test
+    public void testGetSummariesByDefinitionId() {
+        super.doTestGetSummariesByDefinitionId();
+    }
+
     /**
      * Invoke {@link #doTestGetByDefinitionIdInvalid()}.
      */
@@ -111,4 +119,12 @@ public class MetadataDaoMongoDbImplTest extends AbstractMetadataDaoImplTest {
         super.doTestGetByIdInvalid();
     }
 
+    /**
+     * Invoke {@link #doTestGetByIds()}.
+     */
+    @Test
+    public void testGetByIds() {
+        super.doTestGetByIds();
+    }
+
 }
@@ -0,0 +1,169 @@
+package au.gov.aims.ereefs.pojo.metadata;
+
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+import au.gov.aims.ereefs.pojo.utils.JSONFileReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test cases for {@link MetadataReader}.
+ */
+public class MetadataReaderTest {
+
+    /**
+     * Constant identifying the path to the test data.
+     */
+    final public String TEST_DATA_PATH = System.getProperty("user.dir") + File.separator + "src" +
+        File.separator + "test" + File.separator + "resources" + File.separator + "metadata";
+
+    /**
+     * Verify that {@link MetadataReader} produces the same {@link Metadata} as binding the whole
+     * document with {@code Jackson}.
+     */
+    @Test
+    public void testReadMatchesJackson() throws Exception {
+        final ObjectMapper jsonMapper = new ObjectMapper();
+        final MetadataReader reader = new MetadataReader(jsonMapper);
+
+        final List<String> filenames = FileUtils.listFiles(TEST_DATA_PATH, ".json");
+        Assertions
+            .assertThat(filenames)
+            .isNotEmpty();
+
+        for (String filename : filenames) {
+            final Metadata expected = jsonMapper.readValue(
+                JSONFileReader.loadFileAsJSONObject(filename).toString(),
+                Metadata.class
+            );
+            final Metadata actual = reader.read(new File(filename));
+
+            Assertions
+                .assertThat(actual)
+                .isExactlyInstanceOf(expected.getClass())
+                .isEqualToComparingOnlyGivenFields(
+                    expected,
+                    "id", "definitionId", "fileURI", "lastModified"
+                );
+            if (expected instanceof NetCDFMetadata) {
+                final NetCDFMetadata expectedNetCDF = (NetCDFMetadata) expected;
+                final NetCDFMetadata actualNetCDF = (NetCDFMetadata) actual;
+                Assertions
+                    .assertThat(actualNetCDF)
+                    .isEqualToComparingOnlyGivenFields(
+                        expectedNetCDF,
+                        "datasetId", "status", "checksum"
+                    );
+                Assertions
+                    .assertThat(actualNetCDF.getAttributes())
+                    .isEqualTo(expectedNetCDF.getAttributes());
+                Assertions
+                    .assertThat(actualNetCDF.getVariables().keySet())
+                    .containsExactlyElementsOf(expectedNetCDF.getVariables().keySet());
+
+                for (Map.Entry<String, NetCDFMetadata.Variable> entry : expectedNetCDF.getVariables().entrySet()) {
+                    final NetCDFMetadata.Variable expectedVariable = entry.getValue();
+                    final NetCDFMetadata.Variable actualVariable = actualNetCDF.getVariables().get(entry.getKey());
+                    Assertions
+                        .assertThat(actualVariable.getId())
+                        .isEqualTo(expectedVariable.getId());
+                    if (expectedVariable.getTemporalDomain() == null) {
+                        Assertions
+                            .assertThat(actualVariable.getTemporalDomain())
+                            .isNull();
+                        continue;
+                    }
+                    Assertions
+                        .assertThat(actualVariable.getTemporalDomain().getTimezone())
+                        .isEqualTo(expectedVariable.getTemporalDomain().getTimezone());
+                    Assertions
+                        .assertThat(actualVariable.getTemporalDomain().copyTimeValuesSinceEpoch())
+                        .isEqualTo(expectedVariable.getTemporalDomain().copyTimeValuesSinceEpoch());
+                    Assertions
+                        .assertThat(actualVariable.getTemporalDomain().getTimeValues())
+                        .containsExactly(expectedVariable.getTemporalDomain().getTimeValues());
+
+                    // Both paths intern the TemporalDomain, so the instances are shared.
+                    Assertions
+                        .assertThat(actualVariable.getTemporalDomain())
+                        .isSameAs(expectedVariable.getTemporalDomain());
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify that variables with an identical time axis within a single document share the same
+     * {@code double[]}.
+     */
+    @Test
+    public void testTimeAxisIsShared() throws Exception {
+        final MetadataReader reader = new MetadataReader();
+        final List<String> filenames = FileUtils.listFiles(
+            TEST_DATA_PATH + File.separator + "downloads",
+            ".json"
+        );
+
+        boolean isShared = false;
+        for (String filename : filenames) {
+            final Metadata metadata;
+            try {
+                metadata = reader.read(new File(filename));
+            } catch (IOException e) {
+                // Deliberately corrupted test file.
+                continue;
+            }
+            if (!(metadata instanceof NetCDFMetadata)) {
+                continue;
+            }
+            final Map<List<Double>, double[]> axes = new HashMap<>();
+            for (NetCDFMetadata.Variable variable : ((NetCDFMetadata) metadata).getVariables().values()) {
+                if (variable.getTemporalDomain() == null) {
+                    continue;
+                }
+                final double[] timeValuesSinceEpoch = variable.getTemporalDomain().getReadOnlyTimeValuesSinceEpoch();
+                final List<Double> key = new ArrayList<>();
+                for (double value : timeValuesSinceEpoch) {
+                    key.add(value);
+                }
+                final double[] existing = axes.putIfAbsent(key, timeValuesSinceEpoch);
+                if (existing != null) {
+                    Assertions
+                        .assertThat(timeValuesSinceEpoch)
+                        .isSameAs(existing);
+                    isShared = true;
+                }
+            }
+        }
+        Assertions
+            .assertThat(isShared)
+            .isTrue();
+    }
+
+    /**
+     * Verify the accessors of the time values return copies, so the shared time axis cannot be
+     * modified through them.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testTimeValuesAreCopied() {
+        final double[] axis = new double[] {1.0, 2.0};
+        final NetCDFMetadata.TemporalDomain temporalDomain = new NetCDFMetadata.TemporalDomain(axis);
+        temporalDomain.copyTimeValuesSinceEpoch()[0] = 3.0;
+        temporalDomain.getTimeValuesSinceEpoch()[1] = 4.0;
+        Assertions
+            .assertThat(temporalDomain.getTimeValuesSinceEpoch())
+            .containsExactly(1.0, 2.0);
+        Assertions
+            .assertThat(temporalDomain.copyTimeValuesSinceEpoch())
+            .containsExactly(1.0, 2.0);
+    }
+
+}
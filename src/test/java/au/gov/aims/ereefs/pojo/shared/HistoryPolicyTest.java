@@ -0,0 +1,111 @@
+package au.gov.aims.ereefs.pojo.shared;
+
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskBuilder;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.TaskStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Test cases for {@link HistoryPolicy}, compact {@link StatusEvent}s and
+ * {@link HistoryArchiveFileImpl}, over a {@link TaskDaoFileImpl}.
+ */
+public class HistoryPolicyTest {
+
+    /**
+     * The root directory of the repository.
+     */
+    final protected String randomPath = System.getProperty("user.dir") + File.separator +
+        "target" + File.separator + "test-output" + File.separator +
+        UUID.randomUUID().toString() + File.separator;
+
+    /**
+     * Verify a compact event is written as an array, with the status as an ordinal, and is read
+     * back unchanged, while the default form is unchanged.
+     */
+    @Test
+    public void testCompactForm() throws Exception {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task task = TaskBuilder.buildAggregationTask(job, UUID.randomUUID().toString());
+        task.setStatus(TaskStatus.RETRYING, "ncaggregate", "Attempt 2.");
+
+        final ObjectMapper compactMapper = new HistoryPolicy(10, true).configure(new ObjectMapper());
+        final String compactJson = compactMapper.writeValueAsString(task);
+        Assertions
+            .assertThat(compactJson)
+            .contains(",\"ncaggregate\",\"Attempt 2.\"]")
+            .contains("," + TaskStatus.RETRYING.ordinal() + ",\"ncaggregate\"")
+            .doesNotContain("Status changed to");
+
+        final String defaultJson = new ObjectMapper().writeValueAsString(task);
+        Assertions.assertThat(defaultJson).contains("\"description\":\"Status changed to RETRYING by ncaggregate. Attempt 2.\"");
+
+        // Either form is read by either mapper.
+        for (String json : new String[]{compactJson, defaultJson}) {
+            final Task read = new ObjectMapper().readValue(json, Task.class);
+            Assertions.assertThat(read.getHistory()).hasSameSizeAs(task.getHistory());
+            for (int index = 0; index < task.getHistory().size(); index++) {
+                final StatusEvent expected = task.getHistory().get(index);
+                final StatusEvent actual = read.getHistory().get(index);
+                Assertions.assertThat(actual.getTimestamp()).isEqualTo(expected.getTimestamp());
+                Assertions.assertThat(actual.getStatus()).isEqualTo(expected.getStatus());
+                Assertions.assertThat(actual.getDescription()).isEqualTo(expected.getDescription());
+            }
+        }
+    }
+
+    /**
+     * Verify the oldest events beyond the cap are moved to the archive as a {@link Task} is
+     * retried, so the full history is the archived events followed by those in the document.
+     */
+    @Test
+    public void testCapAndArchive() throws Exception {
+        final TaskDaoFileImpl dao = new TaskDaoFileImpl(this.randomPath + "task");
+        final HistoryArchiveFileImpl archive = new HistoryArchiveFileImpl(this.randomPath + "task_history");
+        dao.setHistoryPolicy(new HistoryPolicy(3, true), archive);
+
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task task = dao.persist(TaskBuilder.buildAggregationTask(job, UUID.randomUUID().toString()));
+        final List<String> expectedStatuses = new ArrayList<>();
+        expectedStatuses.add(TaskStatus.CREATED.name());
+        for (int attempt = 0; attempt < 5; attempt++) {
+            dao.transitionStatus(task.getId(), null, TaskStatus.RUNNING, "worker", null);
+            dao.transitionStatus(task.getId(), null, TaskStatus.RETRYING, "worker", "Attempt " + attempt + ".");
+            expectedStatuses.add(TaskStatus.RUNNING.name());
+            expectedStatuses.add(TaskStatus.RETRYING.name());
+        }
+
+        final Task persisted = dao.getById(task.getId());
+        Assertions.assertThat(persisted.getHistory()).hasSize(3);
+        Assertions.assertThat(persisted.getHistory().get(2).getDescription()).endsWith("Attempt 4.");
+
+        // Archiving the same events again does not duplicate them.
+        final List<StatusEvent> archived = archive.getArchived(task.getId());
+        archive.archive(task.getId(), archived.subList(0, 2));
+        Assertions.assertThat(archive.getArchived(task.getId())).hasSameSizeAs(archived);
+
+        final List<StatusEvent> fullHistory = new ArrayList<>(archived);
+        fullHistory.addAll(persisted.getHistory());
+        Assertions
+            .assertThat(fullHistory.stream().map(StatusEvent::getStatus).collect(Collectors.toList()))
+            .isEqualTo(expectedStatuses);
+
+        // The Task file holds only the compact events within the cap.
+        final File file = new File(this.randomPath + "task" + File.separator + job.getId() +
+            File.separator + task.getId() + ".json");
+        final String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Assertions.assertThat(json).doesNotContain("\"timestamp\"").contains("\"Attempt 4.\"]");
+    }
+
+}
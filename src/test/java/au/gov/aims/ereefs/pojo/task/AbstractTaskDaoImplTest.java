@@ -1,8 +1,19 @@
 package au.gov.aims.ereefs.pojo.task;
 
+import au.gov.aims.ereefs.pojo.PersistResult;
+import au.gov.aims.ereefs.pojo.job.Job;
 import org.assertj.core.api.Assertions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Abstract base test class that implements tests that are common to all
@@ -58,4 +69,138 @@ abstract public class AbstractTaskDaoImplTest {
             .hasSize(1);
     }
 
+    /**
+     * Verify that {@link TaskDao#getByJobIds(java.util.Collection)} groups the {@link Task}s by
+     * {@code JobId}, in request order, with an empty list for an unknown {@code JobId}.
+     */
+    protected void doTestGetByJobIds() {
+        final TaskDao dao = this.makeDao();
+        final Map<String, List<Task>> tasksByJobId = dao.getByJobIds(
+            Arrays.asList(BASIC_JOB_ID, "INVALID_JOB_ID", AGGREGATE_JOB_ID, OTHER_JOB_ID, BASIC_JOB_ID)
+        );
+        Assertions
+            .assertThat(tasksByJobId.keySet())
+            .containsExactly(BASIC_JOB_ID, "INVALID_JOB_ID", AGGREGATE_JOB_ID, OTHER_JOB_ID);
+        Assertions.assertThat(tasksByJobId.get(BASIC_JOB_ID)).hasSize(3);
+        Assertions.assertThat(tasksByJobId.get("INVALID_JOB_ID")).isEmpty();
+        Assertions.assertThat(tasksByJobId.get(AGGREGATE_JOB_ID)).hasSize(2);
+        Assertions.assertThat(tasksByJobId.get(OTHER_JOB_ID)).hasSize(1);
+        for (Map.Entry<String, List<Task>> entry : tasksByJobId.entrySet()) {
+            for (Task task : entry.getValue()) {
+                Assertions
+                    .assertThat(task.getJobId())
+                    .isEqualTo(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Verify that {@link TaskDao#persistAll(java.util.Collection)} persists every {@link Task} of
+     * a {@link Job}, which are then returned by {@link TaskDao#getByJobId(String)}.
+     */
+    protected void doTestPersistAll(TaskDao dao) {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final String productDefinitionId = UUID.randomUUID().toString();
+        final List<Task> tasks = new ArrayList<>();
+        for (int index = 0; index < 50; index++) {
+            tasks.add(TaskBuilder.buildAggregationTask(job, productDefinitionId));
+        }
+
+        final PersistResult<Task> result = dao.persistAll(tasks);
+        Assertions
+            .assertThat(result.isSuccessful())
+            .isTrue();
+        Assertions
+            .assertThat(result.getPersisted())
+            .containsExactlyElementsOf(tasks);
+        Assertions
+            .assertThat(dao.getByJobId(job.getId()))
+            .extracting(Task::getId)
+            .containsOnlyElementsOf(
+                tasks.stream().map(Task::getId).collect(Collectors.toList())
+            )
+            .hasSize(tasks.size());
+    }
+
+    /**
+     * Verify {@link TaskDao#getByIds(java.util.Collection)} returns the persisted {@link Task}s in
+     * request order, omitting unknown ids.
+     */
+    protected void doTestGetByIds(TaskDao dao) {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final String productDefinitionId = UUID.randomUUID().toString();
+        final List<Task> tasks = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            tasks.add(TaskBuilder.buildAggregationTask(job, productDefinitionId));
+        }
+        dao.persistAll(tasks);
+
+        final List<String> ids = new ArrayList<>();
+        for (int index = tasks.size() - 1; index >= 0; index -= 2) {
+            ids.add(tasks.get(index).getId());
+        }
+        ids.add(UUID.randomUUID().toString());
+        final Map<String, Task> found = dao.getByIds(ids);
+        Assertions
+            .assertThat(found.keySet())
+            .containsExactlyElementsOf(ids.subList(0, ids.size() - 1));
+        Assertions
+            .assertThat(found.values())
+            .extracting(Task::getJobId)
+            .containsOnly(job.getId());
+    }
+
+    /**
+     * Verify {@link TaskDao#transitionStatus(String, TaskStatus, TaskStatus, String, String)}
+     * only changes the status from the expected status, and that exactly one of several
+     * concurrent identical transitions succeeds.
+     */
+    protected void doTestTransitionStatus(TaskDao dao) throws Exception {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task task = TaskBuilder.buildAggregationTask(job, UUID.randomUUID().toString());
+        dao.persist(task);
+        final int historySize = task.getHistory().size();
+
+        // Concurrent workers race to claim the Task.
+        final int workers = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(workers);
+        final List<Future<Task>> futures = new ArrayList<>();
+        try {
+            for (int worker = 0; worker < workers; worker++) {
+                final String actor = "worker-" + worker;
+                futures.add(executor.submit(() -> dao.transitionStatus(
+                    task.getId(), TaskStatus.CREATED, TaskStatus.ASSIGNED, actor, null)));
+            }
+            final List<Task> claimed = new ArrayList<>();
+            for (Future<Task> future : futures) {
+                final Task result = future.get(1, TimeUnit.MINUTES);
+                if (result != null) {
+                    claimed.add(result);
+                }
+            }
+            Assertions.assertThat(claimed).hasSize(1);
+            Assertions.assertThat(claimed.get(0).getStatus()).isEqualTo(TaskStatus.ASSIGNED);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The transition is persisted, with a single new history entry.
+        final Task assigned = dao.getById(task.getId());
+        Assertions.assertThat(assigned.getStatus()).isEqualTo(TaskStatus.ASSIGNED);
+        Assertions.assertThat(assigned.getHistory()).hasSize(historySize + 1);
+        Assertions
+            .assertThat(assigned.getHistory().get(historySize).getStatus())
+            .isEqualTo(TaskStatus.ASSIGNED.name());
+
+        // A transition from any status succeeds, and an unknown Task is not created.
+        final Task running = dao.transitionStatus(task.getId(), null, TaskStatus.RUNNING, "handler", "Started.");
+        Assertions.assertThat(running.getStatus()).isEqualTo(TaskStatus.RUNNING);
+        Assertions
+            .assertThat(running.getHistory().get(historySize + 1).getDescription())
+            .isEqualTo("Status changed to RUNNING by handler. Started.");
+        Assertions
+            .assertThat(dao.transitionStatus(UUID.randomUUID().toString(), null, TaskStatus.RUNNING, "handler", null))
+            .isNull();
+    }
+
 }
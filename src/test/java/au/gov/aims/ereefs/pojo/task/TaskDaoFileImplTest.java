@@ -1,8 +1,23 @@
 package au.gov.aims.ereefs.pojo.task;
 
+import au.gov.aims.ereefs.pojo.PersistResult;
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.utils.FileUtils;
+import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Test cases for {@link TaskDao}.
@@ -46,4 +61,194 @@ public class TaskDaoFileImplTest extends AbstractTaskDaoImplTest {
         super.doTestGetByOtherJobId();
     }
 
+    /**
+     * Invoke {@link #doTestGetByJobIds()}.
+     */
+    @Test
+    public void testGetByJobIds() {
+        super.doTestGetByJobIds();
+    }
+
+    /**
+     * Invoke {@link #doTestPersistAll(TaskDao)} with a randomly generated path.
+     */
+    @Test
+    public void testPersistAll() {
+        super.doTestPersistAll(new TaskDaoFileImpl(this.makeRandomPath().getPath()));
+    }
+
+    /**
+     * Invoke {@link #doTestGetByIds(TaskDao)}.
+     */
+    @Test
+    public void testGetByIds() {
+        super.doTestGetByIds(new TaskDaoFileImpl(this.makeRandomPath().getPath()));
+    }
+
+    /**
+     * Invoke {@link #doTestTransitionStatus(TaskDao)}, then verify the transitions locked the
+     * single lock file of each directory, rather than a lock file per {@link Task}.
+     */
+    @Test
+    public void testTransitionStatus() throws Exception {
+        final File randomPath = this.makeRandomPath();
+        super.doTestTransitionStatus(new TaskDaoFileImpl(randomPath.getPath()));
+        try (Stream<Path> paths = Files.walk(randomPath.toPath())) {
+            Assertions
+                .assertThat(paths
+                    .filter(path -> path.getFileName().toString().endsWith(".lock"))
+                    .map(path -> path.getFileName().toString())
+                    .collect(Collectors.toList()))
+                .isNotEmpty()
+                .containsOnly(FileUtils.LOCK_FILENAME);
+        }
+    }
+
+    /**
+     * Verify that {@link TaskDao#persistAll(java.util.Collection)} reports each {@link Task} which
+     * cannot be written, and still writes the others.
+     */
+    @Test
+    public void testPersistAllReportsFailures() throws IOException {
+        final File randomPath = this.makeRandomPath();
+        final TaskDao dao = new TaskDaoFileImpl(randomPath.getPath());
+
+        // Block the directory of one Job with a file.
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Job blockedJob = Job.make("pojoTest", "OPERATIONAL");
+        new File(randomPath, blockedJob.getId()).createNewFile();
+
+        final Task task = TaskBuilder.buildAggregationTask(job, "definition");
+        final Task blockedTask = TaskBuilder.buildAggregationTask(blockedJob, "definition");
+        final PersistResult<Task> result = dao.persistAll(Arrays.asList(task, blockedTask));
+        Assertions
+            .assertThat(result.getPersisted())
+            .containsExactly(task);
+        Assertions
+            .assertThat(result.getFailures())
+            .extracting(PersistResult.Failure::getPojo)
+            .containsExactly(blockedTask);
+        Assertions
+            .assertThat(result.toException("Failed"))
+            .hasMessage("Failed (1 failed).")
+            .hasCauseInstanceOf(RuntimeException.class);
+        Assertions
+            .assertThat(dao.getById(task.getId()))
+            .isNotNull();
+    }
+
+    /**
+     * Verify {@link TaskDaoFileImpl#getById(String)} finds {@link Task}s written by another
+     * instance, found in the log of the {@link TaskPathIndex}, written without the index, and
+     * after the log is removed.
+     */
+    @Test
+    public void testPathIndex() throws IOException {
+        final File randomPath = this.makeRandomPath();
+        final TaskDaoFileImpl dao = new TaskDaoFileImpl(randomPath.getPath());
+        final TaskDaoFileImpl otherDao = new TaskDaoFileImpl(randomPath.getPath());
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+
+        // Written by this and another instance.
+        final Task task = dao.persist(TaskBuilder.buildAggregationTask(job, "definition"));
+        Assertions.assertThat(dao.getById(task.getId())).isNotNull();
+        final Task otherTask = otherDao.persist(TaskBuilder.buildAggregationTask(job, "definition"));
+        Assertions.assertThat(dao.getById(otherTask.getId())).isNotNull();
+        Assertions.assertThat(new File(randomPath, TaskPathIndex.FILENAME)).isFile();
+
+        // Copied into a new Job directory, without the index.
+        final Job copiedJob = Job.make("pojoTest", "OPERATIONAL");
+        final File copiedDir = new File(randomPath, copiedJob.getId());
+        copiedDir.mkdirs();
+        Files.copy(
+            new File(new File(randomPath, job.getId()), task.getId() + ".json").toPath(),
+            new File(copiedDir, "copied.json").toPath()
+        );
+        Assertions.assertThat(dao.getById("copied")).isNotNull();
+        Assertions.assertThat(dao.getById("missing")).isNull();
+
+        // Removed, then written again.
+        new File(new File(randomPath, job.getId()), task.getId() + ".json").delete();
+        Assertions.assertThat(dao.getById(task.getId())).isNull();
+        Assertions.assertThat(dao.transitionStatus(task.getId(), null, TaskStatus.RUNNING, "pojoTest", null)).isNull();
+        dao.persist(task);
+        Assertions.assertThat(otherDao.getById(task.getId())).isNotNull();
+
+        // Built again from the directory tree, writing the log only once a Task is written.
+        new File(randomPath, TaskPathIndex.FILENAME).delete();
+        final TaskDaoFileImpl rebuiltDao = new TaskDaoFileImpl(randomPath.getPath());
+        Assertions
+            .assertThat(rebuiltDao.getByIds(Arrays.asList(task.getId(), otherTask.getId(), "copied")))
+            .containsOnlyKeys(task.getId(), otherTask.getId(), "copied");
+        Assertions.assertThat(new File(randomPath, TaskPathIndex.FILENAME)).doesNotExist();
+        rebuiltDao.persist(task);
+        Assertions.assertThat(new File(randomPath, TaskPathIndex.FILENAME)).isFile();
+        Assertions.assertThat(otherDao.getById("copied")).isNotNull();
+    }
+
+    /**
+     * Verify {@link TaskDaoFileImpl#findClaimable} finds the {@code claimable} {@link Task}s
+     * written by another instance from the {@link TaskClaimIndex}, a page at a time, and that the
+     * index is built from the {@link Task} files if its log is removed.
+     */
+    @Test
+    public void testClaimIndex() {
+        final File randomPath = this.makeRandomPath();
+        final TaskDaoFileImpl dao = new TaskDaoFileImpl(randomPath.getPath());
+        final TaskDaoFileImpl otherDao = new TaskDaoFileImpl(randomPath.getPath());
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final List<String> ids = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            ids.add(dao.persist(TaskBuilder.buildAggregationTask(job, "definition")).getId());
+        }
+        Collections.sort(ids);
+        final long nowMillis = System.currentTimeMillis();
+        Assertions.assertThat(new File(randomPath, TaskClaimIndex.FILENAME)).isFile();
+        Assertions
+            .assertThat(otherDao.findClaimable(null, Stage.OPERATIONAL, nowMillis, null, 10))
+            .extracting(Task::getId)
+            .containsExactlyElementsOf(ids);
+        Assertions
+            .assertThat(otherDao.findClaimable(Collections.singleton("ncanimate"), Stage.OPERATIONAL, nowMillis, null, 10))
+            .isEmpty();
+
+        // Claimed by the other instance, then paged after the first id.
+        Assertions.assertThat(otherDao.claim(ids.get(1), "worker", nowMillis, nowMillis + 60000)).isNotNull();
+        Assertions
+            .assertThat(dao.findClaimable(null, Stage.OPERATIONAL, nowMillis, ids.get(0), 10))
+            .extracting(Task::getId)
+            .containsExactly(ids.get(2));
+
+        // Built again from the Task files, writing the log only once a Task is written.
+        new File(randomPath, TaskClaimIndex.FILENAME).delete();
+        final TaskDaoFileImpl rebuiltDao = new TaskDaoFileImpl(randomPath.getPath());
+        Assertions
+            .assertThat(rebuiltDao.findClaimable(null, Stage.OPERATIONAL, nowMillis + 120000, null, 10))
+            .extracting(Task::getId)
+            .containsExactlyElementsOf(ids);
+        Assertions.assertThat(new File(randomPath, TaskClaimIndex.FILENAME)).doesNotExist();
+        rebuiltDao.transitionStatus(ids.get(0), null, TaskStatus.SUCCESS, "pojoTest", null);
+        Assertions.assertThat(new File(randomPath, TaskClaimIndex.FILENAME)).isFile();
+        Assertions
+            .assertThat(rebuiltDao.findClaimable(null, Stage.OPERATIONAL, nowMillis + 120000, null, 10))
+            .extracting(Task::getId)
+            .containsExactly(ids.get(1), ids.get(2));
+
+        // The instance which read the removed log reads the new log from the start.
+        Assertions
+            .assertThat(dao.findClaimable(null, Stage.OPERATIONAL, nowMillis, null, 10))
+            .extracting(Task::getId)
+            .containsExactly(ids.get(2));
+    }
+
+    /**
+     * Returns a randomly generated path for writing test data.
+     */
+    protected File makeRandomPath() {
+        final File randomPath = new File(System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator + UUID.randomUUID().toString());
+        randomPath.mkdirs();
+        return randomPath;
+    }
+
 }
@@ -0,0 +1,164 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.job.Job;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Test cases for {@link TaskDaoLogStoreImpl}.
+ */
+public class TaskDaoLogStoreImplTest extends AbstractTaskDaoImplTest {
+
+    /**
+     * Constant identifying the path to the test data, which is copied to each store.
+     */
+    final public String TEST_DATA_PATH = System.getProperty("user.dir") + File.separator + "src" +
+        File.separator + "test" + File.separator + "resources" + File.separator + "task";
+
+    /**
+     * The DAOs opened by the test, which are closed after the test.
+     */
+    final protected List<TaskDaoLogStoreImpl> daos = new ArrayList<>();
+
+    @After
+    public void closeDaos() {
+        for (TaskDaoLogStoreImpl dao : this.daos) {
+            dao.close();
+        }
+    }
+
+    /**
+     * Factory method for instantiating a {@link TaskDao} instance, holding a copy of the test
+     * data.
+     */
+    protected TaskDao makeDao() {
+        final TaskDaoLogStoreImpl dao = this.makeDao(this.makeRandomPath());
+        new TaskDaoFileImpl(TEST_DATA_PATH)
+            .getByJobIds(Arrays.asList(AGGREGATE_JOB_ID, BASIC_JOB_ID, OTHER_JOB_ID))
+            .values()
+            .forEach(dao::persistAll);
+        return dao;
+    }
+
+    /**
+     * Open a {@link TaskDaoLogStoreImpl} in the {@code directory}.
+     */
+    protected TaskDaoLogStoreImpl makeDao(File directory) {
+        final TaskDaoLogStoreImpl dao = new TaskDaoLogStoreImpl(directory.getPath());
+        this.daos.add(dao);
+        return dao;
+    }
+
+    /**
+     * Invoke {@link #doTestGetByAggregateJobId()}.
+     */
+    @Test
+    public void testGetByAggregateJobId() {
+        super.doTestGetByAggregateJobId();
+    }
+
+    /**
+     * Invoke {@link #doTestGetByBasicJobId()}.
+     */
+    @Test
+    public void testGetByBasicJobId() {
+        super.doTestGetByBasicJobId();
+    }
+
+    /**
+     * Invoke {@link #doTestGetByOtherJobId()}.
+     */
+    @Test
+    public void testGetByOtherJobId() {
+        super.doTestGetByOtherJobId();
+    }
+
+    /**
+     * Invoke {@link #doTestGetByJobIds()}.
+     */
+    @Test
+    public void testGetByJobIds() {
+        super.doTestGetByJobIds();
+    }
+
+    /**
+     * Invoke {@link #doTestPersistAll(TaskDao)} with a randomly generated path.
+     */
+    @Test
+    public void testPersistAll() {
+        super.doTestPersistAll(this.makeDao(this.makeRandomPath()));
+    }
+
+    /**
+     * Invoke {@link #doTestGetByIds(TaskDao)}.
+     */
+    @Test
+    public void testGetByIds() {
+        super.doTestGetByIds(this.makeDao(this.makeRandomPath()));
+    }
+
+    /**
+     * Invoke {@link #doTestTransitionStatus(TaskDao)}.
+     */
+    @Test
+    public void testTransitionStatus() throws Exception {
+        super.doTestTransitionStatus(this.makeDao(this.makeRandomPath()));
+    }
+
+    /**
+     * Verify {@link Task}s are claimed from the attributes held in memory, and that the
+     * transitions are found when the store is opened again.
+     */
+    @Test
+    public void testClaimAndReopen() {
+        final File randomPath = this.makeRandomPath();
+        final TaskDaoLogStoreImpl dao = this.makeDao(randomPath);
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task operational = TaskBuilder.buildAggregationTask(job, UUID.randomUUID().toString());
+        final Task highPriority = TaskBuilder.buildAggregationTask(job, UUID.randomUUID().toString());
+        highPriority.setStage(Stage.HIGH_PRIORITY);
+        dao.persistAll(Arrays.asList(operational, highPriority));
+
+        final TaskQueue queue = new TaskQueue(dao, 60000);
+        final Task claimed = queue.claimNext("worker", Collections.singleton("ncaggregate"), null);
+        Assertions.assertThat(claimed.getId()).isEqualTo(highPriority.getId());
+        Assertions
+            .assertThat(dao.findClaimable(null, Stage.HIGH_PRIORITY, System.currentTimeMillis(), null, 10))
+            .isEmpty();
+        Assertions
+            .assertThat(dao.findClaimable(null, Stage.OPERATIONAL, System.currentTimeMillis(), null, 10))
+            .extracting(Task::getId)
+            .containsExactly(operational.getId());
+        dao.transitionStatus(operational.getId(), null, TaskStatus.FAILED, "pojoTest", null);
+
+        dao.close();
+        this.daos.remove(dao);
+        final TaskDaoLogStoreImpl reopened = this.makeDao(randomPath);
+        Assertions.assertThat(reopened.getById(highPriority.getId()).getClaimedBy()).isEqualTo("worker");
+        Assertions
+            .assertThat(reopened.getByJobId(job.getId(), Collections.singleton(TaskStatus.FAILED)))
+            .extracting(Task::getId)
+            .containsExactly(operational.getId());
+        Assertions
+            .assertThat(reopened.findClaimable(null, Stage.OPERATIONAL, System.currentTimeMillis(), null, 10))
+            .isEmpty();
+    }
+
+    /**
+     * Returns a randomly generated path for writing test data.
+     */
+    protected File makeRandomPath() {
+        return new File(System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator + UUID.randomUUID().toString());
+    }
+
+}
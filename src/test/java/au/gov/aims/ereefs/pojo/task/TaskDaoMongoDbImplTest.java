@@ -100,6 +100,14 @@ public class TaskDaoMongoDbImplTest extends AbstractTaskDaoImplTest {
         super.doTestGetByOtherJobId();
     }
 
+    /**
+     * Invoke {@link #doTestGetByJobIds()}.
+     */
+    @Test
+    public void testGetByJobIds() {
+        super.doTestGetByJobIds();
+    }
+
     /**
      * Test the {@link NcAggregateTask#outcome} property.
      */
@@ -179,4 +187,28 @@ public class TaskDaoMongoDbImplTest extends AbstractTaskDaoImplTest {
             .isEqualTo("logStreamName");
     }
 
+    /**
+     * Invoke {@link #doTestPersistAll(TaskDao)}.
+     */
+    @Test
+    public void testPersistAll() {
+        super.doTestPersistAll(this.makeDao());
+    }
+
+    /**
+     * Invoke {@link #doTestGetByIds(TaskDao)}.
+     */
+    @Test
+    public void testGetByIds() {
+        super.doTestGetByIds(this.makeDao());
+    }
+
+    /**
+     * Invoke {@link #doTestTransitionStatus(TaskDao)}.
+     */
+    @Test
+    public void testTransitionStatus() throws Exception {
+        super.doTestTransitionStatus(this.makeDao());
+    }
+
 }
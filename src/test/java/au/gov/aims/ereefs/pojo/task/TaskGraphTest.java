@@ -0,0 +1,154 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.job.Job;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test cases for {@link TaskGraph}.
+ */
+public class TaskGraphTest {
+
+    /**
+     * Build a {@link Task} with the specified {@code id} and dependencies.
+     */
+    protected Task makeTask(Job job, String id, String... dependsOnIds) {
+        // The Jackson constructor accepts an id, but leaves the history unset.
+        final Task task = new Task(id);
+        task.history = new ArrayList<>();
+        task.setStatus(TaskStatus.CREATED, job.getCreatedBy(), null);
+        for (String dependsOnId : dependsOnIds) {
+            task.addDependOnId(dependsOnId);
+        }
+        return task;
+    }
+
+    /**
+     * Build a diamond: {@code a} before {@code b} and {@code c}, both before {@code d}, with
+     * {@code e} depending on {@code d} and on a {@link Task} outside the graph.
+     */
+    protected List<Task> makeDiamond(Job job) {
+        return Arrays.asList(
+            this.makeTask(job, "a"),
+            this.makeTask(job, "b", "a"),
+            this.makeTask(job, "c", "a"),
+            this.makeTask(job, "d", "b", "c"),
+            this.makeTask(job, "e", "d", "external")
+        );
+    }
+
+    /**
+     * Verify the waves and critical path of an acyclic graph.
+     */
+    @Test
+    public void testWaves() {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final TaskGraph graph = TaskGraph.of(this.makeDiamond(job));
+
+        Assertions.assertThat(graph.size()).isEqualTo(5);
+        Assertions.assertThat(graph.hasCycle()).isFalse();
+        Assertions.assertThat(graph.getExternalDependencyIds()).containsExactly("external");
+        Assertions.assertThat(graph.getDependentIds("a")).containsExactly("b", "c");
+        Assertions.assertThat(graph.getWaves()).containsExactly(
+            Arrays.asList("a"),
+            Arrays.asList("b", "c"),
+            Arrays.asList("d"),
+            Arrays.asList("e")
+        );
+        Assertions.assertThat(graph.getCriticalPathLength()).isEqualTo(4);
+        Assertions.assertThat(graph.getCriticalPath()).hasSize(4).startsWith("a").endsWith("d", "e");
+    }
+
+    /**
+     * Verify the ready set is maintained as {@link Task}s complete, and that {@link Task}s which
+     * have already succeeded start completed.
+     */
+    @Test
+    public void testReady() {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final List<Task> tasks = this.makeDiamond(job);
+        tasks.get(0).setStatus(TaskStatus.SUCCESS, "pojoTest", null);
+        final TaskGraph graph = TaskGraph.of(tasks);
+
+        Assertions.assertThat(graph.isComplete("a")).isTrue();
+        Assertions.assertThat(graph.getReadyCount()).isEqualTo(2);
+        Assertions.assertThat(graph.pollReady()).isEqualTo("b");
+        Assertions.assertThat(graph.pollReady()).isEqualTo("c");
+        Assertions.assertThat(graph.pollReady()).isNull();
+
+        Assertions.assertThat(graph.complete("b")).isEmpty();
+        Assertions.assertThat(graph.complete("c")).containsExactly("d");
+        Assertions.assertThat(graph.complete("c")).isEmpty();
+        Assertions.assertThat(graph.pollReady()).isEqualTo("d");
+        Assertions.assertThat(graph.complete("d")).containsExactly("e");
+        Assertions.assertThat(graph.pollReady()).isEqualTo("e");
+        Assertions.assertThat(graph.isAllComplete()).isFalse();
+        graph.complete("e");
+        Assertions.assertThat(graph.isAllComplete()).isTrue();
+
+        Assertions.assertThatThrownBy(() -> graph.complete("unknown"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Verify a cycle is detected and reported.
+     */
+    @Test
+    public void testCycle() {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final TaskGraph graph = TaskGraph.of(Arrays.asList(
+            this.makeTask(job, "a"),
+            this.makeTask(job, "b", "a", "d"),
+            this.makeTask(job, "c", "b"),
+            this.makeTask(job, "d", "c"),
+            this.makeTask(job, "e", "d")
+        ));
+
+        Assertions.assertThat(graph.hasCycle()).isTrue();
+        Assertions.assertThat(graph.findCycle()).hasSize(3).containsOnly("b", "c", "d");
+        Assertions.assertThatThrownBy(graph::getWaves).isInstanceOf(IllegalStateException.class);
+
+        // Only the Task outside the cycle is ever ready.
+        Assertions.assertThat(graph.pollReady()).isEqualTo("a");
+        Assertions.assertThat(graph.complete("a")).isEmpty();
+        Assertions.assertThat(graph.pollReady()).isNull();
+    }
+
+    /**
+     * Verify a large graph (a wide fan-out followed by a long chain) is processed in linear time.
+     */
+    @Test
+    public void testLargeGraph() {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final int width = 50000;
+        final int length = 50000;
+        final List<Task> tasks = new ArrayList<>();
+        tasks.add(this.makeTask(job, "root"));
+        for (int index = 0; index < width; index++) {
+            tasks.add(this.makeTask(job, "fan-" + index, "root"));
+        }
+        tasks.add(this.makeTask(job, "chain-0", "fan-0", "fan-" + (width - 1)));
+        for (int index = 1; index < length; index++) {
+            tasks.add(this.makeTask(job, "chain-" + index, "chain-" + (index - 1)));
+        }
+        final TaskGraph graph = TaskGraph.of(tasks);
+
+        Assertions.assertThat(graph.hasCycle()).isFalse();
+        Assertions.assertThat(graph.getCriticalPathLength()).isEqualTo(length + 2);
+        Assertions.assertThat(graph.getWaves().get(1)).hasSize(width);
+
+        int completedCount = 0;
+        String id;
+        while ((id = graph.pollReady()) != null) {
+            graph.complete(id);
+            completedCount++;
+        }
+        Assertions.assertThat(completedCount).isEqualTo(tasks.size());
+        Assertions.assertThat(graph.isAllComplete()).isTrue();
+    }
+
+}
@@ -0,0 +1,215 @@
+package au.gov.aims.ereefs.pojo.task;
+
+import au.gov.aims.ereefs.pojo.Stage;
+import au.gov.aims.ereefs.pojo.job.Job;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for {@link TaskQueue}, over a {@link TaskDaoFileImpl}.
+ */
+public class TaskQueueTest {
+
+    /**
+     * Factory method for instantiating a {@link TaskDaoFileImpl} at a randomly generated path.
+     */
+    protected TaskDaoFileImpl makeDao() {
+        return new TaskDaoFileImpl(this.makeRandomPath());
+    }
+
+    /**
+     * Returns a randomly generated path for writing test data.
+     */
+    protected String makeRandomPath() {
+        return System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator + UUID.randomUUID().toString();
+    }
+
+    /**
+     * Persist a new {@link Task} with the specified {@code Stage}.
+     */
+    protected Task persistTask(TaskDao dao, Job job, Stage stage, Task... dependencies) {
+        final Task task = TaskBuilder.buildAggregationTask(job, UUID.randomUUID().toString());
+        task.setStage(stage);
+        for (Task dependency : dependencies) {
+            task.addDependOnId(dependency.getId());
+        }
+        return dao.persist(task);
+    }
+
+    /**
+     * Verify {@link Task}s are claimed in {@code Stage} priority order, and only once.
+     */
+    @Test
+    public void testClaimByPriority() {
+        final TaskDaoFileImpl dao = this.makeDao();
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task prototype = this.persistTask(dao, job, Stage.PROTOTYPE);
+        final Task operational = this.persistTask(dao, job, Stage.OPERATIONAL);
+        final Task highPriority = this.persistTask(dao, job, Stage.HIGH_PRIORITY);
+
+        final TaskQueue queue = new TaskQueue(dao, 60000);
+        Assertions
+            .assertThat(queue.claimNext("worker", Collections.singleton("ncanimate"), null))
+            .isNull();
+        Assertions
+            .assertThat(queue.claimNext("worker", null, Collections.singleton(Stage.PROTOTYPE)).getId())
+            .isEqualTo(prototype.getId());
+
+        final Task claimed = queue.claimNext("worker", Collections.singleton("ncaggregate"), null);
+        Assertions.assertThat(claimed.getId()).isEqualTo(highPriority.getId());
+        Assertions.assertThat(claimed.getStatus()).isEqualTo(TaskStatus.ASSIGNED);
+        Assertions.assertThat(claimed.getClaimedBy()).isEqualTo("worker");
+        Assertions.assertThat(dao.getById(highPriority.getId()).getLeaseExpiresAt()).isNotNull();
+
+        Assertions.assertThat(queue.claimNext("worker", null, null).getId()).isEqualTo(operational.getId());
+        Assertions.assertThat(queue.claimNext("worker", null, null)).isNull();
+    }
+
+    /**
+     * Verify a {@link Task} is not claimed until its dependencies have succeeded.
+     */
+    @Test
+    public void testClaimAfterDependencies() {
+        final TaskDaoFileImpl dao = this.makeDao();
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task first = this.persistTask(dao, job, Stage.OPERATIONAL);
+        final Task second = this.persistTask(dao, job, Stage.HIGH_PRIORITY, first);
+
+        final TaskQueue queue = new TaskQueue(dao, 60000);
+        Assertions.assertThat(queue.claimNext("worker", null, null).getId()).isEqualTo(first.getId());
+        Assertions.assertThat(queue.claimNext("worker", null, null)).isNull();
+
+        dao.transitionStatus(first.getId(), TaskStatus.ASSIGNED, TaskStatus.SUCCESS, "worker", null);
+        Assertions.assertThat(queue.claimNext("worker", null, null).getId()).isEqualTo(second.getId());
+    }
+
+    /**
+     * Verify a {@link Task} claimed by another worker between the pages of a claim does not move
+     * the later {@link Task}s to an earlier page, where they would be skipped.
+     */
+    @Test
+    public void testClaimAcrossPages() {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final List<Task> tasks = new ArrayList<>();
+        final TaskDaoFileImpl dao = new TaskDaoFileImpl(this.makeRandomPath()) {
+
+            // Another worker claims the first candidate as soon as the first page is read.
+            @Override
+            public List<Task> findClaimable(Collection<String> types,
+                                            Stage stage,
+                                            long nowMillis,
+                                            String afterId,
+                                            int limit) {
+                final List<Task> candidates = super.findClaimable(types, stage, nowMillis, afterId, limit);
+                if (afterId == null) {
+                    this.claim(tasks.get(0).getId(), "other", nowMillis, nowMillis + 60000);
+                }
+                return candidates;
+            }
+
+        };
+        final Task dependency = this.persistTask(dao, job, Stage.PROTOTYPE);
+        for (int index = 0; index < 3; index++) {
+            tasks.add(this.persistTask(dao, job, Stage.OPERATIONAL));
+        }
+        tasks.sort(Comparator.comparing(Task::getId));
+
+        // The second Task waits for its dependency, so the first page has nothing to claim.
+        tasks.get(1).addDependOnId(dependency.getId());
+        dao.persist(tasks.get(1));
+
+        final TaskQueue queue = new TaskQueue(dao, 60000);
+        queue.setPageSize(2);
+        Assertions
+            .assertThat(queue.claimNext("worker", null, Collections.singleton(Stage.OPERATIONAL)).getId())
+            .isEqualTo(tasks.get(2).getId());
+    }
+
+    /**
+     * Verify a lease is kept by heartbeats, can be claimed by another worker once it expires, and
+     * that a released {@link Task} can be claimed again.
+     */
+    @Test
+    public void testLease() throws Exception {
+        final TaskDaoFileImpl dao = this.makeDao();
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task task = this.persistTask(dao, job, Stage.OPERATIONAL);
+
+        final TaskQueue queue = new TaskQueue(dao, 100);
+        Assertions.assertThat(queue.claimNext("worker-1", null, null).getId()).isEqualTo(task.getId());
+        Assertions.assertThat(queue.heartbeat(task.getId(), "worker-1")).isTrue();
+        Assertions.assertThat(queue.heartbeat(task.getId(), "worker-2")).isFalse();
+        Assertions.assertThat(queue.claimNext("worker-2", null, null)).isNull();
+
+        // The lease of the silent worker expires.
+        Thread.sleep(200);
+        final Task reclaimed = queue.claimNext("worker-2", null, null);
+        Assertions.assertThat(reclaimed.getId()).isEqualTo(task.getId());
+        Assertions.assertThat(reclaimed.getClaimedBy()).isEqualTo("worker-2");
+        Assertions.assertThat(queue.heartbeat(task.getId(), "worker-1")).isFalse();
+
+        // A released Task returns to the queue.
+        Assertions.assertThat(queue.release(task.getId(), "worker-1")).isNull();
+        final Task released = queue.release(task.getId(), "worker-2");
+        Assertions.assertThat(released.getStatus()).isEqualTo(TaskStatus.CREATED);
+        Assertions.assertThat(released.getClaimedBy()).isNull();
+        Assertions.assertThat(queue.claimNext("worker-3", null, null).getId()).isEqualTo(task.getId());
+    }
+
+    /**
+     * Verify concurrent workers claim every {@link Task} exactly once.
+     */
+    @Test
+    public void testConcurrentClaims() throws Exception {
+        final TaskDaoFileImpl dao = this.makeDao();
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final int taskCount = 40;
+        for (int index = 0; index < taskCount; index++) {
+            this.persistTask(dao, job, Stage.OPERATIONAL);
+        }
+
+        final TaskQueue queue = new TaskQueue(dao, 60000);
+        queue.setPageSize(8);
+        final int workers = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(workers);
+        final List<Future<List<String>>> futures = new ArrayList<>();
+        try {
+            for (int worker = 0; worker < workers; worker++) {
+                final String workerId = "worker-" + worker;
+                futures.add(executor.submit(() -> {
+                    final List<String> claimedIds = new ArrayList<>();
+                    Task task;
+                    while ((task = queue.claimNext(workerId, null, null)) != null) {
+                        claimedIds.add(task.getId());
+                    }
+                    return claimedIds;
+                }));
+            }
+            final List<String> claimedIds = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                claimedIds.addAll(future.get(2, TimeUnit.MINUTES));
+            }
+            final Set<String> distinctIds = new HashSet<>(claimedIds);
+            Assertions.assertThat(claimedIds).hasSize(taskCount);
+            Assertions.assertThat(distinctIds).hasSize(taskCount);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
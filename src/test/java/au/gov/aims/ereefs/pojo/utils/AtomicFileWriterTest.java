@@ -0,0 +1,180 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.job.JobDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskBuilder;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for {@link AtomicFileWriter}.
+ */
+public class AtomicFileWriterTest {
+
+    /**
+     * The root directory for the test data.
+     */
+    final protected String randomPath = System.getProperty("user.dir") + File.separator +
+        "target" + File.separator + "test-output" + File.separator +
+        UUID.randomUUID().toString() + File.separator;
+
+    /**
+     * Verify each {@link AtomicFileWriter.Durability} writes and replaces the file, leaving no
+     * temporary file, and forces the directory only if it is durable. The first write also forces
+     * the parent of the directory it created.
+     */
+    @Test
+    public void testWrite() throws IOException {
+        new File(this.randomPath).mkdirs();
+        for (AtomicFileWriter.Durability durability : AtomicFileWriter.Durability.values()) {
+            final AtomicFileWriter writer = new AtomicFileWriter(durability);
+            writer.setGroupCommitWindowMillis(0);
+            final File directory = new File(this.randomPath + durability);
+            final File file = new File(directory, "record.json");
+            writer.write(file, "{\"version\":1}");
+            writer.write(file, "{\"version\":2}");
+
+            Assertions
+                .assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+                .isEqualTo("{\"version\":2}");
+            Assertions
+                .assertThat(directory.list())
+                .containsExactly("record.json");
+            Assertions
+                .assertThat(writer.getDirectorySyncCount())
+                .isEqualTo(durability == AtomicFileWriter.Durability.NONE ? 0 : 3);
+        }
+
+        // A file which cannot be written is reported, without leaving a temporary file.
+        final File blocked = new File(this.randomPath + "blocked");
+        blocked.createNewFile();
+        Assertions
+            .assertThatThrownBy(() -> AtomicFileWriter.NON_DURABLE.write(new File(blocked, "record.json"), "{}"))
+            .isInstanceOf(IOException.class);
+    }
+
+    /**
+     * Verify the directories created for a file are forced to disk, with the directory holding
+     * the first of them, so they survive a crash, whether the write is synchronous or grouped.
+     */
+    @Test
+    public void testCreatedDirectories() throws IOException {
+        for (AtomicFileWriter.Durability durability : new AtomicFileWriter.Durability[] {
+            AtomicFileWriter.Durability.SYNC, AtomicFileWriter.Durability.GROUP_COMMIT
+        }) {
+            final Set<File> forced = ConcurrentHashMap.newKeySet();
+            final AtomicFileWriter writer = new AtomicFileWriter(durability) {
+                @Override
+                protected void syncDirectory(File directory) throws IOException {
+                    forced.add(directory);
+                    super.syncDirectory(directory);
+                }
+            };
+            final File root = new File(this.randomPath + durability);
+            root.mkdirs();
+            final File directory = new File(root, "a" + File.separator + "b" + File.separator + "c");
+            writer.write(new File(directory, "record.json"), "{}");
+            Assertions
+                .assertThat(forced)
+                .containsOnly(root, new File(root, "a"), new File(root, "a" + File.separator + "b"), directory);
+
+            // A write to an existing directory only forces the directory.
+            forced.clear();
+            writer.write(new File(directory, "other.json"), "{}");
+            Assertions.assertThat(forced).containsOnly(directory);
+        }
+    }
+
+    /**
+     * Verify a single writer does not wait for the group commit window, as there are no other
+     * writers to join it.
+     */
+    @Test
+    public void testSingleWriterDoesNotWait() throws IOException {
+        final AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Durability.GROUP_COMMIT);
+        writer.setGroupCommitWindowMillis(10000);
+        final File file = new File(this.randomPath + "single", "record.json");
+        final long startMillis = System.currentTimeMillis();
+        for (int index = 0; index < 3; index++) {
+            writer.write(file, "{\"version\":" + index + "}");
+        }
+        Assertions.assertThat(System.currentTimeMillis() - startMillis).isLessThan(5000);
+        Assertions.assertThat(writer.getDirectorySyncCount()).isGreaterThanOrEqualTo(3);
+    }
+
+    /**
+     * Verify concurrent writers share the {@code fsync} of their directories.
+     */
+    @Test
+    public void testGroupCommit() throws Exception {
+        final AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Durability.GROUP_COMMIT);
+        writer.setGroupCommitWindowMillis(200);
+        final int writers = 16;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<File>> futures = new ArrayList<>();
+
+        // Create the directories first, so only the syncs of the target directories are counted,
+        // not those of the parents of the directories the writers would create.
+        for (int index = 0; index < 2; index++) {
+            Assertions.assertThat(new File(this.randomPath + "directory" + index).mkdirs()).isTrue();
+        }
+        try {
+            for (int index = 0; index < writers; index++) {
+                final File file = new File(this.randomPath + "directory" + (index % 2), "record" + index + ".json");
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    writer.write(file, "{}");
+                    return file;
+                }));
+            }
+            start.countDown();
+            for (Future<File> future : futures) {
+                Assertions.assertThat(future.get(1, TimeUnit.MINUTES)).isFile();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions
+            .assertThat(writer.getDirectorySyncCount())
+            .isGreaterThanOrEqualTo(2)
+            .isLessThan(writers);
+    }
+
+    /**
+     * Verify the file-based DAOs write through a shared {@link AtomicFileWriter}.
+     */
+    @Test
+    public void testDaoWrites() {
+        final AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Durability.GROUP_COMMIT);
+        final TaskDaoFileImpl taskDao = new TaskDaoFileImpl(this.randomPath + "task");
+        taskDao.setFileWriter(writer);
+        final JobDaoFileImpl jobDao = new JobDaoFileImpl(this.randomPath + "job", taskDao);
+        jobDao.setFileWriter(writer);
+
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task task = TaskBuilder.buildAggregationTask(job, "definition");
+        job.addTask(task);
+        jobDao.persist(job);
+        Assertions.assertThat(writer.getDirectorySyncCount()).isGreaterThanOrEqualTo(2);
+        Assertions.assertThat(jobDao.getById(job.getId()).getTasks()).extracting(Task::getId).containsExactly(task.getId());
+    }
+
+}
@@ -0,0 +1,66 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Test cases for {@link DateTimeUtils}.
+ */
+public class DateTimeUtilsTest {
+
+    /**
+     * Verify that {@link DateTimeUtils#parseSinceEpochInDays(String)} matches parsing with the
+     * {@code DateTimeFormatter}s, for values handled by the fast path and by the fallback.
+     */
+    @Test
+    public void testParseSinceEpochInDaysMatchesFormatter() {
+        final String[] values = {
+            "2010-09-01T00:00:00.000+10:00",
+            "2010-09-01T00:00:00+10:00",
+            "2010-09-01T13:45+10:00",
+            "2019-12-31T23:59:59.999999999-03:30",
+            "1990-01-01T00:00:00.000+10:00",
+            "1989-12-31T23:59:59.500+10:00",
+            "1989-12-31T00:00:00.250+10:00",
+            "1970-06-15T12:30:45.100+00:00",
+            "2016-02-29T12:00:00.000+10:00",
+            "2010-09-01T00:00:00+10:00:30",
+            "2010-09-01T00:00:00.000Z",
+            "2010-08-31T14:00:00Z"
+        };
+        for (String value : values) {
+            final LocalDateTime expected = (value.endsWith("Z")) ?
+                DateTimeUtils.instantDateTimeFormatter.parse(value, LocalDateTime::from) :
+                DateTimeUtils.isoDateTimeFormatter.parse(value, LocalDateTime::from);
+            Assertions
+                .assertThat(DateTimeUtils.parseSinceEpochInDays(value))
+                .as(value)
+                .isEqualTo(DateTimeUtils.sinceEpochInDays(expected));
+        }
+    }
+
+    /**
+     * Verify that invalid values are rejected in the same way as the {@code DateTimeFormatter}.
+     */
+    @Test
+    public void testParseSinceEpochInDaysRejectsInvalid() {
+        final String[] values = {
+            "2010-06-31T00:00:00.000+10:00",
+            "2010-13-01T00:00:00.000+10:00",
+            "2010-09-01T24:00:00.000+10:00",
+            "2010-09-01T00:00:00.000+19:00",
+            "2010-09-01T00:00:00.000",
+            "2010-09-01"
+        };
+        for (String value : values) {
+            Assertions
+                .assertThatThrownBy(() -> DateTimeUtils.parseSinceEpochInDays(value))
+                .as(value)
+                .isInstanceOf(DateTimeParseException.class);
+        }
+    }
+
+}
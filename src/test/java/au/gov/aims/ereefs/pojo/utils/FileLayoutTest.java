@@ -0,0 +1,141 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import au.gov.aims.ereefs.pojo.extractionrequest.ExtractionRequest;
+import au.gov.aims.ereefs.pojo.extractionrequest.ExtractionRequestDaoFileImpl;
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.job.JobDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.Task;
+import au.gov.aims.ereefs.pojo.task.TaskBuilder;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Test cases for {@link FileLayout} and {@link ReshardTool}, over the file-based DAOs.
+ */
+public class FileLayoutTest {
+
+    /**
+     * The root directory for the test data.
+     */
+    final protected String randomPath = System.getProperty("user.dir") + File.separator +
+        "target" + File.separator + "test-output" + File.separator +
+        UUID.randomUUID().toString() + File.separator;
+
+    /**
+     * Verify the {@link FileLayout#HASHED} path of an {@code id} is stable, and two levels down.
+     */
+    @Test
+    public void testHashedPath() {
+        Assertions.assertThat(FileLayout.FLAT.getRelativePath("Job_1")).isEqualTo("Job_1");
+        Assertions
+            .assertThat(FileLayout.HASHED.getRelativePath("Job_1"))
+            .matches("[0-9a-f]{2}/[0-9a-f]{2}/Job_1")
+            .isEqualTo(FileLayout.HASHED.getRelativePath("Job_1"));
+        Assertions
+            .assertThat(FileLayout.HASHED.getFile(new File("root"), "Job_1", ".json"))
+            .isEqualTo(new File("root", FileLayout.HASHED.getRelativePath("Job_1") + ".json"));
+    }
+
+    /**
+     * Verify a {@link Job} and its {@link Task}s written in the {@link FileLayout#FLAT} layout are
+     * read once the DAOs are switched to the {@link FileLayout#HASHED} layout, and are moved when
+     * they are persisted again.
+     */
+    @Test
+    public void testLegacyReads() {
+        final Job job = Job.make("pojoTest", "OPERATIONAL");
+        final Task task = TaskBuilder.buildAggregationTask(job, "definition");
+        job.addTask(task);
+        this.makeJobDao(FileLayout.FLAT).persist(job);
+        final File flatJobFile = new File(this.randomPath + "job", job.getId() + ".json");
+        final File flatTaskFile = new File(this.randomPath + "task" + File.separator + job.getId(), task.getId() + ".json");
+        Assertions.assertThat(flatJobFile).isFile();
+        Assertions.assertThat(flatTaskFile).isFile();
+
+        final JobDaoFileImpl hashedDao = this.makeJobDao(FileLayout.HASHED);
+        final Job read = hashedDao.getById(job.getId());
+        Assertions.assertThat(read.getTasks()).extracting(Task::getId).containsExactly(task.getId());
+        Assertions.assertThat(hashedDao.findAllActive()).extracting(Job::getId).containsExactly(job.getId());
+
+        // The Tasks were loaded, so are moved with the Job.
+        hashedDao.persist(read);
+        Assertions.assertThat(flatJobFile).doesNotExist();
+        Assertions.assertThat(flatTaskFile).doesNotExist();
+        Assertions
+            .assertThat(FileLayout.HASHED.getFile(new File(this.randomPath + "job"), job.getId(), ".json"))
+            .isFile();
+        Assertions.assertThat(hashedDao.getById(job.getId()).getTasks()).hasSize(1);
+    }
+
+    /**
+     * Verify the records of a cached DAO are written in the {@link FileLayout#HASHED} layout, and
+     * the legacy file is removed.
+     */
+    @Test
+    public void testCachedDao() {
+        final ExtractionRequestDaoFileImpl flatDao = new ExtractionRequestDaoFileImpl(this.randomPath + "extraction");
+        final ExtractionRequest request = flatDao.persist(new ExtractionRequest(UUID.randomUUID().toString()));
+        final File flatFile = new File(this.randomPath + "extraction", request.getId() + ".json");
+        Assertions.assertThat(flatFile).isFile();
+
+        final ExtractionRequestDaoFileImpl hashedDao = new ExtractionRequestDaoFileImpl(this.randomPath + "extraction");
+        hashedDao.setFileLayout(FileLayout.HASHED);
+        Assertions.assertThat(hashedDao.getById(request.getId())).isNotNull();
+        hashedDao.persist(hashedDao.getById(request.getId()));
+        Assertions.assertThat(flatFile).doesNotExist();
+        Assertions.assertThat(new ExtractionRequestDaoFileImpl(this.randomPath + "extraction").getById(request.getId())).isNotNull();
+    }
+
+    /**
+     * Verify {@link ReshardTool} moves the {@link Job} files and the {@link Task} directories
+     * into the {@link FileLayout#HASHED} layout and back, and the DAOs still find them.
+     */
+    @Test
+    public void testReshard() throws Exception {
+        final JobDaoFileImpl flatDao = this.makeJobDao(FileLayout.FLAT);
+        final Job job1 = Job.make("pojoTest", "OPERATIONAL");
+        job1.addTask(TaskBuilder.buildAggregationTask(job1, "definition"));
+        final Job job2 = Job.make("pojoTest", "OPERATIONAL");
+        job2.addTasks(Arrays.asList(
+            TaskBuilder.buildAggregationTask(job2, "definition"),
+            TaskBuilder.buildAggregationTask(job2, "definition")
+        ));
+        flatDao.persist(job1);
+        flatDao.persist(job2);
+
+        final File jobDir = new File(this.randomPath + "job");
+        final File taskDir = new File(this.randomPath + "task");
+        for (FileLayout layout : new FileLayout[]{FileLayout.HASHED, FileLayout.FLAT}) {
+            Assertions.assertThat(ReshardTool.reshardFiles(jobDir, layout)).isEqualTo(2);
+            Assertions.assertThat(ReshardTool.reshardDirectories(taskDir, layout)).isEqualTo(2);
+            Assertions.assertThat(layout.getFile(jobDir, job1.getId(), ".json")).isFile();
+            Assertions.assertThat(layout.getDirectory(taskDir, job2.getId())).isDirectory();
+
+            // Read in the layout, and in the other layout.
+            for (FileLayout daoLayout : FileLayout.values()) {
+                final JobDaoFileImpl dao = this.makeJobDao(daoLayout);
+                Assertions.assertThat(dao.getById(job1.getId()).getTasks()).hasSize(1);
+                Assertions.assertThat(dao.getById(job2.getId()).getTasks()).hasSize(2);
+                final Task task = job2.getTasks().get(0);
+                Assertions.assertThat(new TaskDaoFileImpl(taskDir.getPath()).getById(task.getId())).isNotNull();
+            }
+        }
+        Assertions
+            .assertThat(jobDir.list())
+            .containsOnly(job1.getId() + ".json", job2.getId() + ".json", "job-status.idx", FileUtils.LOCK_FILENAME);
+    }
+
+    protected JobDaoFileImpl makeJobDao(FileLayout layout) {
+        final TaskDaoFileImpl taskDao = new TaskDaoFileImpl(this.randomPath + "task");
+        taskDao.setFileLayout(layout);
+        final JobDaoFileImpl jobDao = new JobDaoFileImpl(this.randomPath + "job", taskDao);
+        jobDao.setFileLayout(layout);
+        return jobDao;
+    }
+
+}
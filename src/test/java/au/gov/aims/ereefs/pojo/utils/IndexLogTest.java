@@ -0,0 +1,91 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Test cases for {@link IndexLog}.
+ */
+public class IndexLogTest {
+
+    /**
+     * The root directory for the test data.
+     */
+    final protected String randomPath = System.getProperty("user.dir") + File.separator +
+        "target" + File.separator + "test-output" + File.separator +
+        UUID.randomUUID().toString() + File.separator;
+
+    /**
+     * Verify the log is compacted to the latest line of each key once the replaced lines exceed
+     * the threshold, and that another instance which read part of the log reads the compacted log
+     * from the start.
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        final File file = new File(this.randomPath + "test.idx");
+        final IndexLog log = new IndexLog(file);
+        log.setCompactionThreshold(10);
+        final IndexLog otherLog = new IndexLog(file);
+        for (int key = 0; key < 5; key++) {
+            log.append("key" + key, "value0");
+        }
+        Assertions.assertThat(otherLog.readAppended()).hasSize(5);
+
+        // Below the threshold.
+        for (int round = 1; round <= 2; round++) {
+            for (int key = 0; key < 5; key++) {
+                log.append("key" + key, "value" + round);
+            }
+        }
+        Assertions.assertThat(log.compactIfRequired(5)).isFalse();
+
+        // Above the threshold, with some lines appended after the compaction so the compacted log
+        // is longer than the part the other instance has read.
+        for (int round = 3; round <= 9; round++) {
+            for (int key = 0; key < 5; key++) {
+                log.append("key" + key, "value" + round);
+            }
+        }
+        Assertions.assertThat(log.compactIfRequired(5)).isTrue();
+        Assertions.assertThat(Files.readAllLines(file.toPath())).hasSize(1 + 5);
+        log.append("key5", "value9");
+        log.append("key6", "value9");
+        Assertions.assertThat(log.compactIfRequired(7)).isFalse();
+
+        final Map<String, String> expected = new HashMap<>();
+        for (int key = 0; key < 7; key++) {
+            expected.put("key" + key, "value9");
+        }
+        Assertions.assertThat(otherLog.readAppended()).isEqualTo(expected);
+        Assertions.assertThat(new IndexLog(file).readAppended()).isEqualTo(expected);
+        Assertions.assertThat(otherLog.readAppended()).isEmpty();
+    }
+
+    /**
+     * Verify a log replaced by a longer log is read again from the start.
+     */
+    @Test
+    public void testReplaced() {
+        final File file = new File(this.randomPath + "test.idx");
+        final IndexLog log = new IndexLog(file);
+        final IndexLog otherLog = new IndexLog(file);
+        log.append("a", "1");
+        Assertions.assertThat(otherLog.readAppended()).containsOnlyKeys("a");
+
+        final Map<String, String> entries = new HashMap<>();
+        entries.put("b", "2");
+        entries.put("c", "3");
+        file.delete();
+        log.write(entries);
+        Assertions.assertThat(otherLog.readAppended()).isEqualTo(entries);
+        Assertions.assertThat(log.readAppended()).isEmpty();
+    }
+
+}
@@ -0,0 +1,147 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Test cases for {@link JSONFileReader}.
+ */
+public class JSONFileReaderTest {
+
+    /**
+     * Write the test files to a randomly generated path, with one invalid file amongst valid files
+     * in nested directories.
+     */
+    protected File populate() throws IOException {
+        final File directory = new File(System.getProperty("user.dir") + File.separator +
+            "target" + File.separator + "test-output" + File.separator +
+            UUID.randomUUID().toString());
+        for (int index = 0; index < 20; index++) {
+            final File file = new File(directory, (index % 4) + File.separator + index + ".json");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), ("{\"_id\": \"" + index + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(new File(directory, "ignored.txt").toPath(), "{".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(directory, "invalid.JSON").toPath(), "{".getBytes(StandardCharsets.UTF_8));
+        return directory;
+    }
+
+    /**
+     * Verify that {@link JSONFileReader#stream(File, JSONFileReader.FileParser, java.util.function.Consumer)}
+     * parses all valid files and reports, rather than aborts on, the invalid file.
+     */
+    @Test
+    public void testStreamCollectsFailures() throws IOException {
+        final File directory = this.populate();
+        final Queue<JSONFileReader.LoadFailure> failures = new ConcurrentLinkedQueue<>();
+
+        final List<String> ids;
+        try (final Stream<JSONObject> stream = JSONFileReader.stream(
+            directory,
+            JSONFileReader::loadFileAsJSONObject,
+            failures::add
+        )) {
+            ids = stream
+                .map(json -> json.getString("_id"))
+                .collect(Collectors.toList());
+        }
+
+        Assertions
+            .assertThat(ids)
+            .hasSize(20);
+        Assertions
+            .assertThat(failures)
+            .hasSize(1);
+        Assertions
+            .assertThat(failures.peek().getFile().getName())
+            .isEqualTo("invalid.JSON");
+    }
+
+    /**
+     * Verify that {@link JSONFileReader#loadList(File)} maintains its contract of failing if any
+     * file cannot be loaded.
+     */
+    @Test
+    public void testLoadListFailsOnInvalidFile() throws IOException {
+        final File directory = this.populate();
+        Assertions
+            .assertThatThrownBy(() -> JSONFileReader.loadList(directory))
+            .isInstanceOf(IOException.class);
+
+        // Without the invalid file, all files are loaded.
+        new File(directory, "invalid.JSON").delete();
+        Assertions
+            .assertThat(JSONFileReader.loadList(directory))
+            .hasSize(20);
+    }
+
+    /**
+     * Verify that {@link JSONFileReader#loadFileAsString(File)} decodes {@code UTF-8} and preserves
+     * the content of the file, including line breaks within values.
+     */
+    @Test
+    public void testLoadFileAsStringPreservesContent() throws IOException {
+        final File directory = this.populate();
+        final String content = "{\n  \"name\": \"R\u00e9cif \u2013 \\n\",\n  \"value\": 1\n}\n";
+        final File file = new File(directory, "utf8.json");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        Assertions
+            .assertThat(JSONFileReader.loadFileAsString(file))
+            .isEqualTo(content);
+    }
+
+    /**
+     * Verify that {@link JSONFileReader#loadFile(File, ObjectMapper, Class)} binds both small
+     * (buffered) and large (memory-mapped) files, including when nested on the same thread.
+     */
+    @Test
+    public void testLoadFile() throws IOException {
+        final File directory = this.populate();
+        final ObjectMapper jsonMapper = new ObjectMapper();
+
+        // Build a file larger than the mapped file threshold.
+        final StringBuilder large = new StringBuilder("{\"_id\": \"large\", \"values\": [0");
+        for (int index = 1; large.length() < JSONFileReader.MAPPED_FILE_THRESHOLD; index++) {
+            large.append(", ").append(index);
+        }
+        large.append("], \"name\": \"R\u00e9cif\"}");
+        final File largeFile = new File(directory, "large.json");
+        Files.write(largeFile.toPath(), large.toString().getBytes(StandardCharsets.UTF_8));
+
+        final JsonNode largeNode = JSONFileReader.loadFile(largeFile, jsonMapper, JsonNode.class);
+        Assertions
+            .assertThat(largeNode.get("name").asText())
+            .isEqualTo("R\u00e9cif");
+
+        // Parse a small file while another small file is being parsed on the same thread.
+        final File smallFile = new File(directory, "0" + File.separator + "0.json");
+        final String nestedId = JSONFileReader.parseFile(
+            new File(directory, "1" + File.separator + "1.json"),
+            jsonMapper.getFactory(),
+            parser -> {
+                final JsonNode inner = JSONFileReader.loadFile(smallFile, jsonMapper, JsonNode.class);
+                final JsonNode outer = jsonMapper.readTree(parser);
+                return outer.get("_id").asText() + inner.get("_id").asText();
+            }
+        );
+        Assertions
+            .assertThat(nestedId)
+            .isEqualTo("10");
+    }
+
+}
@@ -0,0 +1,116 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.task.Task;
+import com.mongodb.MongoClientSettings;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Test cases for {@link JacksonCodec}, verifying it produces the same results as the previous
+ * path through a JSON {@code String}.
+ */
+public class JacksonCodecTest {
+
+    /**
+     * Constant identifying the path to the test data.
+     */
+    final public String TEST_DATA_PATH = System.getProperty("user.dir") + File.separator + "src" +
+        File.separator + "test" + File.separator + "resources";
+
+    final protected JsonWriterSettings writerSettings =
+        JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+    final protected ObjectMapper jsonMapper = new ObjectMapper();
+
+    @Test
+    public void testTasks() throws Exception {
+        this.doTestRoundTrip("task", Task.class);
+    }
+
+    @Test
+    public void testJobs() throws Exception {
+        this.doTestRoundTrip("job", Job.class);
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        this.doTestRoundTrip("metadata" + File.separator + "products", Metadata.class);
+    }
+
+    @Test
+    public void testProductDefinitions() throws Exception {
+        this.doTestRoundTrip("definitions" + File.separator + "products", ProductDefinition.class);
+    }
+
+    /**
+     * Verify BSON types without a plain JSON equivalent are presented to {@code Jackson} in their
+     * relaxed extended JSON form.
+     */
+    @Test
+    public void testExtendedTypes() throws Exception {
+        final Document document = new Document("_id", new ObjectId())
+            .append("date", new Date(1577836800000L))
+            .append("long", 12345678901L)
+            .append("nan", Double.NaN)
+            .append("nested", new Document("list", Arrays.asList(1, "two", 3.5, null)));
+        final BsonDocument bsonDocument = document.toBsonDocument(
+            Document.class,
+            MongoClientSettings.getDefaultCodecRegistry()
+        );
+
+        final JsonNode decoded = new JacksonCodec<>(this.jsonMapper, JsonNode.class)
+            .decode(new BsonDocumentReader(bsonDocument), DecoderContext.builder().build());
+        Assertions
+            .assertThat(decoded)
+            .isEqualTo(this.jsonMapper.readTree(bsonDocument.toJson(this.writerSettings)));
+    }
+
+    /**
+     * For each file beneath the directory, verify encoding the POJO with the {@link JacksonCodec}
+     * gives the same BSON as {@code Document.parse()}, and decoding that BSON gives the same POJO
+     * (including its polymorphic type) as the relaxed extended JSON path.
+     */
+    protected <T> void doTestRoundTrip(String directory, Class<T> pojoClass) throws Exception {
+        final JacksonCodec<T> codec = new JacksonCodec<>(this.jsonMapper, pojoClass);
+        final List<String> filenames = FileUtils.listFiles(
+            TEST_DATA_PATH + File.separator + directory, ".json"
+        );
+        Assertions.assertThat(filenames).isNotEmpty();
+        for (String filename : filenames) {
+            final T pojo = JSONFileReader.loadFile(new File(filename), this.jsonMapper, pojoClass);
+
+            final BsonDocument expected = BsonDocument.parse(this.jsonMapper.writeValueAsString(pojo));
+            final BsonDocument actual = new BsonDocument();
+            codec.encode(new BsonDocumentWriter(actual), pojo, EncoderContext.builder().build());
+            Assertions.assertThat(actual).as(filename).isEqualTo(expected);
+
+            final T expectedPojo = this.jsonMapper.readValue(actual.toJson(this.writerSettings), pojoClass);
+            final T actualPojo = codec.decode(new BsonDocumentReader(actual), DecoderContext.builder().build());
+            Assertions.assertThat(actualPojo).as(filename).isExactlyInstanceOf(expectedPojo.getClass());
+            Assertions
+                .assertThat(this.jsonMapper.writeValueAsString(actualPojo))
+                .as(filename)
+                .isEqualTo(this.jsonMapper.writeValueAsString(expectedPojo));
+        }
+    }
+
+}
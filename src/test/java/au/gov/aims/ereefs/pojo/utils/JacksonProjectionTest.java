@@ -0,0 +1,164 @@
+package au.gov.aims.ereefs.pojo.utils;
+
+import au.gov.aims.ereefs.pojo.definition.download.DownloadDefinition;
+import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
+import au.gov.aims.ereefs.pojo.job.Job;
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.task.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import org.assertj.core.api.Assertions;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test cases for {@link JacksonProjection}.
+ */
+public class JacksonProjectionTest {
+
+    /**
+     * Constant identifying the path to the test data.
+     */
+    final public String TEST_DATA_PATH = System.getProperty("user.dir") + File.separator + "src" +
+        File.separator + "test" + File.separator + "resources";
+
+    final protected ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * Verify the projection of {@link Metadata} keeps the time axis of each variable but not the
+     * domains which are discarded, and so requires an aggregation {@code $project} stage.
+     */
+    @Test
+    public void testMetadataProjection() {
+        final JacksonProjection projection = JacksonProjection.of(this.jsonMapper, Metadata.class);
+        Assertions.assertThat(projection.isEmpty()).isFalse();
+        Assertions.assertThat(projection.requiresAggregation()).isTrue();
+        Assertions
+            .assertThat(projection.getFieldNames())
+            .contains("_id", "type", "definitionId", "fileURI", "lastModified", "status", "checksum", "variables")
+            .doesNotContain("version", "lastDownloaded");
+        Assertions
+            .assertThatThrownBy(projection::toProjection)
+            .isInstanceOf(IllegalStateException.class);
+
+        final String stage = this.toJson(projection.toProjectStage());
+        Assertions
+            .assertThat(stage)
+            .contains("$objectToArray", "temporalDomain", "timeValues")
+            .doesNotContain("verticalDomain")
+            .doesNotContain("horizontalDomain")
+            .doesNotContain("parameter");
+    }
+
+    /**
+     * Verify the projection of a polymorphic class includes the type property and the properties
+     * of its subtypes, and can be applied with {@code find()}.
+     */
+    @Test
+    public void testTaskProjection() {
+        final JacksonProjection projection = JacksonProjection.of(this.jsonMapper, Task.class);
+        Assertions.assertThat(projection.requiresAggregation()).isFalse();
+        Assertions
+            .assertThat(projection.getFieldNames())
+            .contains("_id", "type", "jobId", "status", "history", "metadataId", "outputUrl");
+        // The history is bound by a custom deserialiser (it may be compact), so is returned whole.
+        Assertions
+            .assertThat(this.toJson(projection.toProjection()))
+            .contains("\"history\": 1");
+    }
+
+    /**
+     * Verify an explicit projection includes only the specified fields.
+     */
+    @Test
+    public void testInclude() {
+        final JacksonProjection projection = JacksonProjection.include("type", "status");
+        Assertions.assertThat(projection.requiresAggregation()).isFalse();
+        Assertions
+            .assertThat(this.toJson(projection.toProjection()))
+            .isEqualTo("{\"type\": 1, \"status\": 1}");
+    }
+
+    /**
+     * Verify no field bound by {@code Jackson} is removed by the projection, by pruning each
+     * test document as the projection would and comparing the resulting POJOs.
+     */
+    @Test
+    public void testProjectionKeepsBoundFields() throws Exception {
+        this.doTestProjection("metadata", Metadata.class);
+        this.doTestProjection("task", Task.class);
+        this.doTestProjection("job", Job.class);
+        this.doTestProjection("definitions" + File.separator + "products", ProductDefinition.class);
+        this.doTestProjection("definitions" + File.separator + "downloads", DownloadDefinition.class);
+    }
+
+    protected <T> void doTestProjection(String directory, Class<T> pojoClass) throws Exception {
+        final JacksonProjection projection = JacksonProjection.of(this.jsonMapper, pojoClass);
+        final List<String> filenames = FileUtils.listFiles(TEST_DATA_PATH + File.separator + directory, ".json");
+        Assertions.assertThat(filenames).isNotEmpty();
+        for (String filename : filenames) {
+            final BsonDocument document;
+            try {
+                document = BsonDocument.parse(new String(
+                    Files.readAllBytes(new File(filename).toPath()),
+                    StandardCharsets.UTF_8
+                ));
+            } catch (RuntimeException e) {
+                // Some test data is deliberately invalid.
+                continue;
+            }
+            final BsonValue projected = this.prune(projection.root, document);
+            Assertions
+                .assertThat(this.jsonMapper.writeValueAsString(
+                    this.jsonMapper.readValue(this.toJson(projected.asDocument()), pojoClass)))
+                .as(filename)
+                .isEqualTo(this.jsonMapper.writeValueAsString(
+                    this.jsonMapper.readValue(this.toJson(document), pojoClass)));
+        }
+    }
+
+    /**
+     * Returns the {@code value}, keeping only the fields included by the {@code node}.
+     */
+    protected BsonValue prune(JacksonProjection.Node node, BsonValue value) {
+        if (node instanceof JacksonProjection.BeanNode && value.isDocument()) {
+            final BsonDocument pruned = new BsonDocument();
+            for (Map.Entry<String, JacksonProjection.Node> entry : ((JacksonProjection.BeanNode) node).properties.entrySet()) {
+                final BsonValue child = value.asDocument().get(entry.getKey());
+                if (child != null) {
+                    pruned.put(entry.getKey(), this.prune(entry.getValue(), child));
+                }
+            }
+            return pruned;
+        }
+        if (node instanceof JacksonProjection.ArrayNode && value.isArray()) {
+            final BsonArray pruned = new BsonArray();
+            for (BsonValue element : value.asArray()) {
+                pruned.add(this.prune(((JacksonProjection.ArrayNode) node).element, element));
+            }
+            return pruned;
+        }
+        if (node instanceof JacksonProjection.MapNode && value.isDocument()) {
+            final BsonDocument pruned = new BsonDocument();
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                pruned.put(entry.getKey(), this.prune(((JacksonProjection.MapNode) node).value, entry.getValue()));
+            }
+            return pruned;
+        }
+        return value;
+    }
+
+    protected String toJson(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()).toJson();
+    }
+
+}